@@ -19,10 +19,14 @@ class SlotNotification {
   final String message;
   final Map<String, dynamic>? slot;
 
+  /// Các slot bị ảnh hưởng trong message hàng loạt (SLOTS_APPROVED / SLOTS_REJECTED)
+  final List<Map<String, dynamic>> slots;
+
   SlotNotification({
     required this.type,
     required this.message,
     this.slot,
+    this.slots = const [],
   });
 
   factory SlotNotification.fromJson(Map<String, dynamic> json) {
@@ -30,6 +34,9 @@ class SlotNotification {
       type: json['type'] ?? '',
       message: json['message'] ?? '',
       slot: json['slot'] as Map<String, dynamic>?,
+      slots: (json['slots'] as List<dynamic>? ?? const [])
+          .whereType<Map<String, dynamic>>()
+          .toList(),
     );
   }
 }
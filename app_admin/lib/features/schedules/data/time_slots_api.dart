@@ -41,6 +41,44 @@ class TimeSlotsApi {
     return data.map((e) => TimeSlotDto.fromJson(e)).toList();
   }
 
+  /// Lấy slots theo trang (keyset pagination) - dùng cho cuộn vô hạn
+  Future<TimeSlotPage> getSlotsPage({
+    String? status,
+    DateTime? startDate,
+    DateTime? endDate,
+    String? cursor,
+    int size = 50,
+  }) async {
+    final queryParams = <String, dynamic>{'size': size};
+    if (status != null && status.isNotEmpty) {
+      queryParams['status'] = status;
+    }
+    if (startDate != null) {
+      queryParams['startDate'] = _dateFormat.format(startDate);
+    }
+    if (endDate != null) {
+      queryParams['endDate'] = _dateFormat.format(endDate);
+    }
+    if (cursor != null) {
+      queryParams['cursor'] = cursor;
+    }
+
+    final response = await _client.get(
+      '/slots/admin/all',
+      queryParameters: queryParams,
+    );
+
+    final rawData = response.data['data'];
+    if (rawData == null) return const TimeSlotPage(items: []);
+    final content = (rawData['content'] as List? ?? [])
+        .map((e) => TimeSlotDto.fromJson(e))
+        .toList();
+    return TimeSlotPage(
+      items: content,
+      nextCursor: rawData['nextCursor'] as String?,
+    );
+  }
+
   /// Lấy slots chờ duyệt
   Future<List<TimeSlotDto>> getPendingSlots() async {
     final response = await _client.get('/slots/pending');
@@ -69,9 +107,36 @@ class TimeSlotsApi {
     return response.data['data'];
   }
 
+  /// Duyệt tất cả slot chờ duyệt của một bác sĩ trong khoảng ngày
+  Future<String> approveSlotsInRange(
+    String doctorId,
+    DateTime startDate,
+    DateTime endDate,
+  ) async {
+    final response = await _client.put(
+      '/slots/approve-range',
+      queryParameters: {
+        'doctorId': doctorId,
+        'startDate': startDate.toIso8601String().split('T')[0],
+        'endDate': endDate.toIso8601String().split('T')[0],
+      },
+    );
+    return response.data['data'];
+  }
+
   /// Từ chối nhiều slots
   Future<String> rejectBulkSlots(List<String> slotIds) async {
     final response = await _client.put('/slots/reject-bulk', data: slotIds);
     return response.data['data'];
   }
 }
+
+/// Một trang slot trả về từ /slots/admin/all?size=...
+class TimeSlotPage {
+  final List<TimeSlotDto> items;
+  final String? nextCursor;
+
+  const TimeSlotPage({required this.items, this.nextCursor});
+
+  bool get hasNext => nextCursor != null;
+}
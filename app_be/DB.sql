@@ -16,6 +16,11 @@ DROP TABLE IF EXISTS conversations CASCADE;
 DROP TABLE IF EXISTS audit_logs CASCADE;
 DROP TABLE IF EXISTS notifications CASCADE;
 DROP TABLE IF EXISTS reviews CASCADE;
+DROP TABLE IF EXISTS idempotency_keys CASCADE;
+DROP TABLE IF EXISTS analytics_rollup_state CASCADE;
+DROP TABLE IF EXISTS booking_daily_rollup CASCADE;
+DROP TABLE IF EXISTS booking_view CASCADE;
+DROP TABLE IF EXISTS booking_outbox CASCADE;
 DROP TABLE IF EXISTS booking_status_history CASCADE;
 DROP TABLE IF EXISTS bookings CASCADE;
 DROP TABLE IF EXISTS time_slots CASCADE;
@@ -149,6 +154,10 @@ CREATE TABLE time_slots (
 );
 
 CREATE INDEX IF NOT EXISTS idx_time_slots_status ON time_slots(status);
+CREATE INDEX IF NOT EXISTS idx_time_slots_doctor_date ON time_slots(doctor_id, date);
+CREATE INDEX IF NOT EXISTS idx_time_slots_date_start ON time_slots(date DESC, start_time, id);
+CREATE INDEX IF NOT EXISTS idx_time_slots_status_date_start ON time_slots(status, date DESC, start_time, id);
+CREATE INDEX IF NOT EXISTS idx_time_slots_schedule ON time_slots(schedule_id) WHERE schedule_id IS NOT NULL;
 
 -- ============================================
 -- 6. ĐẶT LỊCH KHÁM & LỊCH SỬ TRẠNG THÁI
@@ -175,6 +184,10 @@ CREATE TABLE bookings (
 
 CREATE INDEX IF NOT EXISTS idx_bookings_payment_status ON bookings(payment_status);
 CREATE INDEX IF NOT EXISTS idx_bookings_payment_reference ON bookings(payment_reference);
+CREATE INDEX IF NOT EXISTS idx_bookings_patient_created ON bookings(patient_id, created_at DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_bookings_doctor_created ON bookings(doctor_id, created_at DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_bookings_updated_at ON bookings(updated_at);
+CREATE INDEX IF NOT EXISTS idx_bookings_created_at ON bookings(created_at);
 
 CREATE TABLE booking_status_history (
     id UUID PRIMARY KEY DEFAULT uuid_generate_v4(),
@@ -186,6 +199,93 @@ CREATE TABLE booking_status_history (
     changed_at TIMESTAMP DEFAULT now()
 );
 
+CREATE INDEX IF NOT EXISTS idx_booking_status_history_booking ON booking_status_history(booking_id, changed_at DESC);
+
+-- Outbox thông báo booking (ghi cùng transaction với thay đổi trạng thái, BookingOutboxRelay gửi đi)
+CREATE TABLE booking_outbox (
+    id BIGSERIAL PRIMARY KEY,
+    booking_id UUID,
+    event_type VARCHAR(50) NOT NULL,
+    payload JSONB NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING', -- 'PENDING', 'SENT', 'DEAD'
+    attempts INT NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP NOT NULL DEFAULT now(),
+    last_error TEXT,
+    created_at TIMESTAMP NOT NULL DEFAULT now(),
+    processed_at TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_booking_outbox_pending ON booking_outbox(next_attempt_at, id) WHERE status = 'PENDING';
+CREATE INDEX IF NOT EXISTS idx_booking_outbox_processed ON booking_outbox(processed_at) WHERE status = 'SENT';
+
+-- Idempotency-Key cho POST /bookings và /bookings/{id}/payment/initiate (response được trả lại cho retry tới expires_at)
+CREATE TABLE idempotency_keys (
+    user_id UUID NOT NULL,
+    scope VARCHAR(128) NOT NULL,
+    idem_key VARCHAR(128) NOT NULL,
+    request_hash CHAR(64) NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'IN_PROGRESS', -- 'IN_PROGRESS', 'COMPLETED'
+    response_status INT,
+    response_body TEXT,
+    created_at TIMESTAMP NOT NULL DEFAULT now(),
+    expires_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (user_id, scope, idem_key)
+);
+
+CREATE INDEX IF NOT EXISTS idx_idempotency_keys_expires ON idempotency_keys(expires_at);
+
+-- Read model cho danh sách booking (BookingViewProjector cập nhật cùng transaction với bookings)
+CREATE TABLE booking_view (
+    booking_id UUID PRIMARY KEY REFERENCES bookings(id) ON DELETE CASCADE,
+    patient_id UUID,
+    doctor_id UUID,
+    service_id UUID,
+    time_slot_id UUID,
+    slot_date DATE,
+    start_time TIME,
+    end_time TIME,
+    status VARCHAR(20),
+    notes TEXT,
+    doctor_notes TEXT,
+    cancellation_reason TEXT,
+    patient_name TEXT,
+    patient_avatar TEXT,
+    doctor_name TEXT,
+    doctor_avatar TEXT,
+    service_name TEXT,
+    total_amount NUMERIC(12, 2),
+    payment_status VARCHAR(20),
+    payment_method VARCHAR(30),
+    payment_reference VARCHAR(100),
+    paid_at TIMESTAMP,
+    created_at TIMESTAMP NOT NULL,
+    updated_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_booking_view_patient ON booking_view(patient_id, created_at DESC, booking_id DESC);
+CREATE INDEX IF NOT EXISTS idx_booking_view_doctor ON booking_view(doctor_id, created_at DESC, booking_id DESC);
+CREATE INDEX IF NOT EXISTS idx_booking_view_status ON booking_view(status, created_at DESC, booking_id DESC);
+CREATE INDEX IF NOT EXISTS idx_booking_view_created ON booking_view(created_at DESC, booking_id DESC);
+CREATE INDEX IF NOT EXISTS idx_booking_view_doctor_date ON booking_view(doctor_id, slot_date);
+
+-- Bảng gộp booking theo ngày cho analytics-service (BookingRollupService cập nhật tăng dần theo updated_at)
+CREATE TABLE booking_daily_rollup (
+    day DATE NOT NULL,
+    doctor_id UUID,
+    service_id UUID,
+    status booking_status,
+    booking_count BIGINT NOT NULL,
+    revenue NUMERIC(14, 2) NOT NULL DEFAULT 0
+);
+
+CREATE INDEX IF NOT EXISTS idx_booking_daily_rollup_day ON booking_daily_rollup(day);
+
+CREATE TABLE analytics_rollup_state (
+    name VARCHAR(50) PRIMARY KEY,
+    high_water_mark TIMESTAMP,
+    refreshed_at TIMESTAMP NOT NULL DEFAULT now()
+);
+
 -- ============================================
 -- 7. ĐÁNH GIÁ, THÔNG BÁO & AUDIT LOG
 -- ============================================
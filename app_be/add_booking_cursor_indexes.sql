@@ -0,0 +1,9 @@
+-- Indexes for keyset (cursor) pagination of booking lists: ORDER BY created_at DESC, id DESC
+-- with WHERE (created_at, id) < (cursor) becomes an index range scan, no OFFSET and no COUNT(*).
+-- booking_view carries the same keys (add_booking_view.sql); these cover queries that still hit bookings.
+CREATE INDEX IF NOT EXISTS idx_bookings_patient_created ON bookings(patient_id, created_at DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_bookings_doctor_created ON bookings(doctor_id, created_at DESC, id DESC);
+
+-- Single-column indexes are prefixes of the composite ones above
+DROP INDEX IF EXISTS idx_bookings_patient;
+DROP INDEX IF EXISTS idx_bookings_doctor;
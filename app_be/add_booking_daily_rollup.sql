@@ -0,0 +1,24 @@
+-- Pre-aggregated booking counts for analytics-service (dashboard, /analytics/bookings/by-period, rankings).
+-- One row per (created day, doctor, service, status) with the booking count and revenue (service price).
+-- BookingRollupService refreshes the days whose bookings changed since analytics_rollup_state.high_water_mark
+-- (bookings.updated_at); the first run after this migration builds the whole table.
+CREATE TABLE IF NOT EXISTS booking_daily_rollup (
+    day DATE NOT NULL,
+    doctor_id UUID,
+    service_id UUID,
+    status booking_status,
+    booking_count BIGINT NOT NULL,
+    revenue NUMERIC(14, 2) NOT NULL DEFAULT 0
+);
+
+CREATE INDEX IF NOT EXISTS idx_booking_daily_rollup_day ON booking_daily_rollup(day);
+
+CREATE TABLE IF NOT EXISTS analytics_rollup_state (
+    name VARCHAR(50) PRIMARY KEY,
+    high_water_mark TIMESTAMP,
+    refreshed_at TIMESTAMP NOT NULL DEFAULT now()
+);
+
+-- Finding changed days and recomputing a day without scanning all bookings
+CREATE INDEX IF NOT EXISTS idx_bookings_updated_at ON bookings(updated_at);
+CREATE INDEX IF NOT EXISTS idx_bookings_created_at ON bookings(created_at);
@@ -0,0 +1,55 @@
+-- Denormalized read model for the booking lists (/bookings/patient, /bookings/doctor, /bookings/admin/all).
+-- One row per booking with slot time, patient/doctor names and avatars and service name already joined,
+-- so each list page is a single index range scan. booking-service keeps it in sync in the same transaction
+-- as the booking change (BookingViewProjector) and on profile/doctor/service updates.
+CREATE TABLE IF NOT EXISTS booking_view (
+    booking_id UUID PRIMARY KEY REFERENCES bookings(id) ON DELETE CASCADE,
+    patient_id UUID,
+    doctor_id UUID,
+    service_id UUID,
+    time_slot_id UUID,
+    slot_date DATE,
+    start_time TIME,
+    end_time TIME,
+    status VARCHAR(20),
+    notes TEXT,
+    doctor_notes TEXT,
+    cancellation_reason TEXT,
+    patient_name TEXT,
+    patient_avatar TEXT,
+    doctor_name TEXT,
+    doctor_avatar TEXT,
+    service_name TEXT,
+    total_amount NUMERIC(12, 2),
+    payment_status VARCHAR(20),
+    payment_method VARCHAR(30),
+    payment_reference VARCHAR(100),
+    paid_at TIMESTAMP,
+    created_at TIMESTAMP NOT NULL,
+    updated_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_booking_view_patient ON booking_view(patient_id, created_at DESC, booking_id DESC);
+CREATE INDEX IF NOT EXISTS idx_booking_view_doctor ON booking_view(doctor_id, created_at DESC, booking_id DESC);
+CREATE INDEX IF NOT EXISTS idx_booking_view_status ON booking_view(status, created_at DESC, booking_id DESC);
+CREATE INDEX IF NOT EXISTS idx_booking_view_created ON booking_view(created_at DESC, booking_id DESC);
+
+-- Backfill (safe to re-run)
+INSERT INTO booking_view (
+    booking_id, patient_id, doctor_id, service_id, time_slot_id, slot_date, start_time, end_time,
+    status, notes, doctor_notes, cancellation_reason, patient_name, patient_avatar,
+    doctor_name, doctor_avatar, service_name, total_amount, payment_status, payment_method,
+    payment_reference, paid_at, created_at, updated_at
+)
+SELECT b.id, b.patient_id, b.doctor_id, b.service_id, b.time_slot_id, t.date, t.start_time, t.end_time,
+       b.status::text, b.notes, b.doctor_notes, b.cancellation_reason, p.full_name, p.avatar_url,
+       d.full_name, d.avatar_url, s.name, b.total_amount, b.payment_status, b.payment_method,
+       b.payment_reference, b.paid_at, COALESCE(b.created_at, now()), COALESCE(b.updated_at, now())
+FROM bookings b
+LEFT JOIN time_slots t ON t.id = b.time_slot_id
+LEFT JOIN doctors d ON d.id = b.doctor_id
+LEFT JOIN medical_services s ON s.id = b.service_id
+LEFT JOIN LATERAL (
+    SELECT pr.full_name, pr.avatar_url FROM profiles pr WHERE pr.user_id = b.patient_id LIMIT 1
+) p ON true
+ON CONFLICT (booking_id) DO NOTHING;
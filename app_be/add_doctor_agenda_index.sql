@@ -0,0 +1,2 @@
+-- Doctor day agenda (GET /bookings/doctor/agenda): time_slots(doctor_id, date) joined to booking_view by day.
+CREATE INDEX IF NOT EXISTS idx_booking_view_doctor_date ON booking_view(doctor_id, slot_date);
@@ -0,0 +1,5 @@
+-- Indexes for the admin slot listing (/slots/admin/all?size=...).
+-- Matches ORDER BY date DESC, start_time, id so keyset pages are index range scans.
+CREATE INDEX IF NOT EXISTS idx_time_slots_doctor_date ON time_slots(doctor_id, date);
+CREATE INDEX IF NOT EXISTS idx_time_slots_date_start ON time_slots(date DESC, start_time, id);
+CREATE INDEX IF NOT EXISTS idx_time_slots_status_date_start ON time_slots(status, date DESC, start_time, id);
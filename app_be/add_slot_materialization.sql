@@ -0,0 +1,5 @@
+-- Slot materialization from doctor_schedules (booking.slot-materializer.*).
+-- Inserts are de-duplicated by an anti-join on (doctor_id, date, time overlap), served by idx_time_slots_doctor_date.
+-- Pruning future slots of deactivated schedules looks slots up by schedule_id.
+CREATE INDEX IF NOT EXISTS idx_time_slots_doctor_date ON time_slots(doctor_id, date);
+CREATE INDEX IF NOT EXISTS idx_time_slots_schedule ON time_slots(schedule_id) WHERE schedule_id IS NOT NULL;
@@ -0,0 +1,3 @@
+-- booking_status_history is read per booking (GET /bookings/{id}/history) and the batched history writer
+-- looks up the trigger-written row of each transition by (booking_id, latest changed_at).
+CREATE INDEX IF NOT EXISTS idx_booking_status_history_booking ON booking_status_history(booking_id, changed_at DESC);
@@ -3,9 +3,11 @@ package com.medibook.analytics;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cloud.client.discovery.EnableDiscoveryClient;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication(scanBasePackages = { "com.medibook.analytics", "com.medibook.common" })
 @EnableDiscoveryClient
+@EnableScheduling
 public class AnalyticsServiceApplication {
 
     public static void main(String[] args) {
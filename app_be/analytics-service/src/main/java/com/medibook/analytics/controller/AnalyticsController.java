@@ -1,7 +1,9 @@
 package com.medibook.analytics.controller;
 
+import com.medibook.analytics.dto.BookingsChangedRequest;
 import com.medibook.analytics.dto.DashboardDto;
 import com.medibook.analytics.service.AnalyticsService;
+import com.medibook.analytics.service.BookingRollupService;
 import com.medibook.common.dto.ApiResponse;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -24,6 +26,7 @@ import java.util.UUID;
 public class AnalyticsController {
 
     private final AnalyticsService analyticsService;
+    private final BookingRollupService bookingRollupService;
 
     @GetMapping("/dashboard")
     @Operation(summary = "Lấy thống kê tổng quan cho dashboard với filter theo ngày")
@@ -53,4 +56,17 @@ public class AnalyticsController {
         List<DashboardDto.DoctorStats> rankings = analyticsService.getTopDoctors(limit, startDate, endDate);
         return ResponseEntity.ok(ApiResponse.success(rankings));
     }
+
+    @PostMapping("/internal/bookings-changed")
+    @Operation(summary = "Internal: booking-service báo booking đổi trạng thái để tính lại dashboard")
+    public ResponseEntity<ApiResponse<Void>> bookingsChanged(@RequestBody BookingsChangedRequest request) {
+        analyticsService.onBookingsChanged(request.getDays() != null ? request.getDays() : List.of());
+        return ResponseEntity.ok(ApiResponse.success(null));
+    }
+
+    @PostMapping("/rollup/rebuild")
+    @Operation(summary = "Dựng lại bảng gộp booking_daily_rollup (sau khi sửa / xóa dữ liệu trực tiếp trong DB)")
+    public ResponseEntity<ApiResponse<BookingRollupService.RefreshReport>> rebuildRollup() {
+        return ResponseEntity.ok(ApiResponse.success(bookingRollupService.rebuild()));
+    }
 }
@@ -0,0 +1,124 @@
+package com.medibook.analytics.controller;
+
+import com.medibook.analytics.dto.ReportJobDto;
+import com.medibook.analytics.dto.ReportJobRequest;
+import com.medibook.analytics.service.BookingExportService;
+import com.medibook.analytics.service.ReportJobService;
+import com.medibook.common.dto.ApiResponse;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.Callable;
+
+/**
+ * Report Controller - Xuất báo cáo
+ */
+@RestController
+@RequestMapping("/reports")
+@RequiredArgsConstructor
+@Tag(name = "Reports", description = "API xuất báo cáo")
+public class ReportController {
+
+    private static final MediaType XLSX =
+            MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+
+    private final BookingExportService bookingExportService;
+    private final ReportJobService reportJobService;
+
+    @GetMapping("/bookings.xlsx")
+    @Operation(summary = "Xuất danh sách booking theo ngày tạo ra file Excel (stream)")
+    public ResponseEntity<StreamingResponseBody> exportBookings(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            HttpServletRequest request) {
+        // Kiểm tra trước khi trả header để lỗi vẫn là JSON ApiResponse
+        BookingExportService.ExportPermit permit = bookingExportService.reserve(startDate, endDate);
+        try {
+            // Body có thể không bao giờ chạy (client ngắt, async timeout, executor từ chối):
+            // trả lượt xuất khi request async kết thúc; export() trả trước thì close() không làm gì
+            WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(permit, new CallableProcessingInterceptor() {
+                @Override
+                public <T> void afterCompletion(NativeWebRequest webRequest, Callable<T> task) {
+                    permit.close();
+                }
+            });
+            String fileName = "bookings_" + startDate + "_" + endDate + ".xlsx";
+            StreamingResponseBody body = out -> bookingExportService.export(permit, startDate, endDate, out);
+            return ResponseEntity.ok()
+                    .contentType(XLSX)
+                    .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(fileName).build().toString())
+                    .body(body);
+        } catch (RuntimeException e) {
+            permit.close();
+            throw e;
+        }
+    }
+
+    @PostMapping("/jobs")
+    @Operation(summary = "Tạo job render báo cáo PDF (mặc định MONTHLY_MANAGEMENT cho kỳ yyyy-MM)")
+    public ResponseEntity<ApiResponse<ReportJobDto>> createJob(@RequestBody ReportJobRequest request) {
+        ReportJobDto job = reportJobService.submit(request);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(ApiResponse.success(job));
+    }
+
+    @GetMapping("/jobs/{id}")
+    @Operation(summary = "Trạng thái job báo cáo; job đã xong thì trả file PDF (hỗ trợ Range / If-Range, ETag)")
+    public ResponseEntity<?> getJob(
+            @PathVariable String id,
+            @RequestHeader(value = HttpHeaders.IF_RANGE, required = false) String ifRange) throws IOException {
+        ReportJobDto job = reportJobService.getJob(id);
+        switch (ReportJobService.JobStatus.valueOf(job.getStatus())) {
+            case QUEUED, RUNNING:
+                return ResponseEntity.status(HttpStatus.ACCEPTED).body(ApiResponse.success(job));
+            case FAILED:
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ApiResponse.<ReportJobDto>builder()
+                        .success(false)
+                        .message("Render báo cáo thất bại: " + job.getError())
+                        .data(job)
+                        .timestamp(LocalDateTime.now())
+                        .build());
+            default:
+                break;
+        }
+
+        // File của một job không đổi (đã gắn phiên bản dữ liệu). Spring xử lý Range và If-None-Match /
+        // If-Modified-Since trên Resource nhưng không xét If-Range: If-Range không khớp thì trả cả file
+        // qua StreamingResponseBody (không qua xử lý Range)
+        Path file = reportJobService.getArtifact(id);
+        String fileName = "bao-cao_" + job.getPeriod() + ".pdf";
+        String etag = "\"" + job.getDataVersion() + "\"";
+        long lastModified = Files.getLastModifiedTime(file).toMillis();
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_PDF)
+                .eTag(etag)
+                .lastModified(lastModified)
+                .cacheControl(CacheControl.maxAge(Duration.ofDays(1)).cachePrivate())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(fileName).build().toString());
+        if (!ReportJobService.ifRangeMatches(ifRange, etag, lastModified)) {
+            StreamingResponseBody whole = out -> Files.copy(file, out);
+            return response.contentLength(Files.size(file)).body(whole);
+        }
+        return response.body(new FileSystemResource(file));
+    }
+}
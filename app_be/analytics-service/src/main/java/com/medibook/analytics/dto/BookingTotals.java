@@ -0,0 +1,16 @@
+package com.medibook.analytics.dto;
+
+/**
+ * Các con số tổng của dashboard, tính trong một câu SQL (COUNT / SUM ... FILTER)
+ */
+public record BookingTotals(
+        long total,
+        long pending,
+        long confirmed,
+        long completed,
+        long cancelled,
+        long today,
+        long revenue
+) {
+    public static final BookingTotals EMPTY = new BookingTotals(0, 0, 0, 0, 0, 0, 0);
+}
@@ -0,0 +1,19 @@
+package com.medibook.analytics.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * booking-service báo các ngày (ngày tạo booking) có booking đổi trạng thái
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookingsChangedRequest {
+    private List<LocalDate> days = new ArrayList<>();
+}
@@ -2,6 +2,7 @@ package com.medibook.analytics.dto;
 
 import lombok.*;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -40,6 +41,10 @@ public class DashboardDto {
     // Dịch vụ phổ biến
     private List<ServiceStats> popularServices;
 
+    // Các phần không tính được / quá deadline (trả rỗng, các phần khác vẫn đúng)
+    @Builder.Default
+    private List<String> unavailableSections = new ArrayList<>();
+
     @Data
     @Builder
     @NoArgsConstructor
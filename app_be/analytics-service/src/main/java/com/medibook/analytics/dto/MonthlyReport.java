@@ -0,0 +1,38 @@
+package com.medibook.analytics.dto;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+
+/**
+ * Số liệu của báo cáo quản lý tháng, đọc từ bảng gộp trong một snapshot (dataVersion = dấu vân tay số liệu)
+ */
+public record MonthlyReport(
+        YearMonth period,
+        String dataVersion,
+        BookingTotals totals,
+        List<DoctorLine> doctors,
+        List<ServiceLine> topServices,
+        LocalDateTime generatedAt
+) {
+
+    /**
+     * revenue: doanh thu của booking hoàn thành
+     */
+    public record DoctorLine(String doctorName, String specialty, long total, long completed, long cancelled, long revenue) {
+
+        public double completionRate() {
+            return rate(completed, total);
+        }
+    }
+
+    public record ServiceLine(String serviceName, long bookings, long revenue) {}
+
+    public double completionRate() {
+        return rate(totals.completed(), totals.total());
+    }
+
+    static double rate(long part, long total) {
+        return total > 0 ? part * 100.0 / total : 0;
+    }
+}
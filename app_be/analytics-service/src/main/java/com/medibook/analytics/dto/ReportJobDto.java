@@ -0,0 +1,24 @@
+package com.medibook.analytics.dto;
+
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Trạng thái một job render báo cáo; status DONE thì GET /reports/jobs/{id} trả file
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReportJobDto {
+    private String id;
+    private String type;
+    private String period;
+    private String dataVersion;
+    private String status;
+    private String error;
+    private Long fileSize;
+    private LocalDateTime createdAt;
+    private LocalDateTime finishedAt;
+}
@@ -0,0 +1,18 @@
+package com.medibook.analytics.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.YearMonth;
+
+/**
+ * Yêu cầu render báo cáo: type mặc định MONTHLY_MANAGEMENT, period dạng yyyy-MM
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReportJobRequest {
+    private String type = "MONTHLY_MANAGEMENT";
+    private YearMonth period;
+}
@@ -0,0 +1,44 @@
+package com.medibook.analytics.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+
+/**
+ * Đọc booking để xuất báo cáo bằng con trỏ JDBC forward-only: driver Postgres chỉ giữ fetchSize dòng
+ * trong bộ nhớ mỗi lần (cần chạy trong transaction - autocommit tắt), mỗi dòng được xử lý ngay trong
+ * callback, không dựng entity. Đọc từ booking_view (đã có tên bệnh nhân / bác sĩ / dịch vụ, giờ khám).
+ */
+@Repository
+@RequiredArgsConstructor
+public class BookingExportRepository {
+
+    private static final String SELECT_BOOKINGS = """
+            SELECT booking_id, created_at, slot_date, start_time, end_time, status,
+                   patient_name, doctor_name, service_name, total_amount,
+                   payment_status, payment_method, paid_at, cancellation_reason
+            FROM booking_view
+            WHERE created_at >= ? AND created_at < ?
+            ORDER BY created_at, booking_id
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Duyệt các booking tạo trong [from, to] theo thứ tự thời gian tạo
+     */
+    public void streamBookings(LocalDate from, LocalDate to, int fetchSize, RowCallbackHandler handler) {
+        jdbcTemplate.query(con -> {
+            var ps = con.prepareStatement(SELECT_BOOKINGS, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            ps.setTimestamp(1, Timestamp.valueOf(from.atStartOfDay()));
+            ps.setTimestamp(2, Timestamp.valueOf(to.plusDays(1).atStartOfDay()));
+            return ps;
+        }, handler);
+    }
+}
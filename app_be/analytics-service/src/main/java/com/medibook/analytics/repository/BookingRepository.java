@@ -16,13 +16,6 @@ import java.util.UUID;
 @Repository
 public interface BookingRepository extends JpaRepository<Booking, UUID> {
     
-    // Đếm theo status
-    long countByStatus(String status);
-    
-    // Đếm booking hôm nay (native query để tránh lỗi type)
-    @Query(value = "SELECT COUNT(*) FROM bookings WHERE DATE(created_at) = CURRENT_DATE", nativeQuery = true)
-    long countTodayBookings();
-    
     // Đếm booking theo doctor
     long countByDoctorId(UUID doctorId);
     
@@ -31,13 +24,7 @@ public interface BookingRepository extends JpaRepository<Booking, UUID> {
     
     // ============== FILTER THEO NGÀY ==============
     
-    // Đếm booking theo khoảng thời gian
-    @Query(value = "SELECT COUNT(*) FROM bookings WHERE created_at >= :startDate AND created_at <= :endDate", nativeQuery = true)
-    long countByDateRange(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
-    
-    // Đếm booking theo status và khoảng thời gian
-    @Query(value = "SELECT COUNT(*) FROM bookings WHERE status = :status AND created_at >= :startDate AND created_at <= :endDate", nativeQuery = true)
-    long countByStatusAndDateRange(@Param("status") String status, @Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
+    // Tổng số / theo trạng thái / doanh thu: DashboardQueryRepository.summarize (một câu SQL)
     
     // Thống kê booking theo ngày trong khoảng thời gian
     @Query(value = "SELECT TO_CHAR(created_at, 'DD/MM') as label, COUNT(*) as count " +
@@ -82,23 +69,6 @@ public interface BookingRepository extends JpaRepository<Booking, UUID> {
            "LIMIT :limit", nativeQuery = true)
     List<Object[]> countBookingsByDoctorInRange(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate, @Param("limit") int limit);
     
-    // ============== DOANH THU ==============
-    
-    // Tính tổng doanh thu từ bookings COMPLETED (không filter)
-    @Query(value = "SELECT COALESCE(SUM(ms.price), 0) " +
-           "FROM bookings b " +
-           "JOIN medical_services ms ON b.service_id = ms.id " +
-           "WHERE b.status = 'COMPLETED'", nativeQuery = true)
-    long calculateTotalRevenue();
-    
-    // Tính tổng doanh thu theo khoảng thời gian
-    @Query(value = "SELECT COALESCE(SUM(ms.price), 0) " +
-           "FROM bookings b " +
-           "JOIN medical_services ms ON b.service_id = ms.id " +
-           "WHERE b.status = 'COMPLETED' " +
-           "AND b.created_at >= :startDate AND b.created_at <= :endDate", nativeQuery = true)
-    long calculateRevenueByDateRange(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
-    
     // ============== QUERIES KHÔNG CÓ FILTER ==============
     
     // Thống kê booking theo ngày (7 ngày gần nhất)
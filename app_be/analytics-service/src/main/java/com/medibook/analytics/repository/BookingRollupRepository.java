@@ -0,0 +1,264 @@
+package com.medibook.analytics.repository;
+
+import com.medibook.analytics.dto.BookingTotals;
+import com.medibook.analytics.dto.MonthlyReport;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Bảng gộp booking_daily_rollup: (ngày tạo × bác sĩ × dịch vụ × trạng thái) → số booking, doanh thu
+ * (giá dịch vụ). Các truy vấn đọc trả về cùng dạng Object[] với BookingRepository nhưng chỉ quét số
+ * dòng tỉ lệ với số ngày trong khoảng, không phải số booking.
+ * Các hàm ghi phải chạy trong transaction (DELETE + INSERT theo ngày, advisory lock theo transaction).
+ */
+@Repository
+@RequiredArgsConstructor
+public class BookingRollupRepository {
+
+    private static final long ROLLUP_LOCK_KEY = 0x4011_0B1DL;
+    private static final String ROLLUP_NAME = "booking_daily_rollup";
+
+    private static final String AGGREGATE_BOOKINGS = """
+            INSERT INTO booking_daily_rollup (day, doctor_id, service_id, status, booking_count, revenue)
+            SELECT b.created_at::date, b.doctor_id, b.service_id, b.status, COUNT(*), COALESCE(SUM(ms.price), 0)
+            FROM bookings b
+            LEFT JOIN medical_services ms ON ms.id = b.service_id
+            WHERE b.created_at IS NOT NULL %s
+            GROUP BY b.created_at::date, b.doctor_id, b.service_id, b.status
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Chỉ một instance cập nhật bảng gộp tại một thời điểm
+     */
+    public void lock() {
+        jdbcTemplate.query("SELECT pg_advisory_xact_lock(?)", rs -> null, ROLLUP_LOCK_KEY);
+    }
+
+    /**
+     * Mốc updated_at đã gộp tới; null khi bảng chưa được dựng lần nào
+     */
+    public LocalDateTime findHighWaterMark() {
+        List<Timestamp> marks = jdbcTemplate.queryForList(
+                "SELECT high_water_mark FROM analytics_rollup_state WHERE name = ?", Timestamp.class, ROLLUP_NAME);
+        return marks.isEmpty() || marks.get(0) == null ? null : marks.get(0).toLocalDateTime();
+    }
+
+    /**
+     * updated_at lớn nhất của bookings / medical_services (giá dịch vụ đổi thì doanh thu đổi)
+     */
+    public LocalDateTime findLatestChange() {
+        Timestamp latest = jdbcTemplate.queryForObject("""
+                SELECT GREATEST((SELECT MAX(updated_at) FROM bookings), (SELECT MAX(updated_at) FROM medical_services))
+                """, Timestamp.class);
+        return latest != null ? latest.toLocalDateTime() : null;
+    }
+
+    /**
+     * Các ngày (theo created_at) có booking thay đổi sau mốc since
+     */
+    public List<LocalDate> findChangedDays(LocalDateTime since) {
+        Timestamp mark = Timestamp.valueOf(since);
+        return jdbcTemplate.queryForList("""
+                SELECT created_at::date AS day FROM bookings
+                WHERE updated_at > ? AND created_at IS NOT NULL
+                UNION
+                SELECT b.created_at::date FROM bookings b
+                WHERE b.created_at IS NOT NULL
+                  AND b.service_id IN (SELECT id FROM medical_services WHERE updated_at > ?)
+                """, Date.class, mark, mark).stream().map(Date::toLocalDate).toList();
+    }
+
+    /**
+     * Tính lại các ngày đã cho từ bookings; trả về số dòng gộp được ghi
+     */
+    public int replaceDays(Collection<LocalDate> days) {
+        if (days.isEmpty()) {
+            return 0;
+        }
+        Date[] dates = days.stream().distinct().map(Date::valueOf).toArray(Date[]::new);
+        jdbcTemplate.update(con -> {
+            var ps = con.prepareStatement("DELETE FROM booking_daily_rollup WHERE day = ANY(?)");
+            ps.setArray(1, con.createArrayOf("date", dates));
+            return ps;
+        });
+        // Khoảng bao [ngày nhỏ nhất, ngày lớn nhất + 1) để dùng được index created_at
+        LocalDate first = days.stream().min(LocalDate::compareTo).orElseThrow();
+        LocalDate last = days.stream().max(LocalDate::compareTo).orElseThrow();
+        return jdbcTemplate.update(con -> {
+            var ps = con.prepareStatement(String.format(AGGREGATE_BOOKINGS,
+                    "AND b.created_at >= ? AND b.created_at < ? AND b.created_at::date = ANY(?)"));
+            ps.setTimestamp(1, Timestamp.valueOf(first.atStartOfDay()));
+            ps.setTimestamp(2, Timestamp.valueOf(last.plusDays(1).atStartOfDay()));
+            ps.setArray(3, con.createArrayOf("date", dates));
+            return ps;
+        });
+    }
+
+    /**
+     * Dựng lại toàn bộ bảng gộp (lần đầu, hoặc định kỳ để loại booking đã bị xóa)
+     */
+    public int replaceAll() {
+        jdbcTemplate.update("DELETE FROM booking_daily_rollup");
+        return jdbcTemplate.update(String.format(AGGREGATE_BOOKINGS, ""));
+    }
+
+    public void saveHighWaterMark(LocalDateTime mark) {
+        jdbcTemplate.update("""
+                INSERT INTO analytics_rollup_state (name, high_water_mark, refreshed_at)
+                VALUES (?, ?, now())
+                ON CONFLICT (name) DO UPDATE
+                SET high_water_mark = EXCLUDED.high_water_mark, refreshed_at = EXCLUDED.refreshed_at
+                """, ROLLUP_NAME, mark != null ? Timestamp.valueOf(mark) : null);
+    }
+
+    // ============== ĐỌC (from / to = null: toàn bộ) ==============
+
+    /**
+     * Các con số tổng của dashboard trong một câu SQL
+     */
+    public BookingTotals summarize(LocalDate from, LocalDate to) {
+        List<Object> params = new ArrayList<>();
+        return jdbcTemplate.queryForObject("""
+                SELECT COALESCE(SUM(booking_count), 0) AS total,
+                       COALESCE(SUM(booking_count) FILTER (WHERE status = 'PENDING'), 0) AS pending,
+                       COALESCE(SUM(booking_count) FILTER (WHERE status = 'CONFIRMED'), 0) AS confirmed,
+                       COALESCE(SUM(booking_count) FILTER (WHERE status = 'COMPLETED'), 0) AS completed,
+                       COALESCE(SUM(booking_count) FILTER (WHERE status = 'CANCELLED'), 0) AS cancelled,
+                       COALESCE(SUM(booking_count) FILTER (WHERE day = CURRENT_DATE), 0) AS today,
+                       COALESCE(SUM(revenue) FILTER (WHERE status = 'COMPLETED'), 0) AS revenue
+                FROM booking_daily_rollup""" + range("", from, to, params),
+                DashboardQueryRepository.TOTALS_ROW_MAPPER, params.toArray());
+    }
+
+    // Cùng nhãn với BookingRepository.countBookingsByDayInRange
+    public List<Object[]> countBookingsByDay(LocalDate from, LocalDate to) {
+        return timeSeries("TO_CHAR(day, 'DD/MM')", "day", "day", from, to);
+    }
+
+    // Cùng nhãn với BookingRepository.countBookingsByDay (7 ngày gần nhất)
+    public List<Object[]> countBookingsByWeekday(LocalDate from) {
+        return timeSeries("TO_CHAR(day, 'Dy')", "day", "day", from, null);
+    }
+
+    public List<Object[]> countBookingsByWeek(LocalDate from, LocalDate to) {
+        return timeSeries("'W' || TO_CHAR(day, 'WW')", "TO_CHAR(day, 'WW')", "TO_CHAR(day, 'WW')", from, to);
+    }
+
+    public List<Object[]> countBookingsByMonth(LocalDate from, LocalDate to) {
+        return timeSeries("TO_CHAR(day, 'MM/YYYY')", "TO_CHAR(day, 'MM/YYYY'), EXTRACT(MONTH FROM day)",
+                "EXTRACT(MONTH FROM day)", from, to);
+    }
+
+    /**
+     * [service_id, count] - dịch vụ nhiều booking nhất
+     */
+    public List<Object[]> countBookingsByService(LocalDate from, LocalDate to, int limit) {
+        List<Object> params = new ArrayList<>();
+        String sql = "SELECT service_id, SUM(booking_count) AS total FROM booking_daily_rollup"
+                + range(" service_id IS NOT NULL", from, to, params)
+                + " GROUP BY service_id ORDER BY total DESC LIMIT ?";
+        params.add(limit);
+        return jdbcTemplate.query(sql, (rs, rowNum) -> new Object[]{rs.getObject(1), rs.getLong(2)}, params.toArray());
+    }
+
+    /**
+     * [doctor_id, total, completed] - bác sĩ nhiều booking nhất
+     */
+    public List<Object[]> countBookingsByDoctor(LocalDate from, LocalDate to, int limit) {
+        List<Object> params = new ArrayList<>();
+        String sql = "SELECT doctor_id, SUM(booking_count) AS total, "
+                + "COALESCE(SUM(booking_count) FILTER (WHERE status = 'COMPLETED'), 0) AS completed "
+                + "FROM booking_daily_rollup" + range(" doctor_id IS NOT NULL", from, to, params)
+                + " GROUP BY doctor_id ORDER BY total DESC LIMIT ?";
+        params.add(limit);
+        return jdbcTemplate.query(sql,
+                (rs, rowNum) -> new Object[]{rs.getObject(1), rs.getLong(2), rs.getLong(3)}, params.toArray());
+    }
+
+    // ============== BÁO CÁO ==============
+
+    /**
+     * Dấu vân tay số liệu của khoảng (các dòng gộp + tên bác sĩ / dịch vụ): đổi khi và chỉ khi báo cáo
+     * của khoảng đổi nội dung, nên dùng làm phiên bản dữ liệu của file báo cáo đã render
+     */
+    public String fingerprint(LocalDate from, LocalDate to) {
+        List<Object> params = new ArrayList<>();
+        String sql = """
+                SELECT COALESCE(md5(string_agg(
+                           concat_ws('|', r.day, r.doctor_id, r.service_id, r.status, r.booking_count, r.revenue,
+                                     d.full_name, d.specialty, s.name),
+                           ',' ORDER BY r.day, r.doctor_id, r.service_id, r.status)), 'empty')
+                FROM booking_daily_rollup r
+                LEFT JOIN doctors d ON d.id = r.doctor_id
+                LEFT JOIN medical_services s ON s.id = r.service_id""" + range("", from, to, params);
+        return jdbcTemplate.queryForObject(sql, String.class, params.toArray());
+    }
+
+    /**
+     * Số booking / hoàn thành / hủy / doanh thu (booking hoàn thành) của từng bác sĩ, nhiều booking nhất trước
+     */
+    public List<MonthlyReport.DoctorLine> reportByDoctor(LocalDate from, LocalDate to) {
+        List<Object> params = new ArrayList<>();
+        String sql = """
+                SELECT d.full_name, d.specialty, SUM(r.booking_count) AS total,
+                       COALESCE(SUM(r.booking_count) FILTER (WHERE r.status = 'COMPLETED'), 0) AS completed,
+                       COALESCE(SUM(r.booking_count) FILTER (WHERE r.status = 'CANCELLED'), 0) AS cancelled,
+                       COALESCE(SUM(r.revenue) FILTER (WHERE r.status = 'COMPLETED'), 0) AS revenue
+                FROM booking_daily_rollup r
+                LEFT JOIN doctors d ON d.id = r.doctor_id""" + range(" r.doctor_id IS NOT NULL", from, to, params)
+                + " GROUP BY r.doctor_id, d.full_name, d.specialty ORDER BY total DESC, d.full_name";
+        return jdbcTemplate.query(sql, (rs, rowNum) -> new MonthlyReport.DoctorLine(
+                rs.getString("full_name"), rs.getString("specialty"), rs.getLong("total"),
+                rs.getLong("completed"), rs.getLong("cancelled"), rs.getLong("revenue")), params.toArray());
+    }
+
+    /**
+     * Dịch vụ nhiều booking nhất kèm doanh thu (booking hoàn thành)
+     */
+    public List<MonthlyReport.ServiceLine> reportByService(LocalDate from, LocalDate to, int limit) {
+        List<Object> params = new ArrayList<>();
+        String sql = """
+                SELECT s.name, SUM(r.booking_count) AS total,
+                       COALESCE(SUM(r.revenue) FILTER (WHERE r.status = 'COMPLETED'), 0) AS revenue
+                FROM booking_daily_rollup r
+                LEFT JOIN medical_services s ON s.id = r.service_id""" + range(" r.service_id IS NOT NULL", from, to, params)
+                + " GROUP BY r.service_id, s.name ORDER BY total DESC, s.name LIMIT ?";
+        params.add(limit);
+        return jdbcTemplate.query(sql, (rs, rowNum) -> new MonthlyReport.ServiceLine(
+                rs.getString("name"), rs.getLong("total"), rs.getLong("revenue")), params.toArray());
+    }
+
+    private List<Object[]> timeSeries(String label, String groupBy, String orderBy, LocalDate from, LocalDate to) {
+        List<Object> params = new ArrayList<>();
+        String sql = "SELECT " + label + " AS label, SUM(booking_count) AS count FROM booking_daily_rollup"
+                + range("", from, to, params) + " GROUP BY " + groupBy + " ORDER BY " + orderBy;
+        return jdbcTemplate.query(sql, (rs, rowNum) -> new Object[]{rs.getString(1), rs.getLong(2)}, params.toArray());
+    }
+
+    private static String range(String condition, LocalDate from, LocalDate to, List<Object> params) {
+        List<String> where = new ArrayList<>();
+        if (!condition.isBlank()) {
+            where.add(condition.trim());
+        }
+        if (from != null) {
+            where.add("day >= ?");
+            params.add(from);
+        }
+        if (to != null) {
+            where.add("day <= ?");
+            params.add(to);
+        }
+        return where.isEmpty() ? "" : " WHERE " + String.join(" AND ", where);
+    }
+}
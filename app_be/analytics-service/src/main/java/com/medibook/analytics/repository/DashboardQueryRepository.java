@@ -0,0 +1,58 @@
+package com.medibook.analytics.repository;
+
+import com.medibook.analytics.dto.BookingTotals;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+
+/**
+ * Truy vấn tổng của dashboard trực tiếp trên bookings (khi bảng gộp chưa sẵn sàng):
+ * tổng số, số theo trạng thái, số hôm nay và doanh thu trong một lần quét thay vì một truy vấn mỗi con số
+ */
+@Repository
+@RequiredArgsConstructor
+public class DashboardQueryRepository {
+
+    static final RowMapper<BookingTotals> TOTALS_ROW_MAPPER = (rs, rowNum) -> {
+        BigDecimal revenue = rs.getBigDecimal("revenue");
+        return new BookingTotals(
+                rs.getLong("total"),
+                rs.getLong("pending"),
+                rs.getLong("confirmed"),
+                rs.getLong("completed"),
+                rs.getLong("cancelled"),
+                rs.getLong("today"),
+                revenue != null ? revenue.longValue() : 0L);
+    };
+
+    private static final String SUMMARIZE_BOOKINGS = """
+            SELECT COUNT(*) AS total,
+                   COUNT(*) FILTER (WHERE b.status = 'PENDING') AS pending,
+                   COUNT(*) FILTER (WHERE b.status = 'CONFIRMED') AS confirmed,
+                   COUNT(*) FILTER (WHERE b.status = 'COMPLETED') AS completed,
+                   COUNT(*) FILTER (WHERE b.status = 'CANCELLED') AS cancelled,
+                   COUNT(*) FILTER (WHERE b.created_at >= CURRENT_DATE AND b.created_at < CURRENT_DATE + 1) AS today,
+                   COALESCE(SUM(ms.price) FILTER (WHERE b.status = 'COMPLETED'), 0) AS revenue
+            FROM bookings b
+            LEFT JOIN medical_services ms ON ms.id = b.service_id
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Các con số tổng của booking tạo trong [from, to] (from / to = null: toàn bộ)
+     */
+    public BookingTotals summarize(LocalDate from, LocalDate to) {
+        if (from == null || to == null) {
+            return jdbcTemplate.queryForObject(SUMMARIZE_BOOKINGS, TOTALS_ROW_MAPPER);
+        }
+        return jdbcTemplate.queryForObject(SUMMARIZE_BOOKINGS + " WHERE b.created_at >= ? AND b.created_at < ?",
+                TOTALS_ROW_MAPPER,
+                Timestamp.valueOf(from.atStartOfDay()), Timestamp.valueOf(to.plusDays(1).atStartOfDay()));
+    }
+}
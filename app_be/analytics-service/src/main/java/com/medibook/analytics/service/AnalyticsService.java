@@ -1,11 +1,13 @@
 package com.medibook.analytics.service;
 
 import com.medibook.analytics.dto.DashboardDto;
-import com.medibook.analytics.entity.Doctor;
-import com.medibook.analytics.entity.MedicalService;
 import com.medibook.analytics.repository.*;
+import com.medibook.analytics.service.DashboardCache.Endpoint;
+import com.medibook.analytics.service.DashboardCache.Key;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
@@ -14,104 +16,60 @@ import java.time.LocalTime;
 import java.util.*;
 
 /**
- * Service xử lý logic thống kê cho Dashboard
+ * Service xử lý logic thống kê cho Dashboard.
+ * Số liệu booking đọc từ bảng gộp booking_daily_rollup (BookingRollupService); khi bảng gộp chưa sẵn sàng
+ * thì đếm trực tiếp trên bookings như trước. Kết quả được cache theo khoảng ngày (DashboardCache) và
+ * tính lại khi booking-service báo booking đổi trạng thái.
  */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class AnalyticsService {
 
-    private final ProfileRepository profileRepository;
-    private final DoctorRepository doctorRepository;
     private final BookingRepository bookingRepository;
-    private final MedicalServiceRepository medicalServiceRepository;
+    private final BookingRollupRepository bookingRollupRepository;
+    private final BookingRollupService bookingRollupService;
+    private final DashboardEngine dashboardEngine;
+    private final DashboardCache dashboardCache;
 
     /**
-     * Lấy thống kê tổng quan cho Dashboard với filter theo ngày
+     * Lấy thống kê tổng quan cho Dashboard với filter theo ngày.
+     * Các phần được tính song song (DashboardEngine); phần lỗi / quá hạn trả rỗng và nằm trong unavailableSections.
      */
     public DashboardDto getDashboardStats(LocalDate startDate, LocalDate endDate) {
-        log.info("Fetching dashboard statistics from database with date filter: {} to {}", startDate, endDate);
-
-        try {
-            // Xác định khoảng thời gian
-            LocalDateTime startDateTime = startDate != null 
-                ? startDate.atStartOfDay() 
-                : null;
-            LocalDateTime endDateTime = endDate != null 
-                ? endDate.atTime(LocalTime.MAX) 
-                : null;
-
-            // Đếm tổng số (không filter theo ngày)
-            long totalPatients = profileRepository.count();
-            long totalDoctors = doctorRepository.count();
-            
-            // Đếm bookings theo khoảng thời gian
-            long totalBookings;
-            long todayBookings = 0;
-            long pendingBookings;
-            long confirmedBookings;
-            long completedBookings;
-            long cancelledBookings;
-
-            if (startDateTime != null && endDateTime != null) {
-                // Có filter theo ngày
-                totalBookings = bookingRepository.countByDateRange(startDateTime, endDateTime);
-                pendingBookings = bookingRepository.countByStatusAndDateRange("PENDING", startDateTime, endDateTime);
-                confirmedBookings = bookingRepository.countByStatusAndDateRange("CONFIRMED", startDateTime, endDateTime);
-                completedBookings = bookingRepository.countByStatusAndDateRange("COMPLETED", startDateTime, endDateTime);
-                cancelledBookings = bookingRepository.countByStatusAndDateRange("CANCELLED", startDateTime, endDateTime);
-            } else {
-                // Không có filter - lấy tất cả
-                totalBookings = bookingRepository.count();
-                try {
-                    todayBookings = bookingRepository.countTodayBookings();
-                } catch (Exception e) {
-                    log.warn("Error counting today bookings: {}", e.getMessage());
-                }
-                pendingBookings = bookingRepository.countByStatus("PENDING");
-                confirmedBookings = bookingRepository.countByStatus("CONFIRMED");
-                completedBookings = bookingRepository.countByStatus("COMPLETED");
-                cancelledBookings = bookingRepository.countByStatus("CANCELLED");
-            }
-
-            // Tính tổng doanh thu từ giá dịch vụ của bookings COMPLETED
-            long totalRevenue = 0;
-            try {
-                if (startDateTime != null && endDateTime != null) {
-                    totalRevenue = bookingRepository.calculateRevenueByDateRange(startDateTime, endDateTime);
-                } else {
-                    totalRevenue = bookingRepository.calculateTotalRevenue();
-                }
-            } catch (Exception e) {
-                log.warn("Error calculating revenue: {}", e.getMessage());
-            }
-
-            // Thống kê booking theo ngày
-            List<DashboardDto.TimeSeriesData> bookingsByDay = getBookingsByDay(startDateTime, endDateTime);
+        return dashboardCache.get(Key.of(Endpoint.DASHBOARD, startDate, endDate, null),
+                () -> loadDashboard(startDate, endDate),
+                dashboard -> dashboard.getUnavailableSections().isEmpty());
+    }
 
-            // Top doctors
-            List<DashboardDto.DoctorStats> topDoctors = getTopDoctors(10, startDate, endDate);
+    private DashboardDto loadDashboard(LocalDate startDate, LocalDate endDate) {
+        log.info("Fetching dashboard statistics from database with date filter: {} to {}", startDate, endDate);
+        DashboardDto dashboard = dashboardEngine.assemble(startDate, endDate);
+        if (!dashboard.getUnavailableSections().isEmpty()) {
+            log.warn("Dashboard returned without sections: {}", dashboard.getUnavailableSections());
+        }
+        return dashboard;
+    }
 
-            // Dịch vụ phổ biến
-            List<DashboardDto.ServiceStats> popularServices = getPopularServices(startDateTime, endDateTime);
+    /**
+     * Tính sẵn dashboard mặc định (không filter) để lần mở đầu tiên không phải chờ
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmDashboard() {
+        dashboardCache.warm(Key.of(Endpoint.DASHBOARD, null, null, null),
+                () -> loadDashboard(null, null),
+                dashboard -> dashboard.getUnavailableSections().isEmpty());
+    }
 
-            return DashboardDto.builder()
-                    .totalPatients(totalPatients)
-                    .totalDoctors(totalDoctors)
-                    .totalBookings(totalBookings)
-                    .todayBookings(todayBookings)
-                    .pendingBookings(pendingBookings)
-                    .confirmedBookings(confirmedBookings)
-                    .completedBookings(completedBookings)
-                    .cancelledBookings(cancelledBookings)
-                    .totalRevenue(totalRevenue)
-                    .bookingsByDay(bookingsByDay)
-                    .topDoctors(topDoctors)
-                    .popularServices(popularServices)
-                    .build();
-        } catch (Exception e) {
-            log.error("Error fetching dashboard stats: {}", e.getMessage(), e);
-            return getEmptyDashboard();
+    /**
+     * booking-service báo booking tạo trong các ngày này đã đổi trạng thái.
+     * Có bảng gộp: gộp lại ngay (lần gộp sẽ invalidate cache theo ngày); chưa có: invalidate cache trực tiếp.
+     */
+    public void onBookingsChanged(Collection<LocalDate> days) {
+        if (bookingRollupService.isReady()) {
+            bookingRollupService.requestRefresh();
+        } else {
+            dashboardCache.invalidateDays(days);
         }
     }
 
@@ -126,167 +84,55 @@ public class AnalyticsService {
      * Lấy bookings theo period với group by
      */
     public List<DashboardDto.TimeSeriesData> getBookingsByPeriod(LocalDate startDate, LocalDate endDate, String groupBy) {
-        List<DashboardDto.TimeSeriesData> result = new ArrayList<>();
+        String period = switch (groupBy.toUpperCase()) {
+            case "WEEK", "MONTH" -> groupBy.toUpperCase();
+            default -> "DAY";
+        };
         try {
-            LocalDateTime startDateTime = startDate.atStartOfDay();
-            LocalDateTime endDateTime = endDate.atTime(LocalTime.MAX);
-            
-            List<Object[]> data;
-            switch (groupBy.toUpperCase()) {
-                case "WEEK":
-                    data = bookingRepository.countBookingsByWeek(startDateTime, endDateTime);
-                    break;
-                case "MONTH":
-                    data = bookingRepository.countBookingsByMonth(startDateTime, endDateTime);
-                    break;
-                default: // DAY
-                    data = bookingRepository.countBookingsByDayInRange(startDateTime, endDateTime);
-                    break;
-            }
-            
-            for (Object[] row : data) {
-                result.add(DashboardDto.TimeSeriesData.builder()
-                        .label(String.valueOf(row[0]))
-                        .count(((Number) row[1]).longValue())
-                        .build());
-            }     
+            return dashboardCache.get(Key.of(Endpoint.BY_PERIOD, startDate, endDate, period),
+                    () -> loadBookingsByPeriod(startDate, endDate, period));
         } catch (Exception e) {
             log.warn("Error fetching bookings by period: {}", e.getMessage());
+            return new ArrayList<>();
         }
-        return result;
     }
 
-    /**
-     * Thống kê booking theo ngày
-     */
-    private List<DashboardDto.TimeSeriesData> getBookingsByDay(LocalDateTime startDateTime, LocalDateTime endDateTime) {
-        List<DashboardDto.TimeSeriesData> result = new ArrayList<>();
-        try {
-            List<Object[]> data;
-            if (startDateTime != null && endDateTime != null) {
-                data = bookingRepository.countBookingsByDayInRange(startDateTime, endDateTime);
-            } else {
-                data = bookingRepository.countBookingsByDay();
-            }
-            
-            for (Object[] row : data) {
-                result.add(DashboardDto.TimeSeriesData.builder()
-                        .label(String.valueOf(row[0]))
-                        .count(((Number) row[1]).longValue())
-                        .build());
-            }
-        } catch (Exception e) {
-            log.warn("Error fetching bookings by day: {}", e.getMessage());
-            // Return default data if query fails
-            result.add(DashboardDto.TimeSeriesData.builder().label("Mon").count(0).build());
-            result.add(DashboardDto.TimeSeriesData.builder().label("Tue").count(0).build());
-            result.add(DashboardDto.TimeSeriesData.builder().label("Wed").count(0).build());
-            result.add(DashboardDto.TimeSeriesData.builder().label("Thu").count(0).build());
-            result.add(DashboardDto.TimeSeriesData.builder().label("Fri").count(0).build());
+    private List<DashboardDto.TimeSeriesData> loadBookingsByPeriod(LocalDate startDate, LocalDate endDate, String period) {
+        LocalDateTime startDateTime = startDate.atStartOfDay();
+        LocalDateTime endDateTime = endDate.atTime(LocalTime.MAX);
+
+        boolean rollup = bookingRollupService.isReady();
+        List<Object[]> data;
+        switch (period) {
+            case "WEEK":
+                data = rollup
+                        ? bookingRollupRepository.countBookingsByWeek(startDate, endDate)
+                        : bookingRepository.countBookingsByWeek(startDateTime, endDateTime);
+                break;
+            case "MONTH":
+                data = rollup
+                        ? bookingRollupRepository.countBookingsByMonth(startDate, endDate)
+                        : bookingRepository.countBookingsByMonth(startDateTime, endDateTime);
+                break;
+            default: // DAY
+                data = rollup
+                        ? bookingRollupRepository.countBookingsByDay(startDate, endDate)
+                        : bookingRepository.countBookingsByDayInRange(startDateTime, endDateTime);
+                break;
         }
-        return result;
+        return DashboardEngine.toTimeSeries(data);
     }
 
     /**
      * Lấy top bác sĩ theo số booking với filter ngày
      */
     public List<DashboardDto.DoctorStats> getTopDoctors(int limit, LocalDate startDate, LocalDate endDate) {
-        List<DashboardDto.DoctorStats> result = new ArrayList<>();
         try {
-            List<Object[]> bookingData;
-            
-            if (startDate != null && endDate != null) {
-                LocalDateTime startDateTime = startDate.atStartOfDay();
-                LocalDateTime endDateTime = endDate.atTime(LocalTime.MAX);
-                bookingData = bookingRepository.countBookingsByDoctorInRange(startDateTime, endDateTime, limit);
-            } else {
-                bookingData = bookingRepository.countBookingsByDoctor();
-            }
-            
-            Map<UUID, long[]> bookingMap = new HashMap<>();
-            for (Object[] row : bookingData) {
-                UUID doctorId = (UUID) row[0];
-                long total = ((Number) row[1]).longValue();
-                long completed = ((Number) row[2]).longValue();
-                bookingMap.put(doctorId, new long[]{total, completed});
-            }
-
-            // Lấy thông tin doctor
-            List<Doctor> doctors = doctorRepository.findTop10ByOrderByRatingDesc();
-            for (Doctor doctor : doctors) {
-                long[] counts = bookingMap.getOrDefault(doctor.getId(), new long[]{0, 0});
-                result.add(DashboardDto.DoctorStats.builder()
-                        .doctorId(doctor.getId().toString())
-                        .doctorName(doctor.getFullName() != null ? doctor.getFullName() : "Bác sĩ")
-                        .specialty(doctor.getSpecialty())
-                        .totalBookings(counts[0])
-                        .completedBookings(counts[1])
-                        .rating(doctor.getRating() != null ? doctor.getRating() : 0.0)
-                        .build());
-            }
+            return dashboardCache.get(Key.of(Endpoint.RANKINGS, startDate, endDate, String.valueOf(limit)),
+                    () -> dashboardEngine.topDoctors(limit, startDate, endDate));
         } catch (Exception e) {
             log.warn("Error fetching top doctors: {}", e.getMessage());
+            return new ArrayList<>();
         }
-        return result;
-    }
-
-    /**
-     * Lấy dịch vụ phổ biến với filter ngày
-     */
-    private List<DashboardDto.ServiceStats> getPopularServices(LocalDateTime startDateTime, LocalDateTime endDateTime) {
-        List<DashboardDto.ServiceStats> result = new ArrayList<>();
-        try {
-            List<Object[]> data;
-            long totalBookings;
-            
-            if (startDateTime != null && endDateTime != null) {
-                data = bookingRepository.countBookingsByServiceInRange(startDateTime, endDateTime);
-                totalBookings = bookingRepository.countByDateRange(startDateTime, endDateTime);
-            } else {
-                data = bookingRepository.countBookingsByService();
-                totalBookings = bookingRepository.count();
-            }
-            
-            for (Object[] row : data) {
-                UUID serviceId = (UUID) row[0];
-                long count = ((Number) row[1]).longValue();
-                
-                // Lấy tên service
-                MedicalService service = medicalServiceRepository.findById(serviceId).orElse(null);
-                String serviceName = service != null ? service.getName() : "Dịch vụ khác";
-                
-                double percentage = totalBookings > 0 ? (count * 100.0 / totalBookings) : 0;
-                
-                result.add(DashboardDto.ServiceStats.builder()
-                        .serviceId(serviceId.toString())
-                        .serviceName(serviceName)
-                        .bookingCount(count)
-                        .percentage(Math.round(percentage * 10.0) / 10.0)
-                        .build());
-            }
-        } catch (Exception e) {
-            log.warn("Error fetching popular services: {}", e.getMessage());
-        }
-        return result;
-    }
-
-    /**
-     * Trả về dashboard rỗng khi có lỗi
-     */
-    private DashboardDto getEmptyDashboard() {
-        return DashboardDto.builder()
-                .totalPatients(0)
-                .totalDoctors(0)
-                .totalBookings(0)
-                .todayBookings(0)
-                .pendingBookings(0)
-                .confirmedBookings(0)
-                .completedBookings(0)
-                .cancelledBookings(0)
-                .totalRevenue(0)
-                .bookingsByDay(new ArrayList<>())
-                .topDoctors(new ArrayList<>())
-                .popularServices(new ArrayList<>())
-                .build();
     }
 }
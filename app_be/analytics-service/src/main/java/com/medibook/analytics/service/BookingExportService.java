@@ -0,0 +1,241 @@
+package com.medibook.analytics.service;
+
+import com.medibook.analytics.repository.BookingExportRepository;
+import com.medibook.common.exception.BadRequestException;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Xuất danh sách booking ra Excel (.xlsx) với bộ nhớ không đổi theo số dòng:
+ * đọc bằng con trỏ JDBC (fetch-size dòng mỗi lần), ghi qua SXSSFWorkbook chỉ giữ row-window dòng
+ * trong bộ nhớ (phần còn lại xuống file tạm nén), workbook được ghi thẳng ra response.
+ * Mỗi sheet tối đa MAX_ROWS_PER_SHEET dòng (giới hạn của Excel), quá thì sang sheet tiếp theo.
+ */
+@Slf4j
+@Service
+public class BookingExportService {
+
+    static final int MAX_ROWS_PER_SHEET = 1_000_000;
+
+    private static final String[] HEADERS = {
+            "Mã booking", "Ngày tạo", "Ngày khám", "Giờ bắt đầu", "Giờ kết thúc", "Trạng thái",
+            "Bệnh nhân", "Bác sĩ", "Dịch vụ", "Số tiền", "Thanh toán", "Phương thức",
+            "Thời điểm thanh toán", "Lý do hủy"
+    };
+
+    private final BookingExportRepository exportRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int fetchSize;
+    private final int rowWindow;
+    private final int maxRangeDays;
+    private final Semaphore exportSlots;
+
+    public BookingExportService(
+            BookingExportRepository exportRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${analytics.export.fetch-size:1000}") int fetchSize,
+            @Value("${analytics.export.row-window:100}") int rowWindow,
+            @Value("${analytics.export.max-range-days:366}") int maxRangeDays,
+            @Value("${analytics.export.max-concurrent:2}") int maxConcurrent) {
+        this.exportRepository = exportRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.fetchSize = Math.max(1, fetchSize);
+        this.rowWindow = Math.max(1, rowWindow);
+        this.maxRangeDays = maxRangeDays;
+        this.exportSlots = new Semaphore(Math.max(1, maxConcurrent));
+    }
+
+    /**
+     * Kiểm tra khoảng ngày và giữ một lượt xuất; gọi trước khi bắt đầu ghi response.
+     * Lượt được trả bởi export(), hoặc bởi người gọi (close()) khi export() không bao giờ chạy
+     */
+    public ExportPermit reserve(LocalDate startDate, LocalDate endDate) {
+        if (endDate.isBefore(startDate)) {
+            throw new BadRequestException("Ngày kết thúc phải sau ngày bắt đầu");
+        }
+        if (ChronoUnit.DAYS.between(startDate, endDate) + 1 > maxRangeDays) {
+            throw new BadRequestException("Chỉ xuất tối đa " + maxRangeDays + " ngày mỗi lần");
+        }
+        if (!exportSlots.tryAcquire()) {
+            throw new BadRequestException("Đang có quá nhiều báo cáo được xuất, vui lòng thử lại sau");
+        }
+        return new ExportPermit(exportSlots);
+    }
+
+    /**
+     * Ghi workbook các booking tạo trong [startDate, endDate] ra out rồi trả lượt xuất đã giữ bằng reserve()
+     */
+    public long export(ExportPermit permit, LocalDate startDate, LocalDate endDate, OutputStream out) throws IOException {
+        long started = System.nanoTime();
+        SXSSFWorkbook workbook = null;
+        try {
+            workbook = new SXSSFWorkbook(rowWindow);
+            workbook.setCompressTempFiles(true);
+            SheetWriter writer = new SheetWriter(workbook);
+            // Con trỏ của driver Postgres chỉ hoạt động khi autocommit tắt
+            readOnlyTransaction.executeWithoutResult(status ->
+                    exportRepository.streamBookings(startDate, endDate, fetchSize, writer::write));
+            workbook.write(out);
+            out.flush();
+            log.info("Exported {} bookings ({} to {}) in {} ms", writer.rows, startDate, endDate,
+                    (System.nanoTime() - started) / 1_000_000);
+            return writer.rows;
+        } finally {
+            try {
+                if (workbook != null) {
+                    workbook.dispose();
+                    workbook.close();
+                }
+            } finally {
+                permit.close();
+            }
+        }
+    }
+
+    /**
+     * Lượt xuất đã giữ; close() trả lượt đúng một lần dù được gọi từ export() lẫn callback kết thúc request
+     */
+    public static final class ExportPermit implements AutoCloseable {
+
+        private final Semaphore slots;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private ExportPermit(Semaphore slots) {
+            this.slots = slots;
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                slots.release();
+            }
+        }
+    }
+
+    /**
+     * Ghi từng dòng của ResultSet vào sheet hiện tại; style dùng chung cho cả workbook
+     */
+    private static final class SheetWriter {
+
+        private final SXSSFWorkbook workbook;
+        private final CellStyle headerStyle;
+        private final CellStyle dateTimeStyle;
+        private final CellStyle dateStyle;
+        private final CellStyle amountStyle;
+        private SXSSFSheet sheet;
+        private int sheetRow;
+        private long rows;
+
+        SheetWriter(SXSSFWorkbook workbook) {
+            this.workbook = workbook;
+            Font bold = workbook.createFont();
+            bold.setBold(true);
+            this.headerStyle = workbook.createCellStyle();
+            this.headerStyle.setFont(bold);
+            this.dateTimeStyle = style("dd/mm/yyyy hh:mm");
+            this.dateStyle = style("dd/mm/yyyy");
+            this.amountStyle = style("#,##0");
+            newSheet();
+        }
+
+        private CellStyle style(String format) {
+            CellStyle style = workbook.createCellStyle();
+            style.setDataFormat(workbook.createDataFormat().getFormat(format));
+            return style;
+        }
+
+        private void newSheet() {
+            int index = workbook.getNumberOfSheets() + 1;
+            sheet = workbook.createSheet(index == 1 ? "Bookings" : "Bookings " + index);
+            Row header = sheet.createRow(0);
+            for (int i = 0; i < HEADERS.length; i++) {
+                Cell cell = header.createCell(i);
+                cell.setCellValue(HEADERS[i]);
+                cell.setCellStyle(headerStyle);
+            }
+            sheet.createFreezePane(0, 1);
+            sheetRow = 1;
+        }
+
+        void write(ResultSet rs) throws SQLException {
+            if (sheetRow > MAX_ROWS_PER_SHEET) {
+                newSheet();
+            }
+            Row row = sheet.createRow(sheetRow++);
+            text(row, 0, rs.getString("booking_id"));
+            timestamp(row, 1, rs.getTimestamp("created_at"));
+            date(row, 2, rs.getDate("slot_date"));
+            time(row, 3, rs.getTime("start_time"));
+            time(row, 4, rs.getTime("end_time"));
+            text(row, 5, rs.getString("status"));
+            text(row, 6, rs.getString("patient_name"));
+            text(row, 7, rs.getString("doctor_name"));
+            text(row, 8, rs.getString("service_name"));
+            amount(row, 9, rs.getBigDecimal("total_amount"));
+            text(row, 10, rs.getString("payment_status"));
+            text(row, 11, rs.getString("payment_method"));
+            timestamp(row, 12, rs.getTimestamp("paid_at"));
+            text(row, 13, rs.getString("cancellation_reason"));
+            rows++;
+        }
+
+        private void text(Row row, int column, String value) {
+            if (value != null) {
+                row.createCell(column).setCellValue(value);
+            }
+        }
+
+        private void timestamp(Row row, int column, Timestamp value) {
+            if (value != null) {
+                Cell cell = row.createCell(column);
+                cell.setCellValue(value.toLocalDateTime());
+                cell.setCellStyle(dateTimeStyle);
+            }
+        }
+
+        private void date(Row row, int column, Date value) {
+            if (value != null) {
+                Cell cell = row.createCell(column);
+                cell.setCellValue(value.toLocalDate());
+                cell.setCellStyle(dateStyle);
+            }
+        }
+
+        private void time(Row row, int column, Time value) {
+            if (value != null) {
+                row.createCell(column).setCellValue(value.toLocalTime().toString());
+            }
+        }
+
+        private void amount(Row row, int column, BigDecimal value) {
+            if (value != null) {
+                Cell cell = row.createCell(column);
+                cell.setCellValue(value.doubleValue());
+                cell.setCellStyle(amountStyle);
+            }
+        }
+    }
+}
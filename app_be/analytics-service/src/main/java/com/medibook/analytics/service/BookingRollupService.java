@@ -0,0 +1,176 @@
+package com.medibook.analytics.service;
+
+import com.medibook.analytics.repository.BookingRollupRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Duy trì booking_daily_rollup tăng dần theo mốc updated_at (high-water mark):
+ * mỗi lần chạy chỉ tính lại các ngày có booking đổi từ mốc trước (lùi overlap-seconds để không
+ * bỏ sót transaction commit trễ - tính lại một ngày là idempotent). Bảng chưa có mốc thì dựng toàn bộ;
+ * dựng lại toàn bộ theo rebuild-cron để loại các booking đã bị xóa.
+ * Khi bảng chưa sẵn sàng (chưa chạy migration, lỗi DB) AnalyticsService đếm trực tiếp trên bookings.
+ */
+@Slf4j
+@Service
+public class BookingRollupService {
+
+    // Mốc khi chưa có booking nào: khác null để lần sau không dựng lại toàn bộ;
+    // booking đầu tiên có updated_at sau mốc này nên vẫn được gộp theo ngày
+    static final LocalDateTime EMPTY_MARK = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final BookingRollupRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final DashboardCache dashboardCache;
+    private final long overlapSeconds;
+    private final AtomicBoolean refreshRequested = new AtomicBoolean();
+
+    private volatile boolean ready;
+    private volatile RefreshReport lastRefresh;
+
+    public BookingRollupService(
+            BookingRollupRepository repository,
+            PlatformTransactionManager transactionManager,
+            DashboardCache dashboardCache,
+            @Value("${analytics.rollup.overlap-seconds:300}") long overlapSeconds) {
+        this.repository = repository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.dashboardCache = dashboardCache;
+        this.overlapSeconds = Math.max(0L, overlapSeconds);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public RefreshReport getLastRefresh() {
+        return lastRefresh;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void refreshOnStartup() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            log.error("Could not load booking rollup, dashboard reads bookings directly: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${analytics.rollup.refresh-interval-millis:60000}",
+            initialDelayString = "${analytics.rollup.refresh-interval-millis:60000}")
+    public void scheduledRefresh() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            log.warn("Booking rollup refresh failed: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(cron = "${analytics.rollup.rebuild-cron:0 30 3 * * *}")
+    public void scheduledRebuild() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.warn("Booking rollup rebuild failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Gộp các thay đổi từ mốc trước; dựng toàn bộ nếu chưa có mốc
+     */
+    public RefreshReport refresh() {
+        return run(false);
+    }
+
+    /**
+     * Gộp sớm (booking-service báo có thay đổi) trên thread nền; các yêu cầu dồn dập gộp thành một lần chạy
+     */
+    public void requestRefresh() {
+        if (!refreshRequested.compareAndSet(false, true)) {
+            return;
+        }
+        Thread.ofVirtual().name("booking-rollup-refresh").start(() -> {
+            refreshRequested.set(false);
+            try {
+                refresh();
+            } catch (Exception e) {
+                log.warn("Booking rollup refresh failed: {}", e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Dựng lại toàn bộ bảng gộp
+     */
+    public RefreshReport rebuild() {
+        return run(true);
+    }
+
+    private RefreshReport run(boolean full) {
+        long started = System.nanoTime();
+        List<LocalDate> changedDays = new ArrayList<>();
+        RefreshReport report = transactionTemplate.execute(status -> {
+            repository.lock();
+            LocalDateTime mark = repository.findHighWaterMark();
+            // Đọc mốc mới trước khi tìm ngày thay đổi: thay đổi xen giữa sẽ được lần sau gộp lại
+            LocalDateTime latest = repository.findLatestChange();
+            if (full || mark == null) {
+                int rows = repository.replaceAll();
+                LocalDateTime built = latest != null ? latest : EMPTY_MARK;
+                repository.saveHighWaterMark(built);
+                return new RefreshReport(true, -1, rows, built, 0L, LocalDateTime.now());
+            }
+            List<LocalDate> days = repository.findChangedDays(mark.minusSeconds(overlapSeconds));
+            int rows = repository.replaceDays(days);
+            changedDays.addAll(days);
+            LocalDateTime next = latest != null && latest.isAfter(mark) ? latest : mark;
+            repository.saveHighWaterMark(next);
+            return new RefreshReport(false, days.size(), rows, next, 0L, LocalDateTime.now());
+        });
+        ready = true;
+        // Sau commit: cache dashboard tính lại các khoảng chứa ngày vừa gộp
+        if (report.fullRebuild()) {
+            dashboardCache.invalidateAll();
+        } else {
+            dashboardCache.invalidateDays(changedDays);
+        }
+        report = report.withDuration(Duration.ofNanos(System.nanoTime() - started).toMillis());
+        if (report.fullRebuild()) {
+            log.info("Booking rollup rebuilt: {} rows in {} ms", report.rows(), report.durationMillis());
+        } else if (report.days() > 0) {
+            log.debug("Booking rollup refreshed {} days ({} rows) in {} ms",
+                    report.days(), report.rows(), report.durationMillis());
+        }
+        lastRefresh = report;
+        return report;
+    }
+
+    /**
+     * days = -1 khi dựng toàn bộ
+     */
+    public record RefreshReport(
+            boolean fullRebuild,
+            int days,
+            int rows,
+            LocalDateTime highWaterMark,
+            long durationMillis,
+            LocalDateTime refreshedAt
+    ) {
+        RefreshReport withDuration(long millis) {
+            return new RefreshReport(fullRebuild, days, rows, highWaterMark, millis, refreshedAt);
+        }
+    }
+}
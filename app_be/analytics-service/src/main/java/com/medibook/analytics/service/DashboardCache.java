@@ -0,0 +1,184 @@
+package com.medibook.analytics.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Cache kết quả dashboard / by-period / rankings theo (endpoint, khoảng ngày đã chuẩn hóa, tham số).
+ * <ul>
+ * <li>Giới hạn kích thước + TTL (ttl-seconds); cache miss được tính một lần cho các request đồng thời.</li>
+ * <li>Stale-while-revalidate: entry quá fresh-seconds, bị invalidate (booking đổi trạng thái trong khoảng
+ * ngày của entry) hoặc chỉ có kết quả một phần vẫn được trả ngay, đồng thời được tính lại nền
+ * (mỗi key tối đa một lần tính lại tại một thời điểm).</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+public class DashboardCache {
+
+    public enum Endpoint {
+        DASHBOARD,
+        BY_PERIOD,
+        RANKINGS
+    }
+
+    /**
+     * from / to = null: toàn bộ thời gian
+     */
+    public record Key(Endpoint endpoint, LocalDate from, LocalDate to, String variant) {
+
+        public static Key of(Endpoint endpoint, LocalDate startDate, LocalDate endDate, String variant) {
+            // Thiếu một đầu khoảng thì các service đều tính trên toàn bộ -> cùng một key
+            boolean ranged = startDate != null && endDate != null;
+            return new Key(endpoint, ranged ? startDate : null, ranged ? endDate : null, variant != null ? variant : "");
+        }
+
+        boolean covers(LocalDate day) {
+            return from == null || to == null || (!day.isBefore(from) && !day.isAfter(to));
+        }
+    }
+
+    /**
+     * stale: bị invalidate sau lần tính này. Cờ được tạo khi bắt đầu tính và nằm trong loading cho tới khi
+     * entry vào cache, nên invalidate xen giữa lúc đang tính vẫn đánh dấu được entry mới; entry bị
+     * loại (size / TTL) thì cờ đi theo, không còn gì phải dọn
+     */
+    private record Entry(Object value, long loadedAt, boolean complete, AtomicBoolean stale) {}
+
+    private final Cache<Key, Entry> cache;
+    private final long freshNanos;
+    // Key đang được tính (miss hoặc tính lại) -> cờ stale của entry sắp có
+    private final Map<Key, AtomicBoolean> loading = new ConcurrentHashMap<>();
+    private final Set<Key> revalidating = ConcurrentHashMap.newKeySet();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public DashboardCache(
+            @Value("${analytics.cache.max-size:500}") long maxSize,
+            @Value("${analytics.cache.fresh-seconds:30}") long freshSeconds,
+            @Value("${analytics.cache.ttl-seconds:600}") long ttlSeconds) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(Math.max(freshSeconds, ttlSeconds)))
+                .build();
+        this.freshNanos = Duration.ofSeconds(freshSeconds).toNanos();
+    }
+
+    public <T> T get(Key key, Supplier<T> loader) {
+        return get(key, loader, value -> true);
+    }
+
+    /**
+     * Giá trị của key; complete = false (ví dụ dashboard thiếu phần) thì vẫn trả nhưng lần đọc sau sẽ tính lại
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(Key key, Supplier<T> loader, Predicate<T> complete) {
+        Entry entry = cache.get(key, k -> load(k, loader, complete));
+        loading.remove(key, entry.stale());
+        if (!entry.complete() || entry.stale().get() || System.nanoTime() - entry.loadedAt() > freshNanos) {
+            revalidate(key, loader, complete);
+        }
+        return (T) entry.value();
+    }
+
+    /**
+     * Tính trước key nếu chưa có trong cache (nền), để request đầu tiên không phải chờ
+     */
+    public <T> void warm(Key key, Supplier<T> loader, Predicate<T> complete) {
+        if (cache.getIfPresent(key) == null) {
+            revalidate(key, loader, complete);
+        }
+    }
+
+    /**
+     * Booking của các ngày này thay đổi: các entry có khoảng chứa một trong các ngày sẽ được tính lại khi đọc
+     */
+    public void invalidateDays(Collection<LocalDate> days) {
+        if (days.isEmpty()) {
+            return;
+        }
+        int marked = markStale(key -> days.stream().anyMatch(key::covers));
+        log.debug("Dashboard cache: {} entries marked stale for {} changed days", marked, days.size());
+    }
+
+    public void invalidateAll() {
+        markStale(key -> true);
+    }
+
+    /**
+     * Đánh dấu cả entry trong cache lẫn entry đang tính của các key thỏa điều kiện
+     */
+    private int markStale(Predicate<Key> affected) {
+        int marked = 0;
+        for (Map.Entry<Key, Entry> entry : cache.asMap().entrySet()) {
+            if (affected.test(entry.getKey())) {
+                entry.getValue().stale().set(true);
+                marked++;
+            }
+        }
+        for (Map.Entry<Key, AtomicBoolean> entry : loading.entrySet()) {
+            if (affected.test(entry.getKey())) {
+                entry.getValue().set(true);
+                marked++;
+            }
+        }
+        return marked;
+    }
+
+    private <T> void revalidate(Key key, Supplier<T> loader, Predicate<T> complete) {
+        if (!revalidating.add(key)) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                Entry entry = load(key, loader, complete);
+                cache.put(key, entry);
+                loading.remove(key, entry.stale());
+            } catch (Exception e) {
+                // Giữ giá trị cũ, lần đọc sau thử lại
+                Entry current = cache.getIfPresent(key);
+                if (current != null) {
+                    current.stale().set(true);
+                }
+                log.warn("Dashboard cache revalidation of {} failed: {}", key, e.getMessage());
+            } finally {
+                revalidating.remove(key);
+            }
+        });
+    }
+
+    /**
+     * Tính giá trị; cờ stale nằm trong loading từ lúc bắt đầu, người gọi gỡ ra sau khi đưa entry vào cache
+     */
+    private <T> Entry load(Key key, Supplier<T> loader, Predicate<T> complete) {
+        AtomicBoolean stale = new AtomicBoolean();
+        loading.put(key, stale);
+        try {
+            T value = loader.get();
+            return new Entry(value, System.nanoTime(), complete.test(value), stale);
+        } catch (RuntimeException e) {
+            loading.remove(key, stale);
+            throw e;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,275 @@
+package com.medibook.analytics.service;
+
+import com.medibook.analytics.dto.BookingTotals;
+import com.medibook.analytics.dto.DashboardDto;
+import com.medibook.analytics.entity.Doctor;
+import com.medibook.analytics.entity.MedicalService;
+import com.medibook.analytics.repository.*;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * Dựng DashboardDto: các con số tổng trong một câu SQL, các phần độc lập (biểu đồ theo ngày,
+ * top bác sĩ, dịch vụ phổ biến, số bệnh nhân / bác sĩ) chạy song song trên virtual thread.
+ * Cả dashboard có chung một deadline; phần nào lỗi hoặc không kịp thì trả giá trị rỗng và được
+ * ghi vào unavailableSections, các phần còn lại vẫn được trả về.
+ * Mỗi phần chạy trong transaction chỉ đọc có timeout = thời gian còn lại tới deadline (làm tròn lên giây),
+ * nên truy vấn quá hạn bị hủy ở DB thay vì giữ connection; số phần chạy đồng thời trên mọi request
+ * giới hạn bởi max-concurrent-queries để dashboard không chiếm hết pool Hikari.
+ * Nguồn dữ liệu: bảng gộp booking_daily_rollup khi đã sẵn sàng, nếu không thì bảng bookings.
+ */
+@Slf4j
+@Service
+public class DashboardEngine {
+
+    private static final int TOP_DOCTORS = 10;
+    private static final int POPULAR_SERVICES = 5;
+
+    private final ProfileRepository profileRepository;
+    private final DoctorRepository doctorRepository;
+    private final BookingRepository bookingRepository;
+    private final MedicalServiceRepository medicalServiceRepository;
+    private final BookingRollupRepository bookingRollupRepository;
+    private final DashboardQueryRepository dashboardQueryRepository;
+    private final BookingRollupService bookingRollupService;
+    private final PlatformTransactionManager transactionManager;
+    private final long deadlineMillis;
+    private final Semaphore querySlots;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public DashboardEngine(
+            ProfileRepository profileRepository,
+            DoctorRepository doctorRepository,
+            BookingRepository bookingRepository,
+            MedicalServiceRepository medicalServiceRepository,
+            BookingRollupRepository bookingRollupRepository,
+            DashboardQueryRepository dashboardQueryRepository,
+            BookingRollupService bookingRollupService,
+            PlatformTransactionManager transactionManager,
+            @Value("${analytics.dashboard.deadline-millis:3000}") long deadlineMillis,
+            @Value("${analytics.dashboard.max-concurrent-queries:4}") int maxConcurrentQueries) {
+        this.profileRepository = profileRepository;
+        this.doctorRepository = doctorRepository;
+        this.bookingRepository = bookingRepository;
+        this.medicalServiceRepository = medicalServiceRepository;
+        this.bookingRollupRepository = bookingRollupRepository;
+        this.dashboardQueryRepository = dashboardQueryRepository;
+        this.bookingRollupService = bookingRollupService;
+        this.transactionManager = transactionManager;
+        this.deadlineMillis = Math.max(1L, deadlineMillis);
+        this.querySlots = new Semaphore(Math.max(1, maxConcurrentQueries), true);
+    }
+
+    /**
+     * Dashboard cho khoảng [startDate, endDate]; thiếu một trong hai thì lấy toàn bộ
+     */
+    public DashboardDto assemble(LocalDate startDate, LocalDate endDate) {
+        boolean filtered = startDate != null && endDate != null;
+        LocalDate from = filtered ? startDate : null;
+        LocalDate to = filtered ? endDate : null;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadlineMillis);
+
+        Future<BookingTotals> totals = section(deadline, () -> totals(from, to));
+        Future<Long> patients = section(deadline, profileRepository::count);
+        Future<Long> doctors = section(deadline, doctorRepository::count);
+        Future<List<DashboardDto.TimeSeriesData>> byDay = section(deadline, () -> bookingsByDay(from, to));
+        Future<List<DashboardDto.DoctorStats>> topDoctors = section(deadline, () -> topDoctors(TOP_DOCTORS, from, to));
+        Future<List<DashboardDto.ServiceStats>> services = section(deadline, () -> popularServices(from, to));
+
+        List<String> unavailable = new ArrayList<>();
+        BookingTotals bookingTotals = await(totals, "totals", BookingTotals.EMPTY, deadline, unavailable);
+        List<DashboardDto.ServiceStats> popularServices = await(services, "popularServices", List.of(), deadline, unavailable);
+        // % dịch vụ tính trên tổng số booking trong khoảng
+        popularServices.forEach(service -> service.setPercentage(percentage(service.getBookingCount(), bookingTotals.total())));
+
+        return DashboardDto.builder()
+                .totalPatients(await(patients, "totalPatients", 0L, deadline, unavailable))
+                .totalDoctors(await(doctors, "totalDoctors", 0L, deadline, unavailable))
+                .totalBookings(bookingTotals.total())
+                .todayBookings(filtered ? 0 : bookingTotals.today())
+                .pendingBookings(bookingTotals.pending())
+                .confirmedBookings(bookingTotals.confirmed())
+                .completedBookings(bookingTotals.completed())
+                .cancelledBookings(bookingTotals.cancelled())
+                .totalRevenue(bookingTotals.revenue())
+                .bookingsByDay(await(byDay, "bookingsByDay", List.of(), deadline, unavailable))
+                .topDoctors(await(topDoctors, "topDoctors", List.of(), deadline, unavailable))
+                .popularServices(popularServices)
+                .unavailableSections(unavailable)
+                .build();
+    }
+
+    /**
+     * Top bác sĩ (trong số 10 bác sĩ rating cao nhất) kèm số booking / số đã hoàn thành trong khoảng
+     */
+    public List<DashboardDto.DoctorStats> topDoctors(int limit, LocalDate startDate, LocalDate endDate) {
+        boolean filtered = startDate != null && endDate != null;
+        List<Object[]> bookingData;
+        if (bookingRollupService.isReady()) {
+            bookingData = bookingRollupRepository.countBookingsByDoctor(
+                    filtered ? startDate : null, filtered ? endDate : null, filtered ? limit : TOP_DOCTORS);
+        } else if (filtered) {
+            bookingData = bookingRepository.countBookingsByDoctorInRange(
+                    startDate.atStartOfDay(), endDate.atTime(LocalTime.MAX), limit);
+        } else {
+            bookingData = bookingRepository.countBookingsByDoctor();
+        }
+
+        Map<UUID, long[]> bookingMap = new HashMap<>();
+        for (Object[] row : bookingData) {
+            UUID doctorId = (UUID) row[0];
+            long total = ((Number) row[1]).longValue();
+            long completed = ((Number) row[2]).longValue();
+            bookingMap.put(doctorId, new long[]{total, completed});
+        }
+
+        List<DashboardDto.DoctorStats> result = new ArrayList<>();
+        for (Doctor doctor : doctorRepository.findTop10ByOrderByRatingDesc()) {
+            long[] counts = bookingMap.getOrDefault(doctor.getId(), new long[]{0, 0});
+            result.add(DashboardDto.DoctorStats.builder()
+                    .doctorId(doctor.getId().toString())
+                    .doctorName(doctor.getFullName() != null ? doctor.getFullName() : "Bác sĩ")
+                    .specialty(doctor.getSpecialty())
+                    .totalBookings(counts[0])
+                    .completedBookings(counts[1])
+                    .rating(doctor.getRating() != null ? doctor.getRating() : 0.0)
+                    .build());
+        }
+        return result;
+    }
+
+    /**
+     * [label, count] → TimeSeriesData
+     */
+    static List<DashboardDto.TimeSeriesData> toTimeSeries(List<Object[]> data) {
+        List<DashboardDto.TimeSeriesData> result = new ArrayList<>();
+        for (Object[] row : data) {
+            result.add(DashboardDto.TimeSeriesData.builder()
+                    .label(String.valueOf(row[0]))
+                    .count(((Number) row[1]).longValue())
+                    .build());
+        }
+        return result;
+    }
+
+    private BookingTotals totals(LocalDate from, LocalDate to) {
+        return bookingRollupService.isReady()
+                ? bookingRollupRepository.summarize(from, to)
+                : dashboardQueryRepository.summarize(from, to);
+    }
+
+    private List<DashboardDto.TimeSeriesData> bookingsByDay(LocalDate from, LocalDate to) {
+        boolean filtered = from != null && to != null;
+        List<Object[]> data;
+        if (bookingRollupService.isReady()) {
+            data = filtered
+                    ? bookingRollupRepository.countBookingsByDay(from, to)
+                    : bookingRollupRepository.countBookingsByWeekday(LocalDate.now().minusDays(7));
+        } else {
+            data = filtered
+                    ? bookingRepository.countBookingsByDayInRange(from.atStartOfDay(), to.atTime(LocalTime.MAX))
+                    : bookingRepository.countBookingsByDay();
+        }
+        return toTimeSeries(data);
+    }
+
+    /**
+     * Dịch vụ nhiều booking nhất; tên dịch vụ lấy bằng một truy vấn cho cả danh sách
+     */
+    private List<DashboardDto.ServiceStats> popularServices(LocalDate from, LocalDate to) {
+        List<Object[]> data;
+        if (bookingRollupService.isReady()) {
+            data = bookingRollupRepository.countBookingsByService(from, to, POPULAR_SERVICES);
+        } else if (from != null && to != null) {
+            LocalDateTime startDateTime = from.atStartOfDay();
+            data = bookingRepository.countBookingsByServiceInRange(startDateTime, to.atTime(LocalTime.MAX));
+        } else {
+            data = bookingRepository.countBookingsByService();
+        }
+
+        List<UUID> serviceIds = data.stream().map(row -> (UUID) row[0]).filter(Objects::nonNull).toList();
+        Map<UUID, String> names = new HashMap<>();
+        for (MedicalService service : medicalServiceRepository.findAllById(serviceIds)) {
+            names.put(service.getId(), service.getName());
+        }
+
+        List<DashboardDto.ServiceStats> result = new ArrayList<>();
+        for (Object[] row : data) {
+            UUID serviceId = (UUID) row[0];
+            if (serviceId == null) {
+                continue;
+            }
+            result.add(DashboardDto.ServiceStats.builder()
+                    .serviceId(serviceId.toString())
+                    .serviceName(names.getOrDefault(serviceId, "Dịch vụ khác"))
+                    .bookingCount(((Number) row[1]).longValue())
+                    .build());
+        }
+        return result;
+    }
+
+    private static double percentage(long count, long total) {
+        double percentage = total > 0 ? (count * 100.0 / total) : 0;
+        return Math.round(percentage * 10.0) / 10.0;
+    }
+
+    /**
+     * Chạy một phần trên virtual thread: chờ lượt truy vấn (tối đa tới deadline) rồi chạy trong transaction
+     * chỉ đọc có timeout theo deadline - JDBC và JPA đều áp timeout này cho từng câu lệnh
+     */
+    private <T> Future<T> section(long deadline, Supplier<T> query) {
+        return executor.submit(() -> {
+            if (!querySlots.tryAcquire(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                throw new TimeoutException("no free query slot before the deadline");
+            }
+            try {
+                long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remainingMillis <= 0) {
+                    throw new TimeoutException("deadline passed while waiting for a query slot");
+                }
+                TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+                transaction.setReadOnly(true);
+                transaction.setTimeout((int) Math.max(1L, (remainingMillis + 999) / 1000));
+                return transaction.execute(status -> query.get());
+            } finally {
+                querySlots.release();
+            }
+        });
+    }
+
+    /**
+     * Kết quả của một phần trong thời gian còn lại tới deadline; lỗi / quá hạn thì trả fallback
+     */
+    private <T> T await(Future<T> future, String section, T fallback, long deadline, List<String> unavailable) {
+        try {
+            return future.get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            log.warn("Dashboard section {} missed the {} ms deadline", section, deadlineMillis);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            log.warn("Dashboard section {} failed: {}", section, cause.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+        }
+        unavailable.add(section);
+        return fallback;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
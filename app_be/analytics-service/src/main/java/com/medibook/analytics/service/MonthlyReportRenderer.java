@@ -0,0 +1,170 @@
+package com.medibook.analytics.service;
+
+import com.itextpdf.io.font.FontProgram;
+import com.itextpdf.io.font.FontProgramFactory;
+import com.itextpdf.io.font.PdfEncodings;
+import com.itextpdf.io.font.constants.StandardFonts;
+import com.itextpdf.kernel.colors.ColorConstants;
+import com.itextpdf.kernel.font.PdfFontFactory;
+import com.itextpdf.kernel.geom.PageSize;
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfWriter;
+import com.itextpdf.layout.Document;
+import com.itextpdf.layout.element.Cell;
+import com.itextpdf.layout.element.Paragraph;
+import com.itextpdf.layout.element.Table;
+import com.itextpdf.layout.properties.TextAlignment;
+import com.itextpdf.layout.properties.UnitValue;
+import com.medibook.analytics.dto.MonthlyReport;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.DecimalFormat;
+import java.text.Normalizer;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Render báo cáo quản lý tháng ra PDF bằng iText: tổng quan, từng bác sĩ (số booking, tỷ lệ hoàn thành,
+ * doanh thu) và các dịch vụ nhiều booking nhất.
+ * Tiếng Việt cần font Unicode (font-path hoặc font hệ thống thường gặp); không có thì dùng Helvetica
+ * và bỏ dấu để chữ không bị mất.
+ */
+@Slf4j
+@Component
+public class MonthlyReportRenderer {
+
+    private static final List<String> SYSTEM_FONTS = List.of(
+            "/usr/share/fonts/truetype/dejavu/DejaVuSans.ttf",
+            "/usr/share/fonts/dejavu/DejaVuSans.ttf",
+            "C:/Windows/Fonts/arial.ttf",
+            "/Library/Fonts/Arial Unicode.ttf",
+            "/System/Library/Fonts/Supplemental/Arial.ttf");
+    private static final DateTimeFormatter PERIOD_FORMAT = DateTimeFormatter.ofPattern("MM/yyyy");
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+
+    // FontProgram dùng chung được; PdfFont thì phải tạo cho từng document
+    private final FontProgram fontProgram;
+
+    public MonthlyReportRenderer(@Value("${analytics.reports.font-path:}") String fontPath) {
+        this.fontProgram = loadFont(fontPath);
+    }
+
+    public void render(MonthlyReport report, OutputStream out) throws IOException {
+        try (Document document = new Document(new PdfDocument(new PdfWriter(out)), PageSize.A4)) {
+            document.setFont(fontProgram != null
+                    ? PdfFontFactory.createFont(fontProgram, PdfEncodings.IDENTITY_H, PdfFontFactory.EmbeddingStrategy.PREFER_EMBEDDED)
+                    : PdfFontFactory.createFont(StandardFonts.HELVETICA));
+            document.setFontSize(10);
+
+            document.add(new Paragraph(text("BÁO CÁO QUẢN LÝ THÁNG " + report.period().format(PERIOD_FORMAT)))
+                    .setFontSize(16).setBold());
+            document.add(new Paragraph(text("Lập lúc " + report.generatedAt().format(TIME_FORMAT)
+                    + " - phiên bản dữ liệu " + report.dataVersion()))
+                    .setFontSize(8).setFontColor(ColorConstants.GRAY));
+
+            document.add(heading("Tổng quan"));
+            Table summary = table(2, 1);
+            row(summary, 1, "Tổng số booking", count(report.totals().total()));
+            row(summary, 1, "Hoàn thành", count(report.totals().completed()));
+            row(summary, 1, "Đã hủy", count(report.totals().cancelled()));
+            row(summary, 1, "Tỷ lệ hoàn thành", percent(report.completionRate()));
+            row(summary, 1, "Doanh thu", money(report.totals().revenue()));
+            document.add(summary);
+
+            document.add(heading("Theo bác sĩ"));
+            Table doctors = table(3, 2, 1, 1, 1, 1, 2);
+            header(doctors, "Bác sĩ", "Chuyên khoa", "Booking", "Hoàn thành", "Đã hủy", "Tỷ lệ HT", "Doanh thu");
+            for (MonthlyReport.DoctorLine line : report.doctors()) {
+                row(doctors, 2, line.doctorName() != null ? line.doctorName() : "Bác sĩ",
+                        line.specialty() != null ? line.specialty() : "",
+                        count(line.total()), count(line.completed()), count(line.cancelled()),
+                        percent(line.completionRate()), money(line.revenue()));
+            }
+            document.add(report.doctors().isEmpty() ? new Paragraph(text("Không có booking trong tháng")) : doctors);
+
+            document.add(heading("Dịch vụ phổ biến"));
+            Table services = table(4, 1, 2);
+            header(services, "Dịch vụ", "Booking", "Doanh thu");
+            for (MonthlyReport.ServiceLine line : report.topServices()) {
+                row(services, 1, line.serviceName() != null ? line.serviceName() : "Dịch vụ khác",
+                        count(line.bookings()), money(line.revenue()));
+            }
+            document.add(report.topServices().isEmpty() ? new Paragraph(text("Không có booking trong tháng")) : services);
+        }
+    }
+
+    private Paragraph heading(String title) {
+        return new Paragraph(text(title)).setFontSize(12).setBold().setMarginTop(14);
+    }
+
+    private static Table table(float... widths) {
+        return new Table(UnitValue.createPercentArray(widths)).useAllAvailableWidth();
+    }
+
+    private void header(Table table, String... titles) {
+        for (String title : titles) {
+            table.addHeaderCell(new Cell().add(new Paragraph(text(title)).setBold())
+                    .setBackgroundColor(ColorConstants.LIGHT_GRAY));
+        }
+    }
+
+    /**
+     * textColumns cột đầu là chữ (căn trái), các cột sau là số (căn phải)
+     */
+    private void row(Table table, int textColumns, String... values) {
+        for (int i = 0; i < values.length; i++) {
+            table.addCell(new Cell().add(new Paragraph(text(values[i])))
+                    .setTextAlignment(i < textColumns ? TextAlignment.LEFT : TextAlignment.RIGHT));
+        }
+    }
+
+    private static String count(long value) {
+        return new DecimalFormat("#,##0").format(value);
+    }
+
+    private static String percent(double value) {
+        return new DecimalFormat("0.0").format(value) + "%";
+    }
+
+    private static String money(long value) {
+        return new DecimalFormat("#,##0").format(value) + " VND";
+    }
+
+    private String text(String value) {
+        if (fontProgram != null) {
+            return value;
+        }
+        // Helvetica (WinAnsi) không có chữ Việt: bỏ dấu
+        String folded = Normalizer.normalize(value, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+        return folded.replace('đ', 'd').replace('Đ', 'D');
+    }
+
+    private static FontProgram loadFont(String fontPath) {
+        List<String> candidates = new ArrayList<>();
+        if (fontPath != null && !fontPath.isBlank()) {
+            candidates.add(fontPath.trim());
+        }
+        candidates.addAll(SYSTEM_FONTS);
+        for (String candidate : candidates) {
+            if (!Files.isReadable(Path.of(candidate))) {
+                continue;
+            }
+            try {
+                FontProgram font = FontProgramFactory.createFont(candidate);
+                log.info("PDF reports use font {}", candidate);
+                return font;
+            } catch (IOException | RuntimeException e) {
+                log.warn("Could not load report font {}: {}", candidate, e.getMessage());
+            }
+        }
+        log.warn("No Unicode font found for PDF reports, falling back to Helvetica without diacritics");
+        return null;
+    }
+}
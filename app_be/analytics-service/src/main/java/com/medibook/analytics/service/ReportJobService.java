@@ -0,0 +1,394 @@
+package com.medibook.analytics.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.medibook.analytics.dto.MonthlyReport;
+import com.medibook.analytics.dto.ReportJobDto;
+import com.medibook.analytics.dto.ReportJobRequest;
+import com.medibook.analytics.repository.BookingRollupRepository;
+import com.medibook.common.exception.BadRequestException;
+import com.medibook.common.exception.ResourceNotFoundException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Job render báo cáo PDF chạy nền trên pool giới hạn (threads luồng, hàng đợi queue-capacity job),
+ * không chiếm thread của request. File được lưu trên đĩa theo (loại báo cáo, kỳ, phiên bản dữ liệu):
+ * cùng số liệu thì chỉ render một lần, các job sau dùng lại file; số liệu của kỳ đổi thì phiên bản đổi,
+ * render file mới. Phiên bản cũ của kỳ chỉ bị xóa khi không còn job nào trỏ tới (job hết hạn), để link
+ * tải của job đã xong vẫn dùng được tới khi job hết hạn.
+ * Danh sách job giữ trong bộ nhớ (job-ttl-hours); sau khi restart, tạo lại job sẽ nhận ngay file đã có trên đĩa.
+ */
+@Slf4j
+@Service
+public class ReportJobService {
+
+    public enum ReportType {
+        MONTHLY_MANAGEMENT
+    }
+
+    public enum JobStatus {
+        QUEUED,
+        RUNNING,
+        DONE,
+        FAILED
+    }
+
+    private static final int TOP_SERVICES = 10;
+    private static final int VERSION_LENGTH = 16;
+
+    private final BookingRollupRepository rollupRepository;
+    private final BookingRollupService rollupService;
+    private final MonthlyReportRenderer renderer;
+    private final TransactionTemplate snapshotTransaction;
+    private final Path directory;
+    private final ThreadPoolExecutor executor;
+    private final Cache<String, Job> jobs;
+    // Job đang chạy / đã xong theo file đích, để các yêu cầu trùng dùng chung một lần render
+    private final Cache<String, Job> jobsByArtifact;
+
+    public ReportJobService(
+            BookingRollupRepository rollupRepository,
+            BookingRollupService rollupService,
+            MonthlyReportRenderer renderer,
+            PlatformTransactionManager transactionManager,
+            @Value("${analytics.reports.dir:${java.io.tmpdir}/medibook-reports}") String directory,
+            @Value("${analytics.reports.threads:2}") int threads,
+            @Value("${analytics.reports.queue-capacity:20}") int queueCapacity,
+            @Value("${analytics.reports.job-ttl-hours:24}") long jobTtlHours) {
+        this.rollupRepository = rollupRepository;
+        this.rollupService = rollupService;
+        this.renderer = renderer;
+        // Phiên bản và số liệu đọc trong cùng một snapshot
+        this.snapshotTransaction = new TransactionTemplate(transactionManager);
+        this.snapshotTransaction.setReadOnly(true);
+        this.snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.directory = Path.of(directory);
+        int poolSize = Math.max(1, threads);
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                Thread.ofPlatform().name("report-worker-", 0).daemon(true).factory());
+        // Job hết hạn: phiên bản cũ nó giữ lại có thể xóa được
+        this.jobs = Caffeine.newBuilder()
+                .expireAfterAccess(Duration.ofHours(jobTtlHours))
+                .<String, Job>removalListener((key, job, cause) -> onJobExpired(job, cause))
+                .build();
+        this.jobsByArtifact = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofHours(jobTtlHours))
+                .<String, Job>removalListener((key, job, cause) -> onJobExpired(job, cause))
+                .build();
+    }
+
+    /**
+     * Tạo job (hoặc trả job / file đã có cho cùng loại, kỳ và phiên bản dữ liệu)
+     */
+    public ReportJobDto submit(ReportJobRequest request) {
+        ReportType type = parseType(request.getType());
+        YearMonth period = request.getPeriod();
+        if (period == null) {
+            throw new BadRequestException("Thiếu kỳ báo cáo (period, dạng yyyy-MM)");
+        }
+        if (period.isAfter(YearMonth.now())) {
+            throw new BadRequestException("Kỳ báo cáo không được ở tương lai");
+        }
+        if (!rollupService.isReady()) {
+            throw new BadRequestException("Số liệu tổng hợp chưa sẵn sàng, vui lòng thử lại sau");
+        }
+
+        String version = dataVersion(period);
+        Path file = artifactPath(type, period, version);
+        Job[] created = new Job[1];
+        Job job = jobsByArtifact.asMap().compute(file.toString(), (key, current) -> {
+            boolean reusable = current != null && switch (current.status) {
+                case QUEUED, RUNNING -> true;
+                case DONE -> Files.isRegularFile(current.file);
+                case FAILED -> false;
+            };
+            if (reusable) {
+                return current;
+            }
+            Job next = new Job(type, period, version);
+            if (Files.isRegularFile(file)) {
+                next.done(file);
+            } else {
+                created[0] = next;
+            }
+            return next;
+        });
+        jobs.put(job.id, job);
+
+        if (created[0] != null) {
+            try {
+                executor.execute(() -> run(created[0]));
+            } catch (RejectedExecutionException e) {
+                jobsByArtifact.asMap().remove(file.toString(), created[0]);
+                jobs.invalidate(created[0].id);
+                throw new BadRequestException("Hàng đợi báo cáo đang đầy, vui lòng thử lại sau");
+            }
+            log.info("Report job {} queued: {} {} (data version {})", job.id, type, period, version);
+        }
+        return job.toDto();
+    }
+
+    public ReportJobDto getJob(String id) {
+        return find(id).toDto();
+    }
+
+    /**
+     * File PDF của job đã xong
+     */
+    public Path getArtifact(String id) {
+        Job job = find(id);
+        if (job.status != JobStatus.DONE) {
+            throw new BadRequestException("Báo cáo chưa render xong");
+        }
+        if (!Files.isRegularFile(job.file)) {
+            throw new ResourceNotFoundException("File báo cáo không còn, vui lòng tạo lại job");
+        }
+        return job.file;
+    }
+
+    private Job find(String id) {
+        Job job = id != null ? jobs.getIfPresent(id) : null;
+        if (job == null) {
+            throw new ResourceNotFoundException("Không tìm thấy job báo cáo: " + id);
+        }
+        return job;
+    }
+
+    private void run(Job job) {
+        long started = System.nanoTime();
+        job.status = JobStatus.RUNNING;
+        try {
+            MonthlyReport report = snapshotTransaction.execute(status -> load(job.period));
+            // Số liệu có thể đã đổi từ lúc tạo job: file mang phiên bản của snapshot thực sự được render
+            job.dataVersion = report.dataVersion();
+            Path file = artifactPath(job.type, job.period, report.dataVersion());
+            if (!Files.isRegularFile(file)) {
+                write(report, file);
+                deleteOlderVersions(job.type, job.period, file);
+            }
+            job.done(file);
+            log.info("Report job {} rendered {} in {} ms", job.id, file.getFileName(),
+                    (System.nanoTime() - started) / 1_000_000);
+        } catch (Exception e) {
+            job.fail(e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+            log.warn("Report job {} ({} {}) failed: {}", job.id, job.type, job.period, job.error);
+        }
+    }
+
+    private MonthlyReport load(YearMonth period) {
+        LocalDate from = period.atDay(1);
+        LocalDate to = period.atEndOfMonth();
+        return new MonthlyReport(
+                period,
+                dataVersion(period),
+                rollupRepository.summarize(from, to),
+                rollupRepository.reportByDoctor(from, to),
+                rollupRepository.reportByService(from, to, TOP_SERVICES),
+                LocalDateTime.now());
+    }
+
+    private String dataVersion(YearMonth period) {
+        String fingerprint = rollupRepository.fingerprint(period.atDay(1), period.atEndOfMonth());
+        return fingerprint.length() > VERSION_LENGTH ? fingerprint.substring(0, VERSION_LENGTH) : fingerprint;
+    }
+
+    /**
+     * Render ra file tạm trong cùng thư mục rồi đổi tên, không ai đọc được file đang ghi dở
+     */
+    private void write(MonthlyReport report, Path file) throws IOException {
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp))) {
+                renderer.render(report, out);
+            }
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Xóa các phiên bản khác current của kỳ mà không còn job nào trỏ tới
+     */
+    private void deleteOlderVersions(ReportType type, YearMonth period, Path current) {
+        if (current == null) {
+            return;
+        }
+        Set<Path> referenced = new HashSet<>();
+        for (Cache<String, Job> cache : List.of(jobs, jobsByArtifact)) {
+            cache.asMap().values().forEach(job -> {
+                if (job.file != null) {
+                    referenced.add(job.file);
+                }
+            });
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, artifactPrefix(type, period) + "*.pdf")) {
+            for (Path file : files) {
+                if (!file.equals(current) && !referenced.contains(file)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            log.debug("Could not delete older report versions of {} {}: {}", type, period, e.getMessage());
+        }
+    }
+
+    private void onJobExpired(Job job, RemovalCause cause) {
+        if (job != null && cause.wasEvicted()) {
+            deleteOlderVersions(job.type, job.period, latestVersion(job.type, job.period));
+        }
+    }
+
+    /**
+     * File render gần nhất của kỳ (null khi chưa có)
+     */
+    private Path latestVersion(ReportType type, YearMonth period) {
+        Path latest = null;
+        long latestModified = Long.MIN_VALUE;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, artifactPrefix(type, period) + "*.pdf")) {
+            for (Path file : files) {
+                long modified = Files.getLastModifiedTime(file).toMillis();
+                if (modified > latestModified) {
+                    latest = file;
+                    latestModified = modified;
+                }
+            }
+        } catch (IOException e) {
+            log.debug("Could not list report versions of {} {}: {}", type, period, e.getMessage());
+        }
+        return latest;
+    }
+
+    /**
+     * If-Range của request tải file còn khớp với file hiện tại (RFC 9110): ETag so sánh mạnh (ETag weak
+     * không bao giờ khớp) hoặc HTTP-date bằng đúng Last-Modified. Không khớp thì phải trả cả file thay vì
+     * đoạn được yêu cầu; không có If-Range thì coi như khớp
+     */
+    public static boolean ifRangeMatches(String ifRange, String etag, long lastModifiedMillis) {
+        if (ifRange == null || ifRange.isBlank()) {
+            return true;
+        }
+        String value = ifRange.trim();
+        if (value.startsWith("W/")) {
+            return false;
+        }
+        if (value.startsWith("\"")) {
+            return value.equals(etag);
+        }
+        try {
+            long seconds = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toEpochSecond();
+            return seconds == lastModifiedMillis / 1000;
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    private Path artifactPath(ReportType type, YearMonth period, String version) {
+        return directory.resolve(artifactPrefix(type, period) + version + ".pdf");
+    }
+
+    private static String artifactPrefix(ReportType type, YearMonth period) {
+        return type.name().toLowerCase().replace('_', '-') + "_" + period + "_";
+    }
+
+    private static ReportType parseType(String type) {
+        if (type == null || type.isBlank()) {
+            return ReportType.MONTHLY_MANAGEMENT;
+        }
+        try {
+            return ReportType.valueOf(type.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Loại báo cáo không hợp lệ: " + type);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static final class Job {
+
+        private final String id = UUID.randomUUID().toString();
+        private final ReportType type;
+        private final YearMonth period;
+        private final LocalDateTime createdAt = LocalDateTime.now();
+        private volatile String dataVersion;
+        private volatile JobStatus status = JobStatus.QUEUED;
+        private volatile Path file;
+        private volatile String error;
+        private volatile LocalDateTime finishedAt;
+
+        Job(ReportType type, YearMonth period, String dataVersion) {
+            this.type = type;
+            this.period = period;
+            this.dataVersion = dataVersion;
+        }
+
+        void done(Path file) {
+            this.file = file;
+            this.finishedAt = LocalDateTime.now();
+            this.status = JobStatus.DONE;
+        }
+
+        void fail(String error) {
+            this.error = error;
+            this.finishedAt = LocalDateTime.now();
+            this.status = JobStatus.FAILED;
+        }
+
+        ReportJobDto toDto() {
+            Long size = null;
+            if (status == JobStatus.DONE) {
+                try {
+                    size = Files.size(file);
+                } catch (IOException e) {
+                    // File đã bị thay bằng phiên bản mới
+                }
+            }
+            return ReportJobDto.builder()
+                    .id(id)
+                    .type(type.name())
+                    .period(period.toString())
+                    .dataVersion(dataVersion)
+                    .status(status.name())
+                    .error(error)
+                    .fileSize(size)
+                    .createdAt(createdAt)
+                    .finishedAt(finishedAt)
+                    .build();
+        }
+    }
+}
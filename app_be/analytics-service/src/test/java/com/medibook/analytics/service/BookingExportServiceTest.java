@@ -0,0 +1,175 @@
+package com.medibook.analytics.service;
+
+import com.medibook.analytics.repository.BookingExportRepository;
+import com.medibook.common.exception.BadRequestException;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BookingExportServiceTest {
+
+    private final LocalDate day = LocalDate.of(2030, 1, 7);
+
+    @Test
+    void exportsCursorRowsIntoTheWorkbook() throws IOException {
+        List<Map<String, Object>> rows = List.of(
+                booking("b-1", "COMPLETED", "Nguyễn Văn A", new BigDecimal("350000"), day.atTime(9, 30)),
+                booking("b-2", "CANCELLED", "Trần Thị B", null, null),
+                booking("b-3", "PENDING", "Lê Văn C", new BigDecimal("200000"), null));
+        BookingExportService service = service(rows, 1);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long exported;
+        try (BookingExportService.ExportPermit permit = service.reserve(day, day)) {
+            exported = service.export(permit, day, day, out);
+        }
+
+        assertEquals(3, exported);
+        try (XSSFWorkbook workbook = new XSSFWorkbook(new ByteArrayInputStream(out.toByteArray()))) {
+            assertEquals(1, workbook.getNumberOfSheets());
+            Sheet sheet = workbook.getSheet("Bookings");
+            assertEquals(3, sheet.getLastRowNum());
+            assertEquals("Mã booking", sheet.getRow(0).getCell(0).getStringCellValue());
+            assertEquals("Lý do hủy", sheet.getRow(0).getCell(13).getStringCellValue());
+
+            Row first = sheet.getRow(1);
+            assertEquals("b-1", first.getCell(0).getStringCellValue());
+            assertEquals(day.atTime(8, 0), first.getCell(1).getLocalDateTimeCellValue());
+            assertEquals("09:00", first.getCell(3).getStringCellValue());
+            assertEquals("COMPLETED", first.getCell(5).getStringCellValue());
+            assertEquals("Nguyễn Văn A", first.getCell(6).getStringCellValue());
+            assertEquals(350000.0, first.getCell(9).getNumericCellValue());
+            assertEquals(day.atTime(9, 30), first.getCell(12).getLocalDateTimeCellValue());
+            // Giá trị null thì để trống ô
+            Row second = sheet.getRow(2);
+            assertEquals("CANCELLED", second.getCell(5).getStringCellValue());
+            assertEquals(null, second.getCell(9));
+            assertEquals(null, second.getCell(12));
+        }
+        // Lượt xuất đã được trả: xuất tiếp được
+        service.reserve(day, day).close();
+    }
+
+    @Test
+    void permitIsReleasedWhenTheCursorFailsOrTheBodyNeverRuns() throws IOException {
+        BookingExportService failing = new BookingExportService(new BookingExportRepository(null) {
+            @Override
+            public void streamBookings(LocalDate from, LocalDate to, int fetchSize, RowCallbackHandler handler) {
+                throw new IllegalStateException("canceling statement due to user request");
+            }
+        }, new NoOpTransactionManager(), 100, 10, 31, 1);
+
+        BookingExportService.ExportPermit permit = failing.reserve(day, day);
+        assertThrows(BadRequestException.class, () -> failing.reserve(day, day));
+        assertThrows(IllegalStateException.class, () -> failing.export(permit, day, day, new ByteArrayOutputStream()));
+        // close() lần nữa (callback kết thúc request) không trả thừa lượt
+        permit.close();
+
+        BookingExportService.ExportPermit abandoned = failing.reserve(day, day);
+        assertThrows(BadRequestException.class, () -> failing.reserve(day, day));
+        // Client ngắt trước khi body chạy: chỉ callback kết thúc request trả lượt
+        abandoned.close();
+        failing.reserve(day, day).close();
+    }
+
+    @Test
+    void rejectsInvalidRangesWithoutTakingAPermit() {
+        BookingExportService service = service(List.of(), 1);
+
+        assertThrows(BadRequestException.class, () -> service.reserve(day, day.minusDays(1)));
+        assertThrows(BadRequestException.class, () -> service.reserve(day, day.plusDays(31)));
+        service.reserve(day, day.plusDays(30)).close();
+    }
+
+    private BookingExportService service(List<Map<String, Object>> rows, int maxConcurrent) {
+        // "DB" giả lập: con trỏ trả từng dòng cho callback như JdbcTemplate
+        BookingExportRepository repository = new BookingExportRepository(null) {
+            @Override
+            public void streamBookings(LocalDate from, LocalDate to, int fetchSize, RowCallbackHandler handler) {
+                try {
+                    for (Map<String, Object> row : rows) {
+                        handler.processRow(resultSet(row));
+                    }
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        };
+        return new BookingExportService(repository, new NoOpTransactionManager(), 100, 10, 31, maxConcurrent);
+    }
+
+    private Map<String, Object> booking(String id, String status, String patient, BigDecimal amount, LocalDateTime paidAt) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("booking_id", id);
+        row.put("created_at", Timestamp.valueOf(day.atTime(8, 0)));
+        row.put("slot_date", Date.valueOf(day));
+        row.put("start_time", Time.valueOf(LocalTime.of(9, 0)));
+        row.put("end_time", Time.valueOf(LocalTime.of(9, 30)));
+        row.put("status", status);
+        row.put("patient_name", patient);
+        row.put("doctor_name", "BS. Phạm D");
+        row.put("service_name", "Khám tổng quát");
+        row.put("total_amount", amount);
+        row.put("payment_status", amount != null ? "PAID" : null);
+        row.put("payment_method", amount != null ? "ZALOPAY" : null);
+        row.put("paid_at", paidAt != null ? Timestamp.valueOf(paidAt) : null);
+        row.put("cancellation_reason", "CANCELLED".equals(status) ? "Bận việc" : null);
+        return row;
+    }
+
+    /**
+     * ResultSet chỉ đọc một dòng theo tên cột
+     */
+    private static ResultSet resultSet(Map<String, Object> row) {
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> {
+                    if (method.getName().startsWith("get") && args != null && args.length == 1
+                            && args[0] instanceof String column) {
+                        return row.get(column);
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private static final class NoOpTransactionManager implements PlatformTransactionManager {
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    }
+}
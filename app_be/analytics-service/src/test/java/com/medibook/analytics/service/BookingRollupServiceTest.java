@@ -0,0 +1,189 @@
+package com.medibook.analytics.service;
+
+import com.medibook.analytics.repository.BookingRollupRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BookingRollupServiceTest {
+
+    private final LocalDate monday = LocalDate.of(2030, 1, 7);
+    private final LocalDate tuesday = monday.plusDays(1);
+
+    private final InMemoryRollup repository = new InMemoryRollup();
+    private final BookingRollupService service = new BookingRollupService(
+            repository, new NoOpTransactionManager(), new DashboardCache(100, 30, 600), 300);
+
+    @Test
+    void missingHighWaterMarkBuildsEverythingThenOnlyChangedDays() {
+        repository.add(monday, "PENDING", monday.atTime(9, 0));
+        repository.add(tuesday, "PENDING", tuesday.atTime(9, 0));
+        assertNull(repository.mark);
+
+        BookingRollupService.RefreshReport full = service.refresh();
+
+        assertTrue(full.fullRebuild());
+        assertEquals(1, repository.fullBuilds);
+        assertEquals(tuesday.atTime(9, 0), repository.mark);
+        assertTrue(service.isReady());
+
+        // Booking thứ Hai được xác nhận một giờ sau - thứ Hai được tính lại, cùng thứ Ba
+        // (booking cập nhật trong overlap-seconds trước mốc), không dựng lại toàn bộ
+        repository.bookings.set(0, new Booking(monday, "CONFIRMED", tuesday.atTime(10, 0)));
+        BookingRollupService.RefreshReport incremental = service.refresh();
+
+        assertFalse(incremental.fullRebuild());
+        assertEquals(1, repository.fullBuilds);
+        assertEquals(List.of(List.of(monday, tuesday)), repository.recomputedDays);
+        assertEquals(Map.of("CONFIRMED", 1L), repository.rollup.get(monday));
+        assertEquals(Map.of("PENDING", 1L), repository.rollup.get(tuesday));
+        assertEquals(tuesday.atTime(10, 0), repository.mark);
+    }
+
+    @Test
+    void recomputingTheSameDayAgainDoesNotDoubleCount() {
+        repository.add(monday, "PENDING", monday.atTime(9, 0));
+        repository.add(monday, "COMPLETED", monday.atTime(9, 5));
+        service.refresh();
+        Map<LocalDate, Map<String, Long>> afterBuild = repository.snapshot();
+
+        // Mốc lùi overlap-seconds nên các lần sau vẫn thấy thứ Hai "thay đổi" và tính lại ngày đó
+        service.refresh();
+        service.refresh();
+
+        assertEquals(List.of(List.of(monday), List.of(monday)), repository.recomputedDays);
+        assertEquals(afterBuild, repository.snapshot());
+        assertEquals(Map.of("PENDING", 1L, "COMPLETED", 1L), repository.rollup.get(monday));
+        assertEquals(monday.atTime(9, 5), repository.mark);
+    }
+
+    @Test
+    void emptyBookingsStoreASentinelMarkInsteadOfRebuildingEveryRun() {
+        BookingRollupService.RefreshReport first = service.refresh();
+        BookingRollupService.RefreshReport second = service.refresh();
+
+        assertTrue(first.fullRebuild());
+        assertEquals(BookingRollupService.EMPTY_MARK, first.highWaterMark());
+        assertFalse(second.fullRebuild());
+        assertEquals(0, second.days());
+        assertEquals(1, repository.fullBuilds);
+
+        // Booking đầu tiên được gộp theo ngày, không cần dựng lại toàn bộ
+        repository.add(monday, "PENDING", monday.atTime(9, 0));
+        BookingRollupService.RefreshReport third = service.refresh();
+
+        assertFalse(third.fullRebuild());
+        assertEquals(1, repository.fullBuilds);
+        assertEquals(Map.of("PENDING", 1L), repository.rollup.get(monday));
+        assertEquals(monday.atTime(9, 0), repository.mark);
+    }
+
+    private record Booking(LocalDate createdDay, String status, LocalDateTime updatedAt) {}
+
+    /**
+     * "DB" giả lập: bookings + booking_daily_rollup (ngày → trạng thái → số booking) + mốc
+     */
+    private static final class InMemoryRollup extends BookingRollupRepository {
+
+        final List<Booking> bookings = new CopyOnWriteArrayList<>();
+        final Map<LocalDate, Map<String, Long>> rollup = new TreeMap<>();
+        final List<List<LocalDate>> recomputedDays = new CopyOnWriteArrayList<>();
+        LocalDateTime mark;
+        int fullBuilds;
+
+        InMemoryRollup() {
+            super(null);
+        }
+
+        void add(LocalDate createdDay, String status, LocalDateTime updatedAt) {
+            bookings.add(new Booking(createdDay, status, updatedAt));
+        }
+
+        Map<LocalDate, Map<String, Long>> snapshot() {
+            Map<LocalDate, Map<String, Long>> copy = new TreeMap<>();
+            rollup.forEach((day, counts) -> copy.put(day, Map.copyOf(counts)));
+            return copy;
+        }
+
+        @Override
+        public void lock() {
+        }
+
+        @Override
+        public LocalDateTime findHighWaterMark() {
+            return mark;
+        }
+
+        @Override
+        public LocalDateTime findLatestChange() {
+            return bookings.stream().map(Booking::updatedAt).max(LocalDateTime::compareTo).orElse(null);
+        }
+
+        @Override
+        public List<LocalDate> findChangedDays(LocalDateTime since) {
+            return bookings.stream().filter(b -> b.updatedAt().isAfter(since))
+                    .map(Booking::createdDay).distinct().sorted().toList();
+        }
+
+        @Override
+        public int replaceDays(Collection<LocalDate> days) {
+            if (days.isEmpty()) {
+                return 0;
+            }
+            recomputedDays.add(List.copyOf(days));
+            days.forEach(rollup::remove);
+            return aggregate(bookings.stream().filter(b -> days.contains(b.createdDay())).toList());
+        }
+
+        @Override
+        public int replaceAll() {
+            fullBuilds++;
+            rollup.clear();
+            return aggregate(bookings);
+        }
+
+        @Override
+        public void saveHighWaterMark(LocalDateTime mark) {
+            this.mark = mark;
+        }
+
+        private int aggregate(List<Booking> rows) {
+            Map<LocalDate, Map<String, Long>> counts = rows.stream().collect(Collectors.groupingBy(Booking::createdDay,
+                    Collectors.groupingBy(Booking::status, Collectors.counting())));
+            rollup.putAll(counts);
+            return counts.values().stream().mapToInt(Map::size).sum();
+        }
+    }
+
+    private static final class NoOpTransactionManager implements PlatformTransactionManager {
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.medibook.analytics.service;
+
+import com.medibook.analytics.service.DashboardCache.Endpoint;
+import com.medibook.analytics.service.DashboardCache.Key;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DashboardCacheTest {
+
+    private final LocalDate jan1 = LocalDate.of(2030, 1, 1);
+    private final Key january = Key.of(Endpoint.DASHBOARD, jan1, LocalDate.of(2030, 1, 31), null);
+    private final Key february = Key.of(Endpoint.DASHBOARD, LocalDate.of(2030, 2, 1), LocalDate.of(2030, 2, 28), null);
+    private final Key allTime = Key.of(Endpoint.DASHBOARD, null, null, null);
+
+    private final DashboardCache cache = new DashboardCache(100, 30, 600);
+
+    @AfterEach
+    void shutdown() {
+        cache.shutdown();
+    }
+
+    @Test
+    void concurrentMissesLoadOnce() throws InterruptedException {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        Supplier<Integer> loader = () -> {
+            loads.incrementAndGet();
+            await(release);
+            return 42;
+        };
+
+        List<Integer> results = new ArrayList<>();
+        List<Thread> readers = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            readers.add(Thread.ofVirtual().start(() -> {
+                Integer value = cache.get(january, loader);
+                synchronized (results) {
+                    results.add(value);
+                }
+            }));
+        }
+        Thread.sleep(100);
+        release.countDown();
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        assertEquals(1, loads.get());
+        assertEquals(List.of(42, 42, 42, 42, 42, 42, 42, 42), results);
+    }
+
+    @Test
+    void invalidatedEntryIsServedStaleAndRevalidatedOnce() {
+        Counter counter = new Counter();
+        assertEquals(1, cache.get(january, counter));
+
+        cache.invalidateDays(List.of(LocalDate.of(2030, 1, 15)));
+
+        // Trả ngay giá trị cũ, tính lại nền
+        assertEquals(1, cache.get(january, counter));
+        eventually(() -> counter.loads.get() == 2);
+        eventually(() -> cache.get(january, counter) == 2);
+        // Giá trị mới còn fresh: không tính lại nữa
+        assertEquals(2, cache.get(january, counter));
+        assertEquals(2, counter.loads.get());
+    }
+
+    @Test
+    void invalidateDaysOnlyMarksRangesContainingTheDay() {
+        Counter jan = new Counter();
+        Counter feb = new Counter();
+        Counter all = new Counter();
+        cache.get(january, jan);
+        cache.get(february, feb);
+        cache.get(allTime, all);
+
+        cache.invalidateDays(List.of(LocalDate.of(2030, 1, 31)));
+        cache.get(january, jan);
+        cache.get(february, feb);
+        cache.get(allTime, all);
+
+        eventually(() -> jan.loads.get() == 2 && all.loads.get() == 2);
+        assertEquals(1, feb.loads.get());
+
+        // Ngày đầu / cuối khoảng đều tính là nằm trong khoảng
+        cache.invalidateDays(List.of(LocalDate.of(2030, 2, 1)));
+        cache.get(february, feb);
+        eventually(() -> feb.loads.get() == 2);
+    }
+
+    @Test
+    void invalidationDuringALoadMarksTheNewEntry() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<Integer> loader = () -> {
+            int load = loads.incrementAndGet();
+            if (load == 1) {
+                started.countDown();
+                await(release);
+            }
+            return load;
+        };
+        AtomicInteger firstRead = new AtomicInteger();
+        Thread reader = Thread.ofVirtual().start(() -> firstRead.set(cache.get(january, loader)));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // Booking đổi trong lúc dashboard đang được tính: kết quả đó đã cũ
+        cache.invalidateDays(List.of(jan1));
+        release.countDown();
+        reader.join();
+
+        // Người đọc vẫn nhận kết quả vừa tính, nhưng entry đã stale nên được tính lại nền
+        assertEquals(1, firstRead.get());
+        eventually(() -> cache.get(january, loader) == 2);
+        assertEquals(2, loads.get());
+    }
+
+    /**
+     * Loader trả số lần đã tính
+     */
+    private static final class Counter implements Supplier<Integer> {
+
+        final AtomicInteger loads = new AtomicInteger();
+
+        @Override
+        public Integer get() {
+            return loads.incrementAndGet();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void eventually(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("condition not met within 5 s");
+            }
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AssertionError(e);
+            }
+        }
+    }
+}
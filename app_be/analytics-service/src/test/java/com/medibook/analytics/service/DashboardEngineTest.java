@@ -0,0 +1,184 @@
+package com.medibook.analytics.service;
+
+import com.medibook.analytics.dto.BookingTotals;
+import com.medibook.analytics.dto.DashboardDto;
+import com.medibook.analytics.repository.BookingRepository;
+import com.medibook.analytics.repository.DashboardQueryRepository;
+import com.medibook.analytics.repository.DoctorRepository;
+import com.medibook.analytics.repository.MedicalServiceRepository;
+import com.medibook.analytics.repository.ProfileRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DashboardEngineTest {
+
+    private static final BookingTotals TOTALS = new BookingTotals(10, 2, 3, 4, 1, 0, 500_000);
+
+    // Timeout (giây) của các transaction mà engine mở
+    private final List<Integer> timeouts = new CopyOnWriteArrayList<>();
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger maxRunning = new AtomicInteger();
+    private volatile Supplier<BookingTotals> totals = () -> TOTALS;
+    private volatile Supplier<Long> patients = () -> 120L;
+    private volatile long queryMillis;
+    private DashboardEngine engine;
+
+    @AfterEach
+    void shutdown() {
+        if (engine != null) {
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    void failingSectionIsReportedWhileTheOthersAreReturned() {
+        totals = () -> {
+            throw new IllegalStateException("relation \"bookings\" is locked");
+        };
+        engine = engine(3000, 4);
+
+        DashboardDto dashboard = engine.assemble(null, null);
+
+        assertEquals(List.of("totals"), dashboard.getUnavailableSections());
+        assertEquals(0, dashboard.getTotalBookings());
+        assertEquals(120, dashboard.getTotalPatients());
+        assertEquals(8, dashboard.getTotalDoctors());
+        assertEquals(1, dashboard.getBookingsByDay().size());
+        assertEquals(1, dashboard.getPopularServices().size());
+    }
+
+    @Test
+    void slowSectionMissesTheDeadlineWithoutDelayingTheResponse() {
+        patients = () -> {
+            sleep(5_000);
+            return 120L;
+        };
+        engine = engine(300, 4);
+
+        long started = System.nanoTime();
+        DashboardDto dashboard = engine.assemble(null, null);
+        long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+
+        assertEquals(List.of("totalPatients"), dashboard.getUnavailableSections());
+        assertEquals(0, dashboard.getTotalPatients());
+        assertEquals(10, dashboard.getTotalBookings());
+        assertEquals(8, dashboard.getTotalDoctors());
+        assertTrue(elapsedMillis < 2_000, "assemble took " + elapsedMillis + " ms");
+        // Transaction của mỗi phần có timeout theo deadline (làm tròn lên giây)
+        assertEquals(6, timeouts.size());
+        assertTrue(timeouts.stream().allMatch(timeout -> timeout == 1), "timeouts " + timeouts);
+    }
+
+    @Test
+    void concurrentSectionsAreCappedAcrossRequests() throws InterruptedException {
+        queryMillis = 30;
+        engine = engine(5000, 2);
+
+        List<DashboardDto> results = new CopyOnWriteArrayList<>();
+        Thread first = Thread.ofVirtual().start(() -> results.add(engine.assemble(null, null)));
+        Thread second = Thread.ofVirtual().start(() -> results.add(engine.assemble(null, null)));
+        first.join();
+        second.join();
+
+        assertEquals(2, results.size());
+        assertTrue(results.stream().allMatch(dashboard -> dashboard.getUnavailableSections().isEmpty()));
+        assertTrue(maxRunning.get() <= 2, "max concurrent queries " + maxRunning.get());
+        assertTrue(timeouts.stream().allMatch(timeout -> timeout >= 1 && timeout <= 5), "timeouts " + timeouts);
+    }
+
+    private DashboardEngine engine(long deadlineMillis, int maxConcurrentQueries) {
+        ProfileRepository profileRepository = repository(ProfileRepository.class, Map.of(
+                "count", () -> query(patients)));
+        DoctorRepository doctorRepository = repository(DoctorRepository.class, Map.of(
+                "count", () -> query(() -> 8L),
+                "findTop10ByOrderByRatingDesc", List::of));
+        BookingRepository bookingRepository = repository(BookingRepository.class, Map.of(
+                "countBookingsByDay", () -> query(() -> List.<Object[]>of(new Object[]{"Mon", 4L})),
+                "countBookingsByService", () -> query(() -> List.<Object[]>of(new Object[]{UUID.randomUUID(), 6L})),
+                "countBookingsByDoctor", () -> query(List::of)));
+        MedicalServiceRepository medicalServiceRepository = repository(MedicalServiceRepository.class, Map.of(
+                "findAllById", List::of));
+        DashboardQueryRepository dashboardQueryRepository = new DashboardQueryRepository(null) {
+            @Override
+            public BookingTotals summarize(LocalDate from, LocalDate to) {
+                return query(totals);
+            }
+        };
+        // Bảng gộp chưa sẵn sàng: engine đọc bookings
+        BookingRollupService rollupService = new BookingRollupService(null, null, null, 0);
+        return new DashboardEngine(profileRepository, doctorRepository, bookingRepository, medicalServiceRepository,
+                null, dashboardQueryRepository, rollupService, new RecordingTransactionManager(),
+                deadlineMillis, maxConcurrentQueries);
+    }
+
+    /**
+     * "Truy vấn" giả lập: đếm số truy vấn đang chạy cùng lúc
+     */
+    private <T> T query(Supplier<T> result) {
+        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+        try {
+            if (queryMillis > 0) {
+                sleep(queryMillis);
+            }
+            return result.get();
+        } finally {
+            running.decrementAndGet();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <R> R repository(Class<R> type, Map<String, Supplier<Object>> answers) {
+        return (R) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getName().equals("toString")) {
+                return type.getSimpleName();
+            }
+            Supplier<Object> answer = answers.get(method.getName());
+            if (answer == null) {
+                throw new UnsupportedOperationException(type.getSimpleName() + "." + method.getName());
+            }
+            return answer.get();
+        });
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("cancelled", e);
+        }
+    }
+
+    private final class RecordingTransactionManager implements PlatformTransactionManager {
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            timeouts.add(definition.getTimeout());
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.medibook.analytics.service;
+
+import com.medibook.analytics.dto.BookingTotals;
+import com.medibook.analytics.dto.MonthlyReport;
+import com.medibook.analytics.dto.ReportJobDto;
+import com.medibook.analytics.dto.ReportJobRequest;
+import com.medibook.analytics.repository.BookingRollupRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReportJobServiceTest {
+
+    private final YearMonth period = YearMonth.now().minusMonths(1);
+    private final List<ReportJobService> services = new ArrayList<>();
+    // Dấu vân tay số liệu hiện tại của kỳ
+    private volatile String fingerprint = "0123456789abcdef0123456789abcdef";
+    private volatile CountDownLatch renderGate = new CountDownLatch(0);
+
+    @TempDir
+    Path directory;
+
+    @AfterEach
+    void shutdown() {
+        services.forEach(ReportJobService::shutdown);
+    }
+
+    @Test
+    void duplicateSubmitsShareOneRender() {
+        CountingRenderer renderer = new CountingRenderer();
+        ReportJobService service = service(renderer);
+        renderGate = new CountDownLatch(1);
+
+        ReportJobDto first = service.submit(request());
+        ReportJobDto second = service.submit(request());
+
+        assertEquals(first.getId(), second.getId());
+        assertNotEquals("DONE", second.getStatus());
+        renderGate.countDown();
+        ReportJobDto done = awaitDone(service, first.getId());
+
+        assertEquals(1, renderer.renders.get());
+        assertEquals("0123456789abcdef", done.getDataVersion());
+        assertEquals(first.getId(), service.submit(request()).getId());
+        assertEquals(1, renderer.renders.get());
+    }
+
+    @Test
+    void newDataVersionRendersAgainAndKeepsTheOlderFileForItsJob() throws IOException {
+        CountingRenderer renderer = new CountingRenderer();
+        ReportJobService service = service(renderer);
+        ReportJobDto january = awaitDone(service, service.submit(request()).getId());
+        Path oldFile = service.getArtifact(january.getId());
+
+        // Số liệu của kỳ đổi: phiên bản mới, job mới, file mới
+        fingerprint = "fedcba9876543210fedcba9876543210";
+        ReportJobDto updated = awaitDone(service, service.submit(request()).getId());
+        Path newFile = service.getArtifact(updated.getId());
+
+        assertNotEquals(january.getId(), updated.getId());
+        assertEquals("fedcba9876543210", updated.getDataVersion());
+        assertEquals(2, renderer.renders.get());
+        assertNotEquals(oldFile, newFile);
+        // Job cũ còn hạn vẫn tải được file của nó
+        assertTrue(Files.isRegularFile(oldFile));
+        assertEquals(oldFile, service.getArtifact(january.getId()));
+        assertEquals("report 0123456789abcdef", Files.readString(oldFile));
+        assertEquals("report fedcba9876543210", Files.readString(newFile));
+    }
+
+    @Test
+    void renderedFileIsReusedAfterRestart() {
+        ReportJobService before = service(new CountingRenderer());
+        awaitDone(before, before.submit(request()).getId());
+
+        CountingRenderer renderer = new CountingRenderer();
+        ReportJobService after = service(renderer);
+        ReportJobDto job = after.submit(request());
+
+        assertEquals("DONE", job.getStatus());
+        assertEquals(0, renderer.renders.get());
+    }
+
+    @Test
+    void ifRangeMatchesOnlyTheCurrentStrongETagOrExactLastModified() {
+        String etag = "\"0123456789abcdef\"";
+        long lastModified = ZonedDateTime.of(2030, 1, 7, 8, 30, 15, 0, ZoneOffset.UTC).toInstant().toEpochMilli() + 250;
+        String httpDate = DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.of(2030, 1, 7, 8, 30, 15, 0, ZoneOffset.UTC));
+
+        assertTrue(ReportJobService.ifRangeMatches(null, etag, lastModified));
+        assertTrue(ReportJobService.ifRangeMatches(etag, etag, lastModified));
+        assertTrue(ReportJobService.ifRangeMatches(httpDate, etag, lastModified));
+        assertFalse(ReportJobService.ifRangeMatches("W/" + etag, etag, lastModified));
+        assertFalse(ReportJobService.ifRangeMatches("\"fedcba9876543210\"", etag, lastModified));
+        assertFalse(ReportJobService.ifRangeMatches(
+                DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.of(2030, 1, 7, 8, 30, 14, 0, ZoneOffset.UTC)),
+                etag, lastModified));
+        assertFalse(ReportJobService.ifRangeMatches("yesterday", etag, lastModified));
+    }
+
+    private ReportJobService service(MonthlyReportRenderer renderer) {
+        // "DB" giả lập: bảng gộp chỉ trả dấu vân tay và số liệu rỗng
+        BookingRollupRepository rollupRepository = new BookingRollupRepository(null) {
+            @Override
+            public String fingerprint(LocalDate from, LocalDate to) {
+                return fingerprint;
+            }
+
+            @Override
+            public BookingTotals summarize(LocalDate from, LocalDate to) {
+                return BookingTotals.EMPTY;
+            }
+
+            @Override
+            public List<MonthlyReport.DoctorLine> reportByDoctor(LocalDate from, LocalDate to) {
+                return List.of();
+            }
+
+            @Override
+            public List<MonthlyReport.ServiceLine> reportByService(LocalDate from, LocalDate to, int limit) {
+                return List.of();
+            }
+        };
+        BookingRollupService rollupService = new BookingRollupService(null, null, null, 0) {
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+        };
+        ReportJobService service = new ReportJobService(rollupRepository, rollupService, renderer,
+                new NoOpTransactionManager(), directory.toString(), 1, 5, 1);
+        services.add(service);
+        return service;
+    }
+
+    private ReportJobRequest request() {
+        return new ReportJobRequest(null, period);
+    }
+
+    private static ReportJobDto awaitDone(ReportJobService service, String id) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (true) {
+            ReportJobDto job = service.getJob(id);
+            if (job.getStatus().equals("DONE")) {
+                return job;
+            }
+            if (job.getStatus().equals("FAILED") || System.nanoTime() > deadline) {
+                throw new AssertionError("job " + id + " is " + job.getStatus() + ": " + job.getError());
+            }
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AssertionError(e);
+            }
+        }
+    }
+
+    /**
+     * Renderer giả lập: ghi phiên bản dữ liệu ra file, đếm số lần render
+     */
+    private final class CountingRenderer extends MonthlyReportRenderer {
+
+        final AtomicInteger renders = new AtomicInteger();
+
+        CountingRenderer() {
+            super("");
+        }
+
+        @Override
+        public void render(MonthlyReport report, OutputStream out) throws IOException {
+            try {
+                renderGate.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+            renders.incrementAndGet();
+            out.write(("report " + report.dataVersion()).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static final class NoOpTransactionManager implements PlatformTransactionManager {
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.medibook.gateway.filter;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import javax.crypto.SecretKey;
+
+/**
+ * Chuyển claim doctorId của access token thành header X-Doctor-Id cho các service phía sau,
+ * để booking-service / user-service không phải tra bảng doctors ở mỗi request của bác sĩ.
+ * Header client tự gửi luôn bị xóa; chỉ gắn khi token hợp lệ và X-User-Id (nếu có) đúng chủ token.
+ */
+@Slf4j
+@Component
+public class DoctorIdHeaderFilter implements GlobalFilter, Ordered {
+
+    static final String USER_ID_HEADER = "X-User-Id";
+    static final String DOCTOR_ID_HEADER = "X-Doctor-Id";
+    private static final String BEARER_PREFIX = "Bearer ";
+    private static final String CLAIM_DOCTOR_ID = "doctorId";
+
+    private final SecretKey signingKey;
+
+    public DoctorIdHeaderFilter(@Value("${jwt.secret}") String jwtSecret) {
+        this.signingKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtSecret));
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        String doctorId = resolveDoctorId(request.getHeaders());
+        if (doctorId == null && !request.getHeaders().containsKey(DOCTOR_ID_HEADER)) {
+            return chain.filter(exchange);
+        }
+        ServerHttpRequest mutated = request.mutate()
+                .headers(headers -> {
+                    headers.remove(DOCTOR_ID_HEADER);
+                    if (doctorId != null) {
+                        headers.set(DOCTOR_ID_HEADER, doctorId);
+                    }
+                })
+                .build();
+        return chain.filter(exchange.mutate().request(mutated).build());
+    }
+
+    private String resolveDoctorId(HttpHeaders headers) {
+        String authorization = headers.getFirst(HttpHeaders.AUTHORIZATION);
+        if (authorization == null || !authorization.startsWith(BEARER_PREFIX)) {
+            return null;
+        }
+        try {
+            Claims claims = Jwts.parser()
+                    .verifyWith(signingKey)
+                    .build()
+                    .parseSignedClaims(authorization.substring(BEARER_PREFIX.length()).trim())
+                    .getPayload();
+            String doctorId = claims.get(CLAIM_DOCTOR_ID, String.class);
+            String userId = headers.getFirst(USER_ID_HEADER);
+            if (doctorId == null || (userId != null && !userId.equalsIgnoreCase(claims.getSubject()))) {
+                return null;
+            }
+            return doctorId;
+        } catch (JwtException | IllegalArgumentException e) {
+            // Token hết hạn / sai chữ ký: service phía sau tự xử lý như trước, chỉ không có doctorId
+            log.debug("Ignoring bearer token for doctorId header: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+}
@@ -0,0 +1,106 @@
+package com.medibook.gateway.filter;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Encoders;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import javax.crypto.SecretKey;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class DoctorIdHeaderFilterTest {
+
+    private static final SecretKey KEY = Jwts.SIG.HS256.key().build();
+    private static final SecretKey OTHER_KEY = Jwts.SIG.HS256.key().build();
+
+    private final DoctorIdHeaderFilter filter = new DoctorIdHeaderFilter(Encoders.BASE64.encode(KEY.getEncoded()));
+    private final String userId = UUID.randomUUID().toString();
+    private final String doctorId = UUID.randomUUID().toString();
+
+    @Test
+    void clientSuppliedDoctorIdIsAlwaysStripped() {
+        HttpHeaders withoutToken = forward(MockServerHttpRequest.get("/api/bookings/doctor/agenda")
+                .header(DoctorIdHeaderFilter.DOCTOR_ID_HEADER, doctorId));
+        HttpHeaders withPatientToken = forward(MockServerHttpRequest.get("/api/bookings/doctor/agenda")
+                .header(HttpHeaders.AUTHORIZATION, bearer(token(KEY, userId, null)))
+                .header(DoctorIdHeaderFilter.DOCTOR_ID_HEADER, doctorId));
+
+        assertFalse(withoutToken.containsKey(DoctorIdHeaderFilter.DOCTOR_ID_HEADER));
+        assertFalse(withPatientToken.containsKey(DoctorIdHeaderFilter.DOCTOR_ID_HEADER));
+    }
+
+    @Test
+    void doctorIdClaimIsForwardedWhenTheTokenIsValidAndBelongsToTheCaller() {
+        String token = token(KEY, userId, doctorId);
+
+        HttpHeaders noUserHeader = forward(MockServerHttpRequest.get("/api/bookings/doctor/agenda")
+                .header(HttpHeaders.AUTHORIZATION, bearer(token)));
+        HttpHeaders sameUser = forward(MockServerHttpRequest.get("/api/bookings/doctor/agenda")
+                .header(HttpHeaders.AUTHORIZATION, bearer(token))
+                .header(DoctorIdHeaderFilter.USER_ID_HEADER, userId.toUpperCase()));
+        // Header giả của client bị thay bằng giá trị trong token
+        HttpHeaders spoofed = forward(MockServerHttpRequest.get("/api/bookings/doctor/agenda")
+                .header(HttpHeaders.AUTHORIZATION, bearer(token))
+                .header(DoctorIdHeaderFilter.DOCTOR_ID_HEADER, UUID.randomUUID().toString()));
+
+        assertEquals(doctorId, noUserHeader.getFirst(DoctorIdHeaderFilter.DOCTOR_ID_HEADER));
+        assertEquals(doctorId, sameUser.getFirst(DoctorIdHeaderFilter.DOCTOR_ID_HEADER));
+        assertEquals(List.of(doctorId), spoofed.get(DoctorIdHeaderFilter.DOCTOR_ID_HEADER));
+    }
+
+    @Test
+    void noDoctorIdForAnotherUsersTokenOrABadSignature() {
+        HttpHeaders otherUser = forward(MockServerHttpRequest.get("/api/bookings/doctor/agenda")
+                .header(HttpHeaders.AUTHORIZATION, bearer(token(KEY, userId, doctorId)))
+                .header(DoctorIdHeaderFilter.USER_ID_HEADER, UUID.randomUUID().toString()));
+        HttpHeaders forged = forward(MockServerHttpRequest.get("/api/bookings/doctor/agenda")
+                .header(HttpHeaders.AUTHORIZATION, bearer(token(OTHER_KEY, userId, doctorId)))
+                .header(DoctorIdHeaderFilter.DOCTOR_ID_HEADER, doctorId));
+        HttpHeaders malformed = forward(MockServerHttpRequest.get("/api/bookings/doctor/agenda")
+                .header(HttpHeaders.AUTHORIZATION, bearer("not-a-jwt")));
+
+        assertFalse(otherUser.containsKey(DoctorIdHeaderFilter.DOCTOR_ID_HEADER));
+        assertFalse(forged.containsKey(DoctorIdHeaderFilter.DOCTOR_ID_HEADER));
+        assertFalse(malformed.containsKey(DoctorIdHeaderFilter.DOCTOR_ID_HEADER));
+    }
+
+    /**
+     * Chạy filter và trả header của request mà chain phía sau nhận được
+     */
+    private HttpHeaders forward(MockServerHttpRequest.BaseBuilder<?> request) {
+        AtomicReference<ServerWebExchange> forwarded = new AtomicReference<>();
+        GatewayFilterChain chain = exchange -> {
+            forwarded.set(exchange);
+            return Mono.empty();
+        };
+        filter.filter(MockServerWebExchange.from(request), chain).block();
+        return forwarded.get().getRequest().getHeaders();
+    }
+
+    private static String token(SecretKey key, String subject, String doctorId) {
+        var builder = Jwts.builder()
+                .subject(subject)
+                .issuedAt(new Date())
+                .expiration(new Date(System.currentTimeMillis() + 60_000));
+        if (doctorId != null) {
+            builder.claim("doctorId", doctorId);
+        }
+        return builder.signWith(key).compact();
+    }
+
+    private static String bearer(String token) {
+        return "Bearer " + token;
+    }
+}
@@ -2,6 +2,8 @@ package com.medibook.auth.repository;
 
 import com.medibook.auth.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -13,4 +15,10 @@ public interface UserRepository extends JpaRepository<User, UUID> {
     Optional<User> findByEmail(String email);
 
     boolean existsByEmail(String email);
+
+    /**
+     * Doctor ID của tài khoản bác sĩ (bảng doctors do user-service quản lý) - dùng khi cấp access token
+     */
+    @Query(value = "SELECT CAST(id AS varchar) FROM doctors WHERE user_id = :userId LIMIT 1", nativeQuery = true)
+    Optional<String> findDoctorIdByUserId(@Param("userId") UUID userId);
 }
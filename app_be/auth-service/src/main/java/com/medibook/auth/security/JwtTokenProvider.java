@@ -18,6 +18,8 @@ import java.util.UUID;
 @Component
 public class JwtTokenProvider {
 
+    public static final String CLAIM_DOCTOR_ID = "doctorId";
+
     @Value("${jwt.secret}")
     private String jwtSecret;
 
@@ -36,13 +38,24 @@ public class JwtTokenProvider {
      * Tạo Access Token
      */
     public String generateAccessToken(UUID userId, String email, String role) {
+        return generateAccessToken(userId, email, role, null);
+    }
+
+    /**
+     * Tạo Access Token; tài khoản DOCTOR kèm claim doctorId để các service không phải tra bảng doctors
+     */
+    public String generateAccessToken(UUID userId, String email, String role, UUID doctorId) {
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + accessTokenExpiration);
 
-        return Jwts.builder()
+        JwtBuilder builder = Jwts.builder()
                 .subject(userId.toString())
                 .claim("email", email)
-                .claim("role", role)
+                .claim("role", role);
+        if (doctorId != null) {
+            builder.claim(CLAIM_DOCTOR_ID, doctorId.toString());
+        }
+        return builder
                 .issuedAt(now)
                 .expiration(expiryDate)
                 .signWith(getSigningKey())
@@ -235,7 +235,8 @@ public class AuthService {
         String accessToken = tokenProvider.generateAccessToken(
                 user.getId(),
                 user.getEmail(),
-                user.getRole());
+                user.getRole(),
+                findDoctorId(user));
 
         // Generate và lưu refresh token
         String refreshTokenValue = tokenProvider.generateRefreshToken();
@@ -277,7 +278,8 @@ public class AuthService {
                     String accessToken = tokenProvider.generateAccessToken(
                             user.getId(),
                             user.getEmail(),
-                            user.getRole());
+                            user.getRole(),
+                            findDoctorId(user));
 
                     return AuthResponse.builder()
                             .accessToken(accessToken)
@@ -297,6 +299,22 @@ public class AuthService {
                 .orElseThrow(() -> new UnauthorizedException("Refresh token không tồn tại"));
     }
 
+    /**
+     * Doctor ID cho claim doctorId - chỉ tra một lần khi cấp token thay vì ở mỗi request
+     */
+    private UUID findDoctorId(User user) {
+        if (!"DOCTOR".equals(user.getRole())) {
+            return null;
+        }
+        try {
+            return userRepository.findDoctorIdByUserId(user.getId()).map(UUID::fromString).orElse(null);
+        } catch (Exception e) {
+            // Không có doctorId thì các service tra DB như với token cũ
+            log.warn("Could not resolve doctorId for user {}: {}", user.getId(), e.getMessage());
+            return null;
+        }
+    }
+
     private RefreshToken verifyExpiration(RefreshToken token) {
         if (token.getExpiresAt().compareTo(Instant.now()) < 0) {
             refreshTokenRepository.delete(token);
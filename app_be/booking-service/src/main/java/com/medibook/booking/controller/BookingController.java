@@ -1,8 +1,14 @@
 package com.medibook.booking.controller;
 
 import com.medibook.booking.dto.*;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.medibook.booking.service.BookingService;
+import com.medibook.booking.service.BookingStatsEngine;
+import com.medibook.booking.service.DoctorAgendaService;
+import com.medibook.booking.service.IdempotencyService;
 import com.medibook.common.dto.ApiResponse;
+import com.medibook.common.dto.CursorPage;
 import com.medibook.common.dto.PageResponse;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -11,6 +17,8 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -29,6 +37,10 @@ import java.util.UUID;
 public class BookingController {
 
     private final BookingService bookingService;
+    private final BookingStatsEngine bookingStatsEngine;
+    private final DoctorAgendaService doctorAgendaService;
+    private final IdempotencyService idempotencyService;
+    private final ObjectMapper objectMapper;
 
     /**
      * 🔐 Đặt lịch mới - Core endpoint
@@ -37,11 +49,15 @@ public class BookingController {
     @Operation(summary = "Đặt lịch khám mới")
     public ResponseEntity<ApiResponse<BookingDto>> createBooking(
             @RequestHeader("X-User-Id") UUID userId,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
             @Valid @RequestBody CreateBookingRequest request) {
-        BookingDto booking = bookingService.createBooking(userId, request);
-        return ResponseEntity
-                .status(HttpStatus.CREATED)
-                .body(ApiResponse.success("Đặt lịch thành công", booking));
+        return idempotencyService.execute("POST /bookings", userId, idempotencyKey, request,
+                apiResponseType(BookingDto.class), () -> {
+                    BookingDto booking = bookingService.createBooking(userId, request);
+                    return ResponseEntity
+                            .status(HttpStatus.CREATED)
+                            .body(ApiResponse.success("Đặt lịch thành công", booking));
+                });
     }
 
     @PostMapping("/{id}/payment/initiate")
@@ -49,9 +65,17 @@ public class BookingController {
     public ResponseEntity<ApiResponse<PaymentInitDto>> initiatePayment(
             @PathVariable UUID id,
             @RequestHeader("X-User-Id") UUID userId,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
             @Valid @RequestBody InitiatePaymentRequest request) {
-        return ResponseEntity.ok(ApiResponse.success("Tao don thanh toan thanh cong",
-                bookingService.initiatePayment(id, userId, request)));
+        // Retry cung key khong tao them don ZaloPay moi
+        return idempotencyService.execute("POST /bookings/" + id + "/payment/initiate", userId, idempotencyKey,
+                request, apiResponseType(PaymentInitDto.class),
+                () -> ResponseEntity.ok(ApiResponse.success("Tao don thanh toan thanh cong",
+                        bookingService.initiatePayment(id, userId, request))));
+    }
+
+    private JavaType apiResponseType(Class<?> dataType) {
+        return objectMapper.getTypeFactory().constructParametricType(ApiResponse.class, dataType);
     }
 
     @GetMapping("/{id}/payment/status")
@@ -80,12 +104,27 @@ public class BookingController {
                 PageResponse.of(bookings.getContent(), page, size, bookings.getTotalElements())));
     }
 
+    @GetMapping(value = "/admin", params = "cursor")
+    @Operation(summary = "Lấy booking theo cursor (Admin) - trang đầu gửi cursor rỗng, không đếm tổng")
+    public ResponseEntity<ApiResponse<CursorPage<BookingDto>>> getAllBookingsPage(
+            @RequestParam(required = false) com.medibook.common.enums.BookingStatus status,
+            @RequestParam String cursor,
+            @RequestParam(defaultValue = "10") int size) {
+        return ResponseEntity.ok(ApiResponse.success(bookingService.getAllBookingsPage(status, cursor, size)));
+    }
+
     @GetMapping("/admin/stats")
     @Operation(summary = "Lấy thống kê lịch hẹn cho Admin")
     public ResponseEntity<ApiResponse<com.medibook.booking.dto.BookingStatsDto>> getBookingStats() {
         return ResponseEntity.ok(ApiResponse.success(bookingService.getBookingStats()));
     }
 
+    @PostMapping("/admin/stats/reconcile")
+    @Operation(summary = "Đối soát bộ đếm thống kê với DB ngay (Admin)")
+    public ResponseEntity<ApiResponse<BookingStatsEngine.ReconcileReport>> reconcileBookingStats() {
+        return ResponseEntity.ok(ApiResponse.success(bookingStatsEngine.reconcile(true)));
+    }
+
 
     @GetMapping("/{id}")
     @Operation(summary = "Lấy thông tin booking theo ID")
@@ -93,6 +132,12 @@ public class BookingController {
         return ResponseEntity.ok(ApiResponse.success(bookingService.getBookingById(id)));
     }
 
+    @GetMapping("/{id}/history")
+    @Operation(summary = "Lấy lịch sử trạng thái của booking")
+    public ResponseEntity<ApiResponse<List<BookingStatusHistoryDto>>> getBookingHistory(@PathVariable UUID id) {
+        return ResponseEntity.ok(ApiResponse.success(bookingService.getBookingHistory(id)));
+    }
+
     @GetMapping("/patient")
     @Operation(summary = "Lấy danh sách booking của bệnh nhân hiện tại")
     public ResponseEntity<ApiResponse<PageResponse<BookingDto>>> getPatientBookings(
@@ -104,6 +149,15 @@ public class BookingController {
                 PageResponse.of(bookings.getContent(), page, size, bookings.getTotalElements())));
     }
 
+    @GetMapping(value = "/patient", params = "cursor")
+    @Operation(summary = "Lấy booking của bệnh nhân theo cursor (infinite scroll) - trang đầu gửi cursor rỗng")
+    public ResponseEntity<ApiResponse<CursorPage<BookingDto>>> getPatientBookingsPage(
+            @RequestHeader("X-User-Id") UUID userId,
+            @RequestParam String cursor,
+            @RequestParam(defaultValue = "10") int size) {
+        return ResponseEntity.ok(ApiResponse.success(bookingService.getPatientBookingsPage(userId, cursor, size)));
+    }
+
     @GetMapping("/doctor")
     @Operation(summary = "Lấy danh sách booking của bác sĩ hiện tại")
     public ResponseEntity<ApiResponse<PageResponse<BookingDto>>> getDoctorBookings(
@@ -115,6 +169,39 @@ public class BookingController {
                 PageResponse.of(bookings.getContent(), page, size, bookings.getTotalElements())));
     }
 
+    @GetMapping(value = "/doctor", params = "cursor")
+    @Operation(summary = "Lấy booking của bác sĩ theo cursor (infinite scroll) - trang đầu gửi cursor rỗng")
+    public ResponseEntity<ApiResponse<CursorPage<BookingDto>>> getDoctorBookingsPage(
+            @RequestHeader("X-User-Id") UUID userId,
+            @RequestParam String cursor,
+            @RequestParam(defaultValue = "10") int size) {
+        return ResponseEntity.ok(ApiResponse.success(bookingService.getDoctorBookingsPage(userId, cursor, size)));
+    }
+
+    @GetMapping("/doctor/agenda")
+    @Operation(summary = "Lịch ngày của bác sĩ (slot + booking, một truy vấn) - hỗ trợ ETag / If-None-Match")
+    public ResponseEntity<ApiResponse<DoctorAgendaDto>> getDoctorAgenda(
+            @RequestHeader("X-User-Id") UUID userId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        LocalDate day = date != null ? date : LocalDate.now();
+        UUID doctorId = doctorAgendaService.resolveDoctorId(userId);
+        if (ifNoneMatch != null) {
+            String etag = doctorAgendaService.currentETag(doctorId, day);
+            if (DoctorAgendaService.matches(ifNoneMatch, etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .eTag(etag)
+                        .cacheControl(CacheControl.noCache().cachePrivate())
+                        .build();
+            }
+        }
+        DoctorAgendaDto agenda = doctorAgendaService.getAgenda(doctorId, day);
+        return ResponseEntity.ok()
+                .eTag(DoctorAgendaService.etag(agenda.getVersion()))
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(ApiResponse.success(agenda));
+    }
+
     @GetMapping("/doctor/date/{date}")
     @Operation(summary = "Lấy lịch khám của bác sĩ trong ngày")
     public ResponseEntity<ApiResponse<List<BookingDto>>> getDoctorBookingsByDate(
@@ -0,0 +1,68 @@
+package com.medibook.booking.controller;
+
+import com.medibook.booking.service.BookingViewProjector;
+import com.medibook.booking.service.ReferenceDataCache;
+import com.medibook.common.dto.ApiResponse;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.UUID;
+
+/**
+ * Internal API - invalidate cache dữ liệu tham chiếu khi user-service cập nhật
+ * bác sĩ / dịch vụ / hồ sơ bệnh nhân; đồng thời cập nhật tên / ảnh trong booking_view
+ */
+@Slf4j
+@RestController
+@RequestMapping("/bookings/internal/reference-cache")
+@RequiredArgsConstructor
+@Tag(name = "Reference Cache", description = "Internal API quản lý cache dữ liệu tham chiếu")
+public class ReferenceDataController {
+
+    private final ReferenceDataCache referenceDataCache;
+    private final BookingViewProjector bookingViewProjector;
+
+    @DeleteMapping("/doctors/{doctorId}")
+    @Operation(summary = "Xóa cache bác sĩ")
+    public ResponseEntity<ApiResponse<Void>> evictDoctor(@PathVariable UUID doctorId) {
+        log.debug("Evicting doctor {} from reference cache", doctorId);
+        referenceDataCache.invalidateDoctor(doctorId);
+        bookingViewProjector.refreshDoctor(doctorId);
+        return ResponseEntity.ok(ApiResponse.success(null));
+    }
+
+    @DeleteMapping("/services/{serviceId}")
+    @Operation(summary = "Xóa cache dịch vụ khám")
+    public ResponseEntity<ApiResponse<Void>> evictService(@PathVariable UUID serviceId) {
+        log.debug("Evicting medical service {} from reference cache", serviceId);
+        referenceDataCache.invalidateService(serviceId);
+        bookingViewProjector.refreshService(serviceId);
+        return ResponseEntity.ok(ApiResponse.success(null));
+    }
+
+    @DeleteMapping("/patients/{userId}")
+    @Operation(summary = "Xóa cache thông tin bệnh nhân")
+    public ResponseEntity<ApiResponse<Void>> evictPatient(@PathVariable UUID userId) {
+        log.debug("Evicting patient {} from reference cache", userId);
+        referenceDataCache.invalidatePatient(userId);
+        bookingViewProjector.refreshPatient(userId);
+        return ResponseEntity.ok(ApiResponse.success(null));
+    }
+
+    @DeleteMapping
+    @Operation(summary = "Xóa toàn bộ cache dữ liệu tham chiếu")
+    public ResponseEntity<ApiResponse<Void>> evictAll() {
+        referenceDataCache.invalidateAll();
+        return ResponseEntity.ok(ApiResponse.success(null));
+    }
+
+    @PostMapping("/booking-view/rebuild")
+    @Operation(summary = "Dựng lại toàn bộ booking_view từ bookings")
+    public ResponseEntity<ApiResponse<Integer>> rebuildBookingView() {
+        return ResponseEntity.ok(ApiResponse.success(bookingViewProjector.rebuild()));
+    }
+}
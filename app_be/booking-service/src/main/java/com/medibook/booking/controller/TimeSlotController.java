@@ -2,7 +2,10 @@ package com.medibook.booking.controller;
 
 import com.medibook.booking.dto.TimeSlotDto;
 import com.medibook.booking.service.BookingService;
+import com.medibook.booking.service.SlotAvailabilityIndex;
+import com.medibook.booking.service.SlotMaterializer;
 import com.medibook.common.dto.ApiResponse;
+import com.medibook.common.dto.CursorPage;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.Data;
@@ -14,6 +17,7 @@ import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 /**
@@ -27,6 +31,8 @@ import java.util.UUID;
 public class TimeSlotController {
 
     private final BookingService bookingService;
+    private final SlotMaterializer slotMaterializer;
+    private final SlotAvailabilityIndex slotAvailabilityIndex;
 
     @GetMapping("/available")
     @Operation(summary = "Lấy khung giờ trống của bác sĩ trong ngày")
@@ -99,6 +105,13 @@ public class TimeSlotController {
                     .body(ApiResponse.error("Missing X-User-Id header"));
         }
 
+        // Bác sĩ đã khai báo lịch làm việc: sinh slot theo lịch, chỉ chèn phần còn thiếu
+        Optional<SlotMaterializer.MaterializationRun> run = slotMaterializer.materializeForUser(userId, startDate, endDate);
+        if (run.isPresent() && run.get().schedules() > 0) {
+            return ResponseEntity.ok(ApiResponse.success(
+                    "Created " + run.get().inserted() + " slots from " + startDate + " to " + endDate));
+        }
+
         int totalSlots = 0;
         LocalDate current = startDate;
         while (!current.isAfter(endDate)) {
@@ -114,6 +127,34 @@ public class TimeSlotController {
                 "Created " + totalSlots + " slots from " + startDate + " to " + endDate));
     }
 
+    @PostMapping("/materialize")
+    @Operation(summary = "Sinh khung giờ từ lịch làm việc của bác sĩ trong các tuần tới (Admin)")
+    public ResponseEntity<ApiResponse<SlotMaterializer.MaterializationRun>> materializeSlots(
+            @RequestParam(required = false) UUID doctorId,
+            @RequestParam(required = false) Integer weeks) {
+        return ResponseEntity.ok(ApiResponse.success(slotMaterializer.materialize(doctorId, weeks)));
+    }
+
+    @GetMapping("/materialize/last")
+    @Operation(summary = "Kết quả lần sinh khung giờ gần nhất (Admin)")
+    public ResponseEntity<ApiResponse<SlotMaterializer.MaterializationRun>> getLastMaterialization() {
+        return ResponseEntity.ok(ApiResponse.success(slotMaterializer.getLastRun()));
+    }
+
+    @PostMapping("/admin/availability-index/verify")
+    @Operation(summary = "So khớp index slot trống in-memory với DB, tùy chọn sửa các ngày bị lệch (Admin)")
+    public ResponseEntity<ApiResponse<SlotAvailabilityIndex.ConsistencyReport>> verifyAvailabilityIndex(
+            @RequestParam(defaultValue = "true") boolean repair) {
+        return ResponseEntity.ok(ApiResponse.success(slotAvailabilityIndex.verify(repair)));
+    }
+
+    @PostMapping("/admin/availability-index/reload")
+    @Operation(summary = "Nạp lại toàn bộ index slot trống từ DB (Admin)")
+    public ResponseEntity<ApiResponse<Void>> reloadAvailabilityIndex() {
+        slotAvailabilityIndex.load();
+        return ResponseEntity.ok(ApiResponse.success(null));
+    }
+
     @PostMapping
     @Operation(summary = "Tạo khung giờ làm việc mới")
     public ResponseEntity<ApiResponse<TimeSlotDto>> createSlot(
@@ -167,6 +208,20 @@ public class TimeSlotController {
         return ResponseEntity.ok(ApiResponse.success(bookingService.getAllSlots(status, startDate, endDate)));
     }
 
+    @GetMapping(value = "/admin/all", params = "size")
+    @Operation(summary = "Lấy slot theo trang (Admin) - keyset pagination, filter và sắp xếp trong DB")
+    public ResponseEntity<ApiResponse<CursorPage<TimeSlotDto>>> getAllSlotsPage(
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) String cursor,
+            @RequestParam int size) {
+        log.info("getAllSlotsPage called with status={}, startDate={}, endDate={}, size={}",
+                status, startDate, endDate, size);
+        return ResponseEntity.ok(ApiResponse.success(
+                bookingService.getAllSlotsPage(status, startDate, endDate, cursor, size)));
+    }
+
     @GetMapping("/pending")
     @Operation(summary = "Lấy danh sách slot chờ duyệt (Admin)")
     public ResponseEntity<ApiResponse<List<TimeSlotDto>>> getPendingSlots() {
@@ -196,6 +251,17 @@ public class TimeSlotController {
         return ResponseEntity.ok(ApiResponse.success("Đã duyệt " + count + " lịch"));
     }
 
+    @PutMapping("/approve-range")
+    @Operation(summary = "Duyệt tất cả slot chờ duyệt của bác sĩ trong khoảng ngày (Admin)")
+    public ResponseEntity<ApiResponse<String>> approveSlotsByDoctorAndDateRange(
+            @RequestParam UUID doctorId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        log.info("approveSlotsByDoctorAndDateRange called: doctorId={}, {} -> {}", doctorId, startDate, endDate);
+        int count = bookingService.approvePendingSlotsByDoctor(doctorId, startDate, endDate);
+        return ResponseEntity.ok(ApiResponse.success("Đã duyệt " + count + " lịch"));
+    }
+
     @PutMapping("/reject-bulk")
     @Operation(summary = "Từ chối nhiều slot cùng lúc (Admin)")
     public ResponseEntity<ApiResponse<String>> rejectBulkSlots(@RequestBody List<UUID> slotIds) {
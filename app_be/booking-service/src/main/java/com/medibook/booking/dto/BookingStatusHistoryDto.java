@@ -0,0 +1,24 @@
+package com.medibook.booking.dto;
+
+import com.medibook.common.enums.BookingStatus;
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * DTO cho lịch sử trạng thái booking
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookingStatusHistoryDto {
+    private UUID id;
+    private UUID bookingId;
+    private BookingStatus oldStatus;
+    private BookingStatus newStatus;
+    private UUID changedBy;
+    private String reason;
+    private LocalDateTime changedAt;
+}
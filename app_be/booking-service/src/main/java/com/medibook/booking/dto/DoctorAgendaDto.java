@@ -0,0 +1,36 @@
+package com.medibook.booking.dto;
+
+import com.medibook.common.enums.SlotStatus;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Lịch làm việc một ngày của bác sĩ: các slot theo giờ, mỗi slot kèm booking của nó
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DoctorAgendaDto {
+    private UUID doctorId;
+    private LocalDate date;
+    private String version;
+    private List<AgendaSlotDto> slots;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class AgendaSlotDto {
+        private UUID id;
+        private LocalTime startTime;
+        private LocalTime endTime;
+        private SlotStatus status;
+        private Boolean isAvailable;
+        private List<BookingDto> bookings;
+    }
+}
@@ -0,0 +1,21 @@
+package com.medibook.booking.dto;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Sự kiện gửi qua /notifications/internal/batch.
+ * payload là JSON có sẵn (lấy thẳng từ booking_outbox), được ghi nguyên văn vào body.
+ * id là khóa idempotency: gửi lại cùng id (relay retry) thì notification-service không tạo notification / email mới.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationEvent {
+    private String id;
+    private String type;
+    @JsonRawValue
+    private String payload;
+}
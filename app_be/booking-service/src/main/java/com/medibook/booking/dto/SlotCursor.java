@@ -0,0 +1,34 @@
+package com.medibook.booking.dto;
+
+import com.medibook.common.exception.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Cursor cho keyset pagination của danh sách slot (Admin)
+ * Thứ tự: date DESC, startTime ASC, id ASC
+ */
+public record SlotCursor(LocalDate date, LocalTime startTime, UUID id) {
+
+    public String encode() {
+        String raw = date + "|" + startTime + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static SlotCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|");
+            return new SlotCursor(LocalDate.parse(parts[0]), LocalTime.parse(parts[1]), UUID.fromString(parts[2]));
+        } catch (RuntimeException e) {
+            throw new BadRequestException("Cursor không hợp lệ");
+        }
+    }
+}
@@ -17,8 +17,8 @@ import java.util.UUID;
  */
 @Entity
 @Table(name = "bookings", indexes = {
-        @Index(name = "idx_bookings_patient", columnList = "patient_id"),
-        @Index(name = "idx_bookings_doctor", columnList = "doctor_id"),
+        @Index(name = "idx_bookings_patient_created", columnList = "patient_id, created_at DESC, id DESC"),
+        @Index(name = "idx_bookings_doctor_created", columnList = "doctor_id, created_at DESC, id DESC"),
         @Index(name = "idx_bookings_status", columnList = "status")
 })
 @Data
@@ -19,7 +19,10 @@ import java.util.UUID;
 @Table(name = "time_slots", indexes = {
         @Index(name = "idx_time_slots_doctor_date", columnList = "doctor_id, date"),
         @Index(name = "idx_time_slots_available", columnList = "is_available"),
-        @Index(name = "idx_time_slots_status", columnList = "status")
+        @Index(name = "idx_time_slots_status", columnList = "status"),
+        @Index(name = "idx_time_slots_date_start", columnList = "date DESC, start_time, id"),
+        @Index(name = "idx_time_slots_status_date_start", columnList = "status, date DESC, start_time, id"),
+        @Index(name = "idx_time_slots_schedule", columnList = "schedule_id")
 })
 @Data
 @Builder
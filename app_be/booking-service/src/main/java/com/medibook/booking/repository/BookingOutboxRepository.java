@@ -0,0 +1,119 @@
+package com.medibook.booking.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Truy cập bảng booking_outbox bằng JDBC.
+ * claimBatch giành một lô sự kiện bằng lease (next_attempt_at đẩy về tương lai) với FOR UPDATE SKIP LOCKED,
+ * nên nhiều instance có thể cùng relay mà không gửi trùng và không giữ transaction khi gọi HTTP.
+ */
+@Repository
+@RequiredArgsConstructor
+public class BookingOutboxRepository {
+
+    public static final String STATUS_PENDING = "PENDING";
+    public static final String STATUS_SENT = "SENT";
+    public static final String STATUS_DEAD = "DEAD";
+
+    private static final RowMapper<OutboxEvent> OUTBOX_EVENT_ROW_MAPPER = (rs, rowNum) -> {
+        Timestamp createdAt = rs.getTimestamp("created_at");
+        return new OutboxEvent(
+                rs.getLong("id"),
+                rs.getObject("booking_id", UUID.class),
+                rs.getString("event_type"),
+                rs.getString("payload"),
+                rs.getInt("attempts"),
+                createdAt != null ? createdAt.toLocalDateTime() : null);
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Ghi sự kiện - phải gọi trong cùng transaction với thay đổi trạng thái booking
+     */
+    public void insert(UUID bookingId, String eventType, String payloadJson) {
+        jdbcTemplate.update(
+                "INSERT INTO booking_outbox (booking_id, event_type, payload) VALUES (?, ?, ?::jsonb)",
+                bookingId, eventType, payloadJson);
+    }
+
+    /**
+     * Giành tối đa limit sự kiện đến hạn, tăng attempts và giữ lease trong leaseSeconds giây
+     */
+    public List<OutboxEvent> claimBatch(int limit, long leaseSeconds) {
+        List<OutboxEvent> events = jdbcTemplate.query("""
+                UPDATE booking_outbox o
+                SET attempts = o.attempts + 1,
+                    next_attempt_at = now() + make_interval(secs => ?)
+                WHERE o.id IN (
+                    SELECT id FROM booking_outbox
+                    WHERE status = 'PENDING' AND next_attempt_at <= now()
+                    ORDER BY next_attempt_at, id
+                    LIMIT ?
+                    FOR UPDATE SKIP LOCKED)
+                RETURNING o.id, o.booking_id, o.event_type, o.payload::text AS payload, o.attempts, o.created_at
+                """, OUTBOX_EVENT_ROW_MAPPER, leaseSeconds, limit);
+        return events.stream().sorted((a, b) -> Long.compare(a.id(), b.id())).toList();
+    }
+
+    public void markSent(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.update(con -> {
+            var ps = con.prepareStatement("""
+                    UPDATE booking_outbox
+                    SET status = 'SENT', processed_at = now(), last_error = NULL
+                    WHERE id = ANY(?)
+                    """);
+            ps.setArray(1, con.createArrayOf("bigint", ids.toArray()));
+            return ps;
+        });
+    }
+
+    /**
+     * Lên lịch gửi lại sau delaySeconds, hoặc chuyển sang DEAD khi đã hết số lần thử
+     */
+    public void markFailed(long id, String error, long delaySeconds, boolean dead) {
+        jdbcTemplate.update("""
+                UPDATE booking_outbox
+                SET status = ?, last_error = ?, next_attempt_at = now() + make_interval(secs => ?),
+                    processed_at = CASE WHEN ? THEN now() ELSE NULL END
+                WHERE id = ?
+                """, dead ? STATUS_DEAD : STATUS_PENDING, error, delaySeconds, dead, id);
+    }
+
+    /**
+     * Backlog (số sự kiện chưa gửi) và lag (tuổi của sự kiện chưa gửi lâu nhất, giây)
+     */
+    public BacklogStats backlogStats() {
+        return jdbcTemplate.queryForObject("""
+                SELECT COUNT(*) AS backlog,
+                       COALESCE(EXTRACT(EPOCH FROM now() - MIN(created_at)), 0) AS lag_seconds
+                FROM booking_outbox
+                WHERE status = 'PENDING'
+                """, (rs, rowNum) -> new BacklogStats(rs.getLong("backlog"), rs.getDouble("lag_seconds")));
+    }
+
+    public int deleteSentBefore(LocalDateTime before) {
+        return jdbcTemplate.update(
+                "DELETE FROM booking_outbox WHERE status = 'SENT' AND processed_at < ?",
+                Timestamp.valueOf(before));
+    }
+
+    public record OutboxEvent(long id, UUID bookingId, String eventType, String payload, int attempts,
+            LocalDateTime createdAt) {
+    }
+
+    public record BacklogStats(long backlog, double lagSeconds) {
+    }
+}
@@ -54,6 +54,7 @@ public interface BookingRepository extends JpaRepository<Booking, UUID> {
     /**
      * Lấy booking của doctor trong ngày
      */
+    @EntityGraph(attributePaths = {"timeSlot"})
     @Query("SELECT b FROM Booking b WHERE b.doctorId = :doctorId AND b.timeSlot.date = :date ORDER BY b.timeSlot.startTime")
     List<Booking> findByDoctorIdAndDate(@Param("doctorId") UUID doctorId, @Param("date") LocalDate date);
 
@@ -77,6 +78,14 @@ public interface BookingRepository extends JpaRepository<Booking, UUID> {
             @Param("paidStatus") PaymentStatus paidStatus,
             @Param("expiresBefore") LocalDateTime expiresBefore);
 
+    /**
+     * (id, created_at) của các booking đang giữ chỗ chờ thanh toán - dựng lại PaymentHoldQueue khi khởi động
+     */
+    @Query("SELECT b.id, b.createdAt FROM Booking b WHERE b.status = :status AND b.paymentStatus <> :paidStatus")
+    List<Object[]> findPaymentHoldDeadlines(
+            @Param("status") BookingStatus status,
+            @Param("paidStatus") PaymentStatus paidStatus);
+
     /**
      * Thống kê số booking theo status
      */
@@ -0,0 +1,67 @@
+package com.medibook.booking.repository;
+
+import com.medibook.common.enums.BookingStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Các truy vấn gộp dùng để nạp / đối soát BookingStatsEngine
+ */
+@Repository
+@RequiredArgsConstructor
+public class BookingStatsRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Số booking hiện tại theo trạng thái
+     */
+    public Map<BookingStatus, Long> countByStatus() {
+        Map<BookingStatus, Long> result = new EnumMap<>(BookingStatus.class);
+        jdbcTemplate.query("SELECT status::text AS status, COUNT(*) AS total FROM bookings WHERE status IS NOT NULL GROUP BY status",
+                rs -> {
+                    result.merge(BookingStatus.valueOf(rs.getString("status")), rs.getLong("total"), Long::sum);
+                });
+        return result;
+    }
+
+    /**
+     * Số booking theo ngày khám, từ ngày from trở đi
+     */
+    public Map<LocalDate, Long> countBySlotDate(LocalDate from) {
+        Map<LocalDate, Long> result = new HashMap<>();
+        jdbcTemplate.query("""
+                SELECT t.date, COUNT(*) AS total
+                FROM bookings b
+                JOIN time_slots t ON t.id = b.time_slot_id
+                WHERE t.date >= ?
+                GROUP BY t.date
+                """, rs -> {
+            result.put(rs.getDate("date").toLocalDate(), rs.getLong("total"));
+        }, from);
+        return result;
+    }
+
+    /**
+     * Số lần chuyển sang từng trạng thái theo ngày (booking_status_history), từ ngày from trở đi
+     */
+    public Map<LocalDate, Map<BookingStatus, Long>> countTransitionsByDay(LocalDate from) {
+        Map<LocalDate, Map<BookingStatus, Long>> result = new HashMap<>();
+        jdbcTemplate.query("""
+                SELECT changed_at::date AS day, new_status::text AS status, COUNT(*) AS total
+                FROM booking_status_history
+                WHERE changed_at >= ? AND new_status IS NOT NULL
+                GROUP BY changed_at::date, new_status
+                """, rs -> {
+            result.computeIfAbsent(rs.getDate("day").toLocalDate(), d -> new EnumMap<>(BookingStatus.class))
+                    .merge(BookingStatus.valueOf(rs.getString("status")), rs.getLong("total"), Long::sum);
+        }, from.atStartOfDay());
+        return result;
+    }
+}
@@ -0,0 +1,111 @@
+package com.medibook.booking.repository;
+
+import com.medibook.booking.dto.BookingStatusHistoryDto;
+import com.medibook.common.enums.BookingStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Ghi / đọc booking_status_history bằng JDBC theo lô (batch), id sinh sẵn ở ứng dụng.
+ * Trigger tr_log_booking_status đã ghi dòng (old, new) trong chính transaction UPDATE bookings;
+ * mỗi lần chuyển trạng thái ở đây chỉ gắn changed_by / reason vào dòng đó, chỉ chèn mới khi
+ * không có dòng của trigger (booking mới tạo, hoặc DB không cài trigger).
+ */
+@Repository
+@RequiredArgsConstructor
+public class BookingStatusHistoryBatchRepository {
+
+    private static final String ATTRIBUTE_OR_INSERT = """
+            WITH attributed AS (
+                UPDATE booking_status_history
+                SET id = ?::uuid, changed_by = ?::uuid, reason = ?
+                WHERE id = (
+                    SELECT id FROM booking_status_history
+                    WHERE booking_id = ?::uuid AND new_status = ?::booking_status
+                      AND changed_by IS NULL AND reason IS NULL
+                    ORDER BY changed_at DESC
+                    LIMIT 1
+                )
+                RETURNING 1
+            )
+            INSERT INTO booking_status_history (id, booking_id, old_status, new_status, changed_by, reason, changed_at)
+            SELECT ?::uuid, ?::uuid, ?::booking_status, ?::booking_status, ?::uuid, ?, ?::timestamp
+            WHERE NOT EXISTS (SELECT 1 FROM attributed)
+            ON CONFLICT (id) DO NOTHING
+            """;
+
+    private static final RowMapper<BookingStatusHistoryDto> HISTORY_ROW_MAPPER = (rs, rowNum) -> {
+        String oldStatus = rs.getString("old_status");
+        String newStatus = rs.getString("new_status");
+        Timestamp changedAt = rs.getTimestamp("changed_at");
+        return BookingStatusHistoryDto.builder()
+                .id(rs.getObject("id", UUID.class))
+                .bookingId(rs.getObject("booking_id", UUID.class))
+                .oldStatus(oldStatus != null ? BookingStatus.valueOf(oldStatus) : null)
+                .newStatus(newStatus != null ? BookingStatus.valueOf(newStatus) : null)
+                .changedBy(rs.getObject("changed_by", UUID.class))
+                .reason(rs.getString("reason"))
+                .changedAt(changedAt != null ? changedAt.toLocalDateTime() : null)
+                .build();
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Ghi một lô; chạy lại cùng lô không tạo dòng trùng (id cố định)
+     */
+    public void writeBatch(List<BookingStatusHistoryDto> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(ATTRIBUTE_OR_INSERT, entries, entries.size(), (ps, entry) -> {
+            ps.setObject(1, entry.getId());
+            ps.setObject(2, entry.getChangedBy());
+            ps.setString(3, entry.getReason());
+            ps.setObject(4, entry.getBookingId());
+            ps.setString(5, entry.getNewStatus().name());
+            ps.setObject(6, entry.getId());
+            ps.setObject(7, entry.getBookingId());
+            ps.setString(8, entry.getOldStatus() != null ? entry.getOldStatus().name() : null);
+            ps.setString(9, entry.getNewStatus().name());
+            ps.setObject(10, entry.getChangedBy());
+            ps.setString(11, entry.getReason());
+            ps.setTimestamp(12, Timestamp.valueOf(entry.getChangedAt()));
+        });
+    }
+
+    public List<BookingStatusHistoryDto> findByBookingId(UUID bookingId) {
+        return jdbcTemplate.query("""
+                SELECT id, booking_id, old_status::text AS old_status, new_status::text AS new_status,
+                       changed_by, reason, changed_at
+                FROM booking_status_history
+                WHERE booking_id = ?
+                ORDER BY changed_at DESC
+                """, HISTORY_ROW_MAPPER, bookingId);
+    }
+
+    /**
+     * Bù dòng "đặt lịch mới" bị mất khi instance dừng lúc hàng đợi còn dòng chưa ghi.
+     * Các lần đổi trạng thái sau đó đã có dòng của trigger; chỉ dòng tạo booking (old_status NULL)
+     * là cần dựng lại từ bookings.
+     */
+    public int insertMissingCreations(LocalDateTime since, String reason) {
+        return jdbcTemplate.update("""
+                INSERT INTO booking_status_history (id, booking_id, old_status, new_status, changed_by, reason, changed_at)
+                SELECT uuid_generate_v4(), b.id, NULL, 'PENDING', b.patient_id, ?, COALESCE(b.created_at, now())
+                FROM bookings b
+                WHERE b.created_at >= ?
+                  AND NOT EXISTS (
+                      SELECT 1 FROM booking_status_history h
+                      WHERE h.booking_id = b.id AND h.old_status IS NULL
+                  )
+                """, reason, Timestamp.valueOf(since));
+    }
+}
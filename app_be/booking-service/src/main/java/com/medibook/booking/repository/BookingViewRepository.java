@@ -0,0 +1,247 @@
+package com.medibook.booking.repository;
+
+import com.medibook.booking.dto.BookingCursor;
+import com.medibook.booking.dto.BookingDto;
+import com.medibook.common.enums.BookingStatus;
+import com.medibook.common.enums.PaymentMethod;
+import com.medibook.common.enums.PaymentStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Read model booking_view: mỗi booking một dòng đã kèm giờ khám, tên/ảnh bệnh nhân, bác sĩ
+ * và tên dịch vụ, để các trang danh sách booking chỉ là một truy vấn theo index, không join.
+ * Dòng được dựng lại từ bookings + bảng tham chiếu trong cùng transaction với thay đổi booking
+ * (BookingViewProjector) và cập nhật lại khi hồ sơ / bác sĩ / dịch vụ đổi (ReferenceDataController).
+ */
+@Repository
+@RequiredArgsConstructor
+public class BookingViewRepository {
+
+    private static final String COLUMNS = """
+            booking_id, patient_id, doctor_id, service_id, time_slot_id, slot_date, start_time, end_time,
+            status, notes, doctor_notes, cancellation_reason, patient_name, patient_avatar,
+            doctor_name, doctor_avatar, service_name, total_amount, payment_status, payment_method,
+            payment_reference, paid_at, created_at, updated_at
+            """;
+
+    private static final String UPSERT_FROM_BOOKINGS = """
+            INSERT INTO booking_view (%s)
+            SELECT b.id, b.patient_id, b.doctor_id, b.service_id, b.time_slot_id, t.date, t.start_time, t.end_time,
+                   b.status::text, b.notes, b.doctor_notes, b.cancellation_reason, p.full_name, p.avatar_url,
+                   d.full_name, d.avatar_url, s.name, b.total_amount, b.payment_status, b.payment_method,
+                   b.payment_reference, b.paid_at, COALESCE(b.created_at, now()), COALESCE(b.updated_at, now())
+            FROM bookings b
+            LEFT JOIN time_slots t ON t.id = b.time_slot_id
+            LEFT JOIN doctors d ON d.id = b.doctor_id
+            LEFT JOIN medical_services s ON s.id = b.service_id
+            LEFT JOIN LATERAL (
+                SELECT pr.full_name, pr.avatar_url FROM profiles pr WHERE pr.user_id = b.patient_id LIMIT 1
+            ) p ON true
+            %s
+            ON CONFLICT (booking_id) DO UPDATE SET
+                patient_id = EXCLUDED.patient_id,
+                doctor_id = EXCLUDED.doctor_id,
+                service_id = EXCLUDED.service_id,
+                time_slot_id = EXCLUDED.time_slot_id,
+                slot_date = EXCLUDED.slot_date,
+                start_time = EXCLUDED.start_time,
+                end_time = EXCLUDED.end_time,
+                status = EXCLUDED.status,
+                notes = EXCLUDED.notes,
+                doctor_notes = EXCLUDED.doctor_notes,
+                cancellation_reason = EXCLUDED.cancellation_reason,
+                patient_name = EXCLUDED.patient_name,
+                patient_avatar = EXCLUDED.patient_avatar,
+                doctor_name = EXCLUDED.doctor_name,
+                doctor_avatar = EXCLUDED.doctor_avatar,
+                service_name = EXCLUDED.service_name,
+                total_amount = EXCLUDED.total_amount,
+                payment_status = EXCLUDED.payment_status,
+                payment_method = EXCLUDED.payment_method,
+                payment_reference = EXCLUDED.payment_reference,
+                paid_at = EXCLUDED.paid_at,
+                created_at = EXCLUDED.created_at,
+                updated_at = GREATEST(booking_view.updated_at, EXCLUDED.updated_at)
+            """;
+
+    static final RowMapper<BookingDto> BOOKING_VIEW_ROW_MAPPER = (rs, rowNum) -> {
+        Date slotDate = rs.getDate("slot_date");
+        Time startTime = rs.getTime("start_time");
+        Time endTime = rs.getTime("end_time");
+        UUID timeSlotId = rs.getObject("time_slot_id", UUID.class);
+        String status = rs.getString("status");
+        String paymentStatus = rs.getString("payment_status");
+        String paymentMethod = rs.getString("payment_method");
+        Timestamp paidAt = rs.getTimestamp("paid_at");
+        return BookingDto.builder()
+                .id(rs.getObject("booking_id", UUID.class))
+                .patientId(rs.getObject("patient_id", UUID.class))
+                .doctorId(rs.getObject("doctor_id", UUID.class))
+                .serviceId(rs.getObject("service_id", UUID.class))
+                .timeSlot(timeSlotId != null ? BookingDto.TimeSlotDto.builder()
+                        .id(timeSlotId)
+                        .date(slotDate != null ? slotDate.toLocalDate() : null)
+                        .startTime(startTime != null ? startTime.toLocalTime() : null)
+                        .endTime(endTime != null ? endTime.toLocalTime() : null)
+                        .build() : null)
+                .status(status != null ? BookingStatus.valueOf(status) : null)
+                .notes(rs.getString("notes"))
+                .doctorNotes(rs.getString("doctor_notes"))
+                .cancellationReason(rs.getString("cancellation_reason"))
+                .patientName(rs.getString("patient_name"))
+                .patientAvatar(rs.getString("patient_avatar"))
+                .doctorName(rs.getString("doctor_name"))
+                .doctorAvatar(rs.getString("doctor_avatar"))
+                .serviceName(rs.getString("service_name"))
+                .totalAmount(rs.getBigDecimal("total_amount"))
+                .paymentStatus(paymentStatus != null ? PaymentStatus.valueOf(paymentStatus) : null)
+                .paymentMethod(paymentMethod != null ? PaymentMethod.valueOf(paymentMethod) : null)
+                .paymentReference(rs.getString("payment_reference"))
+                .paidAt(paidAt != null ? paidAt.toLocalDateTime() : null)
+                .createdAt(rs.getTimestamp("created_at").toLocalDateTime())
+                .updatedAt(rs.getTimestamp("updated_at").toLocalDateTime())
+                .build();
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // ==================== WRITE SIDE ====================
+
+    /**
+     * Dựng lại dòng view của các booking từ bookings + bảng tham chiếu (một câu INSERT ... SELECT)
+     */
+    public int refresh(Collection<UUID> bookingIds) {
+        if (bookingIds == null || bookingIds.isEmpty()) {
+            return 0;
+        }
+        UUID[] ids = bookingIds.stream().distinct().toArray(UUID[]::new);
+        return jdbcTemplate.update(con -> {
+            var ps = con.prepareStatement(String.format(UPSERT_FROM_BOOKINGS, COLUMNS, "WHERE b.id = ANY(?)"));
+            ps.setArray(1, con.createArrayOf("uuid", ids));
+            return ps;
+        });
+    }
+
+    public int rebuildAll() {
+        return jdbcTemplate.update(String.format(UPSERT_FROM_BOOKINGS, COLUMNS, ""));
+    }
+
+    /**
+     * Bổ sung dòng cho các booking chưa có trong view (dữ liệu seed / ghi ngoài booking-service)
+     */
+    public int backfillMissing() {
+        return jdbcTemplate.update(String.format(UPSERT_FROM_BOOKINGS, COLUMNS,
+                "WHERE NOT EXISTS (SELECT 1 FROM booking_view v WHERE v.booking_id = b.id)"));
+    }
+
+    // Đổi tên / ảnh cũng là thay đổi của dòng: updated_at = now() để ETag lịch ngày của bác sĩ
+    // (DoctorAgendaRepository) đổi theo; upsert giữ updated_at không lùi
+
+    public int refreshDoctor(UUID doctorId) {
+        return jdbcTemplate.update("""
+                UPDATE booking_view v
+                SET doctor_name = d.full_name, doctor_avatar = d.avatar_url, updated_at = now()
+                FROM doctors d
+                WHERE d.id = ? AND v.doctor_id = d.id
+                  AND (v.doctor_name IS DISTINCT FROM d.full_name OR v.doctor_avatar IS DISTINCT FROM d.avatar_url)
+                """, doctorId);
+    }
+
+    public int refreshService(UUID serviceId) {
+        return jdbcTemplate.update("""
+                UPDATE booking_view v
+                SET service_name = s.name, updated_at = now()
+                FROM medical_services s
+                WHERE s.id = ? AND v.service_id = s.id AND v.service_name IS DISTINCT FROM s.name
+                """, serviceId);
+    }
+
+    public int refreshPatient(UUID patientId) {
+        return jdbcTemplate.update("""
+                UPDATE booking_view v
+                SET patient_name = p.full_name, patient_avatar = p.avatar_url, updated_at = now()
+                FROM (SELECT full_name, avatar_url FROM profiles WHERE user_id = ? LIMIT 1) p
+                WHERE v.patient_id = ?
+                  AND (v.patient_name IS DISTINCT FROM p.full_name OR v.patient_avatar IS DISTINCT FROM p.avatar_url)
+                """, patientId, patientId);
+    }
+
+    // ==================== READ SIDE ====================
+
+    public Page<BookingDto> findByPatient(UUID patientId, Pageable pageable) {
+        return page("patient_id = ?", new Object[]{patientId}, pageable);
+    }
+
+    public Page<BookingDto> findByDoctor(UUID doctorId, Pageable pageable) {
+        return page("doctor_id = ?", new Object[]{doctorId}, pageable);
+    }
+
+    public Page<BookingDto> findAll(BookingStatus status, Pageable pageable) {
+        return status != null
+                ? page("status = ?", new Object[]{status.name()}, pageable)
+                : page("true", new Object[0], pageable);
+    }
+
+    // Keyset: (created_at, booking_id) < cursor - range scan trên index, không OFFSET, không COUNT
+
+    public List<BookingDto> findSliceByPatient(UUID patientId, BookingCursor after, int limit) {
+        return slice("patient_id = ?", List.of(patientId), after, limit);
+    }
+
+    public List<BookingDto> findSliceByDoctor(UUID doctorId, BookingCursor after, int limit) {
+        return slice("doctor_id = ?", List.of(doctorId), after, limit);
+    }
+
+    public List<BookingDto> findSlice(BookingStatus status, BookingCursor after, int limit) {
+        return status != null
+                ? slice("status = ?", List.of(status.name()), after, limit)
+                : slice("true", List.of(), after, limit);
+    }
+
+    private List<BookingDto> slice(String where, List<Object> args, BookingCursor after, int limit) {
+        StringBuilder sql = new StringBuilder("SELECT ").append(COLUMNS).append(" FROM booking_view WHERE ").append(where);
+        List<Object> params = new ArrayList<>(args);
+        if (after != null) {
+            sql.append(" AND (created_at, booking_id) < (?, ?)");
+            params.add(Timestamp.valueOf(after.createdAt()));
+            params.add(after.id());
+        }
+        sql.append(" ORDER BY created_at DESC, booking_id DESC LIMIT ?");
+        params.add(limit);
+        return jdbcTemplate.query(sql.toString(), BOOKING_VIEW_ROW_MAPPER, params.toArray());
+    }
+
+    private Page<BookingDto> page(String where, Object[] args, Pageable pageable) {
+        Object[] pageArgs = new Object[args.length + 2];
+        System.arraycopy(args, 0, pageArgs, 0, args.length);
+        pageArgs[args.length] = pageable.getPageSize();
+        pageArgs[args.length + 1] = pageable.getOffset();
+        List<BookingDto> content = jdbcTemplate.query(
+                "SELECT " + COLUMNS + " FROM booking_view WHERE " + where
+                        + " ORDER BY created_at DESC, booking_id DESC LIMIT ? OFFSET ?",
+                BOOKING_VIEW_ROW_MAPPER, pageArgs);
+        long total;
+        if (content.size() < pageable.getPageSize() && (pageable.getOffset() == 0 || !content.isEmpty())) {
+            // Trang cuối - tổng suy ra được, khỏi COUNT
+            total = pageable.getOffset() + content.size();
+        } else {
+            Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM booking_view WHERE " + where, Long.class, args);
+            total = count != null ? count : 0L;
+        }
+        return new PageImpl<>(content, pageable, total);
+    }
+}
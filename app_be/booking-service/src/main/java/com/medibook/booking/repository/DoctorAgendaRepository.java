@@ -0,0 +1,109 @@
+package com.medibook.booking.repository;
+
+import com.medibook.booking.dto.BookingDto;
+import com.medibook.booking.dto.DoctorAgendaDto;
+import com.medibook.common.enums.SlotStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Lịch ngày của bác sĩ: slot (time_slots) nối với booking (booking_view) trong một truy vấn.
+ * Version của lịch = (thời điểm thay đổi cuối, số slot, số booking) - mọi thêm / sửa / xóa slot
+ * hoặc booking trong ngày đều làm version đổi.
+ */
+@Repository
+@RequiredArgsConstructor
+public class DoctorAgendaRepository {
+
+    private static final String FROM_AGENDA = """
+            FROM time_slots t
+            LEFT JOIN booking_view v
+                   ON v.time_slot_id = t.id AND v.doctor_id = t.doctor_id AND v.slot_date = t.date
+            WHERE t.doctor_id = ? AND t.date = ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Chỉ tính version (truy vấn gộp nhỏ) - dùng cho If-None-Match
+     */
+    public String findVersion(UUID doctorId, LocalDate date) {
+        return jdbcTemplate.queryForObject("""
+                SELECT GREATEST(MAX(t.updated_at), MAX(v.updated_at)) AS last_change,
+                       COUNT(DISTINCT t.id) AS slots,
+                       COUNT(v.booking_id) AS bookings
+                """ + FROM_AGENDA,
+                (rs, rowNum) -> version(rs.getTimestamp("last_change"), rs.getLong("slots"), rs.getLong("bookings")),
+                doctorId, date);
+    }
+
+    public DoctorAgendaDto findAgenda(UUID doctorId, LocalDate date) {
+        Map<UUID, DoctorAgendaDto.AgendaSlotDto> slots = new LinkedHashMap<>();
+        Timestamp[] lastChange = {null};
+        long[] bookings = {0L};
+        jdbcTemplate.query("""
+                SELECT t.id AS slot_id, t.start_time AS slot_start_time, t.end_time AS slot_end_time,
+                       t.status AS slot_status, t.is_available AS slot_is_available, t.updated_at AS slot_updated_at,
+                       v.*
+                """ + FROM_AGENDA + """
+                ORDER BY t.start_time, t.id, v.created_at
+                """, rs -> {
+            UUID slotId = rs.getObject("slot_id", UUID.class);
+            DoctorAgendaDto.AgendaSlotDto slot = slots.get(slotId);
+            if (slot == null) {
+                String status = rs.getString("slot_status");
+                Timestamp slotUpdatedAt = rs.getTimestamp("slot_updated_at");
+                lastChange[0] = later(lastChange[0], slotUpdatedAt);
+                slot = DoctorAgendaDto.AgendaSlotDto.builder()
+                        .id(slotId)
+                        .startTime(rs.getTime("slot_start_time").toLocalTime())
+                        .endTime(rs.getTime("slot_end_time").toLocalTime())
+                        .status(status != null ? SlotStatus.valueOf(status) : null)
+                        .isAvailable(rs.getBoolean("slot_is_available"))
+                        .bookings(new ArrayList<>())
+                        .build();
+                slots.put(slotId, slot);
+            }
+            if (rs.getObject("booking_id") != null) {
+                BookingDto booking = BookingViewRepository.BOOKING_VIEW_ROW_MAPPER.mapRow(rs, rs.getRow());
+                lastChange[0] = later(lastChange[0], rs.getTimestamp("updated_at"));
+                bookings[0]++;
+                slot.getBookings().add(booking);
+            }
+        }, doctorId, date);
+        return DoctorAgendaDto.builder()
+                .doctorId(doctorId)
+                .date(date)
+                .version(version(lastChange[0], slots.size(), bookings[0]))
+                .slots(List.copyOf(slots.values()))
+                .build();
+    }
+
+    public UUID findDoctorIdByUserId(UUID userId) {
+        return jdbcTemplate.query("SELECT id FROM doctors WHERE user_id = ?",
+                (rs, rowNum) -> rs.getObject("id", UUID.class), userId).stream().findFirst().orElse(null);
+    }
+
+    private static Timestamp later(Timestamp current, Timestamp candidate) {
+        if (candidate == null) {
+            return current;
+        }
+        return current == null || candidate.after(current) ? candidate : current;
+    }
+
+    private static String version(Timestamp lastChange, long slots, long bookings) {
+        long micros = lastChange != null
+                ? lastChange.getTime() / 1000 * 1_000_000L + lastChange.getNanos() / 1000
+                : 0L;
+        return Long.toString(micros, 36) + "-" + slots + "-" + bookings;
+    }
+}
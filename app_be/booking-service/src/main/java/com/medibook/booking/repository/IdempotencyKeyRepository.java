@@ -0,0 +1,80 @@
+package com.medibook.booking.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Bảng idempotency_keys: mỗi (user, scope, key) giữ trạng thái IN_PROGRESS trong lúc
+ * request đầu tiên chạy, sau đó là response đã lưu để trả lại cho các lần retry tới khi hết hạn.
+ */
+@Repository
+@RequiredArgsConstructor
+public class IdempotencyKeyRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Giành quyền xử lý key: chèn mới, hoặc chiếm lại dòng đã hết hạn / IN_PROGRESS quá lease
+     * (instance trước đó chết giữa chừng). Trả về true nếu request hiện tại được xử lý.
+     */
+    public boolean tryAcquire(UUID userId, String scope, String key, String requestHash,
+            long ttlSeconds, long leaseSeconds) {
+        return !jdbcTemplate.queryForList("""
+                INSERT INTO idempotency_keys (user_id, scope, idem_key, request_hash, status, created_at, expires_at)
+                VALUES (?, ?, ?, ?, 'IN_PROGRESS', now(), now() + make_interval(secs => ?))
+                ON CONFLICT (user_id, scope, idem_key) DO UPDATE
+                SET request_hash = EXCLUDED.request_hash,
+                    status = 'IN_PROGRESS',
+                    response_status = NULL,
+                    response_body = NULL,
+                    created_at = now(),
+                    expires_at = EXCLUDED.expires_at
+                WHERE idempotency_keys.expires_at < now()
+                   OR (idempotency_keys.status = 'IN_PROGRESS'
+                       AND idempotency_keys.created_at < now() - make_interval(secs => ?))
+                RETURNING 1
+                """, userId, scope, key, requestHash, ttlSeconds, leaseSeconds).isEmpty();
+    }
+
+    public Optional<StoredKey> find(UUID userId, String scope, String key) {
+        return jdbcTemplate.query("""
+                SELECT request_hash, status, response_status, response_body
+                FROM idempotency_keys
+                WHERE user_id = ? AND scope = ? AND idem_key = ? AND expires_at > now()
+                """, (rs, rowNum) -> new StoredKey(
+                        rs.getString("request_hash"),
+                        "COMPLETED".equals(rs.getString("status")),
+                        rs.getInt("response_status"),
+                        rs.getString("response_body")),
+                userId, scope, key).stream().findFirst();
+    }
+
+    public void complete(UUID userId, String scope, String key, int responseStatus, String responseBody) {
+        jdbcTemplate.update("""
+                UPDATE idempotency_keys
+                SET status = 'COMPLETED', response_status = ?, response_body = ?
+                WHERE user_id = ? AND scope = ? AND idem_key = ?
+                """, responseStatus, responseBody, userId, scope, key);
+    }
+
+    /**
+     * Request thất bại - bỏ key để client retry được với cùng key
+     */
+    public void release(UUID userId, String scope, String key) {
+        jdbcTemplate.update("""
+                DELETE FROM idempotency_keys
+                WHERE user_id = ? AND scope = ? AND idem_key = ? AND status = 'IN_PROGRESS'
+                """, userId, scope, key);
+    }
+
+    public int deleteExpired() {
+        return jdbcTemplate.update("DELETE FROM idempotency_keys WHERE expires_at < now()");
+    }
+
+    public record StoredKey(String requestHash, boolean completed, int responseStatus, String responseBody) {
+    }
+}
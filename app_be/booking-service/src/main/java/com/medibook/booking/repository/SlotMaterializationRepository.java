@@ -0,0 +1,174 @@
+package com.medibook.booking.repository;
+
+import com.medibook.booking.entity.TimeSlot;
+import com.medibook.common.enums.SlotStatus;
+import lombok.RequiredArgsConstructor;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Ghi slot sinh từ lịch làm việc (doctor_schedules) xuống time_slots theo lô:
+ * COPY vào bảng tạm rồi một câu INSERT ... SELECT bỏ qua các slot đã có / bị trùng giờ.
+ * Các hàm ghi phải chạy trong transaction (bảng tạm ON COMMIT DROP, advisory lock theo transaction).
+ */
+@Repository
+@RequiredArgsConstructor
+public class SlotMaterializationRepository {
+
+    // Khóa chung cho mọi lần materialize - tránh hai instance cùng chèn một khung giờ
+    private static final long MATERIALIZE_LOCK_KEY = 0x5107_11A7L;
+    private static final int COPY_BUFFER_BYTES = 64 * 1024;
+    private static final String RETURNING_COLUMNS = """
+             RETURNING id, doctor_id, schedule_id, date, start_time, end_time,
+                       is_available, status, created_at, updated_at, version
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public List<ScheduleTemplate> findActiveSchedules(UUID doctorId) {
+        String sql = """
+                SELECT id, doctor_id, day_of_week, start_time, end_time, slot_duration_minutes
+                FROM doctor_schedules
+                WHERE is_active = true AND doctor_id IS NOT NULL
+                """;
+        Object[] args = {};
+        if (doctorId != null) {
+            sql += " AND doctor_id = ?";
+            args = new Object[]{doctorId};
+        }
+        return jdbcTemplate.query(sql, (rs, rowNum) -> new ScheduleTemplate(
+                rs.getObject("id", UUID.class),
+                rs.getObject("doctor_id", UUID.class),
+                // day_of_week lưu ordinal của DayOfWeek (0 = MONDAY)
+                DayOfWeek.of(rs.getInt("day_of_week") + 1),
+                rs.getObject("start_time", LocalTime.class),
+                rs.getObject("end_time", LocalTime.class),
+                rs.getObject("slot_duration_minutes", Integer.class)), args);
+    }
+
+    public Optional<UUID> findDoctorIdByUserId(UUID userId) {
+        return jdbcTemplate.query("SELECT id FROM doctors WHERE user_id = ?",
+                (rs, rowNum) -> rs.getObject("id", UUID.class), userId).stream().findFirst();
+    }
+
+    public void lock() {
+        jdbcTemplate.query("SELECT pg_advisory_xact_lock(?)", rs -> null, MATERIALIZE_LOCK_KEY);
+    }
+
+    /**
+     * COPY các slot vào bảng tạm rồi chèn những slot chưa có (không trùng giờ với slot hiện có của bác sĩ).
+     * Trả về các slot thực sự được chèn.
+     */
+    public List<TimeSlot> insertMissing(List<SlotRow> slots, SlotStatus status) {
+        if (slots.isEmpty()) {
+            return List.of();
+        }
+        jdbcTemplate.execute("""
+                CREATE TEMP TABLE IF NOT EXISTS slot_materialize_stage (
+                    doctor_id UUID NOT NULL,
+                    schedule_id UUID NOT NULL,
+                    date DATE NOT NULL,
+                    start_time TIME NOT NULL,
+                    end_time TIME NOT NULL
+                ) ON COMMIT DROP
+                """);
+        jdbcTemplate.execute((ConnectionCallback<Long>) con -> copyIn(con.unwrap(PGConnection.class), slots));
+        return jdbcTemplate.query("""
+                INSERT INTO time_slots (doctor_id, schedule_id, date, start_time, end_time, is_available, status)
+                SELECT DISTINCT ON (s.doctor_id, s.date, s.start_time)
+                       s.doctor_id, s.schedule_id, s.date, s.start_time, s.end_time, true, ?
+                FROM slot_materialize_stage s
+                WHERE NOT EXISTS (
+                    SELECT 1 FROM time_slots t
+                    WHERE t.doctor_id = s.doctor_id
+                      AND t.date = s.date
+                      AND t.start_time < s.end_time
+                      AND t.end_time > s.start_time
+                )
+                ORDER BY s.doctor_id, s.date, s.start_time
+                """ + RETURNING_COLUMNS, TimeSlotSearchRepository.TIME_SLOT_ROW_MAPPER, status.name());
+    }
+
+    /**
+     * Gỡ các slot tương lai còn trống của lịch làm việc đã ngưng (is_active = false), trả về các slot đã gỡ
+     */
+    public List<TimeSlot> deleteAvailableSlotsOfInactiveSchedules(LocalDate fromDate, UUID doctorId) {
+        String sql = """
+                DELETE FROM time_slots t
+                USING doctor_schedules ds
+                WHERE t.schedule_id = ds.id
+                  AND ds.is_active = false
+                  AND t.is_available = true
+                  AND t.date >= ?
+                """;
+        // doctor_schedules cũng có cột id: cột trả về phải ghi rõ bảng
+        String returning = """
+                 RETURNING t.id, t.doctor_id, t.schedule_id, t.date, t.start_time, t.end_time,
+                           t.is_available, t.status, t.created_at, t.updated_at, t.version
+                """;
+        if (doctorId == null) {
+            return jdbcTemplate.query(sql + returning, TimeSlotSearchRepository.TIME_SLOT_ROW_MAPPER, fromDate);
+        }
+        return jdbcTemplate.query(sql + " AND t.doctor_id = ?" + returning,
+                TimeSlotSearchRepository.TIME_SLOT_ROW_MAPPER, fromDate, doctorId);
+    }
+
+    private long copyIn(PGConnection con, List<SlotRow> slots) throws SQLException {
+        CopyIn copy = con.getCopyAPI().copyIn(
+                "COPY slot_materialize_stage (doctor_id, schedule_id, date, start_time, end_time) FROM STDIN");
+        try {
+            StringBuilder buffer = new StringBuilder(COPY_BUFFER_BYTES + 256);
+            for (SlotRow slot : slots) {
+                buffer.append(slot.doctorId()).append('\t')
+                        .append(slot.scheduleId()).append('\t')
+                        .append(slot.date()).append('\t')
+                        .append(slot.startTime()).append('\t')
+                        .append(slot.endTime()).append('\n');
+                if (buffer.length() >= COPY_BUFFER_BYTES) {
+                    write(copy, buffer);
+                }
+            }
+            write(copy, buffer);
+            return copy.endCopy();
+        } finally {
+            if (copy.isActive()) {
+                copy.cancelCopy();
+            }
+        }
+    }
+
+    private static void write(CopyIn copy, StringBuilder buffer) throws SQLException {
+        byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+        copy.writeToCopy(bytes, 0, bytes.length);
+        buffer.setLength(0);
+    }
+
+    public record ScheduleTemplate(
+            UUID id,
+            UUID doctorId,
+            DayOfWeek dayOfWeek,
+            LocalTime startTime,
+            LocalTime endTime,
+            Integer slotDurationMinutes
+    ) {}
+
+    public record SlotRow(
+            UUID doctorId,
+            UUID scheduleId,
+            LocalDate date,
+            LocalTime startTime,
+            LocalTime endTime
+    ) {}
+}
@@ -0,0 +1,56 @@
+package com.medibook.booking.repository;
+
+import com.medibook.booking.entity.TimeSlot;
+import com.medibook.common.enums.SlotStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Chuyển trạng thái slot theo tập (một câu UPDATE ... RETURNING) cho duyệt / từ chối hàng loạt.
+ * Chỉ slot đang PENDING bị ảnh hưởng; các slot trả về là các slot thực sự đã đổi trạng thái.
+ */
+@Repository
+@RequiredArgsConstructor
+public class TimeSlotBulkRepository {
+
+    private static final String RETURNING_COLUMNS = """
+             RETURNING id, doctor_id, schedule_id, date, start_time, end_time,
+                       is_available, status, created_at, updated_at, version
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public List<TimeSlot> updatePendingStatus(Collection<UUID> slotIds, SlotStatus newStatus) {
+        if (slotIds == null || slotIds.isEmpty()) {
+            return List.of();
+        }
+        UUID[] ids = slotIds.stream().distinct().toArray(UUID[]::new);
+        return jdbcTemplate.query(con -> {
+            var ps = con.prepareStatement("""
+                    UPDATE time_slots
+                    SET status = ?, updated_at = now(), version = COALESCE(version, 0) + 1
+                    WHERE id = ANY(?) AND status = 'PENDING'
+                    """ + RETURNING_COLUMNS);
+            ps.setString(1, newStatus.name());
+            ps.setArray(2, con.createArrayOf("uuid", ids));
+            return ps;
+        }, TimeSlotSearchRepository.TIME_SLOT_ROW_MAPPER);
+    }
+
+    public List<TimeSlot> updatePendingStatusByDoctor(UUID doctorId, LocalDate startDate, LocalDate endDate,
+            SlotStatus newStatus) {
+        return jdbcTemplate.query("""
+                UPDATE time_slots
+                SET status = ?, updated_at = now(), version = COALESCE(version, 0) + 1
+                WHERE doctor_id = ? AND date BETWEEN ? AND ? AND status = 'PENDING'
+                """ + RETURNING_COLUMNS,
+                TimeSlotSearchRepository.TIME_SLOT_ROW_MAPPER,
+                newStatus.name(), doctorId, startDate, endDate);
+    }
+}
@@ -5,6 +5,7 @@ import com.medibook.common.enums.SlotStatus;
 import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -27,6 +28,16 @@ public interface TimeSlotRepository extends JpaRepository<TimeSlot, UUID> {
     @Query("SELECT t FROM TimeSlot t WHERE t.id = :id")
     Optional<TimeSlot> findByIdWithLock(@Param("id") UUID id);
 
+    /**
+     * CONDITIONAL UPDATE - giành slot bằng một câu UPDATE nguyên tử, trả về số dòng bị ảnh hưởng (0 = đã bị đặt)
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE TimeSlot t SET t.isAvailable = false, t.version = COALESCE(t.version, 0) + 1, " +
+            "t.updatedAt = CURRENT_TIMESTAMP " +
+            "WHERE t.id = :id AND t.doctorId = :doctorId AND t.isAvailable = true AND t.status = :status")
+    int claimAvailableSlot(@Param("id") UUID id, @Param("doctorId") UUID doctorId,
+            @Param("status") SlotStatus status);
+
     /**
      * Lấy tất cả slot trống của bác sĩ trong ngày
      */
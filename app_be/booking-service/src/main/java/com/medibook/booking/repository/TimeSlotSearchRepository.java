@@ -0,0 +1,110 @@
+package com.medibook.booking.repository;
+
+import com.medibook.booking.dto.SlotCursor;
+import com.medibook.booking.entity.TimeSlot;
+import com.medibook.common.enums.SlotStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Truy vấn slot động cho Admin: filter status / khoảng ngày, sắp xếp và
+ * keyset pagination đều thực hiện trong SQL (không nạp cả bảng lên bộ nhớ)
+ */
+@Repository
+@RequiredArgsConstructor
+public class TimeSlotSearchRepository {
+
+    static final RowMapper<TimeSlot> TIME_SLOT_ROW_MAPPER = (rs, rowNum) -> {
+        Timestamp createdAt = rs.getTimestamp("created_at");
+        Timestamp updatedAt = rs.getTimestamp("updated_at");
+        String status = rs.getString("status");
+        return TimeSlot.builder()
+                .id(rs.getObject("id", UUID.class))
+                .doctorId(rs.getObject("doctor_id", UUID.class))
+                .scheduleId(rs.getObject("schedule_id", UUID.class))
+                .date(rs.getDate("date").toLocalDate())
+                .startTime(rs.getTime("start_time").toLocalTime())
+                .endTime(rs.getTime("end_time").toLocalTime())
+                .isAvailable(rs.getBoolean("is_available"))
+                .status(status != null ? SlotStatus.valueOf(status) : SlotStatus.PENDING)
+                .createdAt(createdAt != null ? createdAt.toLocalDateTime() : null)
+                .updatedAt(updatedAt != null ? updatedAt.toLocalDateTime() : null)
+                .version(rs.getLong("version"))
+                .build();
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Lấy một trang slot theo thứ tự date DESC, start_time ASC, id ASC,
+     * bắt đầu ngay sau cursor (nếu có)
+     */
+    public List<TimeSlot> findPage(SlotStatus status, LocalDate startDate, LocalDate endDate,
+            SlotCursor after, int limit) {
+        StringBuilder sql = new StringBuilder("""
+                SELECT id, doctor_id, schedule_id, date, start_time, end_time,
+                       is_available, status, created_at, updated_at, version
+                FROM time_slots
+                WHERE 1 = 1
+                """);
+        List<Object> params = new ArrayList<>();
+        if (status != null) {
+            sql.append(" AND status = ?");
+            params.add(status.name());
+        }
+        if (startDate != null) {
+            sql.append(" AND date >= ?");
+            params.add(startDate);
+        }
+        if (endDate != null) {
+            sql.append(" AND date <= ?");
+            params.add(endDate);
+        }
+        if (after != null) {
+            sql.append(" AND (date < ? OR (date = ? AND (start_time > ? OR (start_time = ? AND id > ?))))");
+            params.add(after.date());
+            params.add(after.date());
+            params.add(after.startTime());
+            params.add(after.startTime());
+            params.add(after.id());
+        }
+        sql.append(" ORDER BY date DESC, start_time ASC, id ASC LIMIT ?");
+        params.add(limit);
+        return jdbcTemplate.query(sql.toString(), TIME_SLOT_ROW_MAPPER, params.toArray());
+    }
+
+    /**
+     * Duyệt (không gom thành List) mọi slot APPROVED từ fromDate, tùy chọn giới hạn
+     * tới toDate / một bác sĩ - dùng để nạp SlotAvailabilityIndex
+     */
+    public void forEachApprovedSlot(LocalDate fromDate, LocalDate toDate, UUID doctorId, Consumer<TimeSlot> action) {
+        StringBuilder sql = new StringBuilder("""
+                SELECT id, doctor_id, schedule_id, date, start_time, end_time,
+                       is_available, status, created_at, updated_at, version
+                FROM time_slots
+                WHERE status = 'APPROVED' AND date >= ?
+                """);
+        List<Object> params = new ArrayList<>();
+        params.add(fromDate);
+        if (toDate != null) {
+            sql.append(" AND date <= ?");
+            params.add(toDate);
+        }
+        if (doctorId != null) {
+            sql.append(" AND doctor_id = ?");
+            params.add(doctorId);
+        }
+        jdbcTemplate.query(sql.toString(),
+                rs -> { action.accept(TIME_SLOT_ROW_MAPPER.mapRow(rs, 0)); },
+                params.toArray());
+    }
+}
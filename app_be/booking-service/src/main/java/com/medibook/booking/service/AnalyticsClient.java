@@ -0,0 +1,65 @@
+package com.medibook.booking.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Báo analytics-service các ngày (ngày tạo booking) có booking đổi trạng thái để cache dashboard được tính lại.
+ * Các ngày được gom trong bộ nhớ và gửi một lần mỗi notify-interval-millis; gửi lỗi thì giữ lại cho lần sau
+ * (analytics-service vẫn tự gộp bảng thống kê theo chu kỳ của nó).
+ */
+@Slf4j
+@Component
+public class AnalyticsClient {
+
+    private final WebClient webClient;
+    private final Duration timeout;
+    private final Set<LocalDate> pendingDays = ConcurrentHashMap.newKeySet();
+
+    public AnalyticsClient(
+            @Value("${services.analytics-service.url:http://localhost:8085}") String analyticsServiceUrl,
+            @Value("${services.analytics-service.timeout-millis:3000}") long timeoutMillis) {
+        this.webClient = WebClient.builder().baseUrl(analyticsServiceUrl).build();
+        this.timeout = Duration.ofMillis(timeoutMillis);
+    }
+
+    /**
+     * Gọi sau khi transaction đổi trạng thái đã commit
+     */
+    public void bookingChanged(LocalDate createdDay) {
+        if (createdDay != null) {
+            pendingDays.add(createdDay);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${services.analytics-service.notify-interval-millis:2000}")
+    public void flush() {
+        if (pendingDays.isEmpty()) {
+            return;
+        }
+        List<LocalDate> days = new ArrayList<>(pendingDays);
+        pendingDays.removeAll(days);
+        try {
+            webClient.post()
+                    .uri("/analytics/internal/bookings-changed")
+                    .bodyValue(Map.of("days", days.stream().map(LocalDate::toString).toList()))
+                    .retrieve()
+                    .toBodilessEntity()
+                    .block(timeout);
+        } catch (Exception e) {
+            pendingDays.addAll(days);
+            log.warn("Could not notify analytics-service of {} changed booking days: {}", days.size(), e.getMessage());
+        }
+    }
+}
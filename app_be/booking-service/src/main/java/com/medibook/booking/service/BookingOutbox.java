@@ -0,0 +1,36 @@
+package com.medibook.booking.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.medibook.booking.repository.BookingOutboxRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.UUID;
+
+/**
+ * Ghi sự kiện thông báo booking vào booking_outbox trong transaction hiện tại.
+ * Sự kiện chỉ tồn tại khi thay đổi trạng thái được commit; BookingOutboxRelay gửi chúng đi sau đó.
+ */
+@Service
+@RequiredArgsConstructor
+public class BookingOutbox {
+
+    public static final String BOOKING_CREATED = "BOOKING_CREATED";
+    public static final String BOOKING_CONFIRMED = "BOOKING_CONFIRMED";
+    public static final String BOOKING_CANCELLED = "BOOKING_CANCELLED";
+
+    private final BookingOutboxRepository outboxRepository;
+    private final ObjectMapper objectMapper;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void append(String eventType, UUID bookingId, Object payload) {
+        try {
+            outboxRepository.insert(bookingId, eventType, objectMapper.writeValueAsString(payload));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize outbox event " + eventType, e);
+        }
+    }
+}
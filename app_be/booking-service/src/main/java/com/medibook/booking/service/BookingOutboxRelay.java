@@ -0,0 +1,163 @@
+package com.medibook.booking.service;
+
+import com.medibook.booking.repository.BookingOutboxRepository;
+import com.medibook.booking.repository.BookingOutboxRepository.OutboxEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Relay đọc booking_outbox theo lô và gửi sang notification-service.
+ * Lỗi được gửi lại với exponential backoff + jitter; quá max-attempts thì chuyển DEAD để không chặn hàng đợi.
+ * Metrics: booking.outbox.backlog, booking.outbox.lag.seconds, booking.outbox.relayed{result}.
+ */
+@Slf4j
+@Component
+public class BookingOutboxRelay {
+
+    private static final Duration SEND_TIMEOUT = Duration.ofSeconds(60L);
+
+    private final BookingOutboxRepository outboxRepository;
+    private final NotificationClient notificationClient;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private final int maxAttempts;
+    private final long backoffMillis;
+    private final long maxBackoffMillis;
+    private final long leaseSeconds;
+    private final int retentionDays;
+
+    private final AtomicLong backlog = new AtomicLong();
+    private final AtomicReference<Double> lagSeconds = new AtomicReference<>(0.0);
+    private final Counter sent;
+    private final Counter retried;
+    private final Counter dead;
+
+    public BookingOutboxRelay(
+            BookingOutboxRepository outboxRepository,
+            NotificationClient notificationClient,
+            MeterRegistry meterRegistry,
+            @Value("${booking.outbox.batch-size:50}") int batchSize,
+            @Value("${booking.outbox.max-batches-per-run:20}") int maxBatchesPerRun,
+            @Value("${booking.outbox.max-attempts:10}") int maxAttempts,
+            @Value("${booking.outbox.backoff-millis:2000}") long backoffMillis,
+            @Value("${booking.outbox.max-backoff-millis:300000}") long maxBackoffMillis,
+            @Value("${booking.outbox.lease-seconds:120}") long leaseSeconds,
+            @Value("${booking.outbox.retention-days:7}") int retentionDays) {
+        this.outboxRepository = outboxRepository;
+        this.notificationClient = notificationClient;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.maxAttempts = maxAttempts;
+        this.backoffMillis = backoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.leaseSeconds = leaseSeconds;
+        this.retentionDays = retentionDays;
+
+        meterRegistry.gauge("booking.outbox.backlog", Tags.empty(), backlog, AtomicLong::doubleValue);
+        meterRegistry.gauge("booking.outbox.lag.seconds", Tags.empty(), lagSeconds, AtomicReference::get);
+        this.sent = relayed(meterRegistry, "sent");
+        this.retried = relayed(meterRegistry, "retry");
+        this.dead = relayed(meterRegistry, "dead");
+    }
+
+    private static Counter relayed(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("booking.outbox.relayed")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${booking.outbox.poll-interval-millis:1000}")
+    public void relay() {
+        try {
+            for (int i = 0; i < maxBatchesPerRun; i++) {
+                List<OutboxEvent> batch = outboxRepository.claimBatch(batchSize, leaseSeconds);
+                if (batch.isEmpty()) {
+                    break;
+                }
+                process(batch);
+                if (batch.size() < batchSize) {
+                    break;
+                }
+            }
+            refreshMetrics();
+        } catch (Exception e) {
+            log.warn("Booking outbox relay run failed: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(cron = "${booking.outbox.purge-cron:0 30 3 * * *}")
+    public void purgeSent() {
+        int deleted = outboxRepository.deleteSentBefore(LocalDateTime.now().minusDays(retentionDays));
+        if (deleted > 0) {
+            log.info("Purged {} sent booking outbox events", deleted);
+        }
+    }
+
+    private void process(List<OutboxEvent> batch) {
+        // Cả lô đi qua sender gom của NotificationClient (non-blocking); thread relay chỉ chờ kết quả của lô,
+        // còn việc ghi DB (markSent / markFailed) làm sau đó, không chạy trên event loop
+        List<Delivery> results = Flux.fromIterable(batch)
+                .flatMap(event -> notificationClient.submit("booking-outbox:" + event.id(), event.eventType(), event.payload())
+                        .then(Mono.fromSupplier(() -> new Delivery(event, null)))
+                        .onErrorResume(e -> Mono.just(new Delivery(event, e))))
+                .collectList()
+                .block(SEND_TIMEOUT);
+        if (results == null) {
+            return;
+        }
+        List<Long> delivered = new ArrayList<>(results.size());
+        for (Delivery result : results) {
+            if (result.error() == null) {
+                delivered.add(result.event().id());
+            } else {
+                fail(result.event(), result.error());
+            }
+        }
+        outboxRepository.markSent(delivered);
+        sent.increment(delivered.size());
+    }
+
+    private void fail(OutboxEvent event, Throwable e) {
+        boolean giveUp = event.attempts() >= maxAttempts;
+        long exp = backoffMillis * (1L << Math.min(event.attempts() - 1, 20));
+        long delayMillis = Math.min(maxBackoffMillis, exp);
+        // jitter để các instance không retry dồn cùng lúc
+        delayMillis = ThreadLocalRandom.current().nextLong(delayMillis / 2, delayMillis + 1);
+        outboxRepository.markFailed(event.id(), e.getMessage(), Math.max(1L, delayMillis / 1000), giveUp);
+        if (giveUp) {
+            dead.increment();
+            log.error("Booking outbox event {} ({}) dropped after {} attempts: {}",
+                    event.id(), event.eventType(), event.attempts(), e.getMessage());
+        } else {
+            retried.increment();
+            log.warn("Booking outbox event {} ({}) failed, attempt {}: {}",
+                    event.id(), event.eventType(), event.attempts(), e.getMessage());
+        }
+    }
+
+    private void refreshMetrics() {
+        BookingOutboxRepository.BacklogStats stats = outboxRepository.backlogStats();
+        if (stats != null) {
+            backlog.set(stats.backlog());
+            lagSeconds.set(stats.lagSeconds());
+        }
+    }
+
+    private record Delivery(OutboxEvent event, Throwable error) {
+    }
+}
@@ -3,9 +3,11 @@
  * 
  * Could not load the following classes:
  *  com.medibook.booking.dto.BookingCreatedEmailRequest
+ *  com.medibook.booking.dto.BookingCursor
  *  com.medibook.booking.dto.BookingDto
  *  com.medibook.booking.dto.BookingDto$TimeSlotDto
  *  com.medibook.booking.dto.BookingStatsDto
+ *  com.medibook.booking.dto.BookingStatusHistoryDto
  *  com.medibook.booking.dto.BookingStatusNotificationRequest
  *  com.medibook.booking.dto.CancelBookingRequest
  *  com.medibook.booking.dto.CreateBookingRequest
@@ -15,14 +17,18 @@
  *  com.medibook.booking.dto.ZaloPayCallbackRequest
  *  com.medibook.booking.dto.ZaloPayCallbackResponse
  *  com.medibook.booking.entity.Booking
- *  com.medibook.booking.entity.BookingStatusHistory
  *  com.medibook.booking.entity.TimeSlot
  *  com.medibook.booking.repository.BookingRepository
- *  com.medibook.booking.repository.BookingStatusHistoryRepository
+ *  com.medibook.booking.repository.BookingViewRepository
  *  com.medibook.booking.repository.TimeSlotRepository
+ *  com.medibook.booking.service.AnalyticsClient
  *  com.medibook.booking.service.BookingService
  *  com.medibook.booking.service.BookingService$PatientContact
- *  com.medibook.booking.service.NotificationClient
+ *  com.medibook.booking.service.BookingStatsEngine
+ *  com.medibook.booking.service.BookingStatusHistoryWriter
+ *  com.medibook.booking.service.BookingViewProjector
+ *  com.medibook.booking.service.SlotAvailabilityIndex
+ *  com.medibook.booking.service.SlotDeltaPublisher
  *  com.medibook.booking.service.SlotNotificationService
  *  com.medibook.booking.service.ZaloPayService
  *  com.medibook.common.enums.BookingStatus
@@ -31,17 +37,15 @@
  *  com.medibook.common.enums.SlotStatus
  *  com.medibook.common.exception.BadRequestException
  *  com.medibook.common.exception.ResourceNotFoundException
- *  com.medibook.common.exception.SlotNotAvailableException
+ *  com.medibook.common.security.AuthHeaders
  *  lombok.Generated
  *  org.slf4j.Logger
  *  org.slf4j.LoggerFactory
- *  org.springframework.dao.EmptyResultDataAccessException
  *  org.springframework.data.domain.Page
  *  org.springframework.data.domain.Pageable
  *  org.springframework.jdbc.core.JdbcTemplate
- *  org.springframework.scheduling.annotation.Scheduled
  *  org.springframework.stereotype.Service
- *  org.springframework.transaction.annotation.Isolation
+ *  org.springframework.transaction.support.TransactionTemplate
  *  org.springframework.transaction.annotation.Transactional
  *  org.springframework.transaction.support.TransactionSynchronization
  *  org.springframework.transaction.support.TransactionSynchronizationManager
@@ -49,102 +53,134 @@
 package com.medibook.booking.service;
 
 import com.medibook.booking.dto.BookingCreatedEmailRequest;
+import com.medibook.booking.dto.BookingCursor;
 import com.medibook.booking.dto.BookingDto;
 import com.medibook.booking.dto.BookingStatsDto;
+import com.medibook.booking.dto.BookingStatusHistoryDto;
 import com.medibook.booking.dto.BookingStatusNotificationRequest;
 import com.medibook.booking.dto.CancelBookingRequest;
 import com.medibook.booking.dto.CreateBookingRequest;
 import com.medibook.booking.dto.InitiatePaymentRequest;
 import com.medibook.booking.dto.PaymentInitDto;
+import com.medibook.booking.dto.SlotCursor;
 import com.medibook.booking.dto.TimeSlotDto;
 import com.medibook.booking.dto.ZaloPayCallbackRequest;
 import com.medibook.booking.dto.ZaloPayCallbackResponse;
 import com.medibook.booking.entity.Booking;
-import com.medibook.booking.entity.BookingStatusHistory;
 import com.medibook.booking.entity.TimeSlot;
 import com.medibook.booking.repository.BookingRepository;
-import com.medibook.booking.repository.BookingStatusHistoryRepository;
+import com.medibook.booking.repository.BookingViewRepository;
+import com.medibook.booking.repository.TimeSlotBulkRepository;
 import com.medibook.booking.repository.TimeSlotRepository;
+import com.medibook.booking.repository.TimeSlotSearchRepository;
+import com.medibook.booking.service.AnalyticsClient;
+import com.medibook.booking.service.BookingOutbox;
 import com.medibook.booking.service.BookingService;
-import com.medibook.booking.service.NotificationClient;
+import com.medibook.booking.service.BookingStatsEngine;
+import com.medibook.booking.service.BookingStatusHistoryWriter;
+import com.medibook.booking.service.BookingViewProjector;
+import com.medibook.booking.service.PaymentHoldQueue;
+import com.medibook.booking.service.PaymentReconciliationService;
+import com.medibook.booking.service.ReferenceDataCache;
+import com.medibook.booking.service.SlotAvailabilityIndex;
+import com.medibook.booking.service.SlotClaimService;
+import com.medibook.booking.service.SlotDeltaPublisher;
+import com.medibook.booking.service.SlotReservationGate;
 import com.medibook.booking.service.SlotNotificationService;
 import com.medibook.booking.service.ZaloPayService;
+import com.medibook.common.dto.CursorPage;
 import com.medibook.common.enums.BookingStatus;
 import com.medibook.common.enums.PaymentMethod;
 import com.medibook.common.enums.PaymentStatus;
 import com.medibook.common.enums.SlotStatus;
 import com.medibook.common.exception.BadRequestException;
 import com.medibook.common.exception.ResourceNotFoundException;
-import com.medibook.common.exception.SlotNotAvailableException;
+import com.medibook.common.security.AuthHeaders;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import lombok.Generated;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.support.TransactionSynchronization;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Service
 public class BookingService {
     @Generated
     private static final Logger log = LoggerFactory.getLogger(BookingService.class);
     private static final long PAYMENT_HOLD_MINUTES = 15L;
+    private static final int MAX_SLOT_PAGE_SIZE = 200;
+    private static final int MAX_BOOKING_PAGE_SIZE = 100;
     private static final String PAYMENT_TIMEOUT_REASON = "T\u1ef1 \u0111\u1ed9ng h\u1ee7y do qu\u00e1 h\u1ea1n thanh to\u00e1n 15 ph\u00fat";
     private final BookingRepository bookingRepository;
     private final TimeSlotRepository timeSlotRepository;
-    private final BookingStatusHistoryRepository statusHistoryRepository;
+    private final TimeSlotSearchRepository timeSlotSearchRepository;
+    private final TimeSlotBulkRepository timeSlotBulkRepository;
+    private final BookingStatusHistoryWriter statusHistoryWriter;
     private final JdbcTemplate jdbcTemplate;
     private final SlotNotificationService slotNotificationService;
-    private final NotificationClient notificationClient;
     private final ZaloPayService zaloPayService;
+    private final ReferenceDataCache referenceDataCache;
+    private final SlotReservationGate slotReservationGate;
+    private final SlotClaimService slotClaimService;
+    private final SlotAvailabilityIndex slotAvailabilityIndex;
+    private final SlotDeltaPublisher slotDeltaPublisher;
+    private final PaymentHoldQueue paymentHoldQueue;
+    private final BookingOutbox bookingOutbox;
+    private final BookingViewRepository bookingViewRepository;
+    private final BookingViewProjector bookingViewProjector;
+    private final BookingStatsEngine bookingStatsEngine;
+    private final AnalyticsClient analyticsClient;
+    private final TransactionTemplate createBookingTransaction;
 
     private void validatePatientBeforeBooking(UUID patientId) {
-        List rows = this.jdbcTemplate.queryForList("SELECT\n    u.email,\n    COALESCE(u.email_verified, false) AS email_verified,\n    p.full_name,\n    p.phone\nFROM users u\nLEFT JOIN profiles p ON p.user_id = u.id\nWHERE u.id = ?\nLIMIT 1\n", new Object[]{patientId});
-        if (rows.isEmpty()) {
+        ReferenceDataCache.PatientRef patient = this.referenceDataCache.getPatient(patientId);
+        if (patient == null || !this.isEligibleForBooking(patient)) {
+            // Cache co the da cu (vua cap nhat ho so / xac thuc email) - doc lai tu DB truoc khi tu choi
+            this.referenceDataCache.invalidatePatient(patientId);
+            patient = this.referenceDataCache.getPatient(patientId);
+        }
+        if (patient == null) {
             throw new BadRequestException("Kh\u00f4ng t\u00ecm th\u1ea5y t\u00e0i kho\u1ea3n b\u1ec7nh nh\u00e2n.");
         }
-        Map patient = (Map)rows.get(0);
-        if (!(this.hasText(patient.get("full_name")) && this.hasText(patient.get("phone")) && this.hasText(patient.get("email")))) {
+        if (!(this.hasText(patient.fullName()) && this.hasText(patient.phone()) && this.hasText(patient.email()))) {
             throw new BadRequestException("Vui l\u00f2ng c\u1eadp nh\u1eadt \u0111\u1ea7y \u0111\u1ee7 h\u1ecd t\u00ean, s\u1ed1 \u0111i\u1ec7n tho\u1ea1i v\u00e0 email tr\u01b0\u1edbc khi \u0111\u1eb7t l\u1ecbch.");
         }
-        if (!this.asBoolean(patient.get("email_verified"))) {
+        if (!patient.emailVerified()) {
             throw new BadRequestException("Vui l\u00f2ng x\u00e1c th\u1ef1c email tr\u01b0\u1edbc khi \u0111\u1eb7t l\u1ecbch.");
         }
     }
 
-    private boolean hasText(Object value) {
-        return value != null && !value.toString().trim().isEmpty();
+    private boolean isEligibleForBooking(ReferenceDataCache.PatientRef patient) {
+        return this.hasText(patient.fullName()) && this.hasText(patient.phone()) && this.hasText(patient.email()) && patient.emailVerified();
     }
 
-    private boolean asBoolean(Object value) {
-        if (value instanceof Boolean) {
-            Boolean bool = (Boolean)value;
-            return bool;
-        }
-        return value != null && Boolean.parseBoolean(value.toString());
+    private boolean hasText(Object value) {
+        return value != null && !value.toString().trim().isEmpty();
     }
 
     private UUID findDoctorIdByUserId(UUID userId) {
+        UUID fromToken = AuthHeaders.currentDoctorId((UUID)userId);
+        if (fromToken != null) {
+            return fromToken;
+        }
         try {
             return (UUID)this.jdbcTemplate.queryForObject("SELECT id FROM doctors WHERE user_id = ?", UUID.class, new Object[]{userId});
         }
@@ -155,23 +191,19 @@ public class BookingService {
     }
 
     private BigDecimal getServicePrice(UUID serviceId) {
-        try {
-            BigDecimal price = (BigDecimal)this.jdbcTemplate.queryForObject("SELECT price FROM medical_services WHERE id = ?", BigDecimal.class, new Object[]{serviceId});
-            return price != null ? price : BigDecimal.ZERO;
-        }
-        catch (EmptyResultDataAccessException e) {
+        ReferenceDataCache.ServiceRef service = this.referenceDataCache.getService(serviceId);
+        if (service == null) {
             throw new ResourceNotFoundException("MedicalService", "id", (Object)serviceId);
         }
+        return service.price() != null ? service.price() : BigDecimal.ZERO;
     }
 
     private String getServiceName(UUID serviceId) {
-        try {
-            String name = (String)this.jdbcTemplate.queryForObject("SELECT name FROM medical_services WHERE id = ?", String.class, new Object[]{serviceId});
-            return this.hasText((Object)name) ? name : "Dich vu kham";
-        }
-        catch (EmptyResultDataAccessException e) {
+        ReferenceDataCache.ServiceRef service = this.referenceDataCache.getService(serviceId);
+        if (service == null) {
             throw new ResourceNotFoundException("MedicalService", "id", (Object)serviceId);
         }
+        return this.hasText((Object)service.name()) ? service.name() : "Dich vu kham";
     }
 
     private String buildPaymentReference(Booking booking, PaymentMethod method) {
@@ -180,29 +212,31 @@ public class BookingService {
         return method.name() + "-" + bookingCode + "-" + timestamp;
     }
 
-    @Transactional(isolation=Isolation.SERIALIZABLE)
     public BookingDto createBooking(UUID patientId, CreateBookingRequest request) {
+        // Cong giu cho chay TRUOC khi mo transaction: request thua bi tu choi ma khong chiem connection
+        // Xung dot (optimistic / serialization failure) duoc retry co gioi han + jitter trong SlotClaimService
+        return this.slotReservationGate.reserve(request.getTimeSlotId(), () -> this.slotClaimService.executeWithRetry(() -> this.createBookingTransaction.execute(status -> this.doCreateBooking(patientId, request))));
+    }
+
+    private BookingDto doCreateBooking(UUID patientId, CreateBookingRequest request) {
         log.info("Creating booking for patient: {}, slot: {}", (Object)patientId, (Object)request.getTimeSlotId());
         this.validatePatientBeforeBooking(patientId);
-        TimeSlot slot = this.timeSlotRepository.findByIdWithLock(request.getTimeSlotId()).orElseThrow(() -> new ResourceNotFoundException("TimeSlot", "id", request.getTimeSlotId()));
-        if (!slot.getIsAvailable().booleanValue()) {
-            log.warn("Slot {} already booked, rejecting request from patient {}", (Object)slot.getId(), (Object)patientId);
-            throw new SlotNotAvailableException();
-        }
-        if (!slot.getDoctorId().equals(request.getDoctorId())) {
-            throw new BadRequestException("TimeSlot kh\u00f4ng thu\u1ed9c v\u1ec1 b\u00e1c s\u0129 \u0111\u00e3 ch\u1ecdn");
-        }
-        slot.setIsAvailable(Boolean.valueOf(false));
-        this.timeSlotRepository.save(slot);
+        // Chien luoc gianh slot (PESSIMISTIC / CONDITIONAL_UPDATE / OPTIMISTIC) cau hinh qua booking.slot-claim.strategy
+        TimeSlot slot = this.slotClaimService.claim(request.getTimeSlotId(), request.getDoctorId());
+        this.runAfterCommit(() -> {
+            this.slotAvailabilityIndex.apply(slot);
+            this.slotDeltaPublisher.booked(slot);
+        });
         BigDecimal totalAmount = this.getServicePrice(request.getServiceId());
         Booking booking = Booking.builder().patientId(patientId).doctorId(request.getDoctorId()).serviceId(request.getServiceId()).timeSlot(slot).status(BookingStatus.PENDING).totalAmount(totalAmount).paymentStatus(PaymentStatus.UNPAID).notes(request.getNotes()).build();
-        booking = this.bookingRepository.save(booking);
+        booking = this.saveBooking(booking);
         this.saveStatusHistory(booking, null, BookingStatus.PENDING, patientId, "\u0110\u1eb7t l\u1ecbch m\u1edbi");
         log.info("Booking created successfully: {}", (Object)booking.getId());
+        this.schedulePaymentHoldAfterCommit(booking);
         BookingDto dto = this.toDtoRaw(booking);
         this.enrichBookings(List.of(dto));
         // Xóa gửi email khi đặt lịch mới ở trạng thái PENDING (chờ thanh toán thành công mới gửi)
-        // this.sendBookingCreatedEmailAfterCommit(dto);
+        // this.enqueueBookingCreatedEmail(dto);
         return dto;
     }
 
@@ -233,7 +267,8 @@ public class BookingService {
         booking.setPaymentStatus(PaymentStatus.PENDING);
         booking.setPaymentReference(init.getAppTransId());
         booking.setPaidAt(null);
-        this.bookingRepository.save(booking);
+        this.saveBooking(booking);
+        this.paymentHoldQueue.schedule(booking.getId(), booking.getCreatedAt());
         return init;
     }
 
@@ -292,12 +327,12 @@ public class BookingService {
         }
         BookingStatus oldStatus = booking.getStatus();
         booking.setStatus(BookingStatus.CONFIRMED);
-        booking = this.bookingRepository.save(booking);
+        booking = this.saveBooking(booking);
         this.saveStatusHistory(booking, oldStatus, BookingStatus.CONFIRMED, userId, "B\u00e1c s\u0129 x\u00e1c nh\u1eadn");
         log.info("Booking {} confirmed by doctor {}", (Object)bookingId, (Object)userId);
         BookingDto dto = this.toDtoRaw(booking);
         this.enrichBookings(List.of(dto));
-        this.sendBookingConfirmedNotificationAfterCommit(dto);
+        this.enqueueBookingConfirmedNotification(dto);
         return dto;
     }
 
@@ -314,7 +349,7 @@ public class BookingService {
         BookingStatus oldStatus = booking.getStatus();
         booking.setStatus(BookingStatus.COMPLETED);
         booking.setDoctorNotes(doctorNotes);
-        booking = this.bookingRepository.save(booking);
+        booking = this.saveBooking(booking);
         this.saveStatusHistory(booking, oldStatus, BookingStatus.COMPLETED, userId, "Ho\u00e0n th\u00e0nh kh\u00e1m");
         log.info("Booking {} completed by doctor {}", (Object)bookingId, (Object)userId);
         BookingDto dto = this.toDtoRaw(booking);
@@ -342,13 +377,15 @@ public class BookingService {
         TimeSlot slot = booking.getTimeSlot();
         slot.setIsAvailable(Boolean.valueOf(true));
         this.timeSlotRepository.save(slot);
-        booking = this.bookingRepository.save(booking);
+        this.releaseSlotAfterCommit(slot);
+        booking = this.saveBooking(booking);
+        this.paymentHoldQueue.cancel(booking.getId());
         String reason = isPatient ? "B\u1ec7nh nh\u00e2n h\u1ee7y" : "B\u00e1c s\u0129 h\u1ee7y";
         this.saveStatusHistory(booking, oldStatus, BookingStatus.CANCELED, userId, reason + ": " + request.getReason());
         log.info("Booking {} cancelled by user {}", (Object)bookingId, (Object)userId);
         BookingDto dto = this.toDtoRaw(booking);
         this.enrichBookings(List.of(dto));
-        this.sendBookingCancelledNotificationAfterCommit(dto, request.getReason());
+        this.enqueueBookingCancelledNotification(dto, request.getReason());
         return dto;
     }
 
@@ -360,11 +397,17 @@ public class BookingService {
         return dto;
     }
 
+    public List<BookingStatusHistoryDto> getBookingHistory(UUID id) {
+        if (!this.bookingRepository.existsById(id)) {
+            throw new ResourceNotFoundException("Booking", "id", (Object)id);
+        }
+        return this.statusHistoryWriter.findHistory(id);
+    }
+
     @Transactional(readOnly=true)
     public Page<BookingDto> getPatientBookings(UUID patientId, Pageable pageable) {
-        Page dtos = this.bookingRepository.findByPatientIdOrderByCreatedAtDesc(patientId, pageable).map(arg_0 -> this.toDtoRaw(arg_0));
-        this.enrichBookings(dtos.getContent());
-        return dtos;
+        // Doc tu booking_view - mot truy van theo index, khong join / enrich
+        return this.bookingViewRepository.findByPatient(patientId, pageable);
     }
 
     @Transactional(readOnly=true)
@@ -373,9 +416,40 @@ public class BookingService {
         if (doctorId == null) {
             return Page.empty();
         }
-        Page dtos = this.bookingRepository.findByDoctorIdOrderByCreatedAtDesc(doctorId, pageable).map(arg_0 -> this.toDtoRaw(arg_0));
-        this.enrichBookings(dtos.getContent());
-        return dtos;
+        return this.bookingViewRepository.findByDoctor(doctorId, pageable);
+    }
+
+    @Transactional(readOnly=true)
+    public CursorPage<BookingDto> getPatientBookingsPage(UUID patientId, String cursor, int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_BOOKING_PAGE_SIZE));
+        return this.toBookingCursorPage(this.bookingViewRepository.findSliceByPatient(patientId, BookingCursor.decode(cursor), pageSize + 1), pageSize);
+    }
+
+    @Transactional(readOnly=true)
+    public CursorPage<BookingDto> getDoctorBookingsPage(UUID userId, String cursor, int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_BOOKING_PAGE_SIZE));
+        UUID doctorId = this.findDoctorIdByUserId(userId);
+        if (doctorId == null) {
+            return CursorPage.of(List.of(), pageSize, null);
+        }
+        return this.toBookingCursorPage(this.bookingViewRepository.findSliceByDoctor(doctorId, BookingCursor.decode(cursor), pageSize + 1), pageSize);
+    }
+
+    @Transactional(readOnly=true)
+    public CursorPage<BookingDto> getAllBookingsPage(BookingStatus status, String cursor, int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_BOOKING_PAGE_SIZE));
+        return this.toBookingCursorPage(this.bookingViewRepository.findSlice(status, BookingCursor.decode(cursor), pageSize + 1), pageSize);
+    }
+
+    private CursorPage<BookingDto> toBookingCursorPage(List<BookingDto> bookings, int pageSize) {
+        // Lay du pageSize + 1 dong: co dong thua thi con trang sau, khong can COUNT
+        String nextCursor = null;
+        if (bookings.size() > pageSize) {
+            bookings = bookings.subList(0, pageSize);
+            BookingDto last = bookings.get(pageSize - 1);
+            nextCursor = new BookingCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+        return CursorPage.of(bookings, pageSize, nextCursor);
     }
 
     @Transactional(readOnly=true)
@@ -391,13 +465,16 @@ public class BookingService {
 
     @Transactional(readOnly=true)
     public Page<BookingDto> getAllBookings(BookingStatus status, Pageable pageable) {
-        Page dtos = status != null ? this.bookingRepository.findByStatusOrderByCreatedAtDesc(status, pageable).map(arg_0 -> this.toDtoRaw(arg_0)) : this.bookingRepository.findAll(pageable).map(arg_0 -> this.toDtoRaw(arg_0));
-        this.enrichBookings(dtos.getContent());
-        return dtos;
+        return this.bookingViewRepository.findAll(status, pageable);
     }
 
     public List<TimeSlotDto> getAvailableSlots(UUID doctorId, LocalDate date) {
-        return this.timeSlotRepository.findApprovedAvailableSlotsByDoctorAndDate(doctorId, date).stream().map(arg_0 -> this.toSlotDto(arg_0)).collect(Collectors.toList());
+        // Doc tu SlotAvailabilityIndex (in-memory); chi xuong DB khi index chua nap xong hoac ngay da qua
+        List<TimeSlot> slots = this.slotAvailabilityIndex.findAvailable(doctorId, date);
+        if (slots == null) {
+            slots = this.timeSlotRepository.findApprovedAvailableSlotsByDoctorAndDate(doctorId, date);
+        }
+        return this.toSlotDtos(slots);
     }
 
     public List<TimeSlotDto> getDoctorSlotsForWeek(UUID userId, LocalDate startDate, LocalDate endDate) {
@@ -407,7 +484,7 @@ public class BookingService {
             log.warn("Cannot find doctorId for userId: {}, returning empty list", (Object)userId);
             return List.of();
         }
-        return this.timeSlotRepository.findByDoctorIdAndDateBetween(doctorId, startDate, endDate).stream().map(arg_0 -> this.toSlotDto(arg_0)).collect(Collectors.toList());
+        return this.toSlotDtos(this.timeSlotRepository.findByDoctorIdAndDateBetween(doctorId, startDate, endDate));
     }
 
     @Transactional
@@ -450,6 +527,7 @@ public class BookingService {
         slot.setVersion(Long.valueOf(0L));
         TimeSlot saved = this.timeSlotRepository.save(slot);
         TimeSlotDto slotDto = this.toSlotDto(saved);
+        this.runAfterCommit(() -> this.slotAvailabilityIndex.apply(saved));
         this.slotNotificationService.notifyNewPendingSlot(slotDto);
         return slotDto;
     }
@@ -466,23 +544,39 @@ public class BookingService {
             throw new BadRequestException("Cannot delete booked slot");
         }
         this.timeSlotRepository.delete(slot);
+        this.runAfterCommit(() -> {
+            this.slotAvailabilityIndex.remove(slot);
+            this.slotDeltaPublisher.removed(List.of(slot));
+        });
     }
 
-    @Scheduled(fixedDelay=60000L)
+    /**
+     * Ap ket qua doi soat thanh toan cho mot booking trong transaction rieng.
+     * providerStatus = null khi booking khong co giao dich ZaloPay dang cho (khong can query).
+     */
     @Transactional
-    public void cancelExpiredPaymentHolds() {
-        LocalDateTime expiresBefore = LocalDateTime.now().minusMinutes(15L);
-        List<Booking> expiredBookings = this.bookingRepository.findExpiredPaymentHolds(BookingStatus.PENDING, PaymentStatus.PAID, expiresBefore);
-        for (Booking booking : expiredBookings) {
-            try {
-                Booking latest = this.refreshProviderPaymentStatus(booking, booking.getPatientId(), "Thanh toan thanh cong");
-                if (latest.getPaymentStatus() == PaymentStatus.PAID) continue;
-                this.cancelExpiredPaymentHold(latest);
-            }
-            catch (Exception e) {
-                log.warn("Could not process expired payment hold {}: {}", (Object)booking.getId(), (Object)e.getMessage());
-            }
+    public PaymentReconciliationService.Outcome applyPaymentReconciliation(UUID bookingId, String appTransId, PaymentStatus providerStatus) {
+        Booking booking = this.bookingRepository.findById(bookingId).orElse(null);
+        if (booking == null || booking.getStatus() != BookingStatus.PENDING || booking.getPaymentStatus() == PaymentStatus.PAID) {
+            return PaymentReconciliationService.Outcome.UNCHANGED;
+        }
+        // Chi ap ket qua provider neu benh nhan chua tao giao dich moi trong luc dang query
+        boolean sameOrder = booking.getPaymentStatus() == PaymentStatus.PENDING && appTransId != null && appTransId.equals(booking.getPaymentReference());
+        if (sameOrder && providerStatus == PaymentStatus.PAID) {
+            this.markBookingPaidAndConfirm(booking, booking.getPatientId(), "Thanh toan thanh cong");
+            return PaymentReconciliationService.Outcome.PAID;
+        }
+        if (sameOrder && providerStatus == PaymentStatus.FAILED) {
+            booking.setPaymentStatus(PaymentStatus.FAILED);
+            booking = this.saveBooking(booking);
+        }
+        if (!this.isPaymentHoldExpired(booking)) {
+            // Toi han som (lech dong ho) - dang ky lai theo created_at trong DB
+            this.paymentHoldQueue.schedule(booking.getId(), booking.getCreatedAt());
+            return PaymentReconciliationService.Outcome.UNCHANGED;
         }
+        this.cancelExpiredPaymentHold(booking);
+        return PaymentReconciliationService.Outcome.EXPIRED;
     }
 
     private Booking refreshProviderPaymentStatus(Booking booking, UUID changedBy, String confirmReason) {
@@ -493,7 +587,7 @@ public class BookingService {
             }
             if (status == PaymentStatus.FAILED) {
                 booking.setPaymentStatus(PaymentStatus.FAILED);
-                return this.bookingRepository.save(booking);
+                return this.saveBooking(booking);
             }
         }
         return booking;
@@ -528,13 +622,15 @@ public class BookingService {
         if (slot != null && !Boolean.TRUE.equals(slot.getIsAvailable())) {
             slot.setIsAvailable(Boolean.valueOf(true));
             this.timeSlotRepository.save(slot);
+            this.releaseSlotAfterCommit(slot);
         }
-        Booking saved = this.bookingRepository.save(booking);
+        Booking saved = this.saveBooking(booking);
+        this.paymentHoldQueue.cancel(saved.getId());
         this.saveStatusHistory(saved, oldStatus, BookingStatus.CANCELED, null, PAYMENT_TIMEOUT_REASON);
         log.info("Booking {} auto-cancelled because payment hold expired", (Object)saved.getId());
         BookingDto dto = this.toDtoRaw(saved);
         this.enrichBookings(List.of(dto));
-        this.sendBookingCancelledNotificationAfterCommit(dto, PAYMENT_TIMEOUT_REASON);
+        this.enqueueBookingCancelledNotification(dto, PAYMENT_TIMEOUT_REASON);
         return saved;
     }
 
@@ -548,67 +644,86 @@ public class BookingService {
         if (shouldConfirm) {
             booking.setStatus(BookingStatus.CONFIRMED);
         }
-        Booking saved = this.bookingRepository.save(booking);
+        Booking saved = this.saveBooking(booking);
+        this.paymentHoldQueue.cancel(saved.getId());
         if (shouldConfirm) {
             this.saveStatusHistory(saved, oldStatus, BookingStatus.CONFIRMED, changedBy, reason);
             BookingDto dto = this.toDtoRaw(saved);
             this.enrichBookings(List.of(dto));
-            this.sendBookingConfirmedNotificationAfterCommit(dto);
+            this.enqueueBookingConfirmedNotification(dto);
             // Gửi email xác nhận đặt lịch thành công sau khi đã thanh toán thành công
-            this.sendBookingCreatedEmailAfterCommit(dto);
+            this.enqueueBookingCreatedEmail(dto);
         }
         return saved;
     }
 
-    private void sendBookingCreatedEmailAfterCommit(BookingDto dto) {
-        BookingCreatedEmailRequest emailRequest = this.buildBookingCreatedEmailRequest(dto);
-        if (emailRequest == null) {
-            return;
-        }
+    private void schedulePaymentHoldAfterCommit(Booking booking) {
+        // created_at chi co sau khi INSERT duoc flush -> doc lai sau commit
         if (TransactionSynchronizationManager.isSynchronizationActive()) {
             TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
                 @Override
                 public void afterCommit() {
-                    CompletableFuture.runAsync(() -> notificationClient.sendBookingCreatedEmail(emailRequest));
+                    paymentHoldQueue.schedule(booking.getId(), booking.getCreatedAt());
                 }
             });
             return;
         }
-        CompletableFuture.runAsync(() -> this.notificationClient.sendBookingCreatedEmail(emailRequest));
+        this.paymentHoldQueue.schedule(booking.getId(), booking.getCreatedAt());
     }
 
-    private void sendBookingConfirmedNotificationAfterCommit(BookingDto dto) {
-        BookingStatusNotificationRequest request = this.buildBookingStatusNotificationRequest(dto, null);
-        if (request == null) {
-            return;
-        }
+    private void runAfterCommit(Runnable action) {
         if (TransactionSynchronizationManager.isSynchronizationActive()) {
             TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
                 @Override
                 public void afterCommit() {
-                    CompletableFuture.runAsync(() -> notificationClient.sendBookingConfirmedNotification(request));
+                    action.run();
                 }
             });
             return;
         }
-        CompletableFuture.runAsync(() -> this.notificationClient.sendBookingConfirmedNotification(request));
+        action.run();
     }
 
-    private void sendBookingCancelledNotificationAfterCommit(BookingDto dto, String reason) {
-        BookingStatusNotificationRequest request = this.buildBookingStatusNotificationRequest(dto, reason);
-        if (request == null) {
-            return;
-        }
+    private void releaseSlotAfterCommit(TimeSlot slot) {
         if (TransactionSynchronizationManager.isSynchronizationActive()) {
             TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
                 @Override
                 public void afterCommit() {
-                    CompletableFuture.runAsync(() -> notificationClient.sendBookingCancelledNotification(request));
+                    slotReservationGate.release(slot.getId());
+                    slotAvailabilityIndex.apply(slot);
+                    slotDeltaPublisher.freed(slot);
                 }
             });
             return;
         }
-        CompletableFuture.runAsync(() -> this.notificationClient.sendBookingCancelledNotification(request));
+        this.slotReservationGate.release(slot.getId());
+        this.slotAvailabilityIndex.apply(slot);
+        this.slotDeltaPublisher.freed(slot);
+    }
+
+    // Thong bao di qua booking_outbox: ghi cung transaction, BookingOutboxRelay gui sau khi commit
+    private void enqueueBookingCreatedEmail(BookingDto dto) {
+        BookingCreatedEmailRequest emailRequest = this.buildBookingCreatedEmailRequest(dto);
+        if (emailRequest == null) {
+            return;
+        }
+        this.bookingOutbox.append(BookingOutbox.BOOKING_CREATED, dto.getId(), emailRequest);
+    }
+
+    private void enqueueBookingConfirmedNotification(BookingDto dto) {
+        BookingStatusNotificationRequest request = this.buildBookingStatusNotificationRequest(dto, null);
+        if (request == null) {
+            return;
+        }
+        this.bookingOutbox.append(BookingOutbox.BOOKING_CONFIRMED, dto.getId(), request);
+    }
+
+    private void enqueueBookingCancelledNotification(BookingDto dto, String reason) {
+        BookingStatusNotificationRequest request = this.buildBookingStatusNotificationRequest(dto, reason);
+        if (request == null) {
+            return;
+        }
+        this.bookingOutbox.append(BookingOutbox.BOOKING_CANCELLED, dto.getId(), request);
     }
 
     private BookingCreatedEmailRequest buildBookingCreatedEmailRequest(BookingDto dto) {
@@ -634,8 +749,11 @@ public class BookingService {
 
     private PatientContact findPatientContact(UUID patientId) {
         try {
-            Map row = this.jdbcTemplate.queryForMap("SELECT email, full_name FROM users WHERE id = ?", new Object[]{patientId});
-            return new PatientContact(this.asString(row.get("email")), this.asString(row.get("full_name")));
+            ReferenceDataCache.PatientRef patient = this.referenceDataCache.getPatient(patientId);
+            if (patient == null) {
+                return null;
+            }
+            return new PatientContact(patient.email(), patient.userFullName());
         }
         catch (Exception e) {
             log.warn("Could not fetch patient email for {}: {}", (Object)patientId, (Object)e.getMessage());
@@ -658,9 +776,23 @@ public class BookingService {
         return null;
     }
 
+    private Booking saveBooking(Booking booking) {
+        Booking saved = (Booking)this.bookingRepository.save(booking);
+        // booking_view duoc dung lai truoc commit, cung transaction voi booking
+        this.bookingViewProjector.bookingChanged(saved.getId());
+        return saved;
+    }
+
     private void saveStatusHistory(Booking booking, BookingStatus oldStatus, BookingStatus newStatus, UUID changedBy, String reason) {
-        BookingStatusHistory history = BookingStatusHistory.builder().booking(booking).oldStatus(oldStatus).newStatus(newStatus).changedBy(changedBy).reason(reason).build();
-        this.statusHistoryRepository.save(history);
+        // Ghi theo lo (BookingStatusHistoryWriter): ASYNC sau commit, SYNC mot lo truoc commit
+        this.statusHistoryWriter.record(booking.getId(), oldStatus, newStatus, changedBy, reason);
+        LocalDate slotDate = booking.getTimeSlot() != null ? booking.getTimeSlot().getDate() : null;
+        // analytics-service gop theo ngay tao booking
+        LocalDate createdDay = booking.getCreatedAt() != null ? booking.getCreatedAt().toLocalDate() : LocalDate.now();
+        this.runAfterCommit(() -> {
+            this.bookingStatsEngine.transition(slotDate, oldStatus, newStatus);
+            this.analyticsClient.bookingChanged(createdDay);
+        });
     }
 
     private BookingDto toDtoRaw(Booking booking) {
@@ -675,81 +807,66 @@ public class BookingService {
         Set<UUID> patientIds = dtos.stream().map(BookingDto::getPatientId).filter(Objects::nonNull).collect(Collectors.toSet());
         Set<UUID> doctorIds = dtos.stream().map(BookingDto::getDoctorId).filter(Objects::nonNull).collect(Collectors.toSet());
         Set<UUID> serviceIds = dtos.stream().map(BookingDto::getServiceId).filter(Objects::nonNull).collect(Collectors.toSet());
-        Map<UUID, Map<String, String>> patientMap = new HashMap<>();
-        Map<UUID, Map<String, String>> doctorMap = new HashMap<>();
-        Map<UUID, String> serviceMap = new HashMap<>();
-        if (!patientIds.isEmpty()) {
-            try {
-                String inSql = patientIds.stream().map(id -> "?").collect(Collectors.joining(","));
-                String query = String.format("SELECT user_id, full_name, avatar_url FROM profiles WHERE user_id IN (%s)", inSql);
-                List<Map<String, Object>> rows = this.jdbcTemplate.queryForList(query, patientIds.toArray());
-                for (Map<String, Object> row : rows) {
-                    UUID userId = (UUID)row.get("user_id");
-                    Map<String, String> info = new HashMap<>();
-                    info.put("full_name", (String)row.get("full_name"));
-                    info.put("avatar_url", (String)row.get("avatar_url"));
-                    patientMap.put(userId, info);
-                }
-            }
-            catch (Exception e) {
-                log.warn("Error fetching patient profiles in batch: {}", (Object)e.getMessage());
-            }
+        Map<UUID, ReferenceDataCache.PatientRef> patientMap = Map.of();
+        Map<UUID, ReferenceDataCache.DoctorRef> doctorMap = Map.of();
+        Map<UUID, ReferenceDataCache.ServiceRef> serviceMap = Map.of();
+        try {
+            patientMap = this.referenceDataCache.getPatients(patientIds);
         }
-        if (!doctorIds.isEmpty()) {
-            try {
-                String inSql = doctorIds.stream().map(id -> "?").collect(Collectors.joining(","));
-                String query = String.format("SELECT id, full_name, avatar_url FROM doctors WHERE id IN (%s)", inSql);
-                List<Map<String, Object>> rows = this.jdbcTemplate.queryForList(query, doctorIds.toArray());
-                for (Map<String, Object> row : rows) {
-                    UUID docId = (UUID)row.get("id");
-                    Map<String, String> info = new HashMap<>();
-                    info.put("full_name", (String)row.get("full_name"));
-                    info.put("avatar_url", (String)row.get("avatar_url"));
-                    doctorMap.put(docId, info);
-                }
-            }
-            catch (Exception e) {
-                log.warn("Error fetching doctor profiles in batch: {}", (Object)e.getMessage());
-            }
+        catch (Exception e) {
+            log.warn("Error fetching patient profiles in batch: {}", (Object)e.getMessage());
         }
-        if (!serviceIds.isEmpty()) {
-            try {
-                String inSql = serviceIds.stream().map(id -> "?").collect(Collectors.joining(","));
-                String query = String.format("SELECT id, name FROM medical_services WHERE id IN (%s)", inSql);
-                List<Map<String, Object>> rows = this.jdbcTemplate.queryForList(query, serviceIds.toArray());
-                for (Map<String, Object> row : rows) {
-                    UUID srvId = (UUID)row.get("id");
-                    serviceMap.put(srvId, (String)row.get("name"));
-                }
-            }
-            catch (Exception e) {
-                log.warn("Error fetching medical services in batch: {}", (Object)e.getMessage());
-            }
+        try {
+            doctorMap = this.referenceDataCache.getDoctors(doctorIds);
+        }
+        catch (Exception e) {
+            log.warn("Error fetching doctor profiles in batch: {}", (Object)e.getMessage());
+        }
+        try {
+            serviceMap = this.referenceDataCache.getServices(serviceIds);
+        }
+        catch (Exception e) {
+            log.warn("Error fetching medical services in batch: {}", (Object)e.getMessage());
         }
         for (BookingDto dto : dtos) {
-            if (dto.getPatientId() != null && patientMap.containsKey(dto.getPatientId())) {
-                Map<String, String> info2 = patientMap.get(dto.getPatientId());
-                dto.setPatientName(info2.get("full_name"));
-                dto.setPatientAvatar(info2.get("avatar_url"));
+            ReferenceDataCache.PatientRef patient = dto.getPatientId() != null ? patientMap.get(dto.getPatientId()) : null;
+            if (patient != null) {
+                dto.setPatientName(patient.fullName());
+                dto.setPatientAvatar(patient.avatarUrl());
             }
-            if (dto.getDoctorId() != null && doctorMap.containsKey(dto.getDoctorId())) {
-                Map<String, String> info2 = doctorMap.get(dto.getDoctorId());
-                dto.setDoctorName(info2.get("full_name"));
-                dto.setDoctorAvatar(info2.get("avatar_url"));
+            ReferenceDataCache.DoctorRef doctor = dto.getDoctorId() != null ? doctorMap.get(dto.getDoctorId()) : null;
+            if (doctor != null) {
+                dto.setDoctorName(doctor.fullName());
+                dto.setDoctorAvatar(doctor.avatarUrl());
             }
-            if (dto.getServiceId() == null || !serviceMap.containsKey(dto.getServiceId())) continue;
-            dto.setServiceName(serviceMap.get(dto.getServiceId()));
+            ReferenceDataCache.ServiceRef service = dto.getServiceId() != null ? serviceMap.get(dto.getServiceId()) : null;
+            if (service == null) continue;
+            dto.setServiceName(service.name());
         }
     }
 
+    private List<TimeSlotDto> toSlotDtos(List<TimeSlot> slots) {
+        if (slots.isEmpty()) {
+            return List.of();
+        }
+        try {
+            // Nap truoc tat ca bac si trong mot cau IN, cac toSlotDto ben duoi chi doc tu cache
+            this.referenceDataCache.getDoctors(slots.stream().map(TimeSlot::getDoctorId).collect(Collectors.toSet()));
+        }
+        catch (Exception e) {
+            log.warn("Error fetching doctor profiles in batch: {}", (Object)e.getMessage());
+        }
+        return slots.stream().map(this::toSlotDto).collect(Collectors.toList());
+    }
+
     private TimeSlotDto toSlotDto(TimeSlot slot) {
         String doctorName = null;
         String doctorAvatar = null;
         try {
-            List<Map<String, Object>> doctor = this.jdbcTemplate.queryForList("SELECT full_name, avatar_url FROM doctors WHERE id = ?", new Object[]{slot.getDoctorId()});
-            if (!doctor.isEmpty()) {
-                doctorName = (String)doctor.get(0).get("full_name");
-                doctorAvatar = (String)doctor.get(0).get("avatar_url");
+            ReferenceDataCache.DoctorRef doctor = this.referenceDataCache.getDoctor(slot.getDoctorId());
+            if (doctor != null) {
+                doctorName = doctor.fullName();
+                doctorAvatar = doctor.avatarUrl();
             }
         }
         catch (Exception e) {
@@ -764,7 +881,8 @@ public class BookingService {
         this.timeSlotRepository.deleteAll(existingSlots);
         List<TimeSlot> slots = IntStream.range(8, 17).mapToObj(hour -> TimeSlot.builder().doctorId(doctorId).date(date).startTime(LocalTime.of(hour, 0)).endTime(LocalTime.of(hour + 1, 0)).isAvailable(Boolean.valueOf(true)).build()).collect(Collectors.toList());
         slots = this.timeSlotRepository.saveAll(slots);
-        return slots.stream().map(this::toSlotDto).collect(Collectors.toList());
+        this.runAfterCommit(() -> this.slotAvailabilityIndex.reloadDay(doctorId, date));
+        return this.toSlotDtos(slots);
     }
 
     @Transactional
@@ -810,7 +928,29 @@ public class BookingService {
             }
             return a.getStartTime().compareTo(b.getStartTime());
         });
-        return slots.stream().map(this::toSlotDto).collect(Collectors.toList());
+        return this.toSlotDtos(slots);
+    }
+
+    @Transactional(readOnly=true)
+    public CursorPage<TimeSlotDto> getAllSlotsPage(String status, LocalDate startDate, LocalDate endDate, String cursor, int size) {
+        SlotStatus slotStatus = null;
+        if (status != null && !status.isEmpty()) {
+            try {
+                slotStatus = SlotStatus.valueOf(status.toUpperCase());
+            }
+            catch (IllegalArgumentException e) {
+                log.warn("Invalid status filter: {}", (Object)status);
+            }
+        }
+        int pageSize = Math.max(1, Math.min(size, MAX_SLOT_PAGE_SIZE));
+        List<TimeSlot> slots = this.timeSlotSearchRepository.findPage(slotStatus, startDate, endDate, SlotCursor.decode(cursor), pageSize + 1);
+        String nextCursor = null;
+        if (slots.size() > pageSize) {
+            slots = slots.subList(0, pageSize);
+            TimeSlot last = slots.get(pageSize - 1);
+            nextCursor = new SlotCursor(last.getDate(), last.getStartTime(), last.getId()).encode();
+        }
+        return CursorPage.of(this.toSlotDtos(slots), pageSize, nextCursor);
     }
 
     @Transactional(readOnly=true)
@@ -820,67 +960,93 @@ public class BookingService {
 
     @Transactional(readOnly=true)
     public List<TimeSlotDto> getPendingSlots() {
-        return this.timeSlotRepository.findByStatus(SlotStatus.PENDING).stream().map(this::toSlotDto).collect(Collectors.toList());
+        return this.toSlotDtos(this.timeSlotRepository.findByStatus(SlotStatus.PENDING));
     }
 
     @Transactional
     public TimeSlotDto approveSlot(UUID slotId) {
         TimeSlot slot = this.timeSlotRepository.findById(slotId).orElseThrow(() -> new ResourceNotFoundException("TimeSlot", "id", slotId));
         slot.setStatus(SlotStatus.APPROVED);
-        slot = this.timeSlotRepository.save(slot);
+        TimeSlot saved = this.timeSlotRepository.save(slot);
         log.info("Slot {} approved", (Object)slotId);
-        return this.toSlotDto(slot);
+        TimeSlotDto dto = this.toSlotDto(saved);
+        this.runAfterCommit(() -> {
+            this.slotAvailabilityIndex.apply(saved);
+            this.slotDeltaPublisher.approved(List.of(saved));
+            this.slotNotificationService.notifySlotApproved(dto);
+        });
+        return dto;
     }
 
     @Transactional
     public TimeSlotDto rejectSlot(UUID slotId) {
         TimeSlot slot = this.timeSlotRepository.findById(slotId).orElseThrow(() -> new ResourceNotFoundException("TimeSlot", "id", slotId));
         slot.setStatus(SlotStatus.REJECTED);
-        slot = this.timeSlotRepository.save(slot);
+        TimeSlot saved = this.timeSlotRepository.save(slot);
         log.info("Slot {} rejected", (Object)slotId);
-        return this.toSlotDto(slot);
+        TimeSlotDto dto = this.toSlotDto(saved);
+        this.runAfterCommit(() -> {
+            this.slotAvailabilityIndex.apply(saved);
+            this.slotDeltaPublisher.removed(List.of(saved));
+            this.slotNotificationService.notifySlotRejected(dto);
+        });
+        return dto;
     }
 
+    // Duyet / tu choi hang loat: mot cau UPDATE ... WHERE id = ANY(?) AND status = 'PENDING' RETURNING,
+    // sau commit gui MOT message WebSocket chua tat ca slot bi anh huong
     @Transactional
     public int approveBulkSlots(List<UUID> slotIds) {
-        int count = 0;
-        for (UUID slotId : slotIds) {
-            try {
-                TimeSlot slot = this.timeSlotRepository.findById(slotId).orElse(null);
-                if (slot == null || slot.getStatus() != SlotStatus.PENDING) continue;
-                slot.setStatus(SlotStatus.APPROVED);
-                this.timeSlotRepository.save(slot);
-                ++count;
-            }
-            catch (Exception e) {
-                log.warn("Failed to approve slot {}: {}", (Object)slotId, (Object)e.getMessage());
-            }
-        }
-        log.info("Bulk approved {} slots", (Object)count);
-        return count;
+        List<TimeSlot> approved = this.timeSlotBulkRepository.updatePendingStatus(slotIds, SlotStatus.APPROVED);
+        log.info("Bulk approved {} slots", (Object)approved.size());
+        List<TimeSlotDto> dtos = this.toSlotDtos(approved);
+        this.runAfterCommit(() -> {
+            this.slotAvailabilityIndex.applyAll(approved);
+            this.slotDeltaPublisher.approved(approved);
+            this.slotNotificationService.notifySlotsApproved(dtos);
+        });
+        return approved.size();
+    }
+
+    @Transactional
+    public int approvePendingSlotsByDoctor(UUID doctorId, LocalDate startDate, LocalDate endDate) {
+        if (doctorId == null || startDate == null || endDate == null) {
+            throw new BadRequestException("doctorId, startDate v\u00e0 endDate l\u00e0 b\u1eaft bu\u1ed9c");
+        }
+        if (endDate.isBefore(startDate)) {
+            throw new BadRequestException("endDate ph\u1ea3i sau ho\u1eb7c b\u1eb1ng startDate");
+        }
+        List<TimeSlot> approved = this.timeSlotBulkRepository.updatePendingStatusByDoctor(doctorId, startDate, endDate, SlotStatus.APPROVED);
+        log.info("Approved {} pending slots of doctor {} from {} to {}", new Object[]{approved.size(), doctorId, startDate, endDate});
+        List<TimeSlotDto> dtos = this.toSlotDtos(approved);
+        this.runAfterCommit(() -> {
+            this.slotAvailabilityIndex.applyAll(approved);
+            this.slotDeltaPublisher.approved(approved);
+            this.slotNotificationService.notifySlotsApproved(dtos);
+        });
+        return approved.size();
     }
 
     @Transactional
     public int rejectBulkSlots(List<UUID> slotIds) {
-        int count = 0;
-        for (UUID slotId : slotIds) {
-            try {
-                TimeSlot slot = this.timeSlotRepository.findById(slotId).orElse(null);
-                if (slot == null || slot.getStatus() != SlotStatus.PENDING) continue;
-                slot.setStatus(SlotStatus.REJECTED);
-                this.timeSlotRepository.save(slot);
-                ++count;
-            }
-            catch (Exception e) {
-                log.warn("Failed to reject slot {}: {}", (Object)slotId, (Object)e.getMessage());
-            }
-        }
-        log.info("Bulk rejected {} slots", (Object)count);
-        return count;
+        List<TimeSlot> rejected = this.timeSlotBulkRepository.updatePendingStatus(slotIds, SlotStatus.REJECTED);
+        log.info("Bulk rejected {} slots", (Object)rejected.size());
+        List<TimeSlotDto> dtos = this.toSlotDtos(rejected);
+        this.runAfterCommit(() -> {
+            this.slotAvailabilityIndex.applyAll(rejected);
+            this.slotDeltaPublisher.removed(rejected);
+            this.slotNotificationService.notifySlotsRejected(dtos);
+        });
+        return rejected.size();
     }
 
     @Transactional(readOnly=true)
     public BookingStatsDto getBookingStats() {
+        // Bo dem in-memory (BookingStatsEngine); chua nap xong thi dem tren DB, khong co % thay doi
+        BookingStatsDto stats = this.bookingStatsEngine.snapshot();
+        if (stats != null) {
+            return stats;
+        }
         LocalDate today = LocalDate.now();
         long totalToday = this.bookingRepository.countByDate(today);
         long pending = 0L;
@@ -906,7 +1072,7 @@ public class BookingService {
             if (status != BookingStatus.CANCELED && status != BookingStatus.CANCELLED) continue;
             canceled += count;
         }
-        return BookingStatsDto.builder().totalToday((int)totalToday).pendingCount((int)pending).confirmedCount((int)confirmed).completedCount((int)completed).canceledCount((int)canceled).todayChangePercent(5.0).pendingChangePercent(-2.0).completedChangePercent(10.0).build();
+        return BookingStatsDto.builder().totalToday((int)totalToday).pendingCount((int)pending).confirmedCount((int)confirmed).completedCount((int)completed).canceledCount((int)canceled).todayChangePercent(0.0).pendingChangePercent(0.0).completedChangePercent(0.0).build();
     }
 
     @Transactional
@@ -920,14 +1086,28 @@ public class BookingService {
     }
 
     @Generated
-    public BookingService(BookingRepository bookingRepository, TimeSlotRepository timeSlotRepository, BookingStatusHistoryRepository statusHistoryRepository, JdbcTemplate jdbcTemplate, SlotNotificationService slotNotificationService, NotificationClient notificationClient, ZaloPayService zaloPayService) {
+    public BookingService(BookingRepository bookingRepository, TimeSlotRepository timeSlotRepository, TimeSlotSearchRepository timeSlotSearchRepository, TimeSlotBulkRepository timeSlotBulkRepository, BookingStatusHistoryWriter statusHistoryWriter, JdbcTemplate jdbcTemplate, SlotNotificationService slotNotificationService, ZaloPayService zaloPayService, ReferenceDataCache referenceDataCache, SlotReservationGate slotReservationGate, SlotClaimService slotClaimService, SlotAvailabilityIndex slotAvailabilityIndex, SlotDeltaPublisher slotDeltaPublisher, PaymentHoldQueue paymentHoldQueue, BookingOutbox bookingOutbox, BookingViewRepository bookingViewRepository, BookingViewProjector bookingViewProjector, BookingStatsEngine bookingStatsEngine, AnalyticsClient analyticsClient, PlatformTransactionManager transactionManager) {
         this.bookingRepository = bookingRepository;
         this.timeSlotRepository = timeSlotRepository;
-        this.statusHistoryRepository = statusHistoryRepository;
+        this.timeSlotSearchRepository = timeSlotSearchRepository;
+        this.timeSlotBulkRepository = timeSlotBulkRepository;
+        this.statusHistoryWriter = statusHistoryWriter;
         this.jdbcTemplate = jdbcTemplate;
         this.slotNotificationService = slotNotificationService;
-        this.notificationClient = notificationClient;
         this.zaloPayService = zaloPayService;
+        this.referenceDataCache = referenceDataCache;
+        this.slotReservationGate = slotReservationGate;
+        this.slotClaimService = slotClaimService;
+        this.slotAvailabilityIndex = slotAvailabilityIndex;
+        this.slotDeltaPublisher = slotDeltaPublisher;
+        this.paymentHoldQueue = paymentHoldQueue;
+        this.bookingOutbox = bookingOutbox;
+        this.bookingViewRepository = bookingViewRepository;
+        this.bookingViewProjector = bookingViewProjector;
+        this.bookingStatsEngine = bookingStatsEngine;
+        this.analyticsClient = analyticsClient;
+        this.createBookingTransaction = new TransactionTemplate(transactionManager);
+        this.createBookingTransaction.setIsolationLevel(slotClaimService.isolationLevel());
     }
 
     private record PatientContact(String email, String fullName) {
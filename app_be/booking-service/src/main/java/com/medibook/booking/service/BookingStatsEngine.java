@@ -0,0 +1,245 @@
+package com.medibook.booking.service;
+
+import com.medibook.booking.dto.BookingStatsDto;
+import com.medibook.booking.repository.BookingStatsRepository;
+import com.medibook.common.enums.BookingStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thống kê booking cho /bookings/admin/stats giữ trong bộ nhớ:
+ * <ul>
+ * <li>số booking hiện tại theo trạng thái</li>
+ * <li>số booking theo ngày khám</li>
+ * <li>số lần chuyển sang từng trạng thái theo ngày (đặt mới, hoàn thành...)</li>
+ * </ul>
+ * Nạp từ DB lúc khởi động, BookingService cập nhật sau mỗi lần chuyển trạng thái đã commit,
+ * nên endpoint trả lời O(1) với % thay đổi so với hôm qua thật. Các bộ đếm theo ngày chỉ giữ
+ * window-days ngày gần nhất. Job đối soát định kỳ nạp lại từ DB để sửa lệch (instance khác ghi,
+ * ghi trực tiếp vào DB...).
+ */
+@Slf4j
+@Component
+public class BookingStatsEngine {
+
+    // Đối soát bị hoãn vì có ghi đồng thời quá số lần này thì vẫn thay bằng số liệu DB
+    private static final int MAX_DEFERRED_RECONCILES = 3;
+
+    private final BookingStatsRepository repository;
+    private final int windowDays;
+    private final Counter drift;
+    // Số sự kiện đã áp dụng - đối soát chỉ thay số liệu khi không có ghi xen giữa lúc đọc DB
+    private final AtomicLong appliedEvents = new AtomicLong();
+
+    private volatile Counts counts = new Counts();
+    private volatile boolean ready;
+    private volatile ReconcileReport lastReconcile;
+    private int deferredReconciles;
+
+    public BookingStatsEngine(
+            BookingStatsRepository repository,
+            MeterRegistry meterRegistry,
+            @Value("${booking.stats.window-days:31}") int windowDays) {
+        this.repository = repository;
+        this.windowDays = Math.max(2, windowDays);
+        this.drift = Counter.builder("booking.stats.drift")
+                .description("Số bộ đếm thống kê lệch so với DB và đã được sửa")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        try {
+            reconcile(true);
+        } catch (Exception e) {
+            // Chưa nạp được thì getBookingStats vẫn đếm trên DB như cũ
+            log.error("Could not load booking stats: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Một booking chuyển trạng thái (from = null: booking mới). Gọi sau khi transaction commit.
+     */
+    public void transition(LocalDate slotDate, BookingStatus from, BookingStatus to) {
+        Counts current = counts;
+        if (from == null && slotDate != null) {
+            current.bySlotDate.computeIfAbsent(slotDate, d -> new AtomicLong()).incrementAndGet();
+        }
+        if (from != null) {
+            current.byStatus.get(from).decrementAndGet();
+        }
+        if (to != null) {
+            current.byStatus.get(to).incrementAndGet();
+            current.entered(LocalDate.now()).get(to).incrementAndGet();
+        }
+        appliedEvents.incrementAndGet();
+    }
+
+    /**
+     * Thống kê hiện tại; null khi chưa nạp xong (caller đếm trên DB)
+     */
+    public BookingStatsDto snapshot() {
+        if (!ready) {
+            return null;
+        }
+        Counts current = counts;
+        LocalDate today = LocalDate.now();
+        LocalDate yesterday = today.minusDays(1);
+        long totalToday = current.slotDate(today);
+        return BookingStatsDto.builder()
+                .totalToday((int) totalToday)
+                .pendingCount((int) current.status(BookingStatus.PENDING))
+                .confirmedCount((int) current.status(BookingStatus.CONFIRMED))
+                .completedCount((int) current.status(BookingStatus.COMPLETED))
+                .canceledCount((int) (current.status(BookingStatus.CANCELED) + current.status(BookingStatus.CANCELLED)))
+                .todayChangePercent(changePercent(totalToday, current.slotDate(yesterday)))
+                .pendingChangePercent(changePercent(current.entered(today, BookingStatus.PENDING),
+                        current.entered(yesterday, BookingStatus.PENDING)))
+                .completedChangePercent(changePercent(current.entered(today, BookingStatus.COMPLETED),
+                        current.entered(yesterday, BookingStatus.COMPLETED)))
+                .build();
+    }
+
+    @Scheduled(fixedDelayString = "${booking.stats.reconcile-interval-millis:600000}",
+            initialDelayString = "${booking.stats.reconcile-interval-millis:600000}")
+    public void scheduledReconcile() {
+        try {
+            reconcile(false);
+        } catch (Exception e) {
+            log.warn("Booking stats reconciliation failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Nạp lại số liệu từ DB, so với bộ nhớ và thay thế. force = false: nếu có booking chuyển trạng thái
+     * trong lúc đọc DB thì hoãn sang lần sau (không biết sự kiện đó đã nằm trong kết quả DB hay chưa).
+     */
+    public synchronized ReconcileReport reconcile(boolean force) {
+        long started = System.nanoTime();
+        LocalDate from = LocalDate.now().minusDays(windowDays - 1L);
+        long eventsBefore = appliedEvents.get();
+        Counts loaded = new Counts();
+        repository.countByStatus().forEach((status, total) -> loaded.byStatus.get(status).set(total));
+        repository.countBySlotDate(from).forEach((date, total) -> loaded.bySlotDate.put(date, new AtomicLong(total)));
+        repository.countTransitionsByDay(from).forEach((day, byStatus) ->
+                byStatus.forEach((status, total) -> loaded.entered(day).get(status).set(total)));
+
+        int mismatched = ready ? counts.diff(loaded, from) : 0;
+        boolean concurrentWrites = appliedEvents.get() != eventsBefore;
+        boolean apply = force || !ready || !concurrentWrites || ++deferredReconciles >= MAX_DEFERRED_RECONCILES;
+        if (apply) {
+            counts = loaded;
+            ready = true;
+            deferredReconciles = 0;
+            if (mismatched > 0) {
+                drift.increment(mismatched);
+                log.warn("Booking stats drift: {} counters differ from DB, replaced", mismatched);
+            }
+        }
+        ReconcileReport report = new ReconcileReport(mismatched, apply,
+                Duration.ofNanos(System.nanoTime() - started).toMillis(), LocalDateTime.now());
+        lastReconcile = report;
+        return report;
+    }
+
+    public ReconcileReport getLastReconcile() {
+        return lastReconcile;
+    }
+
+    static double changePercent(long today, long yesterday) {
+        if (yesterday == 0) {
+            return today == 0 ? 0.0 : 100.0;
+        }
+        return Math.round((today - yesterday) * 1000.0 / yesterday) / 10.0;
+    }
+
+    /**
+     * Bộ đếm; cả bộ được thay mới mỗi lần đối soát
+     */
+    private static final class Counts {
+        private final Map<BookingStatus, AtomicLong> byStatus = newStatusCounters();
+        private final Map<LocalDate, AtomicLong> bySlotDate = new ConcurrentHashMap<>();
+        private final Map<LocalDate, Map<BookingStatus, AtomicLong>> enteredByDay = new ConcurrentHashMap<>();
+
+        long status(BookingStatus status) {
+            return byStatus.get(status).get();
+        }
+
+        long slotDate(LocalDate date) {
+            AtomicLong total = bySlotDate.get(date);
+            return total != null ? total.get() : 0L;
+        }
+
+        Map<BookingStatus, AtomicLong> entered(LocalDate day) {
+            return enteredByDay.computeIfAbsent(day, d -> newStatusCounters());
+        }
+
+        long entered(LocalDate day, BookingStatus status) {
+            Map<BookingStatus, AtomicLong> counters = enteredByDay.get(day);
+            return counters != null ? counters.get(status).get() : 0L;
+        }
+
+        /**
+         * Số bộ đếm khác nhau giữa bộ nhớ và DB (bộ đếm theo ngày chỉ so trong window)
+         */
+        int diff(Counts db, LocalDate from) {
+            int mismatched = 0;
+            for (BookingStatus status : BookingStatus.values()) {
+                if (status(status) != db.status(status)) {
+                    mismatched++;
+                }
+            }
+            Set<LocalDate> dates = new HashSet<>(bySlotDate.keySet());
+            dates.addAll(db.bySlotDate.keySet());
+            for (LocalDate date : dates) {
+                if (!date.isBefore(from) && slotDate(date) != db.slotDate(date)) {
+                    mismatched++;
+                }
+            }
+            Set<LocalDate> days = new HashSet<>(enteredByDay.keySet());
+            days.addAll(db.enteredByDay.keySet());
+            for (LocalDate day : days) {
+                if (day.isBefore(from)) {
+                    continue;
+                }
+                for (BookingStatus status : BookingStatus.values()) {
+                    if (entered(day, status) != db.entered(day, status)) {
+                        mismatched++;
+                    }
+                }
+            }
+            return mismatched;
+        }
+
+        private static Map<BookingStatus, AtomicLong> newStatusCounters() {
+            Map<BookingStatus, AtomicLong> counters = new EnumMap<>(BookingStatus.class);
+            for (BookingStatus status : BookingStatus.values()) {
+                counters.put(status, new AtomicLong());
+            }
+            return counters;
+        }
+    }
+
+    public record ReconcileReport(
+            int mismatched,
+            boolean applied,
+            long durationMillis,
+            LocalDateTime checkedAt
+    ) {}
+}
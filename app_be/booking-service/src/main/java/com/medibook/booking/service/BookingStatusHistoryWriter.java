@@ -0,0 +1,259 @@
+package com.medibook.booking.service;
+
+import com.medibook.booking.dto.BookingStatusHistoryDto;
+import com.medibook.booking.repository.BookingStatusHistoryBatchRepository;
+import com.medibook.common.enums.BookingStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ghi lịch sử trạng thái booking ra khỏi transaction đặt / xác nhận / hủy lịch.
+ * <ul>
+ * <li>ASYNC (mặc định): sau commit, dòng lịch sử vào hàng đợi trong bộ nhớ và được ghi theo lô
+ * mỗi batch-size dòng hoặc flush-interval-millis. Lần đổi trạng thái vẫn bền vững ngay trong
+ * transaction nhờ trigger tr_log_booking_status (WAL của Postgres); lô ghi sau chỉ gắn
+ * người đổi / lý do, và khởi động lại thì bù dòng "đặt lịch mới" còn thiếu.</li>
+ * <li>SYNC: các dòng của transaction được ghi thành một lô ngay trước commit.</li>
+ * </ul>
+ */
+@Slf4j
+@Service
+public class BookingStatusHistoryWriter {
+
+    public enum Mode {
+        SYNC,
+        ASYNC
+    }
+
+    private static final String RECOVERED_REASON = "Khôi phục sau khi dịch vụ khởi động lại";
+
+    private final BookingStatusHistoryBatchRepository repository;
+    private final Mode mode;
+    private final int batchSize;
+    private final int maxQueueSize;
+    private final long recoveryLookbackHours;
+    private final ConcurrentLinkedDeque<BookingStatusHistoryDto> queue = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final ScheduledExecutorService flusher;
+    private final Counter written;
+    private final Counter failures;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public BookingStatusHistoryWriter(
+            BookingStatusHistoryBatchRepository repository,
+            MeterRegistry meterRegistry,
+            @Value("${booking.status-history.mode:ASYNC}") Mode mode,
+            @Value("${booking.status-history.batch-size:100}") int batchSize,
+            @Value("${booking.status-history.flush-interval-millis:200}") long flushIntervalMillis,
+            @Value("${booking.status-history.max-queue-size:10000}") int maxQueueSize,
+            @Value("${booking.status-history.recovery-lookback-hours:24}") long recoveryLookbackHours) {
+        this.repository = repository;
+        this.mode = mode;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxQueueSize = Math.max(this.batchSize, maxQueueSize);
+        this.recoveryLookbackHours = recoveryLookbackHours;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "status-history-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.written = Counter.builder("booking.status-history.written").register(meterRegistry);
+        this.failures = Counter.builder("booking.status-history.failures").register(meterRegistry);
+        Gauge.builder("booking.status-history.queue", queued, AtomicInteger::get).register(meterRegistry);
+        if (mode == Mode.ASYNC) {
+            long interval = Math.max(10L, flushIntervalMillis);
+            flusher.scheduleWithFixedDelay(this::flushSafely, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Ghi nhận một lần chuyển trạng thái; gọi trong transaction của thay đổi booking
+     */
+    public void record(UUID bookingId, BookingStatus oldStatus, BookingStatus newStatus, UUID changedBy, String reason) {
+        BookingStatusHistoryDto entry = BookingStatusHistoryDto.builder()
+                .id(UUID.randomUUID())
+                .bookingId(bookingId)
+                .oldStatus(oldStatus)
+                .newStatus(newStatus)
+                .changedBy(changedBy)
+                .reason(reason)
+                .changedAt(LocalDateTime.now())
+                .build();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            repository.writeBatch(List.of(entry));
+            written.increment();
+            return;
+        }
+        if (mode == Mode.SYNC) {
+            pendingInTransaction().add(entry);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                enqueue(entry);
+            }
+        });
+    }
+
+    /**
+     * Lịch sử của booking, mới nhất trước - gồm cả các dòng còn trong hàng đợi
+     */
+    public List<BookingStatusHistoryDto> findHistory(UUID bookingId) {
+        List<BookingStatusHistoryDto> history = new ArrayList<>(repository.findByBookingId(bookingId));
+        for (BookingStatusHistoryDto pending : queue) {
+            if (!bookingId.equals(pending.getBookingId())) {
+                continue;
+            }
+            // Dòng của trigger cho cùng lần đổi trạng thái sẽ được gắn người đổi / lý do khi lô được ghi
+            history.stream()
+                    .filter(row -> row.getNewStatus() == pending.getNewStatus()
+                            && row.getChangedBy() == null && row.getReason() == null)
+                    .findFirst()
+                    .ifPresent(history::remove);
+            if (history.stream().noneMatch(row -> row.getId().equals(pending.getId()))) {
+                history.add(pending);
+            }
+        }
+        history.sort(Comparator.comparing(BookingStatusHistoryDto::getChangedAt,
+                Comparator.nullsLast(Comparator.reverseOrder())));
+        return history;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverOnStartup() {
+        if (mode != Mode.ASYNC) {
+            return;
+        }
+        try {
+            int recovered = repository.insertMissingCreations(
+                    LocalDateTime.now().minusHours(recoveryLookbackHours), RECOVERED_REASON);
+            if (recovered > 0) {
+                log.warn("Recovered {} booking creation history rows lost before shutdown", recovered);
+            }
+        } catch (Exception e) {
+            log.warn("Could not recover booking status history: {}", e.getMessage());
+        }
+    }
+
+    private void enqueue(BookingStatusHistoryDto entry) {
+        if (queued.get() >= maxQueueSize) {
+            // Hàng đợi đầy (DB chậm / lỗi kéo dài) - ghi trực tiếp để không mất dòng và tạo áp lực ngược
+            try {
+                repository.writeBatch(List.of(entry));
+                written.increment();
+            } catch (Exception e) {
+                failures.increment();
+                log.error("Could not write status history for booking {}: {}", entry.getBookingId(), e.getMessage());
+            }
+            return;
+        }
+        queue.addLast(entry);
+        if (queued.incrementAndGet() >= batchSize && flushRequested.compareAndSet(false, true)) {
+            flusher.execute(this::flushSafely);
+        }
+    }
+
+    private void flushSafely() {
+        flushRequested.set(false);
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("Status history flush failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Ghi hết hàng đợi theo lô. Lô lỗi được ghi lại từng dòng; dòng vẫn lỗi (ví dụ booking đã bị xóa) bị bỏ.
+     */
+    synchronized void flush() {
+        while (true) {
+            List<BookingStatusHistoryDto> batch = new ArrayList<>(batchSize);
+            BookingStatusHistoryDto entry;
+            while (batch.size() < batchSize && (entry = queue.pollFirst()) != null) {
+                batch.add(entry);
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                repository.writeBatch(batch);
+                written.increment(batch.size());
+            } catch (Exception e) {
+                log.warn("Status history batch of {} failed, retrying row by row: {}", batch.size(), e.getMessage());
+                writeOneByOne(batch);
+            }
+            queued.addAndGet(-batch.size());
+        }
+    }
+
+    private void writeOneByOne(List<BookingStatusHistoryDto> batch) {
+        for (BookingStatusHistoryDto entry : batch) {
+            try {
+                repository.writeBatch(List.of(entry));
+                written.increment();
+            } catch (Exception e) {
+                failures.increment();
+                log.error("Dropping status history for booking {} ({} -> {}): {}", entry.getBookingId(),
+                        entry.getOldStatus(), entry.getNewStatus(), e.getMessage());
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<BookingStatusHistoryDto> pendingInTransaction() {
+        List<BookingStatusHistoryDto> pending = (List<BookingStatusHistoryDto>) TransactionSynchronizationManager.getResource(this);
+        if (pending != null) {
+            return pending;
+        }
+        List<BookingStatusHistoryDto> entries = new ArrayList<>();
+        TransactionSynchronizationManager.bindResource(this, entries);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                // Booking mới phải xuống DB trước (khóa ngoại booking_id, dòng của trigger)
+                entityManager.flush();
+                repository.writeBatch(entries);
+                written.increment(entries.size());
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(BookingStatusHistoryWriter.this);
+            }
+        });
+        return entries;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdownNow();
+        flush();
+    }
+}
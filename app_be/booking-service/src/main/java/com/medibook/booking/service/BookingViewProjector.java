@@ -0,0 +1,99 @@
+package com.medibook.booking.service;
+
+import com.medibook.booking.repository.BookingViewRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Giữ booking_view khớp với bookings: các booking thay đổi trong một transaction được gom lại
+ * và dựng lại bằng một câu upsert ngay trước commit, nên view commit cùng lúc với booking
+ * (không có khoảng người dùng thấy danh sách cũ sau khi đặt / hủy lịch).
+ */
+@Slf4j
+@Service
+public class BookingViewProjector {
+
+    private final BookingViewRepository bookingViewRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public BookingViewProjector(BookingViewRepository bookingViewRepository) {
+        this.bookingViewRepository = bookingViewRepository;
+    }
+
+    /**
+     * Đánh dấu booking đã đổi; gọi sau bookingRepository.save
+     */
+    public void bookingChanged(UUID bookingId) {
+        if (bookingId == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            bookingViewRepository.refresh(List.of(bookingId));
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        Set<UUID> pending = (Set<UUID>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            Set<UUID> ids = new LinkedHashSet<>();
+            TransactionSynchronizationManager.bindResource(this, ids);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    // Đẩy thay đổi JPA xuống trước để INSERT ... SELECT đọc được trạng thái mới
+                    entityManager.flush();
+                    bookingViewRepository.refresh(ids);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(BookingViewProjector.this);
+                }
+            });
+            pending = ids;
+        }
+        pending.add(bookingId);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOnStartup() {
+        try {
+            int rows = bookingViewRepository.backfillMissing();
+            if (rows > 0) {
+                log.info("Backfilled {} bookings into booking_view", rows);
+            }
+        } catch (Exception e) {
+            log.warn("Could not backfill booking_view: {}", e.getMessage());
+        }
+    }
+
+    public int refreshDoctor(UUID doctorId) {
+        return bookingViewRepository.refreshDoctor(doctorId);
+    }
+
+    public int refreshService(UUID serviceId) {
+        return bookingViewRepository.refreshService(serviceId);
+    }
+
+    public int refreshPatient(UUID patientId) {
+        return bookingViewRepository.refreshPatient(patientId);
+    }
+
+    public int rebuild() {
+        int rows = bookingViewRepository.rebuildAll();
+        log.info("Rebuilt booking_view: {} rows", rows);
+        return rows;
+    }
+}
@@ -0,0 +1,67 @@
+package com.medibook.booking.service;
+
+import com.medibook.booking.dto.DoctorAgendaDto;
+import com.medibook.booking.repository.DoctorAgendaRepository;
+import com.medibook.common.exception.ResourceNotFoundException;
+import com.medibook.common.security.AuthHeaders;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Lịch ngày của bác sĩ cho app bác sĩ, kèm ETag để lần mở lại không đổi chỉ trả 304
+ */
+@Service
+@RequiredArgsConstructor
+public class DoctorAgendaService {
+
+    private final DoctorAgendaRepository agendaRepository;
+
+    public UUID resolveDoctorId(UUID userId) {
+        UUID fromToken = AuthHeaders.currentDoctorId(userId);
+        if (fromToken != null) {
+            return fromToken;
+        }
+        UUID doctorId = agendaRepository.findDoctorIdByUserId(userId);
+        if (doctorId == null) {
+            throw new ResourceNotFoundException("Doctor", "userId", userId);
+        }
+        return doctorId;
+    }
+
+    /**
+     * ETag hiện tại của lịch ngày - một truy vấn gộp, không đọc danh sách
+     */
+    public String currentETag(UUID doctorId, LocalDate date) {
+        return etag(agendaRepository.findVersion(doctorId, date));
+    }
+
+    public DoctorAgendaDto getAgenda(UUID doctorId, LocalDate date) {
+        return agendaRepository.findAgenda(doctorId, date);
+    }
+
+    public static String etag(String version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * If-None-Match có chứa ETag (bỏ qua tiền tố weak W/)
+     */
+    public static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.equals("*") || value.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,254 @@
+package com.medibook.booking.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.medibook.booking.repository.IdempotencyKeyRepository;
+import com.medibook.common.dto.ApiResponse;
+import com.medibook.common.exception.BadRequestException;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Idempotency-Key cho các POST mà client mobile hay retry (đặt lịch, tạo đơn thanh toán).
+ * <ul>
+ * <li>Cùng key + cùng request: trả lại response đã lưu (header Idempotent-Replayed), không chạy lại</li>
+ * <li>Cùng key đang chạy trên instance này: chờ và dùng chung kết quả (single-flight)</li>
+ * <li>Cùng key đang chạy trên instance khác: 409 kèm Retry-After</li>
+ * <li>Cùng key nhưng body khác: 400</li>
+ * </ul>
+ * Response thành công được giữ trong LRU (Caffeine) và bảng idempotency_keys tới khi hết TTL;
+ * request lỗi giải phóng key để client retry được.
+ */
+@Slf4j
+@Service
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final int MAX_KEY_LENGTH = 128;
+
+    private final IdempotencyKeyRepository repository;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final long ttlSeconds;
+    private final long leaseSeconds;
+    private final Cache<CacheKey, StoredResponse> responses;
+    private final Map<CacheKey, InFlight> inFlight = new ConcurrentHashMap<>();
+
+    public IdempotencyService(
+            IdempotencyKeyRepository repository,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${booking.idempotency.ttl-seconds:86400}") long ttlSeconds,
+            @Value("${booking.idempotency.lease-seconds:60}") long leaseSeconds,
+            @Value("${booking.idempotency.cache-max-size:10000}") long cacheMaxSize) {
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.ttlSeconds = ttlSeconds;
+        this.leaseSeconds = leaseSeconds;
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+    }
+
+    /**
+     * Chạy action đúng một lần cho (userId, scope, key). key rỗng: chạy bình thường.
+     * bodyType là kiểu body của ResponseEntity, dùng để đọc lại response đã lưu.
+     */
+    public <T> ResponseEntity<T> execute(String scope, UUID userId, String key, Object request,
+            JavaType bodyType, Supplier<ResponseEntity<T>> action) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new BadRequestException(HEADER + " tối đa " + MAX_KEY_LENGTH + " ký tự");
+        }
+        CacheKey cacheKey = new CacheKey(userId, scope, key);
+        String requestHash = fingerprint(request);
+
+        StoredResponse cached = responses.getIfPresent(cacheKey);
+        if (cached != null) {
+            return replay(cached, requestHash, bodyType);
+        }
+
+        InFlight mine = new InFlight(requestHash, new CompletableFuture<>());
+        InFlight running = inFlight.putIfAbsent(cacheKey, mine);
+        if (running != null) {
+            return join(running, requestHash, bodyType);
+        }
+        try {
+            return executeOnce(cacheKey, requestHash, bodyType, action, mine);
+        } finally {
+            inFlight.remove(cacheKey, mine);
+        }
+    }
+
+    private <T> ResponseEntity<T> executeOnce(CacheKey cacheKey, String requestHash, JavaType bodyType,
+            Supplier<ResponseEntity<T>> action, InFlight mine) {
+        if (!repository.tryAcquire(cacheKey.userId(), cacheKey.scope(), cacheKey.key(), requestHash,
+                ttlSeconds, leaseSeconds)) {
+            var stored = repository.find(cacheKey.userId(), cacheKey.scope(), cacheKey.key()).orElse(null);
+            if (stored != null && stored.completed()) {
+                StoredResponse response = new StoredResponse(stored.requestHash(), stored.responseStatus(),
+                        stored.responseBody());
+                responses.put(cacheKey, response);
+                mine.result().complete(response);
+                return replay(response, requestHash, bodyType);
+            }
+            // Instance khác đang xử lý cùng key (hoặc key vừa hết hạn) - client retry sau
+            mine.result().complete(null);
+            count("conflict");
+            return inProgress();
+        }
+        ResponseEntity<T> response;
+        try {
+            response = action.get();
+        } catch (RuntimeException e) {
+            repository.release(cacheKey.userId(), cacheKey.scope(), cacheKey.key());
+            mine.result().completeExceptionally(e);
+            throw e;
+        }
+        StoredResponse stored = new StoredResponse(requestHash, response.getStatusCode().value(),
+                serialize(response.getBody()));
+        try {
+            repository.complete(cacheKey.userId(), cacheKey.scope(), cacheKey.key(),
+                    stored.status(), stored.body());
+        } catch (RuntimeException e) {
+            // Action đã chạy xong - vẫn trả kết quả, key trong DB sẽ được chiếm lại sau lease
+            log.error("Could not store idempotent response for key {}: {}", cacheKey.key(), e.getMessage());
+        }
+        responses.put(cacheKey, stored);
+        mine.result().complete(stored);
+        count("executed");
+        return response;
+    }
+
+    private <T> ResponseEntity<T> join(InFlight running, String requestHash, JavaType bodyType) {
+        if (!running.requestHash().equals(requestHash)) {
+            throw mismatch();
+        }
+        StoredResponse response;
+        try {
+            response = running.result().get(leaseSeconds, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            count("joined");
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            count("conflict");
+            return inProgress();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return inProgress();
+        }
+        if (response == null) {
+            count("conflict");
+            return inProgress();
+        }
+        count("joined");
+        return replay(response, requestHash, bodyType, false);
+    }
+
+    private <T> ResponseEntity<T> replay(StoredResponse response, String requestHash, JavaType bodyType) {
+        return replay(response, requestHash, bodyType, true);
+    }
+
+    private <T> ResponseEntity<T> replay(StoredResponse response, String requestHash, JavaType bodyType,
+            boolean countReplay) {
+        if (!response.requestHash().equals(requestHash)) {
+            throw mismatch();
+        }
+        if (countReplay) {
+            count("replayed");
+        }
+        try {
+            T body = response.body() != null ? objectMapper.readValue(response.body(), bodyType) : null;
+            return ResponseEntity.status(response.status())
+                    .header(REPLAYED_HEADER, "true")
+                    .body(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not read stored idempotent response", e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> ResponseEntity<T> inProgress() {
+        return (ResponseEntity<T>) ResponseEntity.status(HttpStatus.CONFLICT)
+                .header("Retry-After", "1")
+                .body(ApiResponse.error("Yêu cầu với " + HEADER + " này đang được xử lý, vui lòng thử lại sau"));
+    }
+
+    private BadRequestException mismatch() {
+        count("mismatch");
+        return new BadRequestException(HEADER + " đã được dùng cho một yêu cầu khác");
+    }
+
+    @Scheduled(cron = "${booking.idempotency.purge-cron:0 15 * * * *}")
+    public void purgeExpired() {
+        try {
+            int deleted = repository.deleteExpired();
+            if (deleted > 0) {
+                log.info("Purged {} expired idempotency keys", deleted);
+            }
+        } catch (Exception e) {
+            log.warn("Could not purge idempotency keys: {}", e.getMessage());
+        }
+    }
+
+    private String fingerprint(Object request) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(serialize(request).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String serialize(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize idempotent payload", e);
+        }
+    }
+
+    private void count(String result) {
+        meterRegistry.counter("booking.idempotency", "result", result).increment();
+    }
+
+    private record CacheKey(UUID userId, String scope, String key) {
+    }
+
+    private record InFlight(String requestHash, CompletableFuture<StoredResponse> result) {
+    }
+
+    private record StoredResponse(String requestHash, int status, String body) {
+    }
+}
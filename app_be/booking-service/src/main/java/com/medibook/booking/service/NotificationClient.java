@@ -1,80 +1,129 @@
 package com.medibook.booking.service;
 
-import com.medibook.booking.dto.BookingCreatedEmailRequest;
-import com.medibook.booking.dto.BookingStatusNotificationRequest;
+import com.medibook.booking.dto.NotificationEvent;
+import io.netty.channel.ChannelOption;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.stereotype.Service;
-import org.springframework.util.StringUtils;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.util.concurrent.Queues;
 
 import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Client non-blocking tới các endpoint internal của notification-service - mọi lời gọi trả về Mono.
+ * <ul>
+ * <li>Connection pool riêng (max-connections), deadline cho từng request (timeout-millis)</li>
+ * <li>submit() đưa sự kiện vào hàng đợi có giới hạn (queue-capacity); hàng đợi đầy thì từ chối ngay (backpressure)</li>
+ * <li>Sự kiện được gom và gửi qua /notifications/internal/batch khi đủ batch.max-events hoặc sau batch.max-delay-millis,
+ * tối đa max-in-flight lô cùng lúc</li>
+ * </ul>
+ * Lỗi được trả về qua Mono cho BookingOutboxRelay để gửi lại theo backoff.
+ */
 @Slf4j
 @Service
 public class NotificationClient {
 
     private final WebClient webClient;
-    private final String notificationServiceUrl;
+    private final ConnectionProvider connectionProvider;
+    private final Duration callTimeout;
+
+    private final Object emitLock = new Object();
+    private final Sinks.Many<PendingEvent> events;
+    private final CountDownLatch pipelineTerminated = new CountDownLatch(1);
 
     public NotificationClient(
-            @Value("${services.notification-service.url:http://localhost:8084}") String notificationServiceUrl) {
-        this.notificationServiceUrl = notificationServiceUrl;
-        this.webClient = WebClient.builder().baseUrl(notificationServiceUrl).build();
+            @Value("${services.notification-service.url:http://localhost:8084}") String notificationServiceUrl,
+            @Value("${services.notification-service.batch.max-events:50}") int batchMaxEvents,
+            @Value("${services.notification-service.batch.max-delay-millis:200}") long batchMaxDelayMillis,
+            @Value("${services.notification-service.max-connections:20}") int maxConnections,
+            @Value("${services.notification-service.max-in-flight:4}") int maxInFlight,
+            @Value("${services.notification-service.queue-capacity:10000}") int queueCapacity,
+            @Value("${services.notification-service.timeout-millis:5000}") long timeoutMillis) {
+        this.callTimeout = Duration.ofMillis(timeoutMillis);
+        this.connectionProvider = ConnectionProvider.builder("notification-service")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(maxConnections * 4)
+                .pendingAcquireTimeout(callTimeout)
+                .maxIdleTime(Duration.ofSeconds(30))
+                .build();
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 2000)
+                .responseTimeout(callTimeout);
+        this.webClient = WebClient.builder()
+                .baseUrl(notificationServiceUrl)
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+
+        this.events = Sinks.many().unicast().onBackpressureBuffer(Queues.<PendingEvent>get(queueCapacity).get());
+        this.events.asFlux()
+                .bufferTimeout(Math.max(1, batchMaxEvents), Duration.ofMillis(batchMaxDelayMillis), true)
+                .flatMap(this::sendBatch, Math.max(1, maxInFlight))
+                .doFinally(signal -> pipelineTerminated.countDown())
+                .subscribe();
     }
 
-    public void sendBookingCreatedEmail(BookingCreatedEmailRequest request) {
-        if (request == null || !StringUtils.hasText(request.getPatientEmail())) {
-            log.warn("Skip notification-service call because patient email is missing");
-            return;
+    /**
+     * Đưa sự kiện vào lô gửi kế tiếp. Mono hoàn tất khi cả lô được notification-service nhận,
+     * lỗi ngay nếu hàng đợi đã đầy. eventId giữ nguyên qua các lần gửi lại để bên nhận bỏ qua bản trùng.
+     */
+    public Mono<Void> submit(String eventId, String type, String payloadJson) {
+        Sinks.Empty<Void> result = Sinks.empty();
+        Sinks.EmitResult emitted;
+        synchronized (emitLock) {
+            emitted = events.tryEmitNext(new PendingEvent(new NotificationEvent(eventId, type, payloadJson), result));
         }
-
-        try {
-            webClient
-                    .post()
-                    .uri("/notifications/internal/booking-created")
-                    .bodyValue(request)
-                    .retrieve()
-                    .toBodilessEntity()
-                    .block(Duration.ofSeconds(30));
-
-            log.info("Requested booking confirmation email for booking {}", request.getBookingId());
-        } catch (Exception e) {
-            log.warn("Could not request booking confirmation email for booking {}: {}",
-                    request.getBookingId(), e.getMessage());
+        if (emitted.isFailure()) {
+            return Mono.error(new IllegalStateException("Notification queue rejected event: " + emitted));
         }
+        return result.asMono();
     }
 
-    public void sendBookingConfirmedNotification(BookingStatusNotificationRequest request) {
-        sendBookingStatusNotification(request, "/notifications/internal/booking-confirmed", "confirmed");
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        // Xả nốt lô đang gom rồi mới đóng connection pool
+        synchronized (emitLock) {
+            events.tryEmitComplete();
+        }
+        pipelineTerminated.await(callTimeout.toMillis() * 2, TimeUnit.MILLISECONDS);
+        connectionProvider.disposeLater().block(callTimeout);
     }
 
-    public void sendBookingCancelledNotification(BookingStatusNotificationRequest request) {
-        sendBookingStatusNotification(request, "/notifications/internal/booking-cancelled", "cancelled");
+    private Mono<Void> sendBatch(List<PendingEvent> batch) {
+        return post("/notifications/internal/batch", Map.of("events", batch.stream().map(PendingEvent::event).toList()))
+                .doOnSuccess(v -> {
+                    log.info("Sent notification batch of {} events", batch.size());
+                    batch.forEach(p -> p.result().tryEmitEmpty());
+                })
+                .doOnError(e -> {
+                    log.warn("Could not send notification batch of {} events: {}", batch.size(), e.getMessage());
+                    batch.forEach(p -> p.result().tryEmitError(e));
+                })
+                // Lỗi đã trả về cho từng sự kiện - pipeline tiếp tục với lô sau
+                .onErrorResume(e -> Mono.empty());
     }
 
-    private void sendBookingStatusNotification(
-            BookingStatusNotificationRequest request,
-            String uri,
-            String action) {
-        if (request == null || request.getPatientId() == null || request.getBookingId() == null) {
-            log.warn("Skip {} booking notification because request is incomplete", action);
-            return;
-        }
-
-        try {
-            webClient
-                    .post()
-                    .uri(uri)
-                    .bodyValue(request)
-                    .retrieve()
-                    .toBodilessEntity()
-                    .block(Duration.ofSeconds(30));
+    private Mono<Void> post(String uri, Object body) {
+        return webClient
+                .post()
+                .uri(uri)
+                .bodyValue(body)
+                .retrieve()
+                .toBodilessEntity()
+                .timeout(callTimeout)
+                .then();
+    }
 
-            log.info("Requested {} booking notification for booking {}", action, request.getBookingId());
-        } catch (Exception e) {
-            log.warn("Could not request {} booking notification for booking {}: {}",
-                    action, request.getBookingId(), e.getMessage());
-        }
+    private record PendingEvent(NotificationEvent event, Sinks.Empty<Void> result) {
     }
 }
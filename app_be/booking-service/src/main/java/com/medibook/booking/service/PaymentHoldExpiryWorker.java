@@ -0,0 +1,87 @@
+package com.medibook.booking.service;
+
+import com.medibook.booking.repository.BookingRepository;
+import com.medibook.common.enums.BookingStatus;
+import com.medibook.common.enums.PaymentStatus;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Hủy booking đúng lúc hết hạn giữ chỗ 15 phút.
+ * Khi khởi động dựng lại PaymentHoldQueue từ DB, sau đó một thread chờ trên queue
+ * và giao từng booking tới hạn cho PaymentReconciliationService trên virtual thread riêng (query ZaloPay có thể chậm).
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PaymentHoldExpiryWorker {
+
+    private final PaymentHoldQueue paymentHoldQueue;
+    private final PaymentReconciliationService paymentReconciliationService;
+    private final BookingRepository bookingRepository;
+
+    private final ExecutorService expiryExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private volatile Thread dispatcher;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        rebuildFromDatabase();
+        dispatcher = Thread.ofPlatform()
+                .name("payment-hold-expiry")
+                .daemon(true)
+                .start(this::dispatchLoop);
+    }
+
+    @PreDestroy
+    public void stop() {
+        Thread thread = dispatcher;
+        if (thread != null) {
+            thread.interrupt();
+        }
+        expiryExecutor.shutdownNow();
+    }
+
+    private void rebuildFromDatabase() {
+        try {
+            List<Object[]> holds = bookingRepository.findPaymentHoldDeadlines(BookingStatus.PENDING, PaymentStatus.PAID);
+            for (Object[] row : holds) {
+                paymentHoldQueue.schedule((UUID) row[0], (LocalDateTime) row[1]);
+            }
+            log.info("Payment hold queue rebuilt with {} pending holds", holds.size());
+        } catch (Exception e) {
+            // Không dựng được thì lần quét an toàn định kỳ vẫn xử lý các hold cũ
+            log.warn("Could not rebuild payment hold queue: {}", e.getMessage());
+        }
+    }
+
+    private void dispatchLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                UUID bookingId = paymentHoldQueue.takeExpired();
+                expiryExecutor.execute(() -> expire(bookingId));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.warn("Payment hold dispatcher error: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void expire(UUID bookingId) {
+        try {
+            paymentReconciliationService.reconcileHold(bookingId);
+        } catch (Exception e) {
+            log.warn("Could not expire payment hold {}: {}", bookingId, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.medibook.booking.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hàng đợi hạn giữ chỗ thanh toán (DelayQueue) - mỗi booking PENDING chưa thanh toán
+ * có một phần tử hết hạn đúng lúc createdAt + 15 phút.
+ * Hủy (đã thanh toán / đã hủy) là lazy: chỉ xóa khỏi map, phần tử cũ bị bỏ qua khi tới hạn.
+ */
+@Component
+public class PaymentHoldQueue {
+
+    private static final Duration HOLD_DURATION = Duration.ofMinutes(15L);
+
+    private final DelayQueue<Hold> queue = new DelayQueue<>();
+    private final Map<UUID, Hold> pending = new ConcurrentHashMap<>();
+
+    public PaymentHoldQueue(MeterRegistry meterRegistry) {
+        meterRegistry.gaugeMapSize("booking.payment-hold.pending", Tags.empty(), pending);
+    }
+
+    /**
+     * Đăng ký (hoặc đăng ký lại) hạn giữ chỗ cho booking tạo lúc createdAt
+     */
+    public void schedule(UUID bookingId, LocalDateTime createdAt) {
+        if (bookingId == null) {
+            return;
+        }
+        LocalDateTime start = createdAt != null ? createdAt : LocalDateTime.now();
+        long deadlineMillis = start.plus(HOLD_DURATION).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        Hold hold = new Hold(bookingId, deadlineMillis);
+        // Cùng hạn đã có trong queue thì giữ phần tử cũ, tránh nhân bản khi được feed nhiều lần
+        Hold current = pending.merge(bookingId, hold,
+                (existing, fresh) -> existing.deadlineMillis() == fresh.deadlineMillis() ? existing : fresh);
+        if (current == hold) {
+            queue.put(hold);
+        }
+    }
+
+    /**
+     * Bỏ theo dõi booking (đã thanh toán hoặc đã hủy)
+     */
+    public void cancel(UUID bookingId) {
+        if (bookingId != null) {
+            pending.remove(bookingId);
+        }
+    }
+
+    /**
+     * Chờ tới booking kế tiếp hết hạn. Trả về bookingId đã được gỡ khỏi danh sách theo dõi.
+     */
+    public UUID takeExpired() throws InterruptedException {
+        while (true) {
+            Hold hold = queue.take();
+            // Bỏ qua phần tử đã bị hủy hoặc đã được thay bằng hạn mới
+            if (pending.remove(hold.bookingId(), hold)) {
+                return hold.bookingId();
+            }
+        }
+    }
+
+    public int size() {
+        return pending.size();
+    }
+
+    public void clear() {
+        pending.clear();
+        queue.clear();
+    }
+
+    private record Hold(UUID bookingId, long deadlineMillis) implements Delayed {
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(deadlineMillis - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(deadlineMillis, ((Hold) other).deadlineMillis);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.medibook.booking.service;
+
+import com.medibook.booking.entity.Booking;
+import com.medibook.booking.repository.BookingRepository;
+import com.medibook.common.enums.BookingStatus;
+import com.medibook.common.enums.PaymentStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Đối soát thanh toán cho các hold đã hết hạn.
+ * Pipeline: query trạng thái ZaloPay song song trên virtual thread (giới hạn bởi semaphore),
+ * rồi áp kết quả cho từng booking trong một transaction nhỏ riêng -
+ * không giữ connection/transaction trong lúc chờ provider.
+ */
+@Slf4j
+@Service
+public class PaymentReconciliationService {
+
+    public enum Outcome {
+        PAID,
+        EXPIRED,
+        UNCHANGED
+    }
+
+    /**
+     * Kết quả của một lần đối soát
+     */
+    public record ReconciliationRun(int queried, int paid, int expired, int failed, Duration duration) {
+    }
+
+    private final BookingRepository bookingRepository;
+    private final BookingService bookingService;
+    private final ZaloPayService zaloPayService;
+    private final int concurrency;
+
+    private final Counter queriedCounter;
+    private final Counter paidCounter;
+    private final Counter expiredCounter;
+    private final Counter failedCounter;
+    private final Timer runTimer;
+    private volatile ReconciliationRun lastRun;
+
+    public PaymentReconciliationService(
+            BookingRepository bookingRepository,
+            BookingService bookingService,
+            ZaloPayService zaloPayService,
+            MeterRegistry meterRegistry,
+            @Value("${booking.payment-reconciliation.concurrency:8}") int concurrency) {
+        this.bookingRepository = bookingRepository;
+        this.bookingService = bookingService;
+        this.zaloPayService = zaloPayService;
+        this.concurrency = Math.max(1, concurrency);
+        this.queriedCounter = counter(meterRegistry, "queried");
+        this.paidCounter = counter(meterRegistry, "paid");
+        this.expiredCounter = counter(meterRegistry, "expired");
+        this.failedCounter = counter(meterRegistry, "failed");
+        this.runTimer = Timer.builder("booking.payment.reconciliation.duration").register(meterRegistry);
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("booking.payment.reconciliation")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Lưới an toàn: PaymentHoldQueue hủy đúng hạn từng booking, lần quét này chỉ bắt các hold bị lọt
+     * (tạo trên instance khác, instance restart giữa chừng...)
+     */
+    @Scheduled(fixedDelayString = "${booking.payment-hold.safety-scan-millis:60000}")
+    public void reconcileExpiredHolds() {
+        LocalDateTime expiresBefore = LocalDateTime.now().minusMinutes(15L);
+        List<Booking> expired = bookingRepository.findExpiredPaymentHolds(
+                BookingStatus.PENDING, PaymentStatus.PAID, expiresBefore);
+        if (!expired.isEmpty()) {
+            reconcile(expired);
+        }
+    }
+
+    /**
+     * Được PaymentHoldExpiryWorker gọi khi hold của một booking tới hạn
+     */
+    public void reconcileHold(UUID bookingId) {
+        bookingRepository.findById(bookingId).ifPresent(booking -> reconcile(List.of(booking)));
+    }
+
+    public ReconciliationRun reconcile(List<Booking> bookings) {
+        long started = System.nanoTime();
+        AtomicInteger queried = new AtomicInteger();
+        AtomicInteger paid = new AtomicInteger();
+        AtomicInteger expired = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        Semaphore permits = new Semaphore(concurrency);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Booking booking : bookings) {
+                UUID bookingId = booking.getId();
+                String appTransId = booking.getPaymentReference();
+                boolean needsQuery = booking.getPaymentStatus() == PaymentStatus.PENDING && hasText(appTransId);
+                executor.execute(() -> {
+                    try {
+                        permits.acquire();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    try {
+                        PaymentStatus providerStatus = null;
+                        if (needsQuery) {
+                            queried.incrementAndGet();
+                            providerStatus = zaloPayService.queryOrderStatus(appTransId);
+                        }
+                        Outcome outcome = bookingService.applyPaymentReconciliation(bookingId, appTransId, providerStatus);
+                        if (outcome == Outcome.PAID) {
+                            paid.incrementAndGet();
+                        } else if (outcome == Outcome.EXPIRED) {
+                            expired.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        // Không hủy khi chưa xác nhận được với provider - lần sau xử lý lại
+                        failed.incrementAndGet();
+                        log.warn("Could not process expired payment hold {}: {}", bookingId, e.getMessage());
+                    } finally {
+                        permits.release();
+                    }
+                });
+            }
+        }
+
+        Duration duration = Duration.ofNanos(System.nanoTime() - started);
+        ReconciliationRun run = new ReconciliationRun(queried.get(), paid.get(), expired.get(), failed.get(), duration);
+        queriedCounter.increment(run.queried());
+        paidCounter.increment(run.paid());
+        expiredCounter.increment(run.expired());
+        failedCounter.increment(run.failed());
+        runTimer.record(duration);
+        lastRun = run;
+        if (bookings.size() > 1 || run.failed() > 0) {
+            log.info("Payment reconciliation: {} holds, queried={}, paid={}, expired={}, failed={} in {} ms",
+                    bookings.size(), run.queried(), run.paid(), run.expired(), run.failed(), duration.toMillis());
+        }
+        return run;
+    }
+
+    public ReconciliationRun getLastRun() {
+        return lastRun;
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.isBlank();
+    }
+}
@@ -0,0 +1,201 @@
+package com.medibook.booking.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Cache in-process cho dữ liệu tham chiếu (bác sĩ, dịch vụ khám, liên hệ bệnh nhân)
+ * dùng khi dựng BookingDto / TimeSlotDto, tránh truy vấn JDBC theo từng dòng.
+ * Giới hạn kích thước + TTL, có thể invalidate chủ động qua ReferenceDataController.
+ */
+@Slf4j
+@Service
+public class ReferenceDataCache {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Cache<UUID, DoctorRef> doctors;
+    private final Cache<UUID, ServiceRef> services;
+    private final Cache<UUID, PatientRef> patients;
+
+    public ReferenceDataCache(
+            JdbcTemplate jdbcTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${booking.reference-cache.max-size:10000}") long maxSize,
+            @Value("${booking.reference-cache.ttl-seconds:600}") long ttlSeconds,
+            @Value("${booking.reference-cache.patient-ttl-seconds:120}") long patientTtlSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.doctors = buildCache(maxSize, ttlSeconds);
+        this.services = buildCache(maxSize, ttlSeconds);
+        // Thông tin bệnh nhân (email_verified, phone) thay đổi thường xuyên hơn -> TTL ngắn hơn
+        this.patients = buildCache(maxSize, patientTtlSeconds);
+
+        CaffeineCacheMetrics.monitor(meterRegistry, doctors, "booking.reference.doctors");
+        CaffeineCacheMetrics.monitor(meterRegistry, services, "booking.reference.services");
+        CaffeineCacheMetrics.monitor(meterRegistry, patients, "booking.reference.patients");
+    }
+
+    private static <V> Cache<UUID, V> buildCache(long maxSize, long ttlSeconds) {
+        return Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+    }
+
+    // ==================== DOCTORS ====================
+
+    public DoctorRef getDoctor(UUID doctorId) {
+        return doctorId != null ? getDoctors(Set.of(doctorId)).get(doctorId) : null;
+    }
+
+    public Map<UUID, DoctorRef> getDoctors(Collection<UUID> doctorIds) {
+        return getAll(doctors, doctorIds, this::loadDoctors);
+    }
+
+    public void invalidateDoctor(UUID doctorId) {
+        doctors.invalidate(doctorId);
+    }
+
+    // ==================== MEDICAL SERVICES ====================
+
+    public ServiceRef getService(UUID serviceId) {
+        return serviceId != null ? getServices(Set.of(serviceId)).get(serviceId) : null;
+    }
+
+    public Map<UUID, ServiceRef> getServices(Collection<UUID> serviceIds) {
+        return getAll(services, serviceIds, this::loadServices);
+    }
+
+    public void invalidateService(UUID serviceId) {
+        services.invalidate(serviceId);
+    }
+
+    // ==================== PATIENTS ====================
+
+    public PatientRef getPatient(UUID userId) {
+        return userId != null ? getPatients(Set.of(userId)).get(userId) : null;
+    }
+
+    public Map<UUID, PatientRef> getPatients(Collection<UUID> userIds) {
+        return getAll(patients, userIds, this::loadPatients);
+    }
+
+    public void invalidatePatient(UUID userId) {
+        patients.invalidate(userId);
+    }
+
+    public void invalidateAll() {
+        doctors.invalidateAll();
+        services.invalidateAll();
+        patients.invalidateAll();
+        log.info("Reference data cache cleared");
+    }
+
+    // ==================== LOADERS ====================
+
+    /**
+     * Lấy nhiều key cùng lúc; các key chưa có trong cache được nạp bằng một câu IN duy nhất.
+     * Key không tồn tại trong DB không được cache (lần sau sẽ đọc lại).
+     */
+    private <V> Map<UUID, V> getAll(Cache<UUID, V> cache, Collection<UUID> ids,
+            Function<Set<? extends UUID>, Map<UUID, V>> loader) {
+        if (ids == null || ids.isEmpty()) {
+            return Map.of();
+        }
+        Set<UUID> keys = ids.stream().filter(Objects::nonNull).collect(Collectors.toSet());
+        if (keys.isEmpty()) {
+            return Map.of();
+        }
+        return cache.getAll(keys, loader);
+    }
+
+    private Map<UUID, DoctorRef> loadDoctors(Set<? extends UUID> ids) {
+        Map<UUID, DoctorRef> result = new HashMap<>();
+        jdbcTemplate.query(
+                String.format("SELECT id, full_name, avatar_url FROM doctors WHERE id IN (%s)", placeholders(ids)),
+                rs -> {
+                    UUID id = rs.getObject("id", UUID.class);
+                    result.put(id, new DoctorRef(id, rs.getString("full_name"), rs.getString("avatar_url")));
+                },
+                ids.toArray());
+        return result;
+    }
+
+    private Map<UUID, ServiceRef> loadServices(Set<? extends UUID> ids) {
+        Map<UUID, ServiceRef> result = new HashMap<>();
+        jdbcTemplate.query(
+                String.format("SELECT id, name, price FROM medical_services WHERE id IN (%s)", placeholders(ids)),
+                rs -> {
+                    UUID id = rs.getObject("id", UUID.class);
+                    result.put(id, new ServiceRef(id, rs.getString("name"), rs.getBigDecimal("price")));
+                },
+                ids.toArray());
+        return result;
+    }
+
+    private Map<UUID, PatientRef> loadPatients(Set<? extends UUID> ids) {
+        Map<UUID, PatientRef> result = new HashMap<>();
+        jdbcTemplate.query(
+                String.format("""
+                        SELECT
+                            u.id,
+                            u.email,
+                            COALESCE(u.email_verified, false) AS email_verified,
+                            u.full_name AS user_full_name,
+                            p.full_name,
+                            p.phone,
+                            p.avatar_url
+                        FROM users u
+                        LEFT JOIN profiles p ON p.user_id = u.id
+                        WHERE u.id IN (%s)
+                        """, placeholders(ids)),
+                rs -> {
+                    UUID id = rs.getObject("id", UUID.class);
+                    result.putIfAbsent(id, new PatientRef(
+                            id,
+                            rs.getString("email"),
+                            rs.getBoolean("email_verified"),
+                            rs.getString("user_full_name"),
+                            rs.getString("full_name"),
+                            rs.getString("phone"),
+                            rs.getString("avatar_url")));
+                },
+                ids.toArray());
+        return result;
+    }
+
+    private static String placeholders(Collection<?> ids) {
+        return ids.stream().map(id -> "?").collect(Collectors.joining(","));
+    }
+
+    public record DoctorRef(UUID id, String fullName, String avatarUrl) {
+    }
+
+    public record ServiceRef(UUID id, String name, BigDecimal price) {
+    }
+
+    /**
+     * Liên hệ + điều kiện đặt lịch của bệnh nhân.
+     * fullName/phone/avatarUrl lấy từ profiles, userFullName lấy từ users.
+     */
+    public record PatientRef(UUID userId, String email, boolean emailVerified, String userFullName,
+            String fullName, String phone, String avatarUrl) {
+    }
+}
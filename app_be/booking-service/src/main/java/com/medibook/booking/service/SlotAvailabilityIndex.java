@@ -0,0 +1,428 @@
+package com.medibook.booking.service;
+
+import com.medibook.booking.entity.TimeSlot;
+import com.medibook.booking.repository.TimeSlotSearchRepository;
+import com.medibook.common.enums.SlotStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+
+/**
+ * Index in-memory các slot APPROVED theo (doctorId, date) cho GET /slots/available.
+ * Mỗi ngày của một bác sĩ là một DaySlots bất biến: mảng id + giờ bắt đầu/kết thúc
+ * sắp theo giờ và một bitset đánh dấu slot còn trống. Ghi là copy-on-write theo từng ngày,
+ * đọc không khóa. BookingService / SlotMaterializer cập nhật index sau khi transaction commit;
+ * lần kiểm tra định kỳ so với DB sửa các ngày bị lệch (ví dụ do instance khác ghi).
+ */
+@Slf4j
+@Component
+public class SlotAvailabilityIndex {
+
+    private final TimeSlotSearchRepository timeSlotSearchRepository;
+    private final Map<DayKey, DaySlots> days = new ConcurrentHashMap<>();
+    // Các ngày bị ghi trong lúc đang nạp toàn bộ - nạp lại riêng sau khi nạp xong
+    private final Set<DayKey> touchedWhileLoading = ConcurrentHashMap.newKeySet();
+    private final Counter driftRepairs;
+
+    private volatile boolean loading;
+    private volatile boolean ready;
+    private volatile LocalDate indexedFrom = LocalDate.MAX;
+    private volatile ConsistencyReport lastCheck;
+
+    public SlotAvailabilityIndex(TimeSlotSearchRepository timeSlotSearchRepository, MeterRegistry meterRegistry) {
+        this.timeSlotSearchRepository = timeSlotSearchRepository;
+        this.driftRepairs = Counter.builder("booking.slot-index.drift")
+                .description("Số ngày trong index lệch so với DB và đã được sửa")
+                .register(meterRegistry);
+        Gauge.builder("booking.slot-index.days", days, Map::size)
+                .register(meterRegistry);
+        Gauge.builder("booking.slot-index.slots", this, SlotAvailabilityIndex::slotCount)
+                .register(meterRegistry);
+        Gauge.builder("booking.slot-index.memory", this, SlotAvailabilityIndex::estimatedBytes)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        try {
+            load();
+        } catch (Exception e) {
+            // Index chưa sẵn sàng thì /slots/available vẫn đọc DB như cũ
+            log.error("Could not load slot availability index: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Nạp lại toàn bộ slot APPROVED từ hôm nay trở đi
+     */
+    public synchronized void load() {
+        long started = System.nanoTime();
+        LocalDate from = LocalDate.now();
+        ready = false;
+        touchedWhileLoading.clear();
+        loading = true;
+        Map<DayKey, List<Entry>> grouped = new HashMap<>();
+        try {
+            timeSlotSearchRepository.forEachApprovedSlot(from, null, null, slot ->
+                    grouped.computeIfAbsent(DayKey.of(slot), k -> new ArrayList<>()).add(Entry.of(slot)));
+            days.clear();
+            grouped.forEach((key, entries) -> days.put(key, DaySlots.of(entries)));
+            indexedFrom = from;
+        } finally {
+            loading = false;
+        }
+        for (DayKey key : touchedWhileLoading) {
+            reloadDay(key.doctorId(), key.date());
+        }
+        touchedWhileLoading.clear();
+        ready = true;
+        log.info("Slot availability index loaded: {} doctor-days, {} slots, ~{} KB in {} ms",
+                days.size(), slotCount(), estimatedBytes() / 1024,
+                Duration.ofNanos(System.nanoTime() - started).toMillis());
+    }
+
+    /**
+     * Slot còn trống của bác sĩ trong ngày, sắp theo giờ bắt đầu.
+     * Trả về null khi ngày đó không nằm trong index (chưa nạp xong / ngày đã qua) - caller đọc DB.
+     */
+    public List<TimeSlot> findAvailable(UUID doctorId, LocalDate date) {
+        if (!ready || doctorId == null || date == null || date.isBefore(indexedFrom)) {
+            return null;
+        }
+        DaySlots day = days.get(new DayKey(doctorId, date));
+        return day != null ? day.available(doctorId, date) : List.of();
+    }
+
+    /**
+     * Cập nhật trạng thái một slot (tạo / duyệt / từ chối / đặt / hủy / hết hạn giữ chỗ)
+     */
+    public void apply(TimeSlot slot) {
+        if (slot == null || slot.getId() == null || slot.getDoctorId() == null || slot.getDate() == null) {
+            return;
+        }
+        update(DayKey.of(slot), day -> day.with(Entry.of(slot), slot.getStatus() == SlotStatus.APPROVED));
+    }
+
+    public void applyAll(Collection<TimeSlot> slots) {
+        slots.forEach(this::apply);
+    }
+
+    public void remove(TimeSlot slot) {
+        if (slot == null || slot.getId() == null || slot.getDoctorId() == null || slot.getDate() == null) {
+            return;
+        }
+        update(DayKey.of(slot), day -> day.with(Entry.of(slot), false));
+    }
+
+    /**
+     * Đọc lại từ DB một ngày của bác sĩ (sau các thao tác ghi theo lô)
+     */
+    public void reloadDay(UUID doctorId, LocalDate date) {
+        reload(doctorId, date, date);
+    }
+
+    /**
+     * Đọc lại từ DB các ngày trong [fromDate, toDate] (toDate = null: không giới hạn),
+     * của một bác sĩ hoặc tất cả khi doctorId = null
+     */
+    public void reload(UUID doctorId, LocalDate fromDate, LocalDate toDate) {
+        if (fromDate == null) {
+            return;
+        }
+        Map<DayKey, List<Entry>> grouped = new HashMap<>();
+        timeSlotSearchRepository.forEachApprovedSlot(fromDate, toDate, doctorId, slot ->
+                grouped.computeIfAbsent(DayKey.of(slot), k -> new ArrayList<>()).add(Entry.of(slot)));
+        Set<DayKey> keys = new HashSet<>(grouped.keySet());
+        for (DayKey key : days.keySet()) {
+            if (inRange(key, doctorId, fromDate, toDate)) {
+                keys.add(key);
+            }
+        }
+        for (DayKey key : keys) {
+            List<Entry> entries = grouped.get(key);
+            update(key, day -> entries != null ? DaySlots.of(entries) : DaySlots.EMPTY);
+        }
+    }
+
+    /**
+     * Kiểm tra định kỳ index với DB: bỏ các ngày đã qua, các ngày lệch được đọc lại và thay thế
+     */
+    @Scheduled(fixedDelayString = "${booking.slot-index.verify-interval-millis:300000}",
+            initialDelayString = "${booking.slot-index.verify-interval-millis:300000}")
+    public void scheduledCheck() {
+        if (!ready) {
+            return;
+        }
+        try {
+            verify(true);
+        } catch (Exception e) {
+            log.warn("Slot availability index check failed: {}", e.getMessage());
+        }
+    }
+
+    public synchronized ConsistencyReport verify(boolean repair) {
+        if (!ready) {
+            return null;
+        }
+        long started = System.nanoTime();
+        LocalDate today = LocalDate.now();
+        if (today.isAfter(indexedFrom)) {
+            days.keySet().removeIf(key -> key.date().isBefore(today));
+            indexedFrom = today;
+        }
+        Map<DayKey, List<Entry>> grouped = new HashMap<>();
+        timeSlotSearchRepository.forEachApprovedSlot(indexedFrom, null, null, slot ->
+                grouped.computeIfAbsent(DayKey.of(slot), k -> new ArrayList<>()).add(Entry.of(slot)));
+        Set<DayKey> keys = new HashSet<>(grouped.keySet());
+        keys.addAll(days.keySet());
+        List<DayKey> mismatched = new ArrayList<>();
+        for (DayKey key : keys) {
+            List<Entry> entries = grouped.get(key);
+            DaySlots expected = entries != null ? DaySlots.of(entries) : DaySlots.EMPTY;
+            if (!expected.sameAs(days.getOrDefault(key, DaySlots.EMPTY))) {
+                mismatched.add(key);
+            }
+        }
+        int repaired = 0;
+        if (repair) {
+            for (DayKey key : mismatched) {
+                // Ảnh chụp DB ở trên có thể đã cũ - đọc lại riêng ngày đó trước khi thay
+                DaySlots before = days.getOrDefault(key, DaySlots.EMPTY);
+                reloadDay(key.doctorId(), key.date());
+                if (!before.sameAs(days.getOrDefault(key, DaySlots.EMPTY))) {
+                    repaired++;
+                }
+            }
+            driftRepairs.increment(repaired);
+        }
+        ConsistencyReport report = new ConsistencyReport(keys.size(), mismatched.size(), repaired,
+                slotCount(), estimatedBytes(), Duration.ofNanos(System.nanoTime() - started));
+        if (!mismatched.isEmpty()) {
+            log.warn("Slot availability index drift: {} of {} doctor-days differ from DB, {} repaired",
+                    mismatched.size(), keys.size(), repaired);
+        }
+        lastCheck = report;
+        return report;
+    }
+
+    public ConsistencyReport getLastCheck() {
+        return lastCheck;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public long slotCount() {
+        long total = 0;
+        for (DaySlots day : days.values()) {
+            total += day.size();
+        }
+        return total;
+    }
+
+    /**
+     * Ước lượng bộ nhớ của index (header object + mảng + entry của map), đủ để theo dõi xu hướng
+     */
+    public long estimatedBytes() {
+        long total = 0;
+        for (DaySlots day : days.values()) {
+            total += DayKey.ESTIMATED_BYTES + day.estimatedBytes();
+        }
+        return total;
+    }
+
+    private void update(DayKey key, UnaryOperator<DaySlots> change) {
+        LocalDate from = indexedFrom;
+        if (ready && key.date().isBefore(from)) {
+            return;
+        }
+        if (loading) {
+            touchedWhileLoading.add(key);
+        }
+        days.compute(key, (k, current) -> {
+            DaySlots next = change.apply(current != null ? current : DaySlots.EMPTY);
+            return next.size() == 0 ? null : next;
+        });
+    }
+
+    private static boolean inRange(DayKey key, UUID doctorId, LocalDate fromDate, LocalDate toDate) {
+        return (doctorId == null || doctorId.equals(key.doctorId()))
+                && !key.date().isBefore(fromDate)
+                && (toDate == null || !key.date().isAfter(toDate));
+    }
+
+    private record DayKey(UUID doctorId, LocalDate date) {
+
+        // entry ConcurrentHashMap + DayKey + UUID + LocalDate
+        static final long ESTIMATED_BYTES = 32 + 24 + 32 + 24;
+
+        static DayKey of(TimeSlot slot) {
+            return new DayKey(slot.getDoctorId(), slot.getDate());
+        }
+    }
+
+    private record Entry(UUID id, LocalTime startTime, LocalTime endTime, boolean available) {
+
+        static Entry of(TimeSlot slot) {
+            return new Entry(slot.getId(), slot.getStartTime(), slot.getEndTime(),
+                    Boolean.TRUE.equals(slot.getIsAvailable()));
+        }
+    }
+
+    /**
+     * Các slot APPROVED của một bác sĩ trong một ngày - bất biến, sắp theo (giờ bắt đầu, id)
+     */
+    private static final class DaySlots {
+
+        static final DaySlots EMPTY = new DaySlots(new long[0], new long[0], new int[0], new int[0], new BitSet());
+
+        private final long[] idHigh;
+        private final long[] idLow;
+        private final int[] startSecond;
+        private final int[] endSecond;
+        private final BitSet available;
+
+        private DaySlots(long[] idHigh, long[] idLow, int[] startSecond, int[] endSecond, BitSet available) {
+            this.idHigh = idHigh;
+            this.idLow = idLow;
+            this.startSecond = startSecond;
+            this.endSecond = endSecond;
+            this.available = available;
+        }
+
+        static DaySlots of(List<Entry> entries) {
+            List<Entry> sorted = new ArrayList<>(entries);
+            sorted.sort(Comparator.comparing(Entry::startTime).thenComparing(Entry::id));
+            int n = sorted.size();
+            long[] high = new long[n];
+            long[] low = new long[n];
+            int[] start = new int[n];
+            int[] end = new int[n];
+            BitSet bits = new BitSet(n);
+            for (int i = 0; i < n; i++) {
+                Entry entry = sorted.get(i);
+                high[i] = entry.id().getMostSignificantBits();
+                low[i] = entry.id().getLeastSignificantBits();
+                start[i] = entry.startTime().toSecondOfDay();
+                end[i] = entry.endTime().toSecondOfDay();
+                bits.set(i, entry.available());
+            }
+            return new DaySlots(high, low, start, end, bits);
+        }
+
+        int size() {
+            return idHigh.length;
+        }
+
+        /**
+         * Bản mới với entry được thêm / cập nhật (keep = true) hoặc bị bỏ (keep = false)
+         */
+        DaySlots with(Entry entry, boolean keep) {
+            int index = indexOf(entry.id());
+            if (!keep && index < 0) {
+                return this;
+            }
+            if (keep && index >= 0 && startSecond[index] == entry.startTime().toSecondOfDay()
+                    && endSecond[index] == entry.endTime().toSecondOfDay()) {
+                if (available.get(index) == entry.available()) {
+                    return this;
+                }
+                // Chỉ đổi trạng thái trống / đã đặt: giữ nguyên mảng, chép bitset
+                BitSet bits = (BitSet) available.clone();
+                bits.set(index, entry.available());
+                return new DaySlots(idHigh, idLow, startSecond, endSecond, bits);
+            }
+            List<Entry> entries = entries();
+            if (index >= 0) {
+                entries.remove(index);
+            }
+            if (keep) {
+                entries.add(entry);
+            }
+            return of(entries);
+        }
+
+        List<TimeSlot> available(UUID doctorId, LocalDate date) {
+            List<TimeSlot> slots = new ArrayList<>(available.cardinality());
+            for (int i = available.nextSetBit(0); i >= 0; i = available.nextSetBit(i + 1)) {
+                slots.add(TimeSlot.builder()
+                        .id(new UUID(idHigh[i], idLow[i]))
+                        .doctorId(doctorId)
+                        .date(date)
+                        .startTime(LocalTime.ofSecondOfDay(startSecond[i]))
+                        .endTime(LocalTime.ofSecondOfDay(endSecond[i]))
+                        .isAvailable(true)
+                        .status(SlotStatus.APPROVED)
+                        .build());
+            }
+            return slots;
+        }
+
+        boolean sameAs(DaySlots other) {
+            return Arrays.equals(idHigh, other.idHigh)
+                    && Arrays.equals(idLow, other.idLow)
+                    && Arrays.equals(startSecond, other.startSecond)
+                    && Arrays.equals(endSecond, other.endSecond)
+                    && available.equals(other.available);
+        }
+
+        long estimatedBytes() {
+            int n = idHigh.length;
+            // object + 4 mảng (header 16 byte) + BitSet (object + mảng long)
+            return 32 + 2 * (16 + 8L * n) + 2 * (16 + 4L * n) + 24 + 16 + 8L * ((n + 63) / 64);
+        }
+
+        private int indexOf(UUID id) {
+            long high = id.getMostSignificantBits();
+            long low = id.getLeastSignificantBits();
+            for (int i = 0; i < idHigh.length; i++) {
+                if (idHigh[i] == high && idLow[i] == low) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private List<Entry> entries() {
+            List<Entry> entries = new ArrayList<>(idHigh.length + 1);
+            for (int i = 0; i < idHigh.length; i++) {
+                entries.add(new Entry(new UUID(idHigh[i], idLow[i]), LocalTime.ofSecondOfDay(startSecond[i]),
+                        LocalTime.ofSecondOfDay(endSecond[i]), available.get(i)));
+            }
+            return entries;
+        }
+    }
+
+    public record ConsistencyReport(
+            int doctorDays,
+            int mismatched,
+            int repaired,
+            long slots,
+            long estimatedBytes,
+            Duration elapsed
+    ) {}
+}
@@ -0,0 +1,155 @@
+package com.medibook.booking.service;
+
+import com.medibook.booking.entity.TimeSlot;
+import com.medibook.booking.repository.TimeSlotRepository;
+import com.medibook.common.enums.SlotStatus;
+import com.medibook.common.exception.BadRequestException;
+import com.medibook.common.exception.ResourceNotFoundException;
+import com.medibook.common.exception.SlotNotAvailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Chiến lược giành slot khi đặt lịch (cấu hình qua booking.slot-claim.strategy):
+ * <ul>
+ * <li>PESSIMISTIC - SELECT ... FOR UPDATE trong transaction SERIALIZABLE (cách cũ)</li>
+ * <li>CONDITIONAL_UPDATE - một câu UPDATE có điều kiện, kiểm tra số dòng bị ảnh hưởng (READ COMMITTED)</li>
+ * <li>OPTIMISTIC - đọc không khóa, ghi kèm @Version, retry khi xung đột (READ COMMITTED)</li>
+ * </ul>
+ * Mọi chiến lược đều retry có giới hạn + jitter khi gặp lỗi xung đột/serialization.
+ */
+@Slf4j
+@Service
+public class SlotClaimService {
+
+    public enum Strategy {
+        PESSIMISTIC,
+        CONDITIONAL_UPDATE,
+        OPTIMISTIC
+    }
+
+    private final TimeSlotRepository timeSlotRepository;
+    private final Strategy strategy;
+    private final int maxAttempts;
+    private final long backoffMillis;
+    private final Counter retries;
+
+    public SlotClaimService(
+            TimeSlotRepository timeSlotRepository,
+            MeterRegistry meterRegistry,
+            @Value("${booking.slot-claim.strategy:CONDITIONAL_UPDATE}") Strategy strategy,
+            @Value("${booking.slot-claim.max-attempts:3}") int maxAttempts,
+            @Value("${booking.slot-claim.backoff-millis:20}") long backoffMillis) {
+        this.timeSlotRepository = timeSlotRepository;
+        this.strategy = strategy;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffMillis = backoffMillis;
+        this.retries = Counter.builder("booking.slot-claim.retries")
+                .tag("strategy", strategy.name())
+                .register(meterRegistry);
+        log.info("Slot claim strategy: {}", strategy);
+    }
+
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * Isolation level cần cho transaction đặt lịch với chiến lược hiện tại
+     */
+    public int isolationLevel() {
+        return strategy == Strategy.PESSIMISTIC
+                ? TransactionDefinition.ISOLATION_SERIALIZABLE
+                : TransactionDefinition.ISOLATION_READ_COMMITTED;
+    }
+
+    /**
+     * Giành slot cho booking - phải gọi bên trong transaction.
+     * Trả về TimeSlot đã được đánh dấu is_available = false.
+     */
+    public TimeSlot claim(UUID slotId, UUID doctorId) {
+        return switch (strategy) {
+            case PESSIMISTIC -> claimWithLock(slotId, doctorId);
+            case CONDITIONAL_UPDATE -> claimWithConditionalUpdate(slotId, doctorId);
+            case OPTIMISTIC -> claimWithVersion(slotId, doctorId);
+        };
+    }
+
+    /**
+     * Chạy một unit of work (thường là cả transaction) và retry có giới hạn khi gặp
+     * ConcurrencyFailureException (optimistic lock, serialization failure, lock timeout).
+     */
+    public <T> T executeWithRetry(Supplier<T> work) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return work.get();
+            } catch (ConcurrencyFailureException e) {
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+                retries.increment();
+                log.debug("Concurrency failure on attempt {}/{}: {}", attempt, maxAttempts, e.getMessage());
+                backoff(attempt);
+            }
+        }
+    }
+
+    private TimeSlot claimWithLock(UUID slotId, UUID doctorId) {
+        TimeSlot slot = timeSlotRepository.findByIdWithLock(slotId)
+                .orElseThrow(() -> new ResourceNotFoundException("TimeSlot", "id", slotId));
+        ensureClaimable(slot, doctorId);
+        slot.setIsAvailable(false);
+        return timeSlotRepository.save(slot);
+    }
+
+    private TimeSlot claimWithConditionalUpdate(UUID slotId, UUID doctorId) {
+        int updated = timeSlotRepository.claimAvailableSlot(slotId, doctorId, SlotStatus.APPROVED);
+        if (updated == 0) {
+            // Không giành được - đọc lại để trả đúng loại lỗi
+            TimeSlot slot = timeSlotRepository.findById(slotId)
+                    .orElseThrow(() -> new ResourceNotFoundException("TimeSlot", "id", slotId));
+            ensureClaimable(slot, doctorId);
+            throw new SlotNotAvailableException();
+        }
+        return timeSlotRepository.findById(slotId)
+                .orElseThrow(() -> new ResourceNotFoundException("TimeSlot", "id", slotId));
+    }
+
+    private TimeSlot claimWithVersion(UUID slotId, UUID doctorId) {
+        TimeSlot slot = timeSlotRepository.findById(slotId)
+                .orElseThrow(() -> new ResourceNotFoundException("TimeSlot", "id", slotId));
+        ensureClaimable(slot, doctorId);
+        slot.setIsAvailable(false);
+        // flush ngay để xung đột version lộ ra ở đây và được executeWithRetry xử lý
+        return timeSlotRepository.saveAndFlush(slot);
+    }
+
+    private void ensureClaimable(TimeSlot slot, UUID doctorId) {
+        if (!Boolean.TRUE.equals(slot.getIsAvailable()) || slot.getStatus() != SlotStatus.APPROVED) {
+            log.warn("Slot {} is not available for booking", slot.getId());
+            throw new SlotNotAvailableException();
+        }
+        if (!slot.getDoctorId().equals(doctorId)) {
+            throw new BadRequestException("TimeSlot không thuộc về bác sĩ đã chọn");
+        }
+    }
+
+    private void backoff(int attempt) {
+        long cap = backoffMillis * (1L << Math.min(attempt, 6));
+        long sleep = ThreadLocalRandom.current().nextLong(backoffMillis, cap + 1);
+        try {
+            Thread.sleep(sleep);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.medibook.booking.service;
+
+import com.medibook.booking.entity.TimeSlot;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Đẩy thay đổi slot trống tới bệnh nhân qua /topic/slots/{doctorId}/{date}
+ * (BOOKED / FREED / APPROVED / REMOVED) để app không phải poll /slots/available.
+ * Thay đổi của cùng một (bác sĩ, ngày) trong window-millis được gom thành một frame;
+ * cùng một slot đổi nhiều lần trong cửa sổ chỉ giữ trạng thái cuối.
+ * Chỉ gọi sau khi transaction đã commit.
+ */
+@Slf4j
+@Service
+public class SlotDeltaPublisher {
+
+    public static final String TOPIC_PREFIX = "/topic/slots/";
+
+    public enum DeltaType {
+        BOOKED,
+        FREED,
+        APPROVED,
+        // Slot bị từ chối hoặc bị xóa: app bỏ khỏi danh sách
+        REMOVED
+    }
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final long windowMillis;
+    private final Map<DayKey, Map<UUID, SlotDelta>> pending = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher;
+    private final Counter deltas;
+    private final Counter frames;
+
+    public SlotDeltaPublisher(
+            SimpMessagingTemplate messagingTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${booking.slot-deltas.window-millis:150}") long windowMillis) {
+        this.messagingTemplate = messagingTemplate;
+        this.windowMillis = Math.max(0L, windowMillis);
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "slot-delta-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.deltas = Counter.builder("booking.slot-deltas")
+                .tag("unit", "delta")
+                .register(meterRegistry);
+        this.frames = Counter.builder("booking.slot-deltas")
+                .tag("unit", "frame")
+                .register(meterRegistry);
+    }
+
+    public void booked(TimeSlot slot) {
+        publish(slot, DeltaType.BOOKED);
+    }
+
+    public void freed(TimeSlot slot) {
+        publish(slot, DeltaType.FREED);
+    }
+
+    public void approved(Collection<TimeSlot> slots) {
+        slots.forEach(slot -> publish(slot, DeltaType.APPROVED));
+    }
+
+    public void removed(Collection<TimeSlot> slots) {
+        slots.forEach(slot -> publish(slot, DeltaType.REMOVED));
+    }
+
+    public void publish(TimeSlot slot, DeltaType type) {
+        if (slot == null || slot.getId() == null || slot.getDoctorId() == null || slot.getDate() == null) {
+            return;
+        }
+        DayKey key = new DayKey(slot.getDoctorId(), slot.getDate());
+        SlotDelta delta = new SlotDelta(slot.getId(), type, slot.getStartTime(), slot.getEndTime());
+        deltas.increment();
+        boolean[] opened = {false};
+        pending.compute(key, (k, batch) -> {
+            if (batch == null) {
+                batch = new LinkedHashMap<>();
+                opened[0] = true;
+            }
+            batch.remove(delta.slotId());
+            batch.put(delta.slotId(), delta);
+            return batch;
+        });
+        // Delta đầu tiên của (bác sĩ, ngày) mở cửa sổ gom; các delta sau đi cùng frame đó
+        if (opened[0]) {
+            flusher.schedule(() -> flush(key), windowMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void flush(DayKey key) {
+        Map<UUID, SlotDelta> batch = pending.remove(key);
+        if (batch == null || batch.isEmpty()) {
+            return;
+        }
+        // compute() và remove() trên cùng key được ConcurrentHashMap tuần tự hóa -
+        // sau khi remove, batch không còn bị ghi, delta mới sẽ mở cửa sổ mới
+        List<SlotDelta> changes = new ArrayList<>(batch.values());
+        try {
+            messagingTemplate.convertAndSend(topic(key.doctorId(), key.date()),
+                    new SlotDeltaFrame(key.doctorId(), key.date(), changes, System.currentTimeMillis()));
+            frames.increment();
+        } catch (Exception e) {
+            log.error("Failed to push slot deltas for doctor {} on {}: {}", key.doctorId(), key.date(), e.getMessage());
+        }
+    }
+
+    public static String topic(UUID doctorId, LocalDate date) {
+        return TOPIC_PREFIX + doctorId + "/" + date;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdownNow();
+        new ArrayList<>(pending.keySet()).forEach(this::flush);
+    }
+
+    private record DayKey(UUID doctorId, LocalDate date) {
+    }
+
+    /**
+     * Một thay đổi của slot - giữ gọn để frame nhỏ
+     */
+    public record SlotDelta(
+            UUID slotId,
+            DeltaType type,
+            LocalTime startTime,
+            LocalTime endTime
+    ) {}
+
+    /**
+     * Frame gửi tới /topic/slots/{doctorId}/{date}
+     */
+    public record SlotDeltaFrame(
+            UUID doctorId,
+            LocalDate date,
+            List<SlotDelta> deltas,
+            long timestamp
+    ) {}
+}
@@ -0,0 +1,198 @@
+package com.medibook.booking.service;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.medibook.booking.entity.TimeSlot;
+import com.medibook.booking.repository.SlotMaterializationRepository;
+import com.medibook.booking.repository.SlotMaterializationRepository.ScheduleTemplate;
+import com.medibook.booking.repository.SlotMaterializationRepository.SlotRow;
+import com.medibook.common.enums.SlotStatus;
+import com.medibook.common.exception.BadRequestException;
+import com.medibook.common.security.AuthHeaders;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Sinh time_slots từ lịch làm việc (doctor_schedules) cho mọi bác sĩ trên một cửa sổ trượt
+ * (mặc định 8 tuần). Chạy lại bao nhiêu lần cũng được: slot đã có / trùng giờ được bỏ qua,
+ * nên mỗi lần chạy hằng ngày chỉ thực sự chèn các ngày mới lọt vào cửa sổ.
+ */
+@Slf4j
+@Service
+public class SlotMaterializer {
+
+    private final SlotMaterializationRepository repository;
+    private final SlotAvailabilityIndex slotAvailabilityIndex;
+    private final SlotDeltaPublisher slotDeltaPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final int horizonWeeks;
+    private final SlotStatus initialStatus;
+    private final Counter insertedSlots;
+    private final Counter skippedSlots;
+    private final Timer duration;
+
+    private volatile MaterializationRun lastRun;
+
+    public SlotMaterializer(
+            SlotMaterializationRepository repository,
+            SlotAvailabilityIndex slotAvailabilityIndex,
+            SlotDeltaPublisher slotDeltaPublisher,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${booking.slot-materializer.horizon-weeks:8}") int horizonWeeks,
+            @Value("${booking.slot-materializer.initial-status:PENDING}") SlotStatus initialStatus) {
+        this.repository = repository;
+        this.slotAvailabilityIndex = slotAvailabilityIndex;
+        this.slotDeltaPublisher = slotDeltaPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.horizonWeeks = Math.max(1, horizonWeeks);
+        this.initialStatus = initialStatus;
+        this.insertedSlots = Counter.builder("booking.slot-materializer.slots")
+                .tag("result", "inserted")
+                .register(meterRegistry);
+        this.skippedSlots = Counter.builder("booking.slot-materializer.slots")
+                .tag("result", "skipped")
+                .register(meterRegistry);
+        this.duration = Timer.builder("booking.slot-materializer.duration")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Job hằng đêm: đẩy cửa sổ slot của mọi bác sĩ tới hết horizon
+     */
+    @Scheduled(cron = "${booking.slot-materializer.cron:0 30 1 * * *}")
+    public void materializeHorizon() {
+        try {
+            materialize(null, null);
+        } catch (Exception e) {
+            log.error("Slot materialization failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Sinh slot cho một bác sĩ (hoặc tất cả khi doctorId = null) trong weeks tuần tới
+     */
+    public MaterializationRun materialize(UUID doctorId, Integer weeks) {
+        LocalDate from = LocalDate.now();
+        LocalDate to = from.plusWeeks(weeks != null && weeks > 0 ? weeks : horizonWeeks).minusDays(1);
+        return materialize(doctorId, from, to);
+    }
+
+    /**
+     * Sinh slot từ lịch làm việc của bác sĩ đang đăng nhập trong khoảng [startDate, endDate];
+     * rỗng khi tài khoản không phải bác sĩ (init-week khi đó vẫn trả "Created 0 slots" như trước)
+     */
+    public Optional<MaterializationRun> materializeForUser(UUID userId, LocalDate startDate, LocalDate endDate) {
+        Optional<UUID> doctorId = Optional.ofNullable(AuthHeaders.currentDoctorId(userId))
+                .or(() -> repository.findDoctorIdByUserId(userId));
+        if (doctorId.isEmpty()) {
+            log.warn("Cannot find doctorId for userId: {}", userId);
+            return Optional.empty();
+        }
+        return Optional.of(materialize(doctorId.get(), startDate, endDate));
+    }
+
+    public MaterializationRun materialize(UUID doctorId, LocalDate from, LocalDate to) {
+        if (from == null || to == null || to.isBefore(from)) {
+            throw new BadRequestException("Khoảng ngày không hợp lệ");
+        }
+        long started = System.nanoTime();
+        List<TimeSlot> inserted = new ArrayList<>();
+        List<TimeSlot> pruned = new ArrayList<>();
+        MaterializationRun run = transactionTemplate.execute(status -> {
+            repository.lock();
+            List<ScheduleTemplate> schedules = repository.findActiveSchedules(doctorId);
+            List<SlotRow> slots = expand(schedules, from, to, LocalDateTime.now());
+            inserted.addAll(repository.insertMissing(slots, initialStatus));
+            pruned.addAll(repository.deleteAvailableSlotsOfInactiveSchedules(LocalDate.now(), doctorId));
+            return new MaterializationRun(doctorId, from, to, schedules.size(), slots.size(), inserted.size(),
+                    pruned.size(), Duration.ofNanos(System.nanoTime() - started));
+        });
+        duration.record(run.elapsed());
+        insertedSlots.increment(run.inserted());
+        skippedSlots.increment(run.generated() - run.inserted());
+        lastRun = run;
+        // Đã commit. Slot PENDING chưa vào index và bệnh nhân chưa thấy; chỉ đọc lại index
+        // và đẩy delta khi có slot APPROVED mới hoặc slot APPROVED bị gỡ
+        List<TimeSlot> removed = pruned.stream().filter(slot -> slot.getStatus() == SlotStatus.APPROVED).toList();
+        if ((!inserted.isEmpty() && initialStatus == SlotStatus.APPROVED) || !pruned.isEmpty()) {
+            slotAvailabilityIndex.reload(doctorId, LocalDate.now(), null);
+        }
+        if (initialStatus == SlotStatus.APPROVED) {
+            slotDeltaPublisher.approved(inserted);
+        }
+        slotDeltaPublisher.removed(removed);
+        log.info("Materialized slots {}..{} (doctor={}): {} schedules, {} generated, {} inserted, {} pruned in {} ms - {} slots/s",
+                from, to, doctorId != null ? doctorId : "all", run.schedules(), run.generated(), run.inserted(),
+                run.pruned(), run.elapsed().toMillis(), Math.round(run.slotsPerSecond()));
+        return run;
+    }
+
+    public MaterializationRun getLastRun() {
+        return lastRun;
+    }
+
+    /**
+     * Trải từng lịch làm việc thành các slot slotDurationMinutes phút, bỏ qua slot đã qua giờ
+     */
+    static List<SlotRow> expand(List<ScheduleTemplate> schedules, LocalDate from, LocalDate to, LocalDateTime now) {
+        List<SlotRow> slots = new ArrayList<>();
+        for (ScheduleTemplate schedule : schedules) {
+            int minutes = schedule.slotDurationMinutes() != null && schedule.slotDurationMinutes() > 0
+                    ? schedule.slotDurationMinutes() : 30;
+            if (schedule.startTime() == null || schedule.endTime() == null
+                    || !schedule.startTime().isBefore(schedule.endTime())) {
+                continue;
+            }
+            LocalDate date = from.with(TemporalAdjusters.nextOrSame(schedule.dayOfWeek()));
+            for (; !date.isAfter(to); date = date.plusWeeks(1)) {
+                LocalTime start = schedule.startTime();
+                while (true) {
+                    LocalTime end = start.plusMinutes(minutes);
+                    // Dừng khi slot vượt giờ kết thúc hoặc tràn qua nửa đêm
+                    if (end.isAfter(schedule.endTime()) || !end.isAfter(start)) {
+                        break;
+                    }
+                    if (date.atTime(start).isAfter(now)) {
+                        slots.add(new SlotRow(schedule.doctorId(), schedule.id(), date, start, end));
+                    }
+                    start = end;
+                }
+            }
+        }
+        return slots;
+    }
+
+    public record MaterializationRun(
+            UUID doctorId,
+            LocalDate from,
+            LocalDate to,
+            int schedules,
+            int generated,
+            int inserted,
+            int pruned,
+            Duration elapsed
+    ) {
+        @JsonProperty("slotsPerSecond")
+        public double slotsPerSecond() {
+            long nanos = Math.max(1L, elapsed.toNanos());
+            return generated * 1_000_000_000.0 / nanos;
+        }
+    }
+}
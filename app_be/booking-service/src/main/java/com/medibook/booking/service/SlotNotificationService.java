@@ -6,6 +6,8 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+
 /**
  * Service to send real-time WebSocket notifications for slot events
  */
@@ -71,6 +73,30 @@ public class SlotNotificationService {
         }
     }
 
+    /**
+     * Notify admin once for a whole bulk approve/reject instead of one message per slot
+     */
+    public void notifySlotsApproved(List<TimeSlotDto> slots) {
+        notifyBulk("SLOTS_APPROVED", "Đã duyệt " + slots.size() + " lịch làm việc", slots);
+    }
+
+    public void notifySlotsRejected(List<TimeSlotDto> slots) {
+        notifyBulk("SLOTS_REJECTED", "Đã từ chối " + slots.size() + " lịch làm việc", slots);
+    }
+
+    private void notifyBulk(String type, String message, List<TimeSlotDto> slots) {
+        if (slots.isEmpty()) {
+            return;
+        }
+        log.info("Sending WebSocket notification {} for {} slots", type, slots.size());
+        try {
+            messagingTemplate.convertAndSend(TOPIC_ADMIN_PENDING_SLOTS,
+                    new BulkSlotNotification(type, message, slots.size(), slots));
+        } catch (Exception e) {
+            log.error("Failed to send WebSocket notification: {}", e.getMessage(), e);
+        }
+    }
+
     /**
      * Notification payload
      */
@@ -79,4 +105,14 @@ public class SlotNotificationService {
             String message,
             TimeSlotDto slot
     ) {}
+
+    /**
+     * Bulk notification payload
+     */
+    public record BulkSlotNotification(
+            String type,
+            String message,
+            int count,
+            List<TimeSlotDto> slots
+    ) {}
 }
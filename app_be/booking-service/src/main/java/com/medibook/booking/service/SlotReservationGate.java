@@ -0,0 +1,85 @@
+package com.medibook.booking.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.medibook.common.exception.SlotNotAvailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Cổng giữ chỗ in-memory đặt trước transaction đặt lịch.
+ * Mỗi slot chỉ cho đúng một request đi xuống DB tại một thời điểm (CAS trên ConcurrentHashMap),
+ * các request còn lại bị từ chối ngay mà không chiếm connection trong Hikari pool.
+ * Slot vừa được đặt thành công được nhớ trong một khoảng TTL ngắn để chặn luôn các request đến sau.
+ * Đây chỉ là lớp chắn phía trước cho từng instance - pessimistic lock trong DB vẫn là chốt chặn cuối.
+ */
+@Slf4j
+@Component
+public class SlotReservationGate {
+
+    private final Set<UUID> inFlight = ConcurrentHashMap.newKeySet();
+    private final Cache<UUID, Boolean> recentlyTaken;
+    private final Counter admitted;
+    private final Counter rejected;
+
+    public SlotReservationGate(
+            MeterRegistry meterRegistry,
+            @Value("${booking.reservation-gate.taken-ttl-seconds:30}") long takenTtlSeconds) {
+        this.recentlyTaken = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(Duration.ofSeconds(takenTtlSeconds))
+                .build();
+        this.admitted = Counter.builder("booking.reservation.gate")
+                .tag("result", "admitted")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("booking.reservation.gate")
+                .tag("result", "rejected")
+                .register(meterRegistry);
+        meterRegistry.gaugeCollectionSize("booking.reservation.gate.in-flight", Tags.empty(), inFlight);
+    }
+
+    /**
+     * Chạy booking nếu giành được quyền cho slot, ngược lại ném SlotNotAvailableException ngay.
+     */
+    public <T> T reserve(UUID slotId, Supplier<T> booking) {
+        if (slotId == null) {
+            return booking.get();
+        }
+        if (recentlyTaken.getIfPresent(slotId) != null || !inFlight.add(slotId)) {
+            rejected.increment();
+            log.debug("Slot {} rejected by reservation gate", slotId);
+            throw new SlotNotAvailableException();
+        }
+        admitted.increment();
+        try {
+            T result = booking.get();
+            recentlyTaken.put(slotId, Boolean.TRUE);
+            return result;
+        } catch (SlotNotAvailableException e) {
+            // DB xác nhận slot đã bị đặt - ghi nhớ để chặn các request sau
+            recentlyTaken.put(slotId, Boolean.TRUE);
+            throw e;
+        } finally {
+            inFlight.remove(slotId);
+        }
+    }
+
+    /**
+     * Gọi khi slot được trả lại (hủy lịch, hết hạn giữ chỗ) để cho phép đặt lại ngay.
+     */
+    public void release(UUID slotId) {
+        if (slotId != null) {
+            recentlyTaken.invalidate(slotId);
+        }
+    }
+}
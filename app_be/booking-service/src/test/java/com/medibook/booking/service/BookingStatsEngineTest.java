@@ -0,0 +1,92 @@
+package com.medibook.booking.service;
+
+import com.medibook.booking.dto.BookingStatsDto;
+import com.medibook.booking.repository.BookingStatsRepository;
+import com.medibook.common.enums.BookingStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BookingStatsEngineTest {
+
+    private final LocalDate today = LocalDate.now();
+    private final LocalDate yesterday = today.minusDays(1);
+    // "DB" giả lập cho các truy vấn gộp
+    private final Map<BookingStatus, Long> byStatus = new EnumMap<>(BookingStatus.class);
+    private final Map<LocalDate, Long> bySlotDate = new HashMap<>();
+    private final Map<LocalDate, Map<BookingStatus, Long>> transitions = new HashMap<>();
+    private BookingStatsEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        BookingStatsRepository repository = new BookingStatsRepository(null) {
+            @Override
+            public Map<BookingStatus, Long> countByStatus() {
+                return byStatus;
+            }
+
+            @Override
+            public Map<LocalDate, Long> countBySlotDate(LocalDate from) {
+                return bySlotDate;
+            }
+
+            @Override
+            public Map<LocalDate, Map<BookingStatus, Long>> countTransitionsByDay(LocalDate from) {
+                return transitions;
+            }
+        };
+        engine = new BookingStatsEngine(repository, new SimpleMeterRegistry(), 31);
+    }
+
+    @Test
+    void countsTransitionsAndComputesDayOverDayChange() {
+        assertNull(engine.snapshot());
+        byStatus.put(BookingStatus.PENDING, 2L);
+        byStatus.put(BookingStatus.COMPLETED, 4L);
+        bySlotDate.put(yesterday, 4L);
+        bySlotDate.put(today, 2L);
+        transitions.put(yesterday, new EnumMap<>(Map.of(BookingStatus.PENDING, 2L, BookingStatus.COMPLETED, 4L)));
+        engine.reconcile(true);
+
+        engine.transition(today, null, BookingStatus.PENDING);
+        engine.transition(today, null, BookingStatus.PENDING);
+        engine.transition(today, BookingStatus.PENDING, BookingStatus.CONFIRMED);
+        engine.transition(today, BookingStatus.CONFIRMED, BookingStatus.COMPLETED);
+        engine.transition(yesterday, BookingStatus.PENDING, BookingStatus.CANCELED);
+
+        BookingStatsDto stats = engine.snapshot();
+        assertEquals(4, stats.getTotalToday());
+        assertEquals(2, stats.getPendingCount());
+        assertEquals(0, stats.getConfirmedCount());
+        assertEquals(5, stats.getCompletedCount());
+        assertEquals(1, stats.getCanceledCount());
+        assertEquals(0.0, stats.getTodayChangePercent());
+        assertEquals(0.0, stats.getPendingChangePercent());
+        assertEquals(-75.0, stats.getCompletedChangePercent());
+    }
+
+    @Test
+    void reconcileReplacesDriftedCounters() {
+        engine.reconcile(true);
+        engine.transition(today, null, BookingStatus.PENDING);
+
+        // DB không có booking này (ví dụ transaction bị xóa tay) - đối soát đưa bộ đếm về DB
+        BookingStatsEngine.ReconcileReport report = engine.reconcile(false);
+        assertTrue(report.applied());
+        assertTrue(report.mismatched() > 0);
+        assertEquals(0, engine.snapshot().getPendingCount());
+        assertEquals(0, engine.snapshot().getTotalToday());
+
+        assertFalse(engine.reconcile(false).mismatched() > 0);
+    }
+}
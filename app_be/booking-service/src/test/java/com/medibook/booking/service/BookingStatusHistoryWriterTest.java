@@ -0,0 +1,97 @@
+package com.medibook.booking.service;
+
+import com.medibook.booking.dto.BookingStatusHistoryDto;
+import com.medibook.booking.repository.BookingStatusHistoryBatchRepository;
+import com.medibook.common.enums.BookingStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BookingStatusHistoryWriterTest {
+
+    private final UUID bookingId = UUID.randomUUID();
+    private final UUID deletedBookingId = UUID.randomUUID();
+    // "DB" giả lập: các lô đã ghi và các dòng đã có (dòng do trigger ghi)
+    private final List<List<BookingStatusHistoryDto>> batches = new ArrayList<>();
+    private final List<BookingStatusHistoryDto> rows = new ArrayList<>();
+    private final BookingStatusHistoryBatchRepository repository = new BookingStatusHistoryBatchRepository(null) {
+        @Override
+        public void writeBatch(List<BookingStatusHistoryDto> entries) {
+            if (entries.stream().anyMatch(e -> e.getBookingId().equals(deletedBookingId))) {
+                throw new IllegalStateException("violates foreign key constraint");
+            }
+            batches.add(List.copyOf(entries));
+            rows.addAll(entries);
+        }
+
+        @Override
+        public List<BookingStatusHistoryDto> findByBookingId(UUID id) {
+            return rows.stream().filter(r -> r.getBookingId().equals(id)).toList();
+        }
+    };
+    private final BookingStatusHistoryWriter writer = new BookingStatusHistoryWriter(repository,
+            new SimpleMeterRegistry(), BookingStatusHistoryWriter.Mode.ASYNC, 3, 60_000, 100, 24);
+
+    @AfterEach
+    void tearDown() {
+        writer.shutdown();
+    }
+
+    @Test
+    void queuedTransitionsAreVisibleAndFlushedInBatches() {
+        rows.add(BookingStatusHistoryDto.builder().id(UUID.randomUUID()).bookingId(bookingId)
+                .oldStatus(BookingStatus.PENDING).newStatus(BookingStatus.CONFIRMED)
+                .changedAt(LocalDateTime.now().minusSeconds(1)).build());
+        commit(() -> {
+            writer.record(bookingId, BookingStatus.PENDING, BookingStatus.CONFIRMED, UUID.randomUUID(), "Bác sĩ xác nhận");
+            writer.record(bookingId, BookingStatus.CONFIRMED, BookingStatus.COMPLETED, UUID.randomUUID(), "Hoàn thành khám");
+        });
+
+        // Chưa ghi: dòng của trigger được thay bằng dòng trong hàng đợi (có lý do)
+        List<BookingStatusHistoryDto> history = writer.findHistory(bookingId);
+        assertEquals(2, history.size());
+        assertEquals(BookingStatus.COMPLETED, history.get(0).getNewStatus());
+        assertTrue(history.stream().allMatch(h -> h.getReason() != null));
+
+        commit(() -> {
+            for (int i = 0; i < 5; i++) {
+                writer.record(bookingId, BookingStatus.PENDING, BookingStatus.PENDING, null, "r" + i);
+            }
+        });
+        writer.flush();
+        assertEquals(8, rows.size());
+        assertTrue(batches.size() >= 3);
+        assertTrue(batches.stream().allMatch(batch -> batch.size() <= 3));
+    }
+
+    @Test
+    void rowsThatCannotBeWrittenDoNotBlockTheBatch() {
+        commit(() -> {
+            writer.record(bookingId, null, BookingStatus.PENDING, null, "Đặt lịch mới");
+            writer.record(deletedBookingId, null, BookingStatus.PENDING, null, "Đặt lịch mới");
+        });
+        writer.flush();
+        assertEquals(1, rows.size());
+        assertEquals(bookingId, rows.get(0).getBookingId());
+    }
+
+    private static void commit(Runnable work) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            work.run();
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+}
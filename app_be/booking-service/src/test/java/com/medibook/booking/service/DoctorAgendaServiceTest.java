@@ -0,0 +1,93 @@
+package com.medibook.booking.service;
+
+import com.medibook.booking.controller.BookingController;
+import com.medibook.booking.dto.DoctorAgendaDto;
+import com.medibook.booking.repository.DoctorAgendaRepository;
+import com.medibook.common.dto.ApiResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DoctorAgendaServiceTest {
+
+    private final UUID userId = UUID.randomUUID();
+    private final UUID doctorId = UUID.randomUUID();
+    private final LocalDate date = LocalDate.of(2030, 1, 7);
+    // Version hiện tại của lịch ngày trong "DB" giả lập
+    private volatile String version = "lq3x9k-4-2";
+    private final AtomicInteger agendaReads = new AtomicInteger();
+
+    private final DoctorAgendaRepository repository = new DoctorAgendaRepository(null) {
+        @Override
+        public UUID findDoctorIdByUserId(UUID user) {
+            return doctorId;
+        }
+
+        @Override
+        public String findVersion(UUID doctor, LocalDate day) {
+            return version;
+        }
+
+        @Override
+        public DoctorAgendaDto findAgenda(UUID doctor, LocalDate day) {
+            agendaReads.incrementAndGet();
+            return DoctorAgendaDto.builder().doctorId(doctor).date(day).version(version).slots(List.of()).build();
+        }
+    };
+    private final BookingController controller =
+            new BookingController(null, null, new DoctorAgendaService(repository), null, null);
+
+    @Test
+    void matchesHandlesListsWeakTagsAndWildcard() {
+        String etag = DoctorAgendaService.etag("abc-1-0");
+
+        assertEquals("\"abc-1-0\"", etag);
+        assertTrue(DoctorAgendaService.matches("\"abc-1-0\"", etag));
+        assertTrue(DoctorAgendaService.matches("W/\"abc-1-0\"", etag));
+        assertTrue(DoctorAgendaService.matches("\"old-1-0\", \"abc-1-0\"", etag));
+        assertTrue(DoctorAgendaService.matches("*", etag));
+        assertFalse(DoctorAgendaService.matches("\"abc-1-1\"", etag));
+        assertFalse(DoctorAgendaService.matches("abc-1-0", etag));
+        assertFalse(DoctorAgendaService.matches(null, etag));
+        assertFalse(DoctorAgendaService.matches(" ", etag));
+    }
+
+    @Test
+    void unchangedAgendaAnswers304WithoutReadingTheAgenda() {
+        ResponseEntity<ApiResponse<DoctorAgendaDto>> first = controller.getDoctorAgenda(userId, null, date);
+        assertEquals(HttpStatus.OK, first.getStatusCode());
+        String etag = first.getHeaders().getETag();
+        assertEquals(DoctorAgendaService.etag(version), etag);
+
+        ResponseEntity<ApiResponse<DoctorAgendaDto>> second = controller.getDoctorAgenda(userId, etag, date);
+
+        assertEquals(HttpStatus.NOT_MODIFIED, second.getStatusCode());
+        assertEquals(etag, second.getHeaders().getETag());
+        assertNull(second.getBody());
+        assertEquals(1, agendaReads.get());
+    }
+
+    @Test
+    void changedVersionAnswersTheFullAgendaWithTheNewETag() {
+        String etag = controller.getDoctorAgenda(userId, null, date).getHeaders().getETag();
+
+        // Ví dụ bác sĩ đổi tên: booking_view.updated_at = now() làm version đổi
+        version = "lq3y01-4-2";
+        ResponseEntity<ApiResponse<DoctorAgendaDto>> response = controller.getDoctorAgenda(userId, etag, date);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(DoctorAgendaService.etag("lq3y01-4-2"), response.getHeaders().getETag());
+        assertEquals("lq3y01-4-2", response.getBody().getData().getVersion());
+        assertEquals(2, agendaReads.get());
+    }
+}
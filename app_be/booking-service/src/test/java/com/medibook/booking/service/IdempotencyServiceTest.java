@@ -0,0 +1,119 @@
+package com.medibook.booking.service;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.medibook.booking.repository.IdempotencyKeyRepository;
+import com.medibook.common.dto.ApiResponse;
+import com.medibook.common.exception.BadRequestException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class IdempotencyServiceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final JavaType bodyType = objectMapper.getTypeFactory().constructParametricType(ApiResponse.class, String.class);
+    private final InMemoryKeys keys = new InMemoryKeys();
+    private final IdempotencyService service = new IdempotencyService(keys, objectMapper, new SimpleMeterRegistry(),
+            3600, 60, 100);
+
+    @Test
+    void concurrentDuplicatesRunTheActionOnce() throws Exception {
+        UUID userId = UUID.randomUUID();
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        List<Future<ResponseEntity<ApiResponse<String>>>> results = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return service.execute("POST /bookings", userId, "key-1", Map.of("slot", "A"), bodyType, () -> {
+                    executions.incrementAndGet();
+                    sleep(50);
+                    return ResponseEntity.status(201).body(ApiResponse.success("booked"));
+                });
+            }));
+        }
+        start.countDown();
+        for (Future<ResponseEntity<ApiResponse<String>>> result : results) {
+            ResponseEntity<ApiResponse<String>> response = result.get(10, TimeUnit.SECONDS);
+            assertEquals(201, response.getStatusCode().value());
+            assertEquals("booked", response.getBody().getData());
+        }
+        executor.shutdownNow();
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void sameKeyWithDifferentBodyIsRejectedAndFailuresReleaseTheKey() {
+        UUID userId = UUID.randomUUID();
+        assertThrows(IllegalStateException.class, () -> service.execute("POST /bookings", userId, "key-2",
+                Map.of("slot", "A"), bodyType, () -> {
+                    throw new IllegalStateException("db down");
+                }));
+        ResponseEntity<ApiResponse<String>> retried = service.execute("POST /bookings", userId, "key-2",
+                Map.of("slot", "A"), bodyType, () -> ResponseEntity.ok(ApiResponse.success("ok")));
+        assertEquals("ok", retried.getBody().getData());
+
+        assertThrows(BadRequestException.class, () -> service.execute("POST /bookings", userId, "key-2",
+                Map.of("slot", "B"), bodyType, () -> ResponseEntity.ok(ApiResponse.success("other"))));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Bảng idempotency_keys giả lập trong bộ nhớ
+     */
+    private static class InMemoryKeys extends IdempotencyKeyRepository {
+
+        private final Map<String, StoredKey> rows = new ConcurrentHashMap<>();
+
+        InMemoryKeys() {
+            super(null);
+        }
+
+        @Override
+        public boolean tryAcquire(UUID userId, String scope, String key, String requestHash,
+                long ttlSeconds, long leaseSeconds) {
+            return rows.putIfAbsent(userId + scope + key, new StoredKey(requestHash, false, 0, null)) == null;
+        }
+
+        @Override
+        public Optional<StoredKey> find(UUID userId, String scope, String key) {
+            return Optional.ofNullable(rows.get(userId + scope + key));
+        }
+
+        @Override
+        public void complete(UUID userId, String scope, String key, int responseStatus, String responseBody) {
+            rows.computeIfPresent(userId + scope + key,
+                    (k, row) -> new StoredKey(row.requestHash(), true, responseStatus, responseBody));
+        }
+
+        @Override
+        public void release(UUID userId, String scope, String key) {
+            rows.remove(userId + scope + key);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.medibook.booking.service;
+
+import com.medibook.booking.entity.TimeSlot;
+import com.medibook.booking.repository.TimeSlotSearchRepository;
+import com.medibook.common.enums.SlotStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SlotAvailabilityIndexTest {
+
+    private final UUID doctorId = UUID.randomUUID();
+    private final LocalDate date = LocalDate.now().plusDays(1);
+    // "DB" giả lập: danh sách slot trả về cho forEachApprovedSlot
+    private final List<TimeSlot> database = new ArrayList<>();
+    private SlotAvailabilityIndex index;
+
+    @BeforeEach
+    void setUp() {
+        TimeSlotSearchRepository repository = new TimeSlotSearchRepository(null) {
+            @Override
+            public void forEachApprovedSlot(LocalDate fromDate, LocalDate toDate, UUID doctor, Consumer<TimeSlot> action) {
+                database.stream()
+                        .filter(s -> s.getStatus() == SlotStatus.APPROVED)
+                        .filter(s -> !s.getDate().isBefore(fromDate) && (toDate == null || !s.getDate().isAfter(toDate)))
+                        .filter(s -> doctor == null || doctor.equals(s.getDoctorId()))
+                        .forEach(action);
+            }
+        };
+        index = new SlotAvailabilityIndex(repository, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void servesAvailableSlotsInStartTimeOrderAndTracksBookings() {
+        TimeSlot late = slot(10, SlotStatus.APPROVED, true);
+        TimeSlot early = slot(8, SlotStatus.APPROVED, true);
+        TimeSlot pending = slot(9, SlotStatus.PENDING, true);
+        database.addAll(List.of(late, early, pending));
+
+        assertNull(index.findAvailable(doctorId, date), "not ready before load -> caller reads DB");
+        index.load();
+        assertEquals(List.of(early.getId(), late.getId()), ids(index.findAvailable(doctorId, date)));
+
+        early.setIsAvailable(false);
+        index.apply(early);
+        assertEquals(List.of(late.getId()), ids(index.findAvailable(doctorId, date)));
+
+        pending.setStatus(SlotStatus.APPROVED);
+        index.apply(pending);
+        early.setIsAvailable(true);
+        index.apply(early);
+        assertEquals(List.of(early.getId(), pending.getId(), late.getId()), ids(index.findAvailable(doctorId, date)));
+
+        index.remove(late);
+        assertEquals(List.of(early.getId(), pending.getId()), ids(index.findAvailable(doctorId, date)));
+        assertTrue(index.estimatedBytes() > 0);
+    }
+
+    @Test
+    void verifyRepairsDaysThatDriftedFromDatabase() {
+        TimeSlot slot = slot(8, SlotStatus.APPROVED, true);
+        database.add(slot);
+        index.load();
+
+        // Instance khác đã đặt slot này - index không được báo
+        slot.setIsAvailable(false);
+        SlotAvailabilityIndex.ConsistencyReport report = index.verify(true);
+
+        assertEquals(1, report.mismatched());
+        assertEquals(1, report.repaired());
+        assertEquals(List.of(), index.findAvailable(doctorId, date));
+        assertEquals(0, index.verify(false).mismatched());
+    }
+
+    private TimeSlot slot(int hour, SlotStatus status, boolean available) {
+        return TimeSlot.builder()
+                .id(UUID.randomUUID())
+                .doctorId(doctorId)
+                .date(date)
+                .startTime(LocalTime.of(hour, 0))
+                .endTime(LocalTime.of(hour + 1, 0))
+                .isAvailable(available)
+                .status(status)
+                .build();
+    }
+
+    private static List<UUID> ids(List<TimeSlot> slots) {
+        return slots.stream().map(TimeSlot::getId).toList();
+    }
+}
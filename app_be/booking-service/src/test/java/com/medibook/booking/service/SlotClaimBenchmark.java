@@ -0,0 +1,233 @@
+package com.medibook.booking.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Load benchmark so sánh các chiến lược giành slot (PESSIMISTIC / CONDITIONAL_UPDATE / OPTIMISTIC)
+ * trên PostgreSQL thật - mỗi slot có nhiều request tranh nhau cùng lúc.
+ * Chỉ chạy khi truyền JDBC url, ví dụ:
+ * mvn -pl booking-service test -Dtest=SlotClaimBenchmark
+ *   -Dbenchmark.jdbc-url=jdbc:postgresql://localhost:5432/medibook -Dbenchmark.user=postgres -Dbenchmark.password=...
+ * Dùng bảng tạm slot_claim_bench riêng, không đụng vào time_slots.
+ */
+@EnabledIfSystemProperty(named = "benchmark.jdbc-url", matches = ".+")
+class SlotClaimBenchmark {
+
+    private static final int SLOTS = Integer.getInteger("benchmark.slots", 200);
+    private static final int CONTENDERS_PER_SLOT = Integer.getInteger("benchmark.contenders", 20);
+    private static final int THREADS = Integer.getInteger("benchmark.threads", 32);
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final String url = System.getProperty("benchmark.jdbc-url");
+    private final String user = System.getProperty("benchmark.user", "postgres");
+    private final String password = System.getProperty("benchmark.password", "");
+
+    @Test
+    void compareClaimStrategies() throws Exception {
+        for (SlotClaimService.Strategy strategy : SlotClaimService.Strategy.values()) {
+            run(strategy); // warm-up
+            Result result = run(strategy);
+            System.out.printf("%-18s claims=%d  throughput=%.0f req/s  p50=%.2f ms  p99=%.2f ms  retries=%d%n",
+                    strategy, result.claimed, result.throughput(), result.percentile(50), result.percentile(99),
+                    result.retries);
+            assertEquals(SLOTS, result.claimed, "each slot must be claimed exactly once");
+        }
+    }
+
+    private Result run(SlotClaimService.Strategy strategy) throws Exception {
+        List<UUID> slots = prepareSlots();
+        List<UUID> requests = new ArrayList<>();
+        for (UUID slot : slots) {
+            for (int i = 0; i < CONTENDERS_PER_SLOT; i++) {
+                requests.add(slot);
+            }
+        }
+        Collections.shuffle(requests);
+
+        long[] latencies = new long[requests.size()];
+        AtomicInteger index = new AtomicInteger();
+        AtomicInteger claimed = new AtomicInteger();
+        AtomicInteger retries = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch done = new CountDownLatch(THREADS);
+        long started = System.nanoTime();
+        for (int t = 0; t < THREADS; t++) {
+            executor.submit(() -> {
+                try (Connection conn = DriverManager.getConnection(url, user, password)) {
+                    conn.setAutoCommit(false);
+                    int i;
+                    while ((i = index.getAndIncrement()) < requests.size()) {
+                        long begin = System.nanoTime();
+                        if (claimWithRetry(conn, strategy, requests.get(i), retries)) {
+                            claimed.incrementAndGet();
+                        }
+                        latencies[i] = System.nanoTime() - begin;
+                    }
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                } finally {
+                    done.countDown();
+                }
+                return null;
+            });
+        }
+        assertTrue(done.await(5, TimeUnit.MINUTES));
+        long elapsed = System.nanoTime() - started;
+        executor.shutdownNow();
+        return new Result(claimed.get(), retries.get(), latencies, elapsed);
+    }
+
+    private boolean claimWithRetry(Connection conn, SlotClaimService.Strategy strategy, UUID slotId,
+            AtomicInteger retries) throws SQLException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                boolean won = switch (strategy) {
+                    case PESSIMISTIC -> claimWithLock(conn, slotId);
+                    case CONDITIONAL_UPDATE -> claimWithConditionalUpdate(conn, slotId);
+                    case OPTIMISTIC -> claimWithVersion(conn, slotId);
+                };
+                conn.commit();
+                return won;
+            } catch (ConflictException | SQLException e) {
+                conn.rollback();
+                boolean retryable = e instanceof ConflictException
+                        || "40001".equals(((SQLException) e).getSQLState())
+                        || "40P01".equals(((SQLException) e).getSQLState());
+                if (!retryable) {
+                    throw (SQLException) e;
+                }
+                if (attempt >= MAX_ATTEMPTS) {
+                    return false;
+                }
+                retries.incrementAndGet();
+                sleepQuietly(ThreadLocalRandom.current().nextLong(1, 5L << attempt));
+            }
+        }
+    }
+
+    private boolean claimWithLock(Connection conn, UUID slotId) throws SQLException {
+        conn.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+        try (PreparedStatement select = conn.prepareStatement(
+                "SELECT is_available FROM slot_claim_bench WHERE id = ? FOR UPDATE")) {
+            select.setObject(1, slotId);
+            try (ResultSet rs = select.executeQuery()) {
+                if (!rs.next() || !rs.getBoolean(1)) {
+                    return false;
+                }
+            }
+        }
+        try (PreparedStatement update = conn.prepareStatement(
+                "UPDATE slot_claim_bench SET is_available = false, version = version + 1 WHERE id = ?")) {
+            update.setObject(1, slotId);
+            update.executeUpdate();
+        }
+        return true;
+    }
+
+    private boolean claimWithConditionalUpdate(Connection conn, UUID slotId) throws SQLException {
+        conn.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        try (PreparedStatement update = conn.prepareStatement(
+                "UPDATE slot_claim_bench SET is_available = false, version = version + 1 "
+                        + "WHERE id = ? AND is_available = true AND status = 'APPROVED'")) {
+            update.setObject(1, slotId);
+            return update.executeUpdate() == 1;
+        }
+    }
+
+    private boolean claimWithVersion(Connection conn, UUID slotId) throws SQLException, ConflictException {
+        conn.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        long version;
+        try (PreparedStatement select = conn.prepareStatement(
+                "SELECT is_available, version FROM slot_claim_bench WHERE id = ?")) {
+            select.setObject(1, slotId);
+            try (ResultSet rs = select.executeQuery()) {
+                if (!rs.next() || !rs.getBoolean(1)) {
+                    return false;
+                }
+                version = rs.getLong(2);
+            }
+        }
+        try (PreparedStatement update = conn.prepareStatement(
+                "UPDATE slot_claim_bench SET is_available = false, version = version + 1 WHERE id = ? AND version = ?")) {
+            update.setObject(1, slotId);
+            update.setLong(2, version);
+            if (update.executeUpdate() == 0) {
+                throw new ConflictException();
+            }
+        }
+        return true;
+    }
+
+    private List<UUID> prepareSlots() throws SQLException {
+        List<UUID> slots = new ArrayList<>();
+        try (Connection conn = DriverManager.getConnection(url, user, password);
+                Statement ddl = conn.createStatement()) {
+            ddl.execute("""
+                    CREATE TABLE IF NOT EXISTS slot_claim_bench (
+                        id UUID PRIMARY KEY,
+                        is_available BOOLEAN NOT NULL,
+                        status VARCHAR(20) NOT NULL,
+                        version BIGINT NOT NULL DEFAULT 0
+                    )""");
+            ddl.execute("TRUNCATE slot_claim_bench");
+            try (PreparedStatement insert = conn.prepareStatement(
+                    "INSERT INTO slot_claim_bench (id, is_available, status) VALUES (?, true, 'APPROVED')")) {
+                for (int i = 0; i < SLOTS; i++) {
+                    UUID id = UUID.randomUUID();
+                    insert.setObject(1, id);
+                    insert.addBatch();
+                    slots.add(id);
+                }
+                insert.executeBatch();
+            }
+        }
+        return slots;
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class ConflictException extends Exception {
+    }
+
+    private record Result(int claimed, int retries, long[] latencies, long elapsedNanos) {
+
+        double throughput() {
+            return latencies.length / (elapsedNanos / 1_000_000_000.0);
+        }
+
+        double percentile(int p) {
+            long[] sorted = latencies.clone();
+            Arrays.sort(sorted);
+            int i = (int) Math.ceil(p / 100.0 * sorted.length) - 1;
+            return sorted[Math.max(0, i)] / 1_000_000.0;
+        }
+    }
+}
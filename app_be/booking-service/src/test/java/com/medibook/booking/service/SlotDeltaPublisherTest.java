@@ -0,0 +1,87 @@
+package com.medibook.booking.service;
+
+import com.medibook.booking.entity.TimeSlot;
+import com.medibook.booking.service.SlotDeltaPublisher.DeltaType;
+import com.medibook.booking.service.SlotDeltaPublisher.SlotDelta;
+import com.medibook.booking.service.SlotDeltaPublisher.SlotDeltaFrame;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SlotDeltaPublisherTest {
+
+    private static final long WINDOW_MILLIS = 150;
+
+    private final UUID doctorId = UUID.randomUUID();
+    private final LocalDate date = LocalDate.of(2030, 1, 7);
+    // Frame đã gửi theo topic
+    private final Map<String, List<SlotDeltaFrame>> sent = new ConcurrentHashMap<>();
+    private final SlotDeltaPublisher publisher = new SlotDeltaPublisher(
+            new SimpMessagingTemplate((message, timeout) -> true) {
+                @Override
+                public void convertAndSend(String destination, Object payload) {
+                    sent.computeIfAbsent(destination, d -> new CopyOnWriteArrayList<>()).add((SlotDeltaFrame) payload);
+                }
+            },
+            new SimpleMeterRegistry(), WINDOW_MILLIS);
+
+    @Test
+    void changesWithinOneWindowAreSentAsOneFrameWithTheLastStatePerSlot() throws InterruptedException {
+        TimeSlot first = slot(date, 8);
+        TimeSlot second = slot(date, 9);
+        TimeSlot third = slot(date, 10);
+
+        publisher.booked(first);
+        publisher.approved(List.of(second, third));
+        publisher.freed(first);
+        publisher.removed(List.of(third));
+        assertTrue(sent.isEmpty(), "frame must wait for the window to close");
+
+        Thread.sleep(WINDOW_MILLIS * 4);
+
+        List<SlotDeltaFrame> frames = sent.get(SlotDeltaPublisher.topic(doctorId, date));
+        assertEquals(1, frames.size());
+        SlotDeltaFrame frame = frames.get(0);
+        assertEquals(doctorId, frame.doctorId());
+        assertEquals(date, frame.date());
+        assertEquals(List.of(second.getId(), first.getId(), third.getId()),
+                frame.deltas().stream().map(SlotDelta::slotId).toList());
+        assertEquals(List.of(DeltaType.APPROVED, DeltaType.FREED, DeltaType.REMOVED),
+                frame.deltas().stream().map(SlotDelta::type).toList());
+    }
+
+    @Test
+    void eachDayHasItsOwnWindowAndALateChangeOpensANewOne() throws InterruptedException {
+        LocalDate nextDay = date.plusDays(1);
+        publisher.booked(slot(date, 8));
+        publisher.booked(slot(nextDay, 8));
+        Thread.sleep(WINDOW_MILLIS * 4);
+
+        publisher.freed(slot(date, 9));
+        Thread.sleep(WINDOW_MILLIS * 4);
+
+        assertEquals(2, sent.get(SlotDeltaPublisher.topic(doctorId, date)).size());
+        assertEquals(1, sent.get(SlotDeltaPublisher.topic(doctorId, nextDay)).size());
+    }
+
+    private TimeSlot slot(LocalDate day, int hour) {
+        return TimeSlot.builder()
+                .id(UUID.randomUUID())
+                .doctorId(doctorId)
+                .date(day)
+                .startTime(LocalTime.of(hour, 0))
+                .endTime(LocalTime.of(hour, 30))
+                .build();
+    }
+}
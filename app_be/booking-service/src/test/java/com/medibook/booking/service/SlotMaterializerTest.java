@@ -0,0 +1,148 @@
+package com.medibook.booking.service;
+
+import com.medibook.booking.entity.TimeSlot;
+import com.medibook.booking.repository.SlotMaterializationRepository;
+import com.medibook.booking.repository.SlotMaterializationRepository.ScheduleTemplate;
+import com.medibook.booking.repository.SlotMaterializationRepository.SlotRow;
+import com.medibook.common.enums.SlotStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SlotMaterializerTest {
+
+    private final UUID doctorId = UUID.randomUUID();
+    // Thứ Hai
+    private final LocalDate monday = LocalDate.of(2030, 1, 7);
+    private final LocalDateTime longAgo = LocalDateTime.of(2000, 1, 1, 0, 0);
+
+    @Test
+    void expandCoversEveryMatchingWeekdayIncludingBothEndsOfTheRange() {
+        ScheduleTemplate mondays = schedule(DayOfWeek.MONDAY, 8, 0, 10, 0, 30);
+        ScheduleTemplate sundays = schedule(DayOfWeek.SUNDAY, 14, 0, 15, 0, 60);
+
+        List<SlotRow> slots = SlotMaterializer.expand(List.of(mondays, sundays), monday, monday.plusWeeks(2), longAgo);
+
+        // 3 thứ Hai (cả hai đầu khoảng) x 4 slot + 2 chủ nhật x 1 slot
+        assertEquals(14, slots.size());
+        assertEquals(Set.of(monday, monday.plusWeeks(1), monday.plusWeeks(2)), dates(slots, mondays));
+        assertEquals(Set.of(monday.plusDays(6), monday.plusDays(13)), dates(slots, sundays));
+        assertTrue(slots.stream().allMatch(s -> !s.date().isBefore(monday) && !s.date().isAfter(monday.plusWeeks(2))));
+    }
+
+    @Test
+    void expandStartsAtTheFirstMatchingDayAfterAMidWeekStart() {
+        ScheduleTemplate mondays = schedule(DayOfWeek.MONDAY, 8, 0, 9, 0, 30);
+
+        List<SlotRow> slots = SlotMaterializer.expand(List.of(mondays), monday.plusDays(2), monday.plusDays(8), longAgo);
+
+        assertEquals(Set.of(monday.plusWeeks(1)), dates(slots, mondays));
+        assertEquals(2, slots.size());
+    }
+
+    @Test
+    void expandDropsPartialTrailingSlotsAndSlotsAlreadyStarted() {
+        // 08:00-09:45 với slot 30 phút: 08:00, 08:30, 09:00 (09:30-10:00 vượt giờ kết thúc)
+        ScheduleTemplate mondays = schedule(DayOfWeek.MONDAY, 8, 0, 9, 45, 30);
+
+        List<SlotRow> all = SlotMaterializer.expand(List.of(mondays), monday, monday, longAgo);
+        assertEquals(List.of(LocalTime.of(8, 0), LocalTime.of(8, 30), LocalTime.of(9, 0)),
+                all.stream().map(SlotRow::startTime).toList());
+        assertTrue(all.stream().allMatch(s -> !s.endTime().isAfter(LocalTime.of(9, 45))));
+
+        List<SlotRow> afterNow = SlotMaterializer.expand(List.of(mondays), monday, monday, monday.atTime(8, 15));
+        assertEquals(List.of(LocalTime.of(8, 30), LocalTime.of(9, 0)), afterNow.stream().map(SlotRow::startTime).toList());
+    }
+
+    @Test
+    void rerunsOverOverlappingWindowsInsertNoDuplicates() {
+        ScheduleTemplate mondays = schedule(DayOfWeek.MONDAY, 8, 0, 10, 0, 30);
+        // "DB" giả lập: time_slots theo (bác sĩ, ngày, giờ bắt đầu), insertMissing bỏ qua slot đã có
+        Set<String> timeSlots = new HashSet<>();
+        List<Integer> insertedPerRun = new ArrayList<>();
+        SlotMaterializationRepository repository = new SlotMaterializationRepository(null) {
+            @Override
+            public void lock() {
+            }
+
+            @Override
+            public List<ScheduleTemplate> findActiveSchedules(UUID doctor) {
+                return List.of(mondays);
+            }
+
+            @Override
+            public List<TimeSlot> insertMissing(List<SlotRow> slots, SlotStatus status) {
+                List<TimeSlot> inserted = slots.stream()
+                        .filter(s -> timeSlots.add(s.doctorId() + "/" + s.date() + "/" + s.startTime()))
+                        .map(s -> TimeSlot.builder().id(UUID.randomUUID()).doctorId(s.doctorId()).date(s.date())
+                                .startTime(s.startTime()).endTime(s.endTime()).status(status).build())
+                        .toList();
+                insertedPerRun.add(inserted.size());
+                return inserted;
+            }
+
+            @Override
+            public List<TimeSlot> deleteAvailableSlotsOfInactiveSchedules(LocalDate fromDate, UUID doctor) {
+                return List.of();
+            }
+        };
+        SlotDeltaPublisher deltaPublisher =
+                new SlotDeltaPublisher(new SimpMessagingTemplate((message, timeout) -> true), new SimpleMeterRegistry(), 0);
+        SlotMaterializer materializer = new SlotMaterializer(repository, null, deltaPublisher,
+                new NoOpTransactionManager(), new SimpleMeterRegistry(), 8, SlotStatus.PENDING);
+
+        materializer.materialize(doctorId, monday, monday.plusWeeks(2).minusDays(1));
+        materializer.materialize(doctorId, monday, monday.plusWeeks(2).minusDays(1));
+        // Cửa sổ trượt thêm một tuần: chỉ tuần mới được chèn
+        SlotMaterializer.MaterializationRun shifted =
+                materializer.materialize(doctorId, monday.plusWeeks(1), monday.plusWeeks(3).minusDays(1));
+
+        assertEquals(List.of(8, 0, 4), insertedPerRun);
+        assertEquals(8, shifted.generated());
+        assertEquals(12, timeSlots.size());
+    }
+
+    private ScheduleTemplate schedule(DayOfWeek day, int startHour, int startMinute, int endHour, int endMinute, int minutes) {
+        return new ScheduleTemplate(UUID.randomUUID(), doctorId, day,
+                LocalTime.of(startHour, startMinute), LocalTime.of(endHour, endMinute), minutes);
+    }
+
+    private static Set<LocalDate> dates(List<SlotRow> slots, ScheduleTemplate schedule) {
+        Set<LocalDate> dates = new HashSet<>();
+        slots.stream().filter(s -> s.scheduleId().equals(schedule.id())).forEach(s -> dates.add(s.date()));
+        return dates;
+    }
+
+    private static final class NoOpTransactionManager implements PlatformTransactionManager {
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.medibook.booking.service;
+
+import com.medibook.common.exception.SlotNotAvailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SlotReservationGateTest {
+
+    @Test
+    void concurrentContendersNeverDoubleBookASlot() throws Exception {
+        SlotReservationGate gate = new SlotReservationGate(new SimpleMeterRegistry(), 30);
+        UUID slotId = UUID.randomUUID();
+        int contenders = 200;
+
+        // "DB" giả lập: check-then-set không an toàn, chỉ đúng nếu cổng cho tối đa 1 request vào
+        ConcurrentHashMap<UUID, UUID> bookings = new ConcurrentHashMap<>();
+        AtomicInteger reachedDatabase = new AtomicInteger();
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(contenders);
+        for (int i = 0; i < contenders; i++) {
+            UUID patientId = UUID.randomUUID();
+            executor.submit(() -> {
+                try {
+                    start.await();
+                    gate.reserve(slotId, () -> {
+                        reachedDatabase.incrementAndGet();
+                        if (bookings.containsKey(slotId)) {
+                            throw new SlotNotAvailableException();
+                        }
+                        sleepQuietly(20);
+                        bookings.put(slotId, patientId);
+                        return patientId;
+                    });
+                    succeeded.incrementAndGet();
+                } catch (SlotNotAvailableException e) {
+                    rejected.incrementAndGet();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        start.countDown();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        executor.shutdownNow();
+
+        assertEquals(1, succeeded.get());
+        assertEquals(contenders - 1, rejected.get());
+        assertEquals(1, bookings.size());
+        // Request thua không bao giờ tới được DB trong lúc người thắng đang giữ slot
+        assertEquals(1, reachedDatabase.get());
+    }
+
+    @Test
+    void releasedSlotCanBeBookedAgain() {
+        SlotReservationGate gate = new SlotReservationGate(new SimpleMeterRegistry(), 30);
+        UUID slotId = UUID.randomUUID();
+
+        gate.reserve(slotId, () -> "first");
+        assertThrows(SlotNotAvailableException.class, () -> gate.reserve(slotId, () -> "second"));
+
+        gate.release(slotId);
+        assertEquals("third", gate.reserve(slotId, () -> "third"));
+    }
+
+    @Test
+    void failedAttemptDoesNotBlockSlot() {
+        SlotReservationGate gate = new SlotReservationGate(new SimpleMeterRegistry(), 30);
+        UUID slotId = UUID.randomUUID();
+
+        assertThrows(IllegalStateException.class, () -> gate.reserve(slotId, () -> {
+            throw new IllegalStateException("validation failed");
+        }));
+        assertEquals("ok", gate.reserve(slotId, () -> "ok"));
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.medibook.common.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Keyset (cursor) paginated response wrapper - không cần COUNT(*)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+    private List<T> content;
+    private int size;
+    private String nextCursor;
+    private boolean hasNext;
+    private LocalDateTime timestamp;
+
+    public static <T> CursorPage<T> of(List<T> content, int size, String nextCursor) {
+        return CursorPage.<T>builder()
+                .content(content)
+                .size(size)
+                .nextCursor(nextCursor)
+                .hasNext(nextCursor != null)
+                .timestamp(LocalDateTime.now())
+                .build();
+    }
+}
@@ -0,0 +1,41 @@
+package com.medibook.common.security;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.UUID;
+
+/**
+ * Header định danh do API Gateway gắn vào request từ JWT.
+ * X-Doctor-Id lấy từ claim doctorId của access token (chỉ tài khoản DOCTOR) - gateway luôn xóa
+ * giá trị client tự gửi, chỉ gắn khi token hợp lệ và đúng người dùng trong X-User-Id.
+ */
+public final class AuthHeaders {
+
+    public static final String USER_ID = "X-User-Id";
+    public static final String DOCTOR_ID = "X-Doctor-Id";
+
+    private AuthHeaders() {
+    }
+
+    /**
+     * doctorId trong header của request hiện tại nếu request thuộc về userId; null nếu không có
+     * (token cũ chưa có claim, gọi ngoài request...) - caller tra DB như trước.
+     */
+    public static UUID currentDoctorId(UUID userId) {
+        if (userId == null || !(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes)) {
+            return null;
+        }
+        HttpServletRequest request = attributes.getRequest();
+        String doctorId = request.getHeader(DOCTOR_ID);
+        if (doctorId == null || doctorId.isBlank() || !userId.toString().equalsIgnoreCase(request.getHeader(USER_ID))) {
+            return null;
+        }
+        try {
+            return UUID.fromString(doctorId.trim());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
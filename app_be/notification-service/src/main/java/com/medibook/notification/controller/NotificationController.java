@@ -5,6 +5,7 @@ import com.medibook.common.dto.PageResponse;
 import com.medibook.notification.dto.BookingCreatedEmailRequest;
 import com.medibook.notification.dto.BookingStatusNotificationRequest;
 import com.medibook.notification.dto.EmailVerificationEmailRequest;
+import com.medibook.notification.dto.NotificationBatchRequest;
 import com.medibook.notification.entity.Notification;
 import com.medibook.notification.service.NotificationService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -54,6 +55,14 @@ public class NotificationController {
         return ResponseEntity.ok(ApiResponse.success("Đã tạo thông báo hủy lịch hẹn", null));
     }
 
+    @PostMapping("/internal/batch")
+    @Operation(summary = "Nhận một lô sự kiện thông báo booking (ghi batch, đẩy WebSocket một lượt)")
+    public ResponseEntity<ApiResponse<Map<String, Integer>>> ingestBatch(
+            @RequestBody NotificationBatchRequest request) {
+        int accepted = notificationService.ingestBatch(request != null ? request.getEvents() : null);
+        return ResponseEntity.ok(ApiResponse.success(Map.of("accepted", accepted)));
+    }
+
     @PostMapping("/internal/email-verification")
     @Operation(summary = "Gửi email chứa mã xác thực email")
     public ResponseEntity<ApiResponse<Void>> sendEmailVerificationCode(
@@ -0,0 +1,14 @@
+package com.medibook.notification.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationBatchRequest {
+    private List<NotificationEvent> events;
+}
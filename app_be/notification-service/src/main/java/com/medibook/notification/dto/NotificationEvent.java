@@ -0,0 +1,20 @@
+package com.medibook.notification.dto;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Một sự kiện trong /notifications/internal/batch.
+ * payload có cùng dạng với body của endpoint đơn lẻ tương ứng với type.
+ * id: khóa idempotency do bên gửi cấp (ví dụ id dòng outbox) - gửi lại cùng id không tạo notification / email mới.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationEvent {
+    private String id;
+    private String type; // BOOKING_CREATED, BOOKING_CONFIRMED, BOOKING_CANCELLED
+    private JsonNode payload;
+}
@@ -0,0 +1,58 @@
+package com.medibook.notification.repository;
+
+import com.medibook.notification.entity.Notification;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ghi nhiều notification bằng một JDBC batch insert (thay vì save từng entity)
+ */
+@Repository
+@RequiredArgsConstructor
+public class NotificationBatchRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Notification phải có sẵn id và createdAt. Dòng trùng id (sự kiện được gửi lại) bị bỏ qua;
+     * trả về các notification thực sự được ghi.
+     */
+    public List<Notification> insertNew(List<Notification> notifications) {
+        if (notifications.isEmpty()) {
+            return List.of();
+        }
+        int[][] counts = jdbcTemplate.batchUpdate("""
+                INSERT INTO notifications (id, user_id, title, message, type, related_id, is_read, created_at)
+                VALUES (?, ?, ?, ?, ?, ?, false, ?)
+                ON CONFLICT (id) DO NOTHING
+                """, notifications, notifications.size(), (ps, n) -> {
+            ps.setObject(1, n.getId());
+            ps.setObject(2, n.getUserId());
+            ps.setString(3, n.getTitle());
+            ps.setString(4, n.getMessage());
+            // Types.OTHER: để PostgreSQL tự ép kiểu (cột type có thể là enum hoặc varchar)
+            ps.setObject(5, n.getType(), Types.OTHER);
+            ps.setObject(6, n.getRelatedId());
+            ps.setTimestamp(7, Timestamp.valueOf(n.getCreatedAt()));
+        });
+        List<Notification> inserted = new ArrayList<>(notifications.size());
+        int index = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                // SUCCESS_NO_INFO chỉ có khi driver gộp batch (reWriteBatchedInserts) - coi như đã ghi
+                if (count > 0 || count == Statement.SUCCESS_NO_INFO) {
+                    inserted.add(notifications.get(index));
+                }
+                index++;
+            }
+        }
+        return inserted;
+    }
+}
@@ -3,8 +3,12 @@ package com.medibook.notification.service;
 import com.medibook.notification.dto.BookingCreatedEmailRequest;
 import com.medibook.notification.dto.BookingStatusNotificationRequest;
 import com.medibook.notification.dto.EmailVerificationEmailRequest;
+import com.medibook.notification.dto.NotificationEvent;
 import com.medibook.notification.entity.Notification;
+import com.medibook.notification.repository.NotificationBatchRepository;
 import com.medibook.notification.repository.NotificationRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
@@ -12,9 +16,15 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 /**
@@ -28,33 +38,18 @@ public class NotificationService {
     private final NotificationRepository notificationRepository;
     private final SimpMessagingTemplate messagingTemplate;
     private final EmailService emailService;
+    private final NotificationBatchRepository notificationBatchRepository;
+    private final ObjectMapper objectMapper;
 
     /**
      * Tạo và gửi notification
      */
     @Transactional
     public Notification createAndSend(UUID userId, String title, String message, String type, UUID relatedId) {
-        Notification notification = Notification.builder()
-                .userId(userId)
-                .title(title)
-                .message(message)
-                .type(type)
-                .relatedId(relatedId)
-                .isRead(false)
-                .build();
-
-        notification = notificationRepository.save(notification);
+        Notification notification = notificationRepository.save(newNotification(userId, title, message, type, relatedId));
 
         // Gửi qua WebSocket
-        try {
-            messagingTemplate.convertAndSendToUser(
-                    userId.toString(),
-                    "/queue/notifications",
-                    notification);
-            log.info("WebSocket notification sent to user: {}", userId);
-        } catch (Exception e) {
-            log.warn("Failed to send WebSocket notification: {}", e.getMessage());
-        }
+        pushToUser(notification);
 
         // Fallback log for notification events that do not include a recipient email
         logEmail(userId, title, message);
@@ -62,6 +57,91 @@ public class NotificationService {
         return notification;
     }
 
+    /**
+     * Nhận một lô sự kiện hỗn hợp: ghi tất cả bằng một JDBC batch insert,
+     * sau khi commit đẩy WebSocket trong một lượt. Sự kiện không hợp lệ bị bỏ qua.
+     * Sự kiện có id được ghi với id notification suy ra từ id đó: lô gửi lại (outbox retry sau timeout)
+     * không tạo notification mới, và WebSocket / email chỉ gửi cho các dòng thực sự được ghi.
+     */
+    @Transactional
+    public int ingestBatch(List<NotificationEvent> events) {
+        if (events == null || events.isEmpty()) {
+            return 0;
+        }
+        List<Notification> notifications = new ArrayList<>(events.size());
+        Map<UUID, BookingCreatedEmailRequest> emails = new HashMap<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (NotificationEvent event : events) {
+            ParsedEvent parsed = parse(event);
+            if (parsed == null || parsed.notification() == null) {
+                continue;
+            }
+            Notification notification = parsed.notification();
+            notification.setId(notificationId(event));
+            notification.setCreatedAt(now);
+            notifications.add(notification);
+            if (parsed.email() != null) {
+                emails.put(notification.getId(), parsed.email());
+            }
+        }
+
+        List<Notification> inserted = notificationBatchRepository.insertNew(notifications);
+        afterCommit(() -> inserted.forEach(notification -> {
+            pushToUser(notification);
+            BookingCreatedEmailRequest email = emails.get(notification.getId());
+            if (email != null) {
+                emailService.sendBookingCreatedConfirmation(email);
+            }
+            // Fallback log for notification events that do not include a recipient email
+            logEmail(notification.getUserId(), notification.getTitle(), notification.getMessage());
+        }));
+        log.info("Ingested notification batch: {} events, {} notifications, {} duplicates skipped",
+                events.size(), inserted.size(), notifications.size() - inserted.size());
+        return inserted.size();
+    }
+
+    /**
+     * Id notification của sự kiện: cố định theo id sự kiện (để gửi lại là trùng khóa), ngẫu nhiên nếu không có
+     */
+    static UUID notificationId(NotificationEvent event) {
+        if (event.getId() == null || event.getId().isBlank()) {
+            return UUID.randomUUID();
+        }
+        return UUID.nameUUIDFromBytes(("notification-event:" + event.getId()).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * email: yêu cầu gửi email xác nhận (chỉ BOOKING_CREATED), gửi sau khi notification được ghi
+     */
+    private record ParsedEvent(Notification notification, BookingCreatedEmailRequest email) {}
+
+    private ParsedEvent parse(NotificationEvent event) {
+        if (event == null || event.getType() == null || event.getPayload() == null) {
+            log.warn("Skip notification event without type or payload");
+            return null;
+        }
+        try {
+            switch (event.getType()) {
+                case "BOOKING_CREATED": {
+                    BookingCreatedEmailRequest request = objectMapper.treeToValue(event.getPayload(), BookingCreatedEmailRequest.class);
+                    return new ParsedEvent(bookingCreatedNotification(request), request);
+                }
+                case "BOOKING_CONFIRMED":
+                    return new ParsedEvent(bookingConfirmedNotification(
+                            objectMapper.treeToValue(event.getPayload(), BookingStatusNotificationRequest.class)), null);
+                case "BOOKING_CANCELLED":
+                    return new ParsedEvent(bookingCancelledNotification(
+                            objectMapper.treeToValue(event.getPayload(), BookingStatusNotificationRequest.class)), null);
+                default:
+                    log.warn("Skip unknown notification event type {}", event.getType());
+                    return null;
+            }
+        } catch (JsonProcessingException e) {
+            log.warn("Skip malformed {} notification event: {}", event.getType(), e.getOriginalMessage());
+            return null;
+        }
+    }
+
     /**
      * Gửi notification khi đặt lịch thành công
      */
@@ -83,6 +163,20 @@ public class NotificationService {
             return;
         }
 
+        Notification notification = bookingCreatedNotification(request);
+        if (notification != null) {
+            createAndSend(notification.getUserId(), notification.getTitle(), notification.getMessage(),
+                    notification.getType(), notification.getRelatedId());
+        }
+
+        emailService.sendBookingCreatedConfirmation(request);
+    }
+
+    private Notification bookingCreatedNotification(BookingCreatedEmailRequest request) {
+        if (request.getPatientId() == null || request.getBookingId() == null) {
+            log.warn("Skip in-app booking notification because patientId or bookingId is missing");
+            return null;
+        }
         String title = "Đặt lịch thành công";
         String time = request.getEndTime() != null && !request.getEndTime().isBlank()
                 ? request.getStartTime() + " - " + request.getEndTime()
@@ -90,14 +184,7 @@ public class NotificationService {
         String message = String.format(
                 "Bạn đã đặt lịch khám với bác sĩ %s vào %s lúc %s. Vui lòng chờ xác nhận.",
                 request.getDoctorName(), request.getDate(), time);
-
-        if (request.getPatientId() != null && request.getBookingId() != null) {
-            createAndSend(request.getPatientId(), title, message, "BOOKING_CREATED", request.getBookingId());
-        } else {
-            log.warn("Skip in-app booking notification because patientId or bookingId is missing");
-        }
-
-        emailService.sendBookingCreatedConfirmation(request);
+        return newNotification(request.getPatientId(), title, message, "BOOKING_CREATED", request.getBookingId());
     }
 
     public void sendEmailVerificationCode(EmailVerificationEmailRequest request) {
@@ -109,19 +196,31 @@ public class NotificationService {
      */
     public void sendBookingConfirmedNotification(UUID patientId, UUID bookingId, String doctorName, String date,
             String time) {
+        Notification n = confirmedNotification(patientId, bookingId, doctorName, date, time);
+        createAndSend(n.getUserId(), n.getTitle(), n.getMessage(), n.getType(), n.getRelatedId());
+    }
+
+    public void sendBookingConfirmedNotification(BookingStatusNotificationRequest request) {
+        Notification n = bookingConfirmedNotification(request);
+        if (n != null) {
+            createAndSend(n.getUserId(), n.getTitle(), n.getMessage(), n.getType(), n.getRelatedId());
+        }
+    }
+
+    private Notification confirmedNotification(UUID patientId, UUID bookingId, String doctorName, String date,
+            String time) {
         String title = "Lịch đã được xác nhận";
         String message = String.format("Lịch khám với bác sĩ %s vào %s lúc %s đã được xác nhận.", doctorName, date,
                 time);
-        createAndSend(patientId, title, message, "BOOKING_CONFIRMED", bookingId);
+        return newNotification(patientId, title, message, "BOOKING_CONFIRMED", bookingId);
     }
 
-    public void sendBookingConfirmedNotification(BookingStatusNotificationRequest request) {
+    private Notification bookingConfirmedNotification(BookingStatusNotificationRequest request) {
         if (request == null || request.getPatientId() == null || request.getBookingId() == null) {
             log.warn("Skip confirmed booking notification because request is incomplete");
-            return;
+            return null;
         }
-
-        sendBookingConfirmedNotification(
+        return confirmedNotification(
                 request.getPatientId(),
                 request.getBookingId(),
                 firstNonBlank(request.getDoctorName(), "bác sĩ"),
@@ -133,18 +232,29 @@ public class NotificationService {
      * Gửi notification khi lịch bị hủy
      */
     public void sendBookingCancelledNotification(UUID userId, UUID bookingId, String reason) {
+        Notification n = cancelledNotification(userId, bookingId, reason);
+        createAndSend(n.getUserId(), n.getTitle(), n.getMessage(), n.getType(), n.getRelatedId());
+    }
+
+    public void sendBookingCancelledNotification(BookingStatusNotificationRequest request) {
+        Notification n = bookingCancelledNotification(request);
+        if (n != null) {
+            createAndSend(n.getUserId(), n.getTitle(), n.getMessage(), n.getType(), n.getRelatedId());
+        }
+    }
+
+    private Notification cancelledNotification(UUID userId, UUID bookingId, String reason) {
         String title = "Lịch đã bị hủy";
         String message = String.format("Lịch khám đã bị hủy. Lý do: %s", reason);
-        createAndSend(userId, title, message, "BOOKING_CANCELLED", bookingId);
+        return newNotification(userId, title, message, "BOOKING_CANCELLED", bookingId);
     }
 
-    public void sendBookingCancelledNotification(BookingStatusNotificationRequest request) {
+    private Notification bookingCancelledNotification(BookingStatusNotificationRequest request) {
         if (request == null || request.getPatientId() == null || request.getBookingId() == null) {
             log.warn("Skip cancelled booking notification because request is incomplete");
-            return;
+            return null;
         }
-
-        sendBookingCancelledNotification(
+        return cancelledNotification(
                 request.getPatientId(),
                 request.getBookingId(),
                 firstNonBlank(request.getReason(), "Không có lý do cụ thể"));
@@ -201,6 +311,42 @@ public class NotificationService {
         notificationRepository.markAllAsRead(userId);
     }
 
+    private Notification newNotification(UUID userId, String title, String message, String type, UUID relatedId) {
+        return Notification.builder()
+                .userId(userId)
+                .title(title)
+                .message(message)
+                .type(type)
+                .relatedId(relatedId)
+                .isRead(false)
+                .build();
+    }
+
+    private void pushToUser(Notification notification) {
+        try {
+            messagingTemplate.convertAndSendToUser(
+                    notification.getUserId().toString(),
+                    "/queue/notifications",
+                    notification);
+            log.info("WebSocket notification sent to user: {}", notification.getUserId());
+        } catch (Exception e) {
+            log.warn("Failed to send WebSocket notification: {}", e.getMessage());
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+            return;
+        }
+        action.run();
+    }
+
     /**
      * Log fallback cho notification chua co email nguoi nhan.
      */
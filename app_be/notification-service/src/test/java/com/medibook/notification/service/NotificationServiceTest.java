@@ -0,0 +1,94 @@
+package com.medibook.notification.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.medibook.notification.dto.BookingCreatedEmailRequest;
+import com.medibook.notification.dto.NotificationEvent;
+import com.medibook.notification.entity.Notification;
+import com.medibook.notification.repository.NotificationBatchRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class NotificationServiceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    // "DB" giả lập: bảng notifications theo id, INSERT ... ON CONFLICT (id) DO NOTHING
+    private final Map<UUID, Notification> table = new HashMap<>();
+    private final List<String> pushedTo = new ArrayList<>();
+    private final List<String> emailedTo = new ArrayList<>();
+
+    private final NotificationBatchRepository batchRepository = new NotificationBatchRepository(null) {
+        @Override
+        public List<Notification> insertNew(List<Notification> notifications) {
+            return notifications.stream().filter(n -> table.putIfAbsent(n.getId(), n) == null).toList();
+        }
+    };
+    private final SimpMessagingTemplate messagingTemplate = new SimpMessagingTemplate((message, timeout) -> true) {
+        @Override
+        public void convertAndSendToUser(String user, String destination, Object payload) {
+            pushedTo.add(user);
+        }
+    };
+    private final EmailService emailService = new EmailService(null) {
+        @Override
+        public void sendBookingCreatedConfirmation(BookingCreatedEmailRequest request) {
+            emailedTo.add(request.getPatientEmail());
+        }
+    };
+    private final NotificationService service =
+            new NotificationService(null, messagingTemplate, emailService, batchRepository, objectMapper);
+
+    @Test
+    void resentBatchDoesNotDuplicateNotificationsOrEmails() {
+        UUID patientId = UUID.randomUUID();
+        List<NotificationEvent> batch = List.of(
+                created("booking-outbox:1", patientId, "a@example.com"),
+                cancelled("booking-outbox:2", patientId));
+
+        assertEquals(2, service.ingestBatch(batch));
+        // Outbox gửi lại lô đã commit (ví dụ client timeout) kèm một sự kiện mới
+        List<NotificationEvent> retry = new ArrayList<>(batch);
+        retry.add(created("booking-outbox:3", patientId, "b@example.com"));
+        assertEquals(1, service.ingestBatch(retry));
+
+        assertEquals(3, table.size());
+        assertEquals(List.of("a@example.com", "b@example.com"), emailedTo);
+        assertEquals(3, pushedTo.size());
+    }
+
+    @Test
+    void eventsWithoutIdAreAlwaysInserted() {
+        UUID patientId = UUID.randomUUID();
+        NotificationEvent event = cancelled(null, patientId);
+
+        assertEquals(1, service.ingestBatch(List.of(event)));
+        assertEquals(1, service.ingestBatch(List.of(event)));
+        assertEquals(2, table.size());
+        assertNotEquals(NotificationService.notificationId(event), NotificationService.notificationId(event));
+        assertEquals(NotificationService.notificationId(cancelled("x", patientId)),
+                NotificationService.notificationId(cancelled("x", UUID.randomUUID())));
+    }
+
+    private NotificationEvent created(String id, UUID patientId, String email) {
+        BookingCreatedEmailRequest request = BookingCreatedEmailRequest.builder()
+                .patientId(patientId).bookingId(UUID.randomUUID()).patientEmail(email)
+                .doctorName("Bác sĩ A").date("2026-10-20").startTime("08:00").endTime("08:30")
+                .build();
+        return new NotificationEvent(id, "BOOKING_CREATED", objectMapper.valueToTree(request));
+    }
+
+    private NotificationEvent cancelled(String id, UUID patientId) {
+        return new NotificationEvent(id, "BOOKING_CANCELLED", objectMapper.createObjectNode()
+                .put("patientId", patientId.toString())
+                .put("bookingId", UUID.randomUUID().toString())
+                .put("reason", "Bận"));
+    }
+}
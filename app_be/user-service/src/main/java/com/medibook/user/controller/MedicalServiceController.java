@@ -4,6 +4,7 @@ import com.medibook.common.dto.ApiResponse;
 import com.medibook.user.dto.MedicalServiceDto;
 import com.medibook.user.entity.MedicalService;
 import com.medibook.user.repository.MedicalServiceRepository;
+import com.medibook.user.service.BookingServiceClient;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
@@ -24,6 +25,7 @@ import java.util.stream.Collectors;
 public class MedicalServiceController {
 
     private final MedicalServiceRepository medicalServiceRepository;
+    private final BookingServiceClient bookingServiceClient;
 
     @GetMapping
     @Operation(summary = "Lấy danh sách tất cả dịch vụ")
@@ -73,7 +75,9 @@ public class MedicalServiceController {
                     if (request.getIsActive() != null) {
                         service.setIsActive(request.getIsActive());
                     }
-                    return ResponseEntity.ok(ApiResponse.success(toDto(medicalServiceRepository.save(service))));
+                    MedicalService saved = medicalServiceRepository.save(service);
+                    bookingServiceClient.evictService(id);
+                    return ResponseEntity.ok(ApiResponse.success(toDto(saved)));
                 })
                 .orElse(ResponseEntity.ok(ApiResponse.error("Service not found")));
     }
@@ -85,6 +89,7 @@ public class MedicalServiceController {
                 .map(service -> {
                     service.setIsActive(false);
                     medicalServiceRepository.save(service);
+                    bookingServiceClient.evictService(id);
                     return ResponseEntity.ok(ApiResponse.<Void>success(null));
                 })
                 .orElse(ResponseEntity.ok(ApiResponse.error("Service not found")));
@@ -96,7 +101,9 @@ public class MedicalServiceController {
         return medicalServiceRepository.findById(id)
                 .map(service -> {
                     service.setIsActive(!Boolean.TRUE.equals(service.getIsActive()));
-                    return ResponseEntity.ok(ApiResponse.success(toDto(medicalServiceRepository.save(service))));
+                    MedicalService saved = medicalServiceRepository.save(service);
+                    bookingServiceClient.evictService(id);
+                    return ResponseEntity.ok(ApiResponse.success(toDto(saved)));
                 })
                 .orElse(ResponseEntity.ok(ApiResponse.error("Service not found")));
     }
@@ -0,0 +1,68 @@
+package com.medibook.user.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.client.RestClientException;
+
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Client gọi internal API của booking-service
+ * Dùng để invalidate cache dữ liệu tham chiếu khi bác sĩ / dịch vụ / hồ sơ thay đổi
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BookingServiceClient {
+
+    private final RestTemplateBuilder restTemplateBuilder;
+
+    @Value("${services.booking-service.url:http://localhost:8083}")
+    private String bookingServiceUrl;
+
+    public void evictDoctor(UUID doctorId) {
+        evictAfterCommit("/doctors/" + doctorId);
+    }
+
+    public void evictService(UUID serviceId) {
+        evictAfterCommit("/services/" + serviceId);
+    }
+
+    public void evictPatient(UUID userId) {
+        evictAfterCommit("/patients/" + userId);
+    }
+
+    /**
+     * Chỉ gọi sau khi transaction commit để booking-service không nạp lại dữ liệu cũ
+     */
+    private void evictAfterCommit(String path) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(path);
+                }
+            });
+            return;
+        }
+        evict(path);
+    }
+
+    private void evict(String path) {
+        try {
+            restTemplateBuilder
+                    .setConnectTimeout(Duration.ofSeconds(2))
+                    .setReadTimeout(Duration.ofSeconds(3))
+                    .build()
+                    .delete(bookingServiceUrl + "/bookings/internal/reference-cache" + path);
+        } catch (RestClientException e) {
+            log.warn("Could not evict booking-service reference cache {}: {}", path, e.getMessage());
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.medibook.user.service;
 
 import com.medibook.common.exception.ResourceNotFoundException;
+import com.medibook.common.security.AuthHeaders;
 import com.medibook.user.dto.CreateDoctorRequest;
 import com.medibook.user.dto.DoctorDto;
 import com.medibook.user.dto.MedicalServiceDto;
@@ -27,6 +28,7 @@ public class DoctorService {
 
     private final DoctorRepository doctorRepository;
     private final MedicalServiceRepository medicalServiceRepository;
+    private final BookingServiceClient bookingServiceClient;
 
     /**
      * Lấy tất cả bác sĩ
@@ -64,9 +66,13 @@ public class DoctorService {
     }
 
     /**
-     * Lấy Doctor ID từ User ID
+     * Lấy Doctor ID từ User ID - ưu tiên claim doctorId trong token (header X-Doctor-Id), token cũ thì tra DB
      */
     public UUID findDoctorIdByUserId(UUID userId) {
+        UUID fromToken = AuthHeaders.currentDoctorId(userId);
+        if (fromToken != null) {
+            return fromToken;
+        }
         return doctorRepository.findByUserId(userId)
                 .map(Doctor::getId)
                 .orElse(null);
@@ -140,6 +146,7 @@ public class DoctorService {
         }
 
         doctor = doctorRepository.save(doctor);
+        bookingServiceClient.evictDoctor(doctor.getId());
         log.info("Doctor updated: {}", doctor.getId());
         return toDto(doctor);
     }
@@ -153,6 +160,7 @@ public class DoctorService {
             throw new ResourceNotFoundException("Doctor", "id", id);
         }
         doctorRepository.deleteById(id);
+        bookingServiceClient.evictDoctor(id);
         log.info("Doctor deleted: {}", id);
     }
 
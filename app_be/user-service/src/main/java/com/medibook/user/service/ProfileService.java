@@ -40,6 +40,7 @@ public class ProfileService {
 
     private final JdbcTemplate jdbcTemplate;
     private final NotificationClient notificationClient;
+    private final BookingServiceClient bookingServiceClient;
     private final ConcurrentMap<UUID, EmailVerificationCode> emailVerificationCodes = new ConcurrentHashMap<>();
     private final SecureRandom secureRandom = new SecureRandom();
 
@@ -136,6 +137,7 @@ public class ProfileService {
 
         // Đồng bộ sang bảng doctors nếu user là bác sĩ
         syncToDoctor(userId, profile);
+        bookingServiceClient.evictPatient(userId);
 
         return toDto(profile);
     }
@@ -147,6 +149,7 @@ public class ProfileService {
         }
 
         updateUserEmailIfNeeded(userId, normalizedEmail);
+        bookingServiceClient.evictPatient(userId);
 
         String code = String.format("%06d", secureRandom.nextInt(1_000_000));
         emailVerificationCodes.put(userId,
@@ -185,6 +188,7 @@ public class ProfileService {
                 "UPDATE users SET email = ?, email_verified = true, updated_at = now() WHERE id = ?",
                 verification.email(), userId);
         emailVerificationCodes.remove(userId);
+        bookingServiceClient.evictPatient(userId);
 
         return getProfileByUserId(userId).orElseGet(() -> ProfileDto.builder()
                 .userId(userId)
@@ -307,6 +311,7 @@ public class ProfileService {
 
             if (updated) {
                 doctorRepository.save(doctor);
+                bookingServiceClient.evictDoctor(doctor.getId());
                 log.info("Doctor info synced from Profile for userId: {}", userId);
             }
         });